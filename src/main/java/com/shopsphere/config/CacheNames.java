@@ -0,0 +1,17 @@
+package com.shopsphere.config;
+
+/**
+ * Names of the Spring caches. They must also be listed in spring.cache.cache-names so they are
+ * created (and get metrics) at startup.
+ */
+public final class CacheNames {
+
+    /** User entities by userId. */
+    public static final String USERS = "users";
+
+    /** Spring Security UserDetails by username, used by the DaoAuthenticationProvider during login. */
+    public static final String USER_DETAILS = "userDetails";
+
+    private CacheNames() {
+    }
+}
@@ -0,0 +1,117 @@
+package com.shopsphere.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Tracks how far the read replica is behind the primary so read-only transactions only go to it while it is
+ * close enough to current.
+ *
+ * The replica is caught up when it has replayed the WAL position the primary reported just before; otherwise the lag
+ * is the age of the last replayed transaction. Comparing positions first keeps an idle primary (no new commits, so
+ * an ever older replay timestamp) from looking like lag. A server that is not in recovery is not replicating and
+ * counts as current. Until the first successful check, and whenever a check fails, the replica is unusable.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    static final long UNKNOWN = -1;
+
+    private static final String REPLICA_LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_replay_lsn() >= ?::pg_lsn THEN 0
+                ELSE (EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint
+            END""";
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long maxLagMillis;
+    private volatile long lagMillis = UNKNOWN;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, long maxLagMillis, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLagMillis = maxLagMillis;
+        Gauge.builder("datasource.replica.lag", this, ReplicaLagMonitor::getLagMillis)
+                .baseUnit("milliseconds")
+                .description("Replication lag of the read replica, -1 while unknown or unreachable")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${application.datasource.replica.lag-check-interval-ms:1000}")
+    public void refresh() {
+        record(measureLagMillis());
+    }
+
+    /**
+     * @return The replica's lag in milliseconds, or {@link #UNKNOWN} if either server could not be queried.
+     */
+    long measureLagMillis() {
+        try {
+            String primaryLsn;
+            try (Connection connection = primary.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery("SELECT pg_current_wal_lsn()")) {
+                rs.next();
+                primaryLsn = rs.getString(1);
+            }
+            try (Connection connection = replica.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(REPLICA_LAG_SQL)) {
+                statement.setString(1, primaryLsn);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    long lag = rs.getLong(1);
+                    // no transaction replayed yet: nothing to measure against, so do not trust it
+                    return rs.wasNull() ? Long.MAX_VALUE : Math.max(lag, 0);
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Replica lag check failed: {}", e.getMessage());
+            return UNKNOWN;
+        }
+    }
+
+    void record(long lagMillis) {
+        long previous = this.lagMillis;
+        this.lagMillis = lagMillis;
+        boolean wasUsable = isUsable(previous);
+        if (wasUsable != isUsable(lagMillis)) {
+            if (wasUsable) {
+                log.warn("Routing read-only transactions to the primary, replica lag is {} ms (max {} ms)",
+                        lagMillis == UNKNOWN ? "unknown" : lagMillis, maxLagMillis);
+            } else {
+                log.info("Replica caught up ({} ms behind), routing read-only transactions to it again", lagMillis);
+            }
+        }
+    }
+
+    /**
+     * Called when a connection to the replica could not be opened, so reads stay on the primary until the next
+     * successful check.
+     */
+    public void markUnavailable() {
+        record(UNKNOWN);
+    }
+
+    public boolean isReplicaUsable() {
+        return isUsable(lagMillis);
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    private boolean isUsable(long lag) {
+        return lag != UNKNOWN && lag <= maxLagMillis;
+    }
+}
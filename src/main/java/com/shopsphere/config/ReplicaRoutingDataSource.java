@@ -0,0 +1,140 @@
+package com.shopsphere.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends connections for read-only transactions ({@code @Transactional(readOnly = true)}) to the read replica and
+ * everything else to the primary.
+ *
+ * A read-only transaction still goes to the primary when:
+ * - the replica is further behind than the allowed lag, or unreachable ({@link ReplicaLagMonitor});
+ * - the current user committed a write within the last pin-after-write interval, so they see their own changes
+ *   even if the replica has not replayed them yet;
+ * - opening a replica connection fails.
+ *
+ * The decision is made when the connection is opened, so this must sit behind a LazyConnectionDataSourceProxy:
+ * the transaction manager asks for a connection before the transaction is marked read-only, and the proxy defers
+ * the real connection to the first statement.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaLagMonitor lagMonitor;
+    private final long pinAfterWriteNanos;
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    private final Counter replicaReads;
+    private final Counter laggingReads;
+    private final Counter pinnedReads;
+    private final Counter fallbackReads;
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    DataSource replica,
+                                    ReplicaLagMonitor lagMonitor,
+                                    long pinAfterWriteMs,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        this.pinAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(pinAfterWriteMs);
+        this.replicaReads = readCounter("replica", meterRegistry);
+        this.laggingReads = readCounter("primary-lagging", meterRegistry);
+        this.pinnedReads = readCounter("primary-pinned", meterRegistry);
+        this.fallbackReads = readCounter("primary-fallback", meterRegistry);
+    }
+
+    private static Counter readCounter(String route, MeterRegistry meterRegistry) {
+        return Counter.builder("datasource.read-only.connections").tag("route", route).register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            pinCurrentUserAfterCommit();
+            return primary.getConnection();
+        }
+        String username = currentUsername();
+        if (username != null && isPinned(username)) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+        if (!lagMonitor.isReplicaUsable()) {
+            laggingReads.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            replicaReads.increment();
+            return connection;
+        } catch (SQLException e) {
+            log.warn("Could not open a replica connection, using the primary: {}", e.getMessage());
+            lagMonitor.markUnavailable();
+            fallbackReads.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        throw new UnsupportedOperationException("Credentials are configured on the primary and replica pools");
+    }
+
+    /**
+     * Drops pins of users who have not read since their pin ran out.
+     */
+    @Scheduled(fixedDelayString = "${application.datasource.replica.pin-purge-interval-ms:60000}")
+    public void purgeExpiredPins() {
+        long now = System.nanoTime();
+        pinnedUntil.values().removeIf(until -> until - now <= 0);
+    }
+
+    private void pinCurrentUserAfterCommit() {
+        if (pinAfterWriteNanos <= 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        String username = currentUsername();
+        if (username == null) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pinnedUntil.put(username, System.nanoTime() + pinAfterWriteNanos);
+            }
+        });
+    }
+
+    private boolean isPinned(String username) {
+        Long until = pinnedUntil.get(username);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        pinnedUntil.remove(username, until);
+        return false;
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
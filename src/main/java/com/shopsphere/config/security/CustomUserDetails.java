@@ -28,6 +28,17 @@ public class CustomUserDetails implements UserDetails {
                 .toList();
     }
 
+    /**
+     * Principal rebuilt from the claims of a verified JWT. It carries no password.
+     */
+    public CustomUserDetails(String userId, String username, String email, Collection<? extends GrantedAuthority> authorities) {
+        this.userId = userId;
+        this.email = email;
+        this.username = username;
+        this.password = null;
+        this.authorities = authorities;
+    }
+
     /**
      * Returns the authorities granted to the user. Cannot return <code>null</code>.
      *
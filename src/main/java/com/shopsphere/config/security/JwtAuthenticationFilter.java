@@ -1,20 +1,28 @@
 package com.shopsphere.config.security;
 
 import com.shopsphere.service.JwtService;
+import com.shopsphere.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 
 /*
@@ -27,20 +35,44 @@ import java.io.IOException;
 
   Responsibilities:
   - Extracts the JWT token from the Authorization header of incoming requests.
-  - Validates the extracted JWT to ensure integrity and authenticity.
-  - Loads the corresponding UserDetails based on the username extracted from the token.
+  - Validates the extracted JWT to ensure integrity and authenticity (parsed once per request).
+  - Rejects revoked tokens (bloom filter check, see TokenRevocationService).
+  - Builds the UserDetails from the signed userId/roles claims, without a database lookup.
+  - Skips public catalog GETs entirely.
   - Sets up an authenticated SecurityContext if the token is valid.
   - Proceeds to the next filter in the chain after processing the token.
 
   Key Dependencies:
-  - JwtUtil: A utility class responsible for token generation, extraction, and validation.
-  - UserDetailsService: Loads user-specific data during the authentication process.
+  - JwtService: A service responsible for token generation, extraction, and validation.
+  - UserDetailsService: Only used for tokens issued before the roles claim existed.
  */
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+    private static final List<String> PUBLIC_CATALOG_PATHS = List.of("/api/products/**", "/api/categories/**");
+
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+
+    /**
+     * Public catalog reads never need a principal, so the token is not even looked at.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return false;
+        }
+        String path = request.getServletPath();
+        for (String pattern : PUBLIC_CATALOG_PATHS) {
+            if (PATH_MATCHER.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     /**
      * Same contract as for {@code doFilter}, but guaranteed to be
@@ -57,21 +89,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
 
-
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")
+                || SecurityContextHolder.getContext().getAuthentication() != null) {
             filterChain.doFilter(request, response); //If not pass to next filter
             return;
         }
 
         final String jwt = authHeader.substring(7);
-        final String username = jwtService.extractUsername(jwt);
-
-        // If username is found and user is not already authenticated
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        try {
+            // Verifies signature and expiration in a single parse
+            Claims claims = jwtService.parseToken(jwt);
+            if (claims.getId() != null && tokenRevocationService.isRevoked(claims.getId())) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            UserDetails userDetails = jwtService.toUserDetails(claims);
+            if (userDetails == null && claims.getSubject() != null) {
+                // Token issued before the roles were signed into it; load the user once more until it expires
+                userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+            }
 
-            //Validate Token
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (userDetails != null) {
                 //create an authentication object if the token is valid
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
@@ -86,8 +124,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 // This marks the user as authenticated for the current request
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
-
-            filterChain.doFilter(request, response); //pass to next filter
+        } catch (JwtException | IllegalArgumentException | UsernameNotFoundException e) {
+            // Invalid or expired token: continue unauthenticated and let the authorization rules decide
+            log.debug("Rejected JWT for {}: {}", request.getRequestURI(), e.getMessage());
         }
+
+        filterChain.doFilter(request, response); //pass to next filter
     }
 }
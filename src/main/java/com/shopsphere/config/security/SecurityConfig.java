@@ -1,8 +1,13 @@
 package com.shopsphere.config.security;
 
+import com.shopsphere.config.CacheNames;
 import com.shopsphere.model.User;
 import com.shopsphere.repository.UserRepository;
+import com.shopsphere.service.UserCacheInvalidator;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,9 +19,12 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.cache.SpringCacheBasedUserCache;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -26,6 +34,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 // We'll add JWT filter later.
 
 
@@ -36,13 +45,25 @@ import java.util.List;
 public class SecurityConfig {
 
     private final UserRepository userRepository;
+    private final CacheManager cacheManager;
+    private final UserCacheInvalidator userCacheInvalidator;
+
+    @Value("${application.security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
 
      /**
      * Defines a PasswordEncoder bean for hashing passwords. (One-way cryptographic algorithm)
+     * New hashes are stored as "{bcrypt}..." with the configured cost. Hashes from before the prefix existed are
+     * still verified with plain BCrypt, and any hash that is unprefixed or below the configured cost is rehashed
+     * on the next successful login (see {@link #userDetailsPasswordService()}).
      */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        String idForEncode = "bcrypt";
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(idForEncode,
+                Map.of(idForEncode, new BCryptPasswordEncoder(bcryptStrength)));
+        passwordEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return passwordEncoder;
     }
 
 
@@ -68,12 +89,28 @@ public class SecurityConfig {
         };
     }
 
+    // Stores the upgraded hash when a login used an outdated one
+    @Bean
+    public UserDetailsPasswordService userDetailsPasswordService() {
+        return (userDetails, newPassword) -> {
+            User user = userRepository.findByUsername(userDetails.getUsername())
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + userDetails.getUsername()));
+            user.setPassword(newPassword);
+            User savedUser = userRepository.save(user);
+            userCacheInvalidator.evict(savedUser);
+            return new CustomUserDetails(savedUser);
+        };
+    }
+
     //Defines AuthenticationProvider for authentication login (DAO auth provider for database)
     @Bean
     public AuthenticationProvider  authenticationProvider() {
         DaoAuthenticationProvider daoAuthenticationProvider = new DaoAuthenticationProvider();
         daoAuthenticationProvider.setUserDetailsService(userDetailsService()); //our custom
         daoAuthenticationProvider.setPasswordEncoder(passwordEncoder());
+        daoAuthenticationProvider.setUserDetailsPasswordService(userDetailsPasswordService());
+        // Skips the users/user_roles query for repeated logins; on a password mismatch the provider reloads the user once
+        daoAuthenticationProvider.setUserCache(new SpringCacheBasedUserCache(cacheManager.getCache(CacheNames.USER_DETAILS)));
         return daoAuthenticationProvider;
     }
 
@@ -90,7 +127,11 @@ public class SecurityConfig {
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(
                         authorize -> authorize
+                        // streaming responses (SSE) complete on an async dispatch, which carries no JWT of its own;
+                        // the original request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         .requestMatchers("/api/orders/**").authenticated()
+                        .requestMatchers("/actuator/metrics/**").hasRole("ADMIN")
                         .anyRequest().permitAll()
                 )
                 .sessionManagement(
@@ -110,7 +151,7 @@ public class SecurityConfig {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(List.of("http://localhost:4200")); // Angular dev server
         configuration.setAllowedMethods(List.of("GET","POST","PUT","DELETE","OPTIONS"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "Last-Event-ID"));
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
         return source;
@@ -1,26 +1,48 @@
 package com.shopsphere.controller;
 
 import com.shopsphere.dto.AdminDashboardStats;
+import com.shopsphere.dto.AdminUserPage;
 import com.shopsphere.dto.CategoryRequest;
 import com.shopsphere.dto.CategoryResponse;
 import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.dto.PricingRuleRequest;
+import com.shopsphere.dto.PricingRuleResponse;
 import com.shopsphere.dto.ProductRequest;
 import com.shopsphere.dto.ProductResponse;
-import com.shopsphere.model.User;
+import com.shopsphere.dto.RevenuePoint;
+import com.shopsphere.dto.SalesBreakdownEntry;
+import com.shopsphere.dto.StockAdjustmentRequest;
+import com.shopsphere.dto.StockLevelResponse;
+import com.shopsphere.dto.StockMovementResponse;
+import com.shopsphere.dto.UserImportRequest;
+import com.shopsphere.dto.UserImportResponse;
+import com.shopsphere.dto.UserProfile;
 import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.model.enums.PaymentStatus;
+import com.shopsphere.model.enums.RollupGranularity;
+import com.shopsphere.service.AdminOrderFeed;
 import com.shopsphere.service.AdminService;
 import com.shopsphere.service.CategoryService;
 import com.shopsphere.service.OrderService;
+import com.shopsphere.service.PricingRuleService;
 import com.shopsphere.service.ProductService;
+import com.shopsphere.service.SalesAnalyticsService;
+import com.shopsphere.service.SalesRollupService;
+import com.shopsphere.service.StockLedgerService;
+import com.shopsphere.service.UserImportService;
 import com.shopsphere.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -34,6 +56,12 @@ public class AdminController {
     private final CategoryService categoryService;
     private final OrderService orderService;
     private final UserService userService;
+    private final PricingRuleService pricingRuleService;
+    private final UserImportService userImportService;
+    private final SalesAnalyticsService salesAnalyticsService;
+    private final SalesRollupService salesRollupService;
+    private final AdminOrderFeed adminOrderFeed;
+    private final StockLedgerService stockLedgerService;
 
     /**
      * GET /api/admin/dashboard/stats : Get admin dashboard statistics.
@@ -95,11 +123,11 @@ public class AdminController {
 
     /**
      * GET /api/admin/products/search/low-stock : Get low stock products.
-     * @param threshold The stock threshold.
+     * @param threshold The stock threshold. Without it, products at or below their own reorder threshold are returned.
      * @return ResponseEntity with list of low stock products and HTTP status 200 OK.
      */
     @GetMapping("/products/search/low-stock")
-    public ResponseEntity<List<ProductResponse>> getLowStockProducts(@RequestParam Integer threshold) {
+    public ResponseEntity<List<ProductResponse>> getLowStockProducts(@RequestParam(required = false) Integer threshold) {
         List<ProductResponse> products = productService.getLowStockProducts(threshold);
         return ResponseEntity.ok(products);
     }
@@ -154,6 +182,48 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * POST /api/admin/products/{id}/stock : Add a signed quantity to a product's stock (restock or adjustment).
+     * Unlike a stock quantity in PUT /api/admin/products/{id}, it cannot overwrite concurrent checkouts.
+     * @param id The product ID.
+     * @param request The quantity and type (RESTOCK or ADJUSTMENT).
+     * @return ResponseEntity with the updated product and HTTP status 200 OK.
+     */
+    @PostMapping("/products/{id}/stock")
+    public ResponseEntity<ProductResponse> adjustStock(@PathVariable String id, @RequestBody StockAdjustmentRequest request) {
+        return ResponseEntity.ok(productService.adjustStock(id, request));
+    }
+
+    /**
+     * GET /api/admin/products/{id}/stock/at : A product's stock at a point in time, from the stock ledger.
+     * @param id The product ID.
+     * @param at The point in time, ISO date-time (default now). Beyond the ledger's retention, stock is kept per day.
+     * @return ResponseEntity with the stock level and HTTP status 200 OK.
+     */
+    @GetMapping("/products/{id}/stock/at")
+    public ResponseEntity<StockLevelResponse> getStockAt(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(stockLedgerService.getStockAt(id, at));
+    }
+
+    /**
+     * GET /api/admin/products/{id}/stock/movements : A product's stock movements, newest first.
+     * @param id The product ID.
+     * @param from Start of the range, ISO date-time (default 30 days before 'to').
+     * @param to End of the range, ISO date-time (default now).
+     * @param limit Number of movements (default 100, max 1000).
+     * @return ResponseEntity with the movements and HTTP status 200 OK.
+     */
+    @GetMapping("/products/{id}/stock/movements")
+    public ResponseEntity<List<StockMovementResponse>> getStockMovements(
+            @PathVariable String id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(stockLedgerService.getMovements(id, from, to, limit));
+    }
+
     // Category Management Methods
 
     /**
@@ -239,6 +309,20 @@ public class AdminController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * GET /api/admin/orders/stream : Live feed of placed orders and status changes as Server-Sent Events.
+     * Events are named "order-placed", "order-status-changed" and "reset" (reload, the missed events are gone).
+     * @param lastEventId The Last-Event-ID header of a reconnecting client; events after it are replayed.
+     * @return ResponseEntity with the event stream and HTTP status 200 OK, or 503 when too many clients are connected.
+     */
+    @GetMapping(value = "/orders/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamOrders(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = adminOrderFeed.subscribe(lastEventId);
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no") // keep reverse proxies from buffering the stream
+                .body(emitter);
+    }
+
     /**
      * GET /api/admin/orders/{id} : Get order by ID.
      * @param id The order ID.
@@ -264,26 +348,169 @@ public class AdminController {
         return ResponseEntity.ok(updatedOrder);
     }
 
+    /**
+     * PUT /api/admin/orders/{id}/payment-status : Update the status of an order's payment.
+     * @param id The order ID.
+     * @param status The new payment status.
+     * @return ResponseEntity with the updated order and HTTP status 200 OK.
+     */
+    @PutMapping("/orders/{id}/payment-status")
+    public ResponseEntity<OrderResponse> updatePaymentStatus(
+            @PathVariable String id,
+            @RequestParam PaymentStatus status) {
+        OrderResponse updatedOrder = orderService.updatePaymentStatus(id, status);
+        return ResponseEntity.ok(updatedOrder);
+    }
+
+    // Pricing Rule Management Methods
+
+    /**
+     * GET /api/admin/pricing-rules : Get all tax, shipping and promotion rules.
+     * @return ResponseEntity with list of all pricing rules and HTTP status 200 OK.
+     */
+    @GetMapping("/pricing-rules")
+    public ResponseEntity<List<PricingRuleResponse>> getAllPricingRules() {
+        List<PricingRuleResponse> rules = pricingRuleService.getAllRules();
+        return ResponseEntity.ok(rules);
+    }
+
+    /**
+     * POST /api/admin/pricing-rules : Create a pricing rule. The pricing tables are recompiled after commit.
+     * @param request The pricing rule request DTO.
+     * @return ResponseEntity with the created rule and HTTP status 201 Created.
+     */
+    @PostMapping("/pricing-rules")
+    public ResponseEntity<PricingRuleResponse> createPricingRule(@RequestBody PricingRuleRequest request) {
+        PricingRuleResponse createdRule = pricingRuleService.createRule(request);
+        URI location = ServletUriComponentsBuilder
+                .fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(createdRule.getRuleId())
+                .toUri();
+        return ResponseEntity.created(location).body(createdRule);
+    }
+
+    /**
+     * PUT /api/admin/pricing-rules/{id} : Update a pricing rule.
+     * @param id The rule ID.
+     * @param request The pricing rule request DTO.
+     * @return ResponseEntity with the updated rule and HTTP status 200 OK.
+     */
+    @PutMapping("/pricing-rules/{id}")
+    public ResponseEntity<PricingRuleResponse> updatePricingRule(@PathVariable String id, @RequestBody PricingRuleRequest request) {
+        PricingRuleResponse updatedRule = pricingRuleService.updateRule(id, request);
+        return ResponseEntity.ok(updatedRule);
+    }
+
+    /**
+     * DELETE /api/admin/pricing-rules/{id} : Delete a pricing rule.
+     * @param id The rule ID.
+     * @return ResponseEntity with HTTP status 204 No Content.
+     */
+    @DeleteMapping("/pricing-rules/{id}")
+    public ResponseEntity<Void> deletePricingRule(@PathVariable String id) {
+        pricingRuleService.deleteRule(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Sales Analytics Methods
+
+    /**
+     * GET /api/admin/analytics/revenue : Revenue, orders and units per hour or day.
+     * @param granularity HOUR or DAY (default DAY).
+     * @param from Start of the range, ISO date-time (default 30 days before 'to').
+     * @param to End of the range, ISO date-time (default now).
+     * @param status Optional order status; all but cancelled and refunded by default.
+     * @return ResponseEntity with the series and HTTP status 200 OK.
+     */
+    @GetMapping("/analytics/revenue")
+    public ResponseEntity<List<RevenuePoint>> getRevenueSeries(
+            @RequestParam(defaultValue = "DAY") RollupGranularity granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) OrderStatus status) {
+        return ResponseEntity.ok(salesAnalyticsService.getRevenueSeries(granularity, from, to, status));
+    }
+
+    /**
+     * GET /api/admin/analytics/top-products : Best-selling products by revenue.
+     * @param from Start of the range, ISO date-time, rounded down to the day (default 30 days before 'to').
+     * @param to End of the range, ISO date-time, rounded up to the day (default today).
+     * @param limit Number of products (default 10, max 100).
+     * @param status Optional order status; all but cancelled and refunded by default.
+     * @return ResponseEntity with the top products and HTTP status 200 OK.
+     */
+    @GetMapping("/analytics/top-products")
+    public ResponseEntity<List<SalesBreakdownEntry>> getTopProducts(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) OrderStatus status) {
+        return ResponseEntity.ok(salesAnalyticsService.getTopProducts(from, to, limit, status));
+    }
+
+    /**
+     * GET /api/admin/analytics/categories : Sales per category.
+     * @param from Start of the range, ISO date-time, rounded down to the day (default 30 days before 'to').
+     * @param to End of the range, ISO date-time, rounded up to the day (default today).
+     * @param status Optional order status; all but cancelled and refunded by default.
+     * @return ResponseEntity with one entry per category and HTTP status 200 OK.
+     */
+    @GetMapping("/analytics/categories")
+    public ResponseEntity<List<SalesBreakdownEntry>> getCategoryBreakdown(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) OrderStatus status) {
+        return ResponseEntity.ok(salesAnalyticsService.getCategoryBreakdown(from, to, status));
+    }
+
+    /**
+     * POST /api/admin/analytics/rebuild : Recompute the sales rollups from all orders.
+     * @return ResponseEntity with HTTP status 204 No Content.
+     */
+    @PostMapping("/analytics/rebuild")
+    public ResponseEntity<Void> rebuildSalesRollups() {
+        salesRollupService.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+
     // User Management Methods
 
     /**
-     * GET /api/admin/users : Get all users.
-     * @return ResponseEntity with list of all users and HTTP status 200 OK.
+     * GET /api/admin/users : Get users page by page, ordered by username.
+     * @param after The nextCursor of the previous page (omit for the first page).
+     * @param search Optional username or email prefix.
+     * @param limit Page size (default 50, max 200).
+     * @return ResponseEntity with the page of users and HTTP status 200 OK.
      */
     @GetMapping("/users")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
+    public ResponseEntity<AdminUserPage> getAllUsers(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "50") int limit) {
+        AdminUserPage users = userService.listUsers(after, search, limit);
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * POST /api/admin/users/import : Bulk import users, e.g. when migrating from another system.
+     * @param requests The users to import.
+     * @return ResponseEntity with the import summary and HTTP status 200 OK.
+     */
+    @PostMapping("/users/import")
+    public ResponseEntity<UserImportResponse> importUsers(@RequestBody List<UserImportRequest> requests) {
+        UserImportResponse response = userImportService.importUsers(requests);
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * GET /api/admin/users/{id} : Get user by ID.
      * @param id The user ID.
      * @return ResponseEntity with the user and HTTP status 200 OK.
      */
     @GetMapping("/users/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable String id) {
-        User user = userService.getUserById(id);
+    public ResponseEntity<UserProfile> getUserById(@PathVariable String id) {
+        UserProfile user = userService.findById(id);
         return ResponseEntity.ok(user);
     }
 }
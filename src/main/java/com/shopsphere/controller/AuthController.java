@@ -2,13 +2,17 @@ package com.shopsphere.controller;
 
 import com.shopsphere.dto.JwtAuthResponse;
 import com.shopsphere.dto.LoginRequest;
+import com.shopsphere.dto.RefreshTokenRequest;
 import com.shopsphere.dto.RegisterRequest;
 import com.shopsphere.model.User;
 import com.shopsphere.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -42,13 +46,38 @@ public class AuthController {
     /**
      * POST /api/auth/login: Authenticate user and return JWT.
      * @param loginRequest The login request DTO.
-     * @return ResponseEntity with {@link JwtAuthResponse} and HTTP status 200 OK.
+     * @param request The HTTP request, for the client address.
+     * @return ResponseEntity with {@link JwtAuthResponse} and HTTP status 200 OK, or 429 when throttled.
      */
     @PostMapping("/login")
-    public ResponseEntity<JwtAuthResponse> login(@RequestBody LoginRequest loginRequest) {
-        JwtAuthResponse authResponse = userService.login(loginRequest);
+    public ResponseEntity<JwtAuthResponse> login(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+        JwtAuthResponse authResponse = userService.login(loginRequest, request.getRemoteAddr());
         return ResponseEntity.ok(authResponse);
 
     }
 
-}
\ No newline at end of file
+    /**
+     * POST /api/auth/refresh : Exchange a refresh token for new access and refresh tokens.
+     * @param request The refresh token request DTO.
+     * @return ResponseEntity with {@link JwtAuthResponse} and HTTP status 200 OK, or 401 if the token is invalid.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<JwtAuthResponse> refresh(@RequestBody RefreshTokenRequest request) {
+        return ResponseEntity.ok(userService.refresh(request.getRefreshToken()));
+    }
+
+    /**
+     * POST /api/auth/logout : Revoke the refresh token and the current access token.
+     * @param request The refresh token request DTO (optional).
+     * @param authHeader The Authorization header (optional).
+     * @return ResponseEntity with HTTP status 204 No Content.
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestBody(required = false) RefreshTokenRequest request,
+                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authHeader) {
+        String accessToken = authHeader != null && authHeader.startsWith("Bearer ") ? authHeader.substring(7) : null;
+        userService.logout(request == null ? null : request.getRefreshToken(), accessToken);
+        return ResponseEntity.noContent().build();
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.shopsphere.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Keys are uuid columns, so PostgreSQL rejects an id that is not a UUID before looking for it. No row can have such
+ * an id: answer 404 like for any other unknown id instead of failing the request.
+ */
+@RestControllerAdvice
+public class MalformedIdHandler {
+
+    private static final String INVALID_TEXT_REPRESENTATION = "22P02";
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public void handle(DataIntegrityViolationException e, HttpServletResponse response) throws IOException {
+        if (e.getMostSpecificCause() instanceof SQLException sqlException
+                && INVALID_TEXT_REPRESENTATION.equals(sqlException.getSQLState())) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "Not found.");
+            return;
+        }
+        throw e; // anything else keeps its default handling
+    }
+}
@@ -5,10 +5,13 @@ import com.shopsphere.dto.OrderResponse;
 import com.shopsphere.dto.PlaceOrderRequest;
 import com.shopsphere.model.enums.OrderStatus;
 import com.shopsphere.service.OrderService;
+import com.shopsphere.service.OrderStatusFeed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
@@ -20,6 +23,7 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderStatusFeed orderStatusFeed;
 
     /**
      * POST /api/orders/place : Place a new order from the authenticated user's cart.
@@ -52,6 +56,21 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * GET /api/orders/updates : Stream status and payment-status changes of the authenticated user's orders
+     * as Server-Sent Events ("order-status" and "payment-status"), instead of polling GET /api/orders/{id}.
+     * @param userDetails The authenticated user's details.
+     * @return ResponseEntity with the event stream and HTTP status 200 OK, 429 when the user has too many
+     * streams open, or 503 when this node is at capacity.
+     */
+    @GetMapping(value = "/updates", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamOrderUpdates(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        SseEmitter emitter = orderStatusFeed.subscribe(userDetails.getUserId());
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no") // keep reverse proxies from buffering the stream
+                .body(emitter);
+    }
+
     /**
      * GET /api/orders/{id} : Get a specific order by its ID.
      * @param id The ID of the order.
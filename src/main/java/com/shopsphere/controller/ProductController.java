@@ -44,7 +44,7 @@ public class ProductController {
     }
 
     @GetMapping("/search/low-stock")
-    public ResponseEntity<List<ProductResponse>> getLowStockProducts(@RequestParam Integer threshold) {
+    public ResponseEntity<List<ProductResponse>> getLowStockProducts(@RequestParam(required = false) Integer threshold) {
         List<ProductResponse> products = productService.getLowStockProducts(threshold);
         return ResponseEntity.ok(products);
     }
@@ -0,0 +1,19 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminOrderStatusChange {
+    private String orderId;
+    private String previousStatus;
+    private String newStatus;
+    private BigDecimal totalAmount;
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,15 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminUserPage {
+    private List<AdminUserSummary> users;
+    private String nextCursor; // pass as 'after' to get the next page, null on the last page
+}
@@ -0,0 +1,22 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminUserSummary {
+    private String userId;
+    private String username;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private LocalDateTime registrationDate;
+    private LocalDateTime lastLogin;
+    private List<String> roles;
+}
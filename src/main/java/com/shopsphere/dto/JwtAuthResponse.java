@@ -14,5 +14,7 @@ public class JwtAuthResponse {
     private String username;
     private String email;
     private String role;
+    private String refreshToken;
+    private long expiresIn; // access token lifetime in seconds
     // Optionally include roles, etc.
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One order event as relayed to the live feeds of every node. Only the parts the event has are set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderFeedMessage {
+    private AdminOrderSummary placed;
+    private AdminOrderStatusChange statusChanged;
+    // the customer whose order changed, and what to push to them
+    private String userId;
+    private OrderStatusUpdate statusUpdate;
+}
@@ -16,6 +16,7 @@ public class OrderItemResponse {
     private String orderItemId;
     private String productId;
     private String productName;
+    private String categoryId;
     private String productImageUrl;
     private Integer quantity;
     private BigDecimal priceAtPurchase;
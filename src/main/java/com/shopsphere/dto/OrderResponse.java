@@ -19,6 +19,10 @@ public class OrderResponse {
     private String username;
     private LocalDateTime orderDate;
     private BigDecimal totalAmount;
+    private BigDecimal subtotal;
+    private BigDecimal discountAmount;
+    private BigDecimal taxAmount;
+    private BigDecimal shippingAmount;
     private OrderStatus status;
 
     // Shipping Address details
@@ -0,0 +1,22 @@
+package com.shopsphere.dto;
+
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.model.enums.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pushed to a customer when one of their orders changes. Only the field that changed is set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderStatusUpdate {
+    private String orderId;
+    private OrderStatus status;
+    private PaymentStatus paymentStatus;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,23 @@
+package com.shopsphere.dto;
+
+import com.shopsphere.model.enums.PricingRuleType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingRuleRequest {
+    private PricingRuleType type;
+    private String country;
+    private String state;
+    private String postalPrefix;
+    private String categoryId;
+    private BigDecimal minSubtotal;
+    private Integer rateBasisPoints; // 825 = 8.25%
+    private BigDecimal flatAmount;
+    private Boolean active;
+}
@@ -0,0 +1,27 @@
+package com.shopsphere.dto;
+
+import com.shopsphere.model.enums.PricingRuleType;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingRuleResponse {
+    private String ruleId;
+    private PricingRuleType type;
+    private String country;
+    private String state;
+    private String postalPrefix;
+    private String categoryId;
+    private BigDecimal minSubtotal;
+    private Integer rateBasisPoints;
+    private BigDecimal flatAmount;
+    private boolean active;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -14,6 +14,8 @@ public class ProductRequest {
     private String description;
     private BigDecimal price;
     private Integer stockQuantity;
+    private Integer reorderThreshold;
     private String imageUrl;
     private String categoryId;
+    private Long version; // optional on updates: the version the edit was based on, 409 if the product changed since
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenuePoint {
+    private LocalDateTime bucketStart;
+    private long orderCount;
+    private long units;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,21 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Sales of one product or category over a period.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesBreakdownEntry {
+    private String id; // product or category ID, null for uncategorized
+    private String name;
+    private long orderCount;
+    private long units;
+    private BigDecimal revenue;
+}
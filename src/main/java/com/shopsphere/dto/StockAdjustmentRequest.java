@@ -0,0 +1,14 @@
+package com.shopsphere.dto;
+
+import com.shopsphere.model.enums.StockMovementType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAdjustmentRequest {
+    private Integer quantity; // signed: added to the current stock
+    private StockMovementType type; // RESTOCK or ADJUSTMENT
+}
@@ -0,0 +1,17 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelResponse {
+    private String productId;
+    private LocalDateTime at;
+    private int stockQuantity;
+    private LocalDateTime lastMovementAt; // the movement that left this stock
+}
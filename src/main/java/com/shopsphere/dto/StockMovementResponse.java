@@ -0,0 +1,19 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementResponse {
+    private String movementId;
+    private String type;
+    private int quantity;
+    private int stockAfter;
+    private String orderId;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One user of a bulk import. Either a plain password or an existing BCrypt hash from the source system must be set.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportRequest {
+    private String username;
+    private String email;
+    private String password;
+    private String passwordHash; // e.g. "$2a$10$...", stored as is and upgraded on the user's next login
+    private String firstName;
+    private String lastName;
+    private String phoneNumber;
+    private List<String> roles; // role names, defaults to ROLE_USER
+}
@@ -0,0 +1,15 @@
+package com.shopsphere.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResponse {
+    private int imported;
+    private List<String> skipped; // "username: reason" for every user that was not imported
+}
@@ -0,0 +1,23 @@
+package com.shopsphere.dto;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read-only view of a user without credentials. This is what the users cache holds, so a cached entry can be
+ * shared between requests without exposing the password hash or being changed by a caller.
+ */
+@Value
+public class UserProfile {
+    String userId;
+    String username;
+    String email;
+    String firstName;
+    String lastName;
+    String phoneNumber;
+    LocalDateTime registrationDate;
+    LocalDateTime lastLogin;
+    List<String> roles;
+}
@@ -0,0 +1,10 @@
+package com.shopsphere.event;
+
+/**
+ * What {@link DomainEventBus} does when the ring buffer is full because the slowest handler
+ * has fallen a whole ring behind.
+ */
+public enum BackpressurePolicy {
+    BLOCK, // wait for the slowest handler up to the publish timeout, then drop
+    DROP   // drop the new event immediately
+}
@@ -0,0 +1,17 @@
+package com.shopsphere.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Published after a transaction that changed second-level cached entities or collections committed, so that the
+ * other nodes evict them.
+ */
+@Getter
+@AllArgsConstructor
+public class CacheEntriesChangedEvent implements DomainEvent {
+
+    private final Set<String> changes; // lines in the format of ClusterCacheInvalidator
+}
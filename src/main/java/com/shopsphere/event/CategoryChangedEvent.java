@@ -0,0 +1,19 @@
+package com.shopsphere.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after a category was created, updated or deleted.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent implements DomainEvent {
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final ChangeType changeType;
+    private final String categoryId;
+}
@@ -0,0 +1,8 @@
+package com.shopsphere.event;
+
+/**
+ * Marker for events published on the in-process {@link DomainEventBus}.
+ * Events are immutable snapshots; handlers may read them from any thread.
+ */
+public interface DomainEvent {
+}
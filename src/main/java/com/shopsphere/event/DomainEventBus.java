@@ -0,0 +1,300 @@
+package com.shopsphere.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process domain event bus backed by a preallocated ring buffer.
+ *
+ * Publishers write into the ring under a short lock and never allocate per event beyond the event itself.
+ * Every {@link DomainEventHandler} bean gets its own consumer thread that tracks its own position in the ring
+ * and receives everything published since its last run as one batch, so a slow handler only delays itself.
+ * The ring is bounded: when the slowest handler is a full ring behind, the {@link BackpressurePolicy} decides
+ * whether publishers wait or the event is dropped. Slots every handler has passed are cleared, so the ring does
+ * not keep old events reachable until they are overwritten. Nothing here is durable, so handlers must tolerate losing
+ * events on a crash (the SQS hand-off and the read models reconcile from the database).
+ */
+@Component
+@Slf4j
+public class DomainEventBus implements SmartLifecycle {
+
+    private final Object[] ring;
+    private final int mask;
+    private final int maxBatchSize;
+    private final BackpressurePolicy backpressurePolicy;
+    private final long publishTimeoutNanos;
+
+    private final ObjectProvider<DomainEventHandler> handlerProvider;
+    private final MeterRegistry meterRegistry;
+    private final Counter publishedCounter;
+    private final Counter droppedCounter;
+
+    private final List<HandlerWorker> workers = new ArrayList<>();
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private long nextSequence = 0; // guarded by publishLock
+    private volatile long clearedSequence = -1; // written under publishLock: slots up to here are null or reused
+    private volatile long publishedSequence = -1;
+    private volatile boolean running = false;
+
+    public DomainEventBus(@Value("${application.events.ring-size:8192}") int ringSize,
+                          @Value("${application.events.max-batch-size:256}") int maxBatchSize,
+                          @Value("${application.events.backpressure:BLOCK}") BackpressurePolicy backpressurePolicy,
+                          @Value("${application.events.publish-timeout-ms:50}") long publishTimeoutMs,
+                          ObjectProvider<DomainEventHandler> handlerProvider,
+                          MeterRegistry meterRegistry) {
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("application.events.ring-size must be a power of two: " + ringSize);
+        }
+        this.ring = new Object[ringSize];
+        this.mask = ringSize - 1;
+        this.maxBatchSize = maxBatchSize;
+        this.backpressurePolicy = backpressurePolicy;
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(publishTimeoutMs);
+        this.handlerProvider = handlerProvider;
+        this.meterRegistry = meterRegistry;
+        this.publishedCounter = Counter.builder("domain.events.published").register(meterRegistry);
+        this.droppedCounter = Counter.builder("domain.events.dropped").register(meterRegistry);
+        Gauge.builder("domain.events.ring.capacity", () -> ringSize).register(meterRegistry);
+    }
+
+    /**
+     * Publishes the event once the current transaction commits, or right away if there is none.
+     * Handlers therefore never see events of rolled back work.
+     * @param event The event to publish.
+     */
+    public void publishAfterCommit(DomainEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+
+    /**
+     * Publishes the event immediately.
+     * @param event The event to publish.
+     * @return false if the event was dropped because the ring was full.
+     */
+    public boolean publish(DomainEvent event) {
+        publishLock.lock();
+        try {
+            long sequence = nextSequence;
+            if (!awaitCapacity(sequence)) {
+                droppedCounter.increment();
+                log.warn("Domain event bus full, dropped {} (sequence {})", event.getClass().getSimpleName(), sequence);
+                return false;
+            }
+            ring[(int) sequence & mask] = event;
+            clearedSequence = Math.max(clearedSequence, sequence - ring.length); // that slot was just reused
+            clearConsumedSlots();
+            nextSequence = sequence + 1;
+            publishedSequence = sequence; // volatile write publishes the slot to the consumers
+        } finally {
+            publishLock.unlock();
+        }
+        publishedCounter.increment();
+        return true;
+    }
+
+    private boolean awaitCapacity(long sequence) {
+        long wrapPoint = sequence - ring.length;
+        if (wrapPoint <= slowestWorkerSequence()) {
+            return true;
+        }
+        if (backpressurePolicy == BackpressurePolicy.DROP) {
+            return false;
+        }
+        long deadline = System.nanoTime() + publishTimeoutNanos;
+        while (wrapPoint > slowestWorkerSequence()) {
+            if (System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            LockSupport.parkNanos(50_000);
+        }
+        return true;
+    }
+
+    private long slowestWorkerSequence() {
+        long min = publishedSequence;
+        for (HandlerWorker worker : workers) {
+            min = Math.min(min, worker.sequence);
+        }
+        return min;
+    }
+
+    // caller holds publishLock, so a slot is never cleared after a publisher has reused it
+    private void clearConsumedSlots() {
+        long consumed = Math.min(slowestWorkerSequence(), nextSequence - 1);
+        for (long s = clearedSequence + 1; s <= consumed; s++) {
+            ring[(int) s & mask] = null;
+        }
+        clearedSequence = Math.max(clearedSequence, consumed);
+    }
+
+    // workers never wait for the lock: a publisher holding it may be waiting for them. What they skip is
+    // cleared by the next publish or their next attempt
+    private void tryClearConsumedSlots() {
+        if (publishLock.tryLock()) {
+            try {
+                clearConsumedSlots();
+            } finally {
+                publishLock.unlock();
+            }
+        }
+    }
+
+    // for tests
+    int retainedEvents() {
+        publishLock.lock();
+        try {
+            int retained = 0;
+            for (Object slot : ring) {
+                if (slot != null) {
+                    retained++;
+                }
+            }
+            return retained;
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        handlerProvider.orderedStream().forEach(handler -> {
+            HandlerWorker worker = new HandlerWorker(handler, publishedSequence);
+            workers.add(worker);
+            Gauge.builder("domain.events.lag", worker, w -> publishedSequence - w.sequence)
+                    .tag("handler", handler.getName())
+                    .register(meterRegistry);
+        });
+        running = true;
+        workers.forEach(worker -> worker.thread.start());
+        log.info("Domain event bus started with {} handler(s), ring size {}", workers.size(), ring.length);
+    }
+
+    @Override
+    public void stop() {
+        // let the handlers drain what was already published before stopping their threads
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (slowestWorkerSequence() < publishedSequence && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        running = false;
+        for (HandlerWorker worker : workers) {
+            worker.thread.interrupt();
+        }
+        for (HandlerWorker worker : workers) {
+            try {
+                worker.thread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Consumer for one handler, on its own named daemon thread. Owns its batch list and its position in the ring.
+     */
+    private final class HandlerWorker implements Runnable {
+        private final Thread thread;
+        private final DomainEventHandler handler;
+        private final List<DomainEvent> batch;
+        private final Counter errorCounter;
+        private final DistributionSummary batchSize;
+        private volatile long sequence; // last sequence this handler has finished with
+
+        HandlerWorker(DomainEventHandler handler, long startSequence) {
+            this.thread = Thread.ofPlatform()
+                    .name("domain-events-" + handler.getName())
+                    .daemon(true)
+                    // the handler's own failures are caught per batch; anything else stops the worker, and with
+                    // it the ring, so it must not go unnoticed
+                    .uncaughtExceptionHandler((t, e) -> log.error("Domain event worker {} died; publishers will "
+                            + "block or drop from now on", t.getName(), e))
+                    .unstarted(this);
+            this.handler = handler;
+            this.sequence = startSequence;
+            this.batch = new ArrayList<>(maxBatchSize);
+            this.errorCounter = Counter.builder("domain.events.handler.errors")
+                    .tag("handler", handler.getName())
+                    .register(meterRegistry);
+            this.batchSize = DistributionSummary.builder("domain.events.handler.batch.size")
+                    .tag("handler", handler.getName())
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void run() {
+            int idleSpins = 0;
+            while (running) {
+                long available = publishedSequence;
+                if (available <= sequence) {
+                    if (clearedSequence < slowestWorkerSequence()) {
+                        tryClearConsumedSlots();
+                    }
+                    idleSpins = idle(idleSpins);
+                    continue;
+                }
+                idleSpins = 0;
+                long end = Math.min(available, sequence + maxBatchSize);
+                for (long s = sequence + 1; s <= end; s++) {
+                    DomainEvent event = (DomainEvent) ring[(int) s & mask];
+                    if (handler.supports(event)) {
+                        batch.add(event);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    batchSize.record(batch.size());
+                    try {
+                        handler.onEvents(batch);
+                    } catch (Exception e) {
+                        errorCounter.increment();
+                        log.error("Domain event handler '{}' failed on a batch of {} event(s): {}",
+                                handler.getName(), batch.size(), e.getMessage(), e);
+                    }
+                    batch.clear();
+                }
+                sequence = end;
+                tryClearConsumedSlots();
+            }
+        }
+
+        // spin briefly, then yield, then park so an idle handler costs next to nothing
+        private int idle(int idleSpins) {
+            if (idleSpins < 100) {
+                Thread.onSpinWait();
+            } else if (idleSpins < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            return idleSpins + 1;
+        }
+    }
+}
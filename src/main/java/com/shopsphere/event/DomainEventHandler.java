@@ -0,0 +1,30 @@
+package com.shopsphere.event;
+
+import java.util.List;
+
+/**
+ * A consumer of domain events. Every handler gets its own consumer thread on the
+ * {@link DomainEventBus} and receives events in publication order, in batches.
+ */
+public interface DomainEventHandler {
+
+    /**
+     * Name used for the consumer thread and the per-handler metrics.
+     */
+    String getName();
+
+    /**
+     * Whether this handler wants to receive the given event. Unsupported events are skipped
+     * without being added to the batch.
+     */
+    default boolean supports(DomainEvent event) {
+        return true;
+    }
+
+    /**
+     * Handles a batch of events. The list is reused by the bus after this call returns,
+     * so implementations must not keep a reference to it.
+     * @param events The supported events, oldest first (never empty).
+     */
+    void onEvents(List<DomainEvent> events);
+}
@@ -6,24 +6,40 @@ import com.shopsphere.service.SqsMessageSenderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.event.TransactionPhase;
-import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class OrderEventListener {
+public class OrderEventListener implements DomainEventHandler {
     private final SqsMessageSenderService sqsMessageSenderService;
     private final ObjectMapper objectMapper;
 
+    @Override
+    public String getName() {
+        return "order-sqs";
+    }
+
+    @Override
+    public boolean supports(DomainEvent event) {
+        return event instanceof OrderPlacedEvent;
+    }
+
     /**
-     * Listens for OrderPlacedEvent and sends an SQS message after the transaction commits.
-     * @param event The OrderPlacedEvent.
+     * Sends an SQS message for every OrderPlacedEvent. Runs on the bus consumer thread,
+     * after the order transaction has committed.
+     * @param events The batch of OrderPlacedEvents.
      */
-    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    public void handleOrderPlacedEvent(OrderPlacedEvent event) {
-        log.info("Handling OrderPlacedEvent for order ID: {}. Transaction phase: {}",
-                event.getOrderResponse().getOrderId(), TransactionPhase.AFTER_COMMIT.name());
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        for (DomainEvent event : events) {
+            handleOrderPlacedEvent((OrderPlacedEvent) event);
+        }
+    }
+
+    private void handleOrderPlacedEvent(OrderPlacedEvent event) {
+        log.info("Handling OrderPlacedEvent for order ID: {}", event.getOrderResponse().getOrderId());
 
         try {
             String orderJson = objectMapper.writeValueAsString(event.getOrderResponse());
@@ -1,15 +1,13 @@
 package com.shopsphere.event;
 
 import com.shopsphere.dto.OrderResponse;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
-import org.springframework.context.ApplicationEvent;
 
 @Getter
-public class OrderPlacedEvent extends ApplicationEvent { //makes this spring application event
+@AllArgsConstructor
+public class OrderPlacedEvent implements DomainEvent {
 
     private final OrderResponse orderResponse;
-    public OrderPlacedEvent(Object source, OrderResponse orderResponse) {
-        super(source);
-        this.orderResponse = orderResponse;
-    }
+    private final String customerName; // first and last name, for the admin dashboard
 }
@@ -0,0 +1,20 @@
+package com.shopsphere.event;
+
+import com.shopsphere.model.Money;
+import com.shopsphere.model.enums.OrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after an order's status changed.
+ */
+@Getter
+@AllArgsConstructor
+public class OrderStatusChangedEvent implements DomainEvent {
+
+    private final String orderId;
+    private final String userId;
+    private final OrderStatus previousStatus;
+    private final OrderStatus newStatus;
+    private final Money totalAmount;
+}
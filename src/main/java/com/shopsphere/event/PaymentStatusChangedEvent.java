@@ -0,0 +1,18 @@
+package com.shopsphere.event;
+
+import com.shopsphere.model.enums.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after the payment of an order changed status.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentStatusChangedEvent implements DomainEvent {
+
+    private final String orderId;
+    private final String userId;
+    private final PaymentStatus previousStatus;
+    private final PaymentStatus newStatus;
+}
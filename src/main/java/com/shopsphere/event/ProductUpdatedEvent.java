@@ -0,0 +1,21 @@
+package com.shopsphere.event;
+
+import com.shopsphere.dto.ProductResponse;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after a product was created, updated or deleted.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductUpdatedEvent implements DomainEvent {
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final ChangeType changeType;
+    private final String productId;
+    private final ProductResponse product; // null for DELETED
+}
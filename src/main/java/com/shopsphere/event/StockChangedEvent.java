@@ -0,0 +1,16 @@
+package com.shopsphere.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after a product's stock quantity changed (checkout, admin edit, product creation).
+ */
+@Getter
+@AllArgsConstructor
+public class StockChangedEvent implements DomainEvent {
+
+    private final String productId;
+    private final int previousQuantity;
+    private final int newQuantity;
+}
@@ -0,0 +1,25 @@
+package com.shopsphere.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a product's stock drops to or below its reorder threshold, or climbs back above it.
+ */
+@Getter
+@AllArgsConstructor
+public class StockThresholdCrossedEvent implements DomainEvent {
+
+    public enum Direction {
+        LOW, RESTOCKED
+    }
+
+    private final Direction direction;
+    private final String productId;
+    private final String productName;
+    private final int stockQuantity;
+    private final int reorderThreshold;
+    private final LocalDateTime occurredAt;
+}
@@ -0,0 +1,14 @@
+package com.shopsphere.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published after a user was created (registration or import).
+ */
+@Getter
+@AllArgsConstructor
+public class UserRegisteredEvent implements DomainEvent {
+
+    private final String userId;
+}
@@ -1,7 +1,11 @@
 package com.shopsphere.initializer;
 
+import com.shopsphere.model.Money;
+import com.shopsphere.model.PricingRule;
 import com.shopsphere.model.Role;
 import com.shopsphere.model.User;
+import com.shopsphere.model.enums.PricingRuleType;
+import com.shopsphere.repository.PricingRuleRepository;
 import com.shopsphere.repository.RoleRepository;
 import com.shopsphere.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +21,7 @@ public class DataLoader implements CommandLineRunner { // to seed these roles au
     private final RoleRepository roleRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PricingRuleRepository pricingRuleRepository;
 
     /**
      * run method executed once, right after the Spring application context has been loaded and all beans have been created.
@@ -44,6 +49,23 @@ public class DataLoader implements CommandLineRunner { // to seed these roles au
             userRepository.save(admin);
             log.info("Admin user created: {}", admin);
         }
+
+        // Default pricing: 8% tax, $10 shipping, free shipping from $35
+        if (pricingRuleRepository.count() == 0) {
+            pricingRuleRepository.save(newPricingRule(PricingRuleType.TAX, null, 800, null));
+            pricingRuleRepository.save(newPricingRule(PricingRuleType.SHIPPING, Money.ZERO, null, Money.ofMinor(1000)));
+            pricingRuleRepository.save(newPricingRule(PricingRuleType.SHIPPING, Money.ofMinor(3500), null, Money.ZERO));
+            log.info("Default pricing rules created.");
+        }
+    }
+
+    private static PricingRule newPricingRule(PricingRuleType type, Money minSubtotal, Integer rateBasisPoints, Money flatAmount) {
+        PricingRule rule = new PricingRule();
+        rule.setType(type);
+        rule.setMinSubtotal(minSubtotal);
+        rule.setRateBasisPoints(rateBasisPoints);
+        rule.setFlatAmount(flatAmount);
+        return rule;
     }
 
 }
@@ -16,14 +16,14 @@ import java.time.LocalDateTime;
 public class Address {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(name = "address_id", updatable = false, nullable = false)
+    @TimeOrderedId
+    @Column(name = "address_id", updatable = false, nullable = false, columnDefinition = "uuid")
     private String addressId;
 
 
     // We link this to User for saved addresses, but for Order, it's just the specific address for *that* order.
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id") // Foreign key to User (nullable if it's an address just for an order, not a saved user address)
+    @JoinColumn(name = "user_id", columnDefinition = "uuid") // Foreign key to User (nullable if it's an address just for an order, not a saved user address)
     @ToString.Exclude
     private User user;
 
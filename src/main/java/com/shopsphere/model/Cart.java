@@ -18,13 +18,16 @@ import java.util.Set;
 public class Cart {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(name = "cart_id", updatable = false, nullable = false)
+    @TimeOrderedId
+    @Column(name = "cart_id", updatable = false, nullable = false, columnDefinition = "uuid")
     private String cartId;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version; // bumped by every item change, see CartService
 
     @OneToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id", unique = true)
+    @JoinColumn(name = "user_id", unique = true, columnDefinition = "uuid")
     @ToString.Exclude
     private User user; // Can be null for guest carts initially
 
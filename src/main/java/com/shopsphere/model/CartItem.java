@@ -3,7 +3,6 @@ package com.shopsphere.model;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -15,24 +14,24 @@ import java.time.LocalDateTime;
 public class CartItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(name = "cart_item_id", updatable = false, nullable = false)
+    @TimeOrderedId
+    @Column(name = "cart_item_id", updatable = false, nullable = false, columnDefinition = "uuid")
     @EqualsAndHashCode.Include
     private String cartItemId;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "cart_id", nullable = false)
+    @JoinColumn(name = "cart_id", nullable = false, columnDefinition = "uuid")
     private Cart cart;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "product_id", nullable = false)
+    @JoinColumn(name = "product_id", nullable = false, columnDefinition = "uuid")
     private Product product;
 
     @Column(name = "quantity", nullable = false)
     private Integer quantity;
 
     @Column(name = "price_at_addition", nullable = false) // Price when added to cart
-    private BigDecimal priceAtAddition;
+    private Money priceAtAddition;
 
     @Column(name = "added_at", nullable = false, updatable = false)
     private LocalDateTime addedAt;
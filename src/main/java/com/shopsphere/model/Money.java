@@ -0,0 +1,134 @@
+package com.shopsphere.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Immutable monetary amount stored as a whole number of minor units (cents for USD).
+ *
+ * Rounding rules:
+ * - Decimal input ({@link #of(BigDecimal)}) is rounded HALF_EVEN to the currency's minor unit, so
+ *   converting many values does not drift in one direction.
+ * - Rates ({@link #percentage(long)}) are applied per call and rounded HALF_UP, the usual rule for sales tax.
+ * - Addition and multiplication by a quantity are exact; overflow throws {@link ArithmeticException}.
+ * Amounts of different currencies cannot be combined.
+ */
+public final class Money implements Comparable<Money>, Serializable {
+
+    public static final Currency USD = Currency.getInstance("USD");
+    public static final Money ZERO = new Money(0, USD);
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return ofMinor(minorUnits, USD);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, Objects.requireNonNull(currency, "currency"));
+    }
+
+    public static Money of(BigDecimal amount) {
+        return of(amount, USD);
+    }
+
+    public static Money of(BigDecimal amount, Currency currency) {
+        Objects.requireNonNull(amount, "amount");
+        long minor = amount.setScale(currency.getDefaultFractionDigits(), RoundingMode.HALF_EVEN)
+                .unscaledValue()
+                .longValueExact();
+        return new Money(minor, currency);
+    }
+
+    public static Money zero(Currency currency) {
+        return USD.equals(currency) ? ZERO : new Money(0, currency);
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    /**
+     * Applies a rate given in basis points (1/100 of a percent, so 825 = 8.25%), rounding HALF_UP.
+     */
+    public Money percentage(long basisPoints) {
+        return new Money(applyBasisPoints(minorUnits, basisPoints), currency);
+    }
+
+    /**
+     * {@link #percentage(long)} on raw minor units, for callers that accumulate totals as longs.
+     */
+    public static long applyBasisPoints(long minorUnits, long basisPoints) {
+        long scaled = Math.multiplyExact(minorUnits, basisPoints);
+        long half = scaled >= 0 ? 5_000 : -5_000;
+        return (scaled + half) / 10_000;
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getDefaultFractionDigits());
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " vs " + other.currency);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money money)) return false;
+        return minorUnits == money.minorUnits && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits) * 31 + currency.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+    }
+}
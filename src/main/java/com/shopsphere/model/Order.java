@@ -4,7 +4,6 @@ import com.shopsphere.model.enums.OrderStatus;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
@@ -18,13 +17,17 @@ import java.util.Set;
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(name = "order_id", updatable = false, nullable = false)
+    @TimeOrderedId
+    @Column(name = "order_id", updatable = false, nullable = false, columnDefinition = "uuid")
     private String orderId;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // Many-to-One relationship with User: One user can place many orders
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "user_id", nullable = false) // Foreign key to User
+    @JoinColumn(name = "user_id", nullable = false, columnDefinition = "uuid") // Foreign key to User
     @ToString.Exclude // Exclude to prevent StackOverflowError
     private User user;
 
@@ -32,7 +35,20 @@ public class Order {
     private LocalDateTime orderDate;
 
     @Column(name = "total_amount", nullable = false)
-    private BigDecimal totalAmount;
+    private Money totalAmount; // subtotal - discount + tax + shipping
+
+    // Price breakdown from the PricingEngine (null on orders placed before it existed)
+    @Column(name = "subtotal")
+    private Money subtotal;
+
+    @Column(name = "discount_amount")
+    private Money discountAmount;
+
+    @Column(name = "tax_amount")
+    private Money taxAmount;
+
+    @Column(name = "shipping_amount")
+    private Money shippingAmount;
 
     // Example status values: PENDING, PROCESSING, SHIPPED, DELIVERED, CANCELLED, REFUNDED
     @Enumerated(EnumType.STRING)
@@ -46,7 +62,7 @@ public class Order {
 
 
     @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL) // CascadeType.ALL to save new address with order
-    @JoinColumn(name = "shipping_address_id", nullable = false)
+    @JoinColumn(name = "shipping_address_id", nullable = false, columnDefinition = "uuid")
     @ToString.Exclude
     private Address shippingAddress; // The specific shipping address used for this order
 
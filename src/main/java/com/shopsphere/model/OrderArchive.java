@@ -0,0 +1,48 @@
+package com.shopsphere.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * An archive file holding delivered orders of one month that were moved out of the orders table. The file is a
+ * zip with one compressed JSON entry per order, named after the order id.
+ */
+@Entity
+@Table(name = "order_archives", indexes = {
+        @Index(name = "idx_order_archives_period_start", columnList = "period_start")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class OrderArchive {
+
+    @Id
+    @TimeOrderedId
+    @Column(name = "archive_id", updatable = false, nullable = false, columnDefinition = "uuid")
+    private String archiveId;
+
+    @Column(name = "period_start", nullable = false, updatable = false)
+    private LocalDate periodStart; // first day of the month the orders were placed in
+
+    @Column(name = "file_name", nullable = false, unique = true, updatable = false)
+    private String fileName; // relative to application.orders.archive.dir
+
+    @Column(name = "order_count", nullable = false, updatable = false)
+    private Integer orderCount;
+
+    @Column(name = "total_amount", nullable = false, updatable = false)
+    private Money totalAmount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
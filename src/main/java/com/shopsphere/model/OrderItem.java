@@ -3,7 +3,7 @@ package com.shopsphere.model;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "order_items")
@@ -14,17 +14,21 @@ import java.math.BigDecimal;
 public class OrderItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(name = "order_item_id", updatable = false, nullable = false)
+    @TimeOrderedId
+    @Column(name = "order_item_id", updatable = false, nullable = false, columnDefinition = "uuid")
     private String orderItemId;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "order_id", nullable = false) // Foreign key to Order
+    @JoinColumn(name = "order_id", nullable = false, columnDefinition = "uuid") // Foreign key to Order
     @ToString.Exclude // Exclude to prevent StackOverflowError
     private Order order;
 
+    // the order's date: order_items is partitioned by it alongside orders (set from the order when persisted)
+    @Column(name = "order_date", nullable = false, updatable = false)
+    private LocalDateTime orderDate;
+
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "product_id", nullable = false) // Foreign key to Product
+    @JoinColumn(name = "product_id", nullable = false, columnDefinition = "uuid") // Foreign key to Product
     @ToString.Exclude // Exclude to prevent StackOverflowError
     private Product product;
 
@@ -32,5 +36,15 @@ public class OrderItem {
     private Integer quantity;
 
     @Column(name = "price_at_purchase", nullable = false) // Price of the product when purchased
-    private BigDecimal priceAtPurchase;
+    private Money priceAtPurchase;
+
+    @Column(name = "category_id", columnDefinition = "uuid") // product's category when purchased, for sales analytics (null on older rows)
+    private String categoryId;
+
+    @PrePersist
+    protected void onCreate() {
+        if (this.orderDate == null && this.order != null) {
+            this.orderDate = this.order.getOrderDate();
+        }
+    }
 }
\ No newline at end of file
@@ -4,7 +4,6 @@ import com.shopsphere.model.enums.PaymentStatus;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -16,16 +15,20 @@ import java.time.LocalDateTime;
 public class Payment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(name = "payment_id", updatable = false, nullable = false)
+    @TimeOrderedId
+    @Column(name = "payment_id", updatable = false, nullable = false, columnDefinition = "uuid")
     private String paymentId;
 
     @OneToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "order_id", unique = true, nullable = false) // One payment for one order
+    @JoinColumn(name = "order_id", unique = true, nullable = false, columnDefinition = "uuid") // One payment for one order
     private Order order;
 
+    // the order's date, part of the foreign key to the partitioned orders table (set from the order when persisted)
+    @Column(name = "order_date", nullable = false, updatable = false)
+    private LocalDateTime orderDate;
+
     @Column(name = "amount", nullable = false)
-    private BigDecimal amount;
+    private Money amount;
 
     @Column(name = "payment_method", nullable = false) // e.g., "CREDIT_CARD", "PAYPAL", "STRIPE"
     private String paymentMethod;
@@ -43,6 +46,9 @@ public class Payment {
     @PrePersist
     protected void onCreate() {
         this.paymentDate = LocalDateTime.now();
+        if (this.orderDate == null && this.order != null) {
+            this.orderDate = this.order.getOrderDate();
+        }
         if (this.status == null) {
             this.status = PaymentStatus.PENDING; // Default status
         }
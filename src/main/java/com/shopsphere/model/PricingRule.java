@@ -0,0 +1,71 @@
+package com.shopsphere.model;
+
+import com.shopsphere.model.enums.PricingRuleType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A tax, shipping or promotion rule. Rules are scoped by destination (country, then state or postal prefix;
+ * null means "any") and are compiled into lookup tables by the PricingEngine, never evaluated row by row.
+ */
+@Entity
+@Table(name = "pricing_rules")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PricingRule {
+
+    @Id
+    @TimeOrderedId
+    @Column(name = "rule_id", updatable = false, nullable = false, columnDefinition = "uuid")
+    private String ruleId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "rule_type", nullable = false)
+    private PricingRuleType type;
+
+    @Column(name = "country") // ISO code, e.g. "US"
+    private String country;
+
+    @Column(name = "state") // requires country
+    private String state;
+
+    @Column(name = "postal_prefix") // requires country, e.g. "941"
+    private String postalPrefix;
+
+    @Column(name = "category_id", columnDefinition = "uuid")
+    private String categoryId;
+
+    @Column(name = "min_subtotal")
+    private Money minSubtotal;
+
+    @Column(name = "rate_basis_points") // 825 = 8.25%
+    private Integer rateBasisPoints;
+
+    @Column(name = "flat_amount")
+    private Money flatAmount;
+
+    @Column(name = "active", nullable = false)
+    private boolean active = true;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -5,22 +5,30 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Generated;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OptimisticLock;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "products")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products") // the cached state includes the category id
 @Data //generate getter setters, toString, equals and hashcode
 @NoArgsConstructor
 @AllArgsConstructor
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(name = "product_id", updatable = false, nullable = false)
+    @TimeOrderedId
+    @Column(name = "product_id", updatable = false, nullable = false, columnDefinition = "uuid")
     private String productId; // Using String for UUID as primary key
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version; // optimistic locking: concurrent admin edits conflict instead of overwriting each other
+
     @Column(name = "name", nullable = false)
     private String name;
 
@@ -28,22 +36,29 @@ public class Product {
     private String description;
 
     @Column(name = "price", nullable = false)
-    private BigDecimal price; // Use BigDecimal for currency to avoid precision issues
+    private Money price; // minor units, mapped to the numeric column by MoneyConverter
 
+    // every checkout changes the stock, so counting it in the version would turn nearly every admin edit of a
+    // selling product into a conflict. Stock changes are serialized by the product's row lock instead
+    @OptimisticLock(excluded = true)
     @Column(name = "stock_quantity", nullable = false)
     private Integer stockQuantity;
 
+    @Column(name = "reorder_threshold")
+    private Integer reorderThreshold; // null means application.inventory.default-reorder-threshold
+
     @Column(name = "image_url")
     private String imageUrl;
 
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "category_id") //specifies foreign key column
+    @JoinColumn(name = "category_id", columnDefinition = "uuid") //specifies foreign key column
     private Category category;
 
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    @OptimisticLock(excluded = true) // set on every update, the stock changes included
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
 
@@ -4,17 +4,21 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
 @Table(name = "roles")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "roles")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Role {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(name = "role_id", updatable = false, nullable = false)
+    @TimeOrderedId
+    @Column(name = "role_id", updatable = false, nullable = false, columnDefinition = "uuid")
     private String roleId;
 
     @Column(name = "name", nullable = false, unique = true) // e.g., 'ROLE_USER', 'ROLE_ADMIN'
@@ -0,0 +1,32 @@
+package com.shopsphere.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pre-aggregated sales for one time bucket, dimension value and order status. Rows are only ever incremented
+ * with upserts (see SalesRollupService); an order moving to another status moves its amounts between rows of
+ * its original bucket. Revenue is the order total for TOTAL rows and the line totals (before order-level
+ * discount, tax and shipping) for PRODUCT and CATEGORY rows.
+ */
+@Entity
+@Table(name = "sales_rollups")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRollup {
+
+    @EmbeddedId
+    private SalesRollupId id;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "units", nullable = false)
+    private long units;
+
+    @Column(name = "revenue", nullable = false)
+    private Money revenue;
+}
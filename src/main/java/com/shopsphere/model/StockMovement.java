@@ -0,0 +1,56 @@
+package com.shopsphere.model;
+
+import com.shopsphere.model.enums.StockMovementType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One signed change of a product's stock in the append-only stock ledger, with the stock it left. Rows are never
+ * updated; the compaction folds old ones into one COMPACTED row per product and day.
+ *
+ * The time is taken when the change is applied to the product, under its row lock, so a product's movements are
+ * in the order their changes were made (as far as the clocks of the nodes agree).
+ */
+@Entity
+@Table(name = "stock_movements", indexes = {
+        @Index(name = "idx_stock_movements_product_time", columnList = "product_id, created_at DESC, movement_id DESC")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class StockMovement {
+
+    @Id
+    @TimeOrderedId
+    @Column(name = "movement_id", updatable = false, nullable = false, columnDefinition = "uuid")
+    private String movementId;
+
+    @Column(name = "product_id", nullable = false, updatable = false, columnDefinition = "uuid")
+    private String productId; // plain column: recording a movement never loads the product
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", nullable = false, updatable = false)
+    private StockMovementType type;
+
+    @Column(name = "quantity", nullable = false, updatable = false)
+    private Integer quantity; // negative for stock taken out
+
+    @Column(name = "stock_after", nullable = false, updatable = false)
+    private Integer stockAfter;
+
+    @Column(name = "order_id", updatable = false, columnDefinition = "uuid")
+    private String orderId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public StockMovement(String productId, StockMovementType type, int quantity) {
+        this.productId = productId;
+        this.type = type;
+        this.quantity = quantity;
+    }
+}
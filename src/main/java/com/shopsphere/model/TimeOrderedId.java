@@ -0,0 +1,31 @@
+package com.shopsphere.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Generates a time-ordered UUID primary key as a String (see {@link TimeOrderedIdGenerator}). Use instead of
+ * {@code @GeneratedValue(strategy = GenerationType.UUID)}, whose random UUIDs scatter inserts across the index.
+ */
+@IdGeneratorType(TimeOrderedIdGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface TimeOrderedId {
+
+    enum Strategy {
+        /** Whatever shopsphere.id.strategy configures, UUID_V7 if unset. */
+        DEFAULT,
+        /** Version 7 UUID: millisecond timestamp, counter and random bits. */
+        UUID_V7,
+        /** Snowflake-style 64-bit id in a version 8 UUID. Needs a distinct shopsphere.id.node-id per node. */
+        SNOWFLAKE
+    }
+
+    Strategy strategy() default Strategy.DEFAULT;
+}
@@ -0,0 +1,71 @@
+package com.shopsphere.model;
+
+import com.shopsphere.util.TimeOrderedIds;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate generator behind {@link TimeOrderedId}. The strategy and node id come from the Hibernate settings
+ * shopsphere.id.strategy and shopsphere.id.node-id (spring.jpa.properties.* in application.properties), unless
+ * the annotation names a strategy.
+ *
+ * Keys are native uuid columns (V7) mapped to String attributes. Both strategies produce UUIDs, so the random
+ * UUIDs of older rows and new time-ordered ones coexist. SNOWFLAKE needs shopsphere.id.node-id set explicitly:
+ * two nodes falling back to the same default would issue the same ids, so a missing node id fails startup.
+ */
+@Slf4j
+public class TimeOrderedIdGenerator implements BeforeExecutionGenerator {
+
+    public static final String STRATEGY_SETTING = "shopsphere.id.strategy";
+    public static final String NODE_ID_SETTING = "shopsphere.id.node-id";
+
+    // one sequence per node id, shared by all entities, so ids from one node never repeat
+    private static final Map<Integer, TimeOrderedIds.Snowflake> SNOWFLAKES = new ConcurrentHashMap<>();
+
+    private final TimeOrderedId.Strategy strategy;
+    private final TimeOrderedIds.Snowflake snowflake;
+
+    public TimeOrderedIdGenerator(TimeOrderedId config, Member member, CustomIdGeneratorCreationContext context) {
+        ConfigurationService settings = context.getServiceRegistry().requireService(ConfigurationService.class);
+        TimeOrderedId.Strategy configured = config.strategy();
+        if (configured == TimeOrderedId.Strategy.DEFAULT) {
+            configured = TimeOrderedId.Strategy.valueOf(settings.getSetting(STRATEGY_SETTING,
+                    StandardConverters.STRING, TimeOrderedId.Strategy.UUID_V7.name()).trim().toUpperCase());
+        }
+        this.strategy = configured;
+        if (strategy == TimeOrderedId.Strategy.SNOWFLAKE) {
+            Integer nodeId = settings.getSetting(NODE_ID_SETTING, StandardConverters.INTEGER);
+            if (nodeId == null) {
+                String message = NODE_ID_SETTING + " must be set to a node id unique in the cluster "
+                        + "(0-" + TimeOrderedIds.Snowflake.MAX_NODE_ID + ") when " + STRATEGY_SETTING + " is SNOWFLAKE";
+                // Spring's bean container reports its own failed attempt to create this generator, not this exception
+                log.error(message);
+                throw new IllegalStateException(message);
+            }
+            this.snowflake = SNOWFLAKES.computeIfAbsent(nodeId, TimeOrderedIds.Snowflake::new);
+        } else {
+            this.snowflake = null;
+        }
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return strategy == TimeOrderedId.Strategy.SNOWFLAKE ? snowflake.nextUuid() : TimeOrderedIds.uuidV7();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
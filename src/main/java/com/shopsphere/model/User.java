@@ -1,10 +1,13 @@
 package com.shopsphere.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -12,24 +15,32 @@ import java.util.Set;
 import java.util.UUID; // For UUID generation
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = User.USERNAME_CONSTRAINT, columnNames = "username"),
+        @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class User {
 
+    // named so registration can tell which one an insert violated
+    public static final String USERNAME_CONSTRAINT = "uk_users_username";
+    public static final String EMAIL_CONSTRAINT = "uk_users_email";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
-    @Column(name = "user_id", updatable = false, nullable = false)
+    @TimeOrderedId
+    @Column(name = "user_id", updatable = false, nullable = false, columnDefinition = "uuid")
     private String userId;
 
-    @Column(name = "username", nullable = false, unique = true)
+    @Column(name = "username", nullable = false)
     private String username;
 
     @Column(name = "password", nullable = false) // Hashed password will be stored here
+    @JsonIgnore // never part of an API response
     private String password;
 
-    @Column(name = "email", nullable = false, unique = true)
+    @Column(name = "email", nullable = false)
     private String email;
 
     @Column(name = "first_name")
@@ -43,10 +54,11 @@ public class User {
 
     // Many-to-Many relationship with Role (a user can have many roles, a role can be assigned to many users)
     @ManyToMany(fetch = FetchType.EAGER) // Fetch roles eagerly as they're essential for authorization
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user-roles") // role ids; the roles come from their own region
     @JoinTable(
         name = "user_roles", // Name of the join table
-        joinColumns = @JoinColumn(name = "user_id"), // Foreign key from 'users' table in join table
-        inverseJoinColumns = @JoinColumn(name = "role_id") // Foreign key from 'roles' table in join table
+        joinColumns = @JoinColumn(name = "user_id", columnDefinition = "uuid"), // Foreign key from 'users' table in join table
+        inverseJoinColumns = @JoinColumn(name = "role_id", columnDefinition = "uuid") // Foreign key from 'roles' table in join table
     )
     @ToString.Exclude
     private Set<Role> roles = new HashSet<>();
@@ -0,0 +1,7 @@
+package com.shopsphere.model.enums;
+
+public enum PricingRuleType {
+    TAX,       // rateBasisPoints on each line, optionally only for one category
+    SHIPPING,  // flatAmount charged once the discounted subtotal reaches minSubtotal (tiers)
+    PROMOTION  // with categoryId: rateBasisPoints off matching lines; without: rate or flatAmount off the cart above minSubtotal
+}
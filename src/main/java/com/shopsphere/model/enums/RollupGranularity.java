@@ -0,0 +1,5 @@
+package com.shopsphere.model.enums;
+
+public enum RollupGranularity {
+    HOUR, DAY
+}
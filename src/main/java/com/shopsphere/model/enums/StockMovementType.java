@@ -0,0 +1,6 @@
+package com.shopsphere.model.enums;
+
+public enum StockMovementType {
+    SALE, RESTOCK, ADJUSTMENT, RESERVATION_RELEASE,
+    COMPACTED // old movements of one product and day, folded into one row by the ledger compaction
+}
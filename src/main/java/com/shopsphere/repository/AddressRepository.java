@@ -3,11 +3,21 @@ package com.shopsphere.repository;
 import com.shopsphere.model.Address;
 import com.shopsphere.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface AddressRepository extends JpaRepository<Address, String> {
     List<Address> findByUser(User user);
-}
\ No newline at end of file
+
+    // shipping addresses are created per order; keep any that another order still points to
+    @Modifying
+    @Query(value = "DELETE FROM addresses a WHERE a.address_id IN :addressIds AND a.address_type = 'SHIPPING_ORDER' "
+            + "AND NOT EXISTS (SELECT 1 FROM orders o WHERE o.shipping_address_id = a.address_id)", nativeQuery = true)
+    int deleteUnusedShippingAddresses(@Param("addressIds") Collection<String> addressIds);
+}
@@ -4,6 +4,9 @@ import com.shopsphere.model.Cart;
 import com.shopsphere.model.CartItem;
 import com.shopsphere.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +19,9 @@ public interface CartItemRepository extends JpaRepository<CartItem, String> {
 
     List<CartItem> findByCart(Cart cart);
 
+    // one statement for the whole cart, instead of a delete per item
+    @Modifying
+    @Query("DELETE FROM CartItem ci WHERE ci.cart = :cart")
+    int deleteAllByCart(@Param("cart") Cart cart);
+
 }
\ No newline at end of file
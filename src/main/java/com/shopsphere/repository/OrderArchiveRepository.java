@@ -0,0 +1,42 @@
+package com.shopsphere.repository;
+
+import com.shopsphere.model.OrderArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderArchiveRepository extends JpaRepository<OrderArchive, String> {
+    @Query(value = "SELECT a.file_name FROM archived_orders o JOIN order_archives a ON a.archive_id = o.archive_id "
+            + "WHERE o.order_id = :orderId", nativeQuery = true)
+    Optional<String> findFileNameByOrderId(@Param("orderId") String orderId);
+
+    // one statement for the whole archive: the ids are passed as one comma-separated string
+    @Modifying
+    @Query(value = "INSERT INTO archived_orders (order_id, archive_id) "
+            + "SELECT CAST(id AS uuid), CAST(:archiveId AS uuid) FROM unnest(string_to_array(:orderIds, ',')) id "
+            + "ON CONFLICT (order_id) DO NOTHING", nativeQuery = true)
+    int indexOrders(@Param("archiveId") String archiveId, @Param("orderIds") String orderIds);
+
+    // archives written before V8, whose orders are not in archived_orders yet
+    @Query(value = "SELECT a.* FROM order_archives a "
+            + "WHERE NOT EXISTS (SELECT 1 FROM archived_orders o WHERE o.archive_id = a.archive_id)", nativeQuery = true)
+    List<OrderArchive> findUnindexed();
+
+    @Query("SELECT COALESCE(SUM(a.orderCount), 0) FROM OrderArchive a")
+    long sumOrderCount();
+
+    // native for the same reason as OrderRepository.sumTotalAmountByStatus
+    @Query(value = "SELECT COALESCE(SUM(a.total_amount), 0) FROM order_archives a", nativeQuery = true)
+    BigDecimal sumTotalAmount();
+
+    @Query("SELECT MAX(a.periodStart) FROM OrderArchive a")
+    Optional<LocalDate> findLatestPeriodStart();
+}
@@ -2,8 +2,21 @@ package com.shopsphere.repository;
 
 import com.shopsphere.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+
 @Repository
 public interface OrderItemRepository extends JpaRepository<OrderItem, String> {
-}
\ No newline at end of file
+
+    // the date range lets PostgreSQL skip the other partitions
+    @Modifying
+    @Query(value = "DELETE FROM order_items oi WHERE oi.order_id IN :orderIds AND oi.order_date >= :from AND oi.order_date < :to",
+            nativeQuery = true)
+    int deleteArchived(@Param("orderIds") Collection<String> orderIds, @Param("from") LocalDateTime from,
+                       @Param("to") LocalDateTime to);
+}
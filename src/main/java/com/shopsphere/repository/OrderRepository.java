@@ -6,10 +6,14 @@ import com.shopsphere.model.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -19,8 +23,37 @@ public interface OrderRepository extends JpaRepository<Order, String> {
     // Custom queries for admin dashboard statistics
     long countByStatus(OrderStatus status);
 
-    @Query("SELECT SUM(o.totalAmount) FROM Order o WHERE o.status = :status")
-    BigDecimal sumTotalAmountByStatus(OrderStatus status);
+    // native so the sum is taken over the numeric column rather than the Money-converted attribute
+    @Query(value = "SELECT COALESCE(SUM(o.total_amount), 0) FROM orders o WHERE o.status = :status", nativeQuery = true)
+    BigDecimal sumTotalAmountByStatus(@Param("status") String status);
 
     Page<Order> findAllByOrderByOrderDateDesc(Pageable pageable);
-}
\ No newline at end of file
+
+    // latest orders with their user in one query (paging a to-one fetch is safe)
+    @Query("SELECT o FROM Order o JOIN FETCH o.user ORDER BY o.orderDate DESC")
+    List<Order> findRecentWithUser(Pageable pageable);
+
+    // item counts for a page of orders, instead of initializing each order's item collection
+    @Query("SELECT oi.order.orderId, COUNT(oi) FROM OrderItem oi WHERE oi.order.orderId IN :orderIds GROUP BY oi.order.orderId")
+    List<Object[]> countItemsByOrderIds(@Param("orderIds") Collection<String> orderIds);
+
+    // archival: the oldest order still to archive, then batches of one month's orders, locked so nodes skip each other's
+    @Query("SELECT MIN(o.orderDate) FROM Order o WHERE o.status = :status AND o.orderDate < :before")
+    LocalDateTime findEarliestOrderDate(@Param("status") OrderStatus status, @Param("before") LocalDateTime before);
+
+    @Query(value = "SELECT o.order_id FROM orders o WHERE o.status = :status AND o.order_date >= :from AND o.order_date < :to "
+            + "ORDER BY o.order_date LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<String> lockOrderIdsByStatusAndDate(@Param("status") String status, @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to, @Param("limit") int limit);
+
+    @Query("SELECT DISTINCT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.orderItems oi LEFT JOIN FETCH oi.product "
+            + "LEFT JOIN FETCH o.payment LEFT JOIN FETCH o.shippingAddress WHERE o.orderId IN :orderIds")
+    List<Order> findAllWithDetailsByOrderIdIn(@Param("orderIds") Collection<String> orderIds);
+
+    // the date range lets PostgreSQL skip the other partitions
+    @Modifying
+    @Query(value = "DELETE FROM orders o WHERE o.order_id IN :orderIds AND o.order_date >= :from AND o.order_date < :to",
+            nativeQuery = true)
+    int deleteArchived(@Param("orderIds") Collection<String> orderIds, @Param("from") LocalDateTime from,
+                       @Param("to") LocalDateTime to);
+}
@@ -3,8 +3,12 @@ package com.shopsphere.repository;
 import com.shopsphere.model.Order;
 import com.shopsphere.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +16,8 @@ import java.util.Optional;
 public interface PaymentRepository extends JpaRepository<Payment, String> {
     Optional<Payment> findByTransactionId(String transactionId);
     Optional<Payment> findByOrder(Order order);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query(value = "DELETE FROM payments p WHERE p.order_id IN :orderIds", nativeQuery = true)
+    int deleteArchived(@Param("orderIds") Collection<String> orderIds);
+}
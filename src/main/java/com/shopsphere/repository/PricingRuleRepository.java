@@ -0,0 +1,21 @@
+package com.shopsphere.repository;
+
+import com.shopsphere.model.PricingRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PricingRuleRepository extends JpaRepository<PricingRule, String> {
+    List<PricingRule> findAllByActiveTrue();
+
+    // change detection for the periodic refresh on other nodes: a checksum over every rule's id and last update, so
+    // a delete plus an insert, or an edit that keeps the latest timestamp, changes it too. The table is small
+    @Query(value = """
+            SELECT COALESCE(md5(string_agg(f.entry, ',' ORDER BY f.rule_id)), '')
+            FROM (SELECT r.rule_id, r.rule_id || '@' || r.updated_at AS entry FROM pricing_rules r ORDER BY r.rule_id) f
+            """, nativeQuery = true)
+    String findFingerprint();
+}
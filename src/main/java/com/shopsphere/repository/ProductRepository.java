@@ -1,13 +1,13 @@
 package com.shopsphere.repository;
 
+import com.shopsphere.model.Money;
 import com.shopsphere.model.Product;
-import io.lettuce.core.dynamic.annotation.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,17 +17,21 @@ public interface ProductRepository extends JpaRepository<Product, String> {
 
     //List<Product> findByCategoryId(String categoryId);
 
-    List<Product> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
+    List<Product> findByPriceBetween(Money minPrice, Money maxPrice);
 
-    List<Product> findByStockQuantityLessThanEqual(Integer stockQuantity);
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.category")
+    List<Product> findAllWithCategory();
 
     @Query("SELECT p FROM Product p WHERE p.name LIKE %:searchTerm%")
     List<Product> searchProducts(@Param("searchTerm") String searchTerm);
 
-    @Modifying
-    @Query("UPDATE Product p set p.stockQuantity = :stockQuantity WHERE p.productId = :productId")
-    int updateProductStockQuantity(String productId, Integer stockQuantity);
-
     List<Product> findAllByCategoryCategoryId(String categoryId);
 
+    // locked in product id order, so transactions locking overlapping sets of products always queue in the same
+    // order and cannot deadlock. FOR NO KEY UPDATE (what an UPDATE of the row takes anyway) rather than the FOR UPDATE
+    // of a JPA pessimistic lock, which would also block inserts of cart and order items referencing the products
+    @Query(value = "SELECT * FROM products p WHERE p.product_id IN :productIds ORDER BY p.product_id FOR NO KEY UPDATE",
+            nativeQuery = true)
+    List<Product> findAllByIdForUpdate(@Param("productIds") Collection<String> productIds);
+
 }
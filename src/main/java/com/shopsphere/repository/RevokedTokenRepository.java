@@ -0,0 +1,32 @@
+package com.shopsphere.repository;
+
+import com.shopsphere.model.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    // jti and revocation time of unexpired tokens revoked after the given time, oldest first
+    @Query("SELECT t.jti AS jti, t.revokedAt AS revokedAt FROM RevokedToken t " +
+            "WHERE t.revokedAt > :since AND t.expiresAt > :now ORDER BY t.revokedAt")
+    List<RevokedJti> findRevokedSince(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Query("SELECT COUNT(t) FROM RevokedToken t WHERE t.expiresAt > :now")
+    long countUnexpired(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM RevokedToken t WHERE t.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    interface RevokedJti {
+        String getJti();
+        LocalDateTime getRevokedAt();
+    }
+}
@@ -0,0 +1,63 @@
+package com.shopsphere.repository;
+
+import com.shopsphere.model.SalesRollup;
+import com.shopsphere.model.SalesRollupId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Read side of the sales rollups. Native so the sums are taken over the numeric revenue column.
+ */
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, SalesRollupId> {
+
+    @Query(value = """
+            SELECT r.bucket_start AS bucketStart, SUM(r.order_count) AS orderCount, SUM(r.units) AS units, SUM(r.revenue) AS revenue
+            FROM sales_rollups r
+            WHERE r.granularity = :granularity AND r.dimension = 'TOTAL'
+              AND r.bucket_start >= :from AND r.bucket_start < :to AND r.status IN (:statuses)
+            GROUP BY r.bucket_start
+            ORDER BY r.bucket_start
+            """, nativeQuery = true)
+    List<RollupTotals> findRevenueSeries(@Param("granularity") String granularity,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to,
+                                         @Param("statuses") Collection<String> statuses);
+
+    // day buckets only: they cover any whole-day range with far fewer rows than hour buckets
+    @Query(value = """
+            SELECT r.dimension_id AS dimensionId, SUM(r.order_count) AS orderCount, SUM(r.units) AS units, SUM(r.revenue) AS revenue
+            FROM sales_rollups r
+            WHERE r.granularity = 'DAY' AND r.dimension = :dimension
+              AND r.bucket_start >= :from AND r.bucket_start < :to AND r.status IN (:statuses)
+            GROUP BY r.dimension_id
+            ORDER BY SUM(r.revenue) DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<DimensionTotals> findTopByDimension(@Param("dimension") String dimension,
+                                             @Param("from") LocalDateTime from,
+                                             @Param("to") LocalDateTime to,
+                                             @Param("statuses") Collection<String> statuses,
+                                             @Param("limit") int limit);
+
+    interface RollupTotals {
+        LocalDateTime getBucketStart();
+        Long getOrderCount();
+        Long getUnits();
+        BigDecimal getRevenue();
+    }
+
+    interface DimensionTotals {
+        String getDimensionId();
+        Long getOrderCount();
+        Long getUnits();
+        BigDecimal getRevenue();
+    }
+}
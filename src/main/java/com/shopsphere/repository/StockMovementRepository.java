@@ -0,0 +1,63 @@
+package com.shopsphere.repository;
+
+import com.shopsphere.model.StockMovement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, String> {
+
+    // one index probe whatever the length of the history
+    @Query(value = """
+            SELECT * FROM stock_movements m
+            WHERE m.product_id = :productId AND m.created_at <= :at
+            ORDER BY m.created_at DESC, m.movement_id DESC
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<StockMovement> findLatestAt(@Param("productId") String productId, @Param("at") LocalDateTime at);
+
+    @Query(value = """
+            SELECT * FROM stock_movements m
+            WHERE m.product_id = :productId AND m.created_at >= :from AND m.created_at < :to
+            ORDER BY m.created_at DESC, m.movement_id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<StockMovement> findHistory(@Param("productId") String productId,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to,
+                                    @Param("limit") int limit);
+
+    /**
+     * Folds up to limit of the oldest movements made before the given time into one COMPACTED row per product and
+     * day, carrying their summed quantity and the stock left by the last of them. Rows another compaction is
+     * folding are skipped. A COMPACTED row takes the time and id of the last movement it folds, so it sorts exactly
+     * where that movement did, also against movements of the same time that a later batch folds.
+     * @return The number of COMPACTED rows written; 0 once nothing is left to fold.
+     */
+    @Modifying
+    @Query(value = """
+            WITH folded AS (
+                DELETE FROM stock_movements m
+                WHERE m.movement_id IN (
+                    SELECT o.movement_id FROM stock_movements o
+                    WHERE o.created_at < :before AND o.movement_type <> 'COMPACTED'
+                    ORDER BY o.created_at, o.movement_id
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING m.movement_id, m.product_id, m.quantity, m.stock_after, m.created_at
+            )
+            INSERT INTO stock_movements (movement_id, product_id, movement_type, quantity, stock_after, created_at)
+            SELECT (array_agg(f.movement_id ORDER BY f.created_at DESC, f.movement_id DESC))[1], f.product_id, 'COMPACTED',
+                   SUM(f.quantity), (array_agg(f.stock_after ORDER BY f.created_at DESC, f.movement_id DESC))[1], MAX(f.created_at)
+            FROM folded f
+            GROUP BY f.product_id, date_trunc('day', f.created_at)
+            """, nativeQuery = true)
+    int compact(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
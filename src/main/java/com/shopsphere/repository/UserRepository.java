@@ -2,8 +2,13 @@ package com.shopsphere.repository;
 
 import com.shopsphere.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +21,49 @@ public interface UserRepository extends JpaRepository<User, String> {
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
+
+    /**
+     * One page of the admin user listing, ordered by username, with the role names aggregated in the same query.
+     * @param after Keyset cursor: only usernames after this one ('' for the first page).
+     * @param search '' for no filter, otherwise the prefix the patterns were built from.
+     * @param usernamePattern LIKE pattern on username (prefix + '%').
+     * @param emailPattern LIKE pattern on lower(email) (lower-cased prefix + '%').
+     * @param limit Page size.
+     */
+    @Query(value = """
+            SELECT u.user_id AS userId, u.username AS username, u.email AS email,
+                   u.first_name AS firstName, u.last_name AS lastName,
+                   u.registration_date AS registrationDate, u.last_login AS lastLogin,
+                   string_agg(r.name, ',' ORDER BY r.name) AS roles
+            FROM users u
+            LEFT JOIN user_roles ur ON ur.user_id = u.user_id
+            LEFT JOIN roles r ON r.role_id = ur.role_id
+            WHERE u.username > :after
+              AND (:search = '' OR u.username LIKE :usernamePattern OR lower(u.email) LIKE :emailPattern)
+            GROUP BY u.user_id
+            ORDER BY u.username
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<UserSummaryView> findUserSummaries(@Param("after") String after,
+                                            @Param("search") String search,
+                                            @Param("usernamePattern") String usernamePattern,
+                                            @Param("emailPattern") String emailPattern,
+                                            @Param("limit") int limit);
+
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("SELECT u.email FROM User u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    interface UserSummaryView {
+        String getUserId();
+        String getUsername();
+        String getEmail();
+        String getFirstName();
+        String getLastName();
+        LocalDateTime getRegistrationDate();
+        LocalDateTime getLastLogin();
+        String getRoles(); // comma separated, null if the user has none
+    }
 }
\ No newline at end of file
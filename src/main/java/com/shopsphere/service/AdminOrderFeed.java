@@ -0,0 +1,203 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.OrderFeedMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Live feed of placed orders and order status changes for the admin dashboard, served as Server-Sent Events.
+ *
+ * Events of all nodes arrive through the {@link OrderFeedRelay} once their transaction committed, get a sequential
+ * id and are kept in a bounded replay ring, so a client reconnecting with Last-Event-ID receives what it missed.
+ * Ids are prefixed with a per-process stream id; when the client's id is from another process (a restart, or a
+ * reconnect that landed on another node) or has already left the ring, it gets a "reset" event and should reload
+ * the dashboard. Subscribers are {@link SseConnection}s with bounded queues; one that overflows is disconnected and
+ * can resume from its last id.
+ */
+@Component
+@Slf4j
+public class AdminOrderFeed {
+
+    static final String ORDER_PLACED = "order-placed";
+    static final String ORDER_STATUS_CHANGED = "order-status-changed";
+    static final String RESET = "reset";
+
+    // random rather than the start time, so two nodes started together never accept each other's ids
+    private final String streamId = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36);
+    private final int replaySize;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final long timeoutMs;
+    private final long reconnectMs;
+
+    private final ArrayDeque<FeedEvent> replay; // guarded by this
+    private long lastSequence = 0; // guarded by this
+    private final Set<SseConnection> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService sender;
+    private final Counter overflowCounter;
+
+    public AdminOrderFeed(@Value("${application.admin.feed.replay-size:1000}") int replaySize,
+                          @Value("${application.admin.feed.buffer-size:256}") int bufferSize,
+                          @Value("${application.admin.feed.max-subscribers:50}") int maxSubscribers,
+                          @Value("${application.admin.feed.timeout-ms:1800000}") long timeoutMs,
+                          @Value("${application.admin.feed.reconnect-ms:3000}") long reconnectMs,
+                          @Value("${application.admin.feed.sender-threads:2}") int senderThreads,
+                          MeterRegistry meterRegistry) {
+        this.replaySize = replaySize;
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMs = timeoutMs;
+        this.reconnectMs = reconnectMs;
+        this.replay = new ArrayDeque<>(replaySize);
+        this.sender = Executors.newFixedThreadPool(senderThreads, Thread.ofPlatform()
+                .name("admin-feed-", 0)
+                .daemon(true)
+                .factory());
+        this.overflowCounter = Counter.builder("admin.feed.overflows").register(meterRegistry);
+        Gauge.builder("admin.feed.subscribers", subscribers, Set::size).register(meterRegistry);
+    }
+
+    /**
+     * Registers a new subscriber.
+     * @param lastEventId The Last-Event-ID of a reconnecting client, or null for a new one.
+     * @return The emitter to return from the controller.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many live feed subscribers.");
+        }
+        SseEmitter emitter = createEmitter();
+        // room for a full replay on top of the live buffer
+        SseConnection subscriber = new SseConnection(emitter, bufferSize, replaySize + 2, sender, subscribers::remove);
+
+        subscriber.enqueue(() -> SseEmitter.event().reconnectTime(reconnectMs).comment("connected"));
+        synchronized (this) {
+            // replay and registration under the lock, so no event falls between them
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                replayInto(subscriber, lastEventId.trim());
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.start();
+        return emitter;
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    /**
+     * Records an order event relayed from any node and pushes it to the subscribers.
+     */
+    public synchronized void publish(OrderFeedMessage message) {
+        if (message.getPlaced() != null) {
+            append(ORDER_PLACED, message.getPlaced());
+        }
+        if (message.getStatusChanged() != null) {
+            append(ORDER_STATUS_CHANGED, message.getStatusChanged());
+        }
+    }
+
+    /**
+     * Called when events may have been missed: everyone, including clients that reconnect with an earlier id, is
+     * asked to reload.
+     */
+    public synchronized void reset() {
+        replay.clear();
+        FeedEvent feedEvent = new FeedEvent(++lastSequence, eventId(lastSequence), RESET, null);
+        offerToSubscribers(feedEvent);
+    }
+
+    /**
+     * Sends a comment line to idle subscribers so proxies and load balancers keep the connection open.
+     */
+    @Scheduled(fixedDelayString = "${application.admin.feed.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (SseConnection subscriber : subscribers) {
+            subscriber.heartbeat();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (SseConnection subscriber : subscribers) {
+            subscriber.close();
+        }
+        sender.shutdownNow();
+    }
+
+    // caller holds the lock
+    private void replayInto(SseConnection subscriber, String lastEventId) {
+        long lastSeen = parseSequence(lastEventId);
+        long oldestKept = replay.isEmpty() ? lastSequence + 1 : replay.peekFirst().sequence();
+        if (lastSeen < 0 || lastSeen > lastSequence || lastSeen < oldestKept - 1) {
+            subscriber.enqueue(new FeedEvent(lastSequence, eventId(lastSequence), RESET, null)::toSse);
+            return;
+        }
+        for (FeedEvent event : replay) {
+            if (event.sequence() > lastSeen) {
+                subscriber.enqueue(event::toSse);
+            }
+        }
+    }
+
+    // caller holds the lock
+    private void append(String name, Object data) {
+        FeedEvent feedEvent = new FeedEvent(++lastSequence, eventId(lastSequence), name, data);
+        if (replay.size() == replaySize) {
+            replay.removeFirst();
+        }
+        replay.addLast(feedEvent);
+        offerToSubscribers(feedEvent);
+    }
+
+    private void offerToSubscribers(FeedEvent feedEvent) {
+        for (SseConnection subscriber : subscribers) {
+            if (!subscriber.offer(feedEvent::toSse)) {
+                overflowCounter.increment();
+                log.warn("Admin order feed subscriber fell behind and was disconnected");
+            }
+        }
+    }
+
+    // -1 when the id is malformed or belongs to another process
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(streamId)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String eventId(long sequence) {
+        return streamId + "-" + sequence;
+    }
+
+    private record FeedEvent(long sequence, String id, String name, Object data) {
+        SseEmitter.SseEventBuilder toSse() {
+            SseEmitter.SseEventBuilder builder = SseEmitter.event().id(id).name(name);
+            return data == null ? builder.data("") : builder.data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.AdminDashboardStats;
+import com.shopsphere.dto.AdminOrderStatusChange;
+import com.shopsphere.dto.AdminOrderSummary;
+import com.shopsphere.dto.OrderFeedMessage;
+import com.shopsphere.event.CategoryChangedEvent;
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.DomainEventHandler;
+import com.shopsphere.event.ProductUpdatedEvent;
+import com.shopsphere.event.UserRegisteredEvent;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.Order;
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.repository.CategoryRepository;
+import com.shopsphere.repository.OrderArchiveRepository;
+import com.shopsphere.repository.OrderRepository;
+import com.shopsphere.repository.ProductRepository;
+import com.shopsphere.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory read model behind the admin dashboard.
+ *
+ * Counters are updated from events and published as an immutable snapshot after every batch, so reading the
+ * dashboard never touches the database. Orders arrive through the {@link OrderFeedRelay} like the
+ * {@link AdminOrderFeed}'s, so the order figures include every node's orders as soon as they are on the live feed.
+ * Users, products and categories come from this node's bus only: changes made on other nodes show up with the next
+ * reconciliation, by default within five minutes. Events can be lost (the bus is not durable, the relay drops
+ * messages while reconnecting) and counts can briefly double-count changes that land while a reconciliation runs,
+ * so the whole model is periodically recomputed from the database. The low-stock count is not kept here: it is
+ * read from the {@link StockLevelIndex}, which tracks every product against its own reorder threshold.
+ */
+@Component
+@Slf4j
+public class AdminStatsReadModel implements DomainEventHandler {
+
+    private static final int RECENT_ORDERS = 10;
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final StockLevelIndex stockLevelIndex;
+
+    // mutable state, guarded by this
+    private long totalOrders;
+    private long totalUsers;
+    private long totalProducts;
+    private long totalCategories;
+    private long revenueMinorUnits;
+    private long pendingOrders;
+    private final ArrayDeque<AdminOrderSummary> recentOrders = new ArrayDeque<>(RECENT_ORDERS); // newest first
+
+    private volatile AdminDashboardStats snapshot;
+
+    public AdminStatsReadModel(OrderRepository orderRepository, UserRepository userRepository,
+                               ProductRepository productRepository, CategoryRepository categoryRepository,
+                               OrderArchiveRepository orderArchiveRepository, StockLevelIndex stockLevelIndex) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.categoryRepository = categoryRepository;
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.stockLevelIndex = stockLevelIndex;
+    }
+
+    /**
+     * @return The current statistics. Loads them from the database only if no snapshot exists yet.
+     */
+    public AdminDashboardStats getStats() {
+        AdminDashboardStats current = snapshot;
+        if (current == null) {
+            reconcile();
+            current = snapshot;
+        }
+        return copy(current);
+    }
+
+    @Override
+    public String getName() {
+        return "admin-stats";
+    }
+
+    @Override
+    public boolean supports(DomainEvent event) {
+        return event instanceof UserRegisteredEvent
+                || event instanceof ProductUpdatedEvent
+                || event instanceof CategoryChangedEvent;
+    }
+
+    @Override
+    public synchronized void onEvents(List<DomainEvent> events) {
+        if (snapshot == null) {
+            return; // not loaded yet; the initial reconciliation will include these changes
+        }
+        for (DomainEvent event : events) {
+            apply(event);
+        }
+        publishSnapshot();
+    }
+
+    /**
+     * Applies an order event relayed from any node.
+     */
+    public synchronized void onOrderFeed(OrderFeedMessage message) {
+        if (snapshot == null) {
+            return; // not loaded yet; the initial reconciliation will include these changes
+        }
+        if (message.getPlaced() != null) {
+            applyPlaced(message.getPlaced());
+        }
+        if (message.getStatusChanged() != null) {
+            applyStatusChange(message.getStatusChanged());
+        }
+        publishSnapshot();
+    }
+
+    /**
+     * Recomputes every statistic from the database and replaces the in-memory state.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.admin.stats-reconcile-interval-ms:300000}",
+            initialDelayString = "${application.admin.stats-reconcile-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public synchronized void reconcile() {
+        // archived orders (all delivered) have left the orders table but still count
+        totalOrders = orderRepository.count() + orderArchiveRepository.sumOrderCount();
+        totalUsers = userRepository.count();
+        totalProducts = productRepository.count();
+        totalCategories = categoryRepository.count();
+        revenueMinorUnits = Money.of(orderRepository.sumTotalAmountByStatus(OrderStatus.DELIVERED.name())).getMinorUnits()
+                + Money.of(orderArchiveRepository.sumTotalAmount()).getMinorUnits();
+        pendingOrders = orderRepository.countByStatus(OrderStatus.PENDING);
+
+        List<Order> orders = orderRepository.findRecentWithUser(PageRequest.of(0, RECENT_ORDERS));
+        Map<String, Long> itemCounts = orders.isEmpty() ? Map.of() : orderRepository
+                .countItemsByOrderIds(orders.stream().map(Order::getOrderId).toList())
+                .stream()
+                .collect(Collectors.toMap(row -> (String) row[0], row -> (Long) row[1]));
+        recentOrders.clear();
+        for (Order order : orders) {
+            recentOrders.addLast(new AdminOrderSummary(
+                    order.getOrderId(),
+                    order.getUser().getFirstName() + " " + order.getUser().getLastName(),
+                    order.getOrderDate(),
+                    order.getTotalAmount().toBigDecimal(),
+                    order.getStatus().toString(),
+                    itemCounts.getOrDefault(order.getOrderId(), 0L).intValue()
+            ));
+        }
+
+        publishSnapshot();
+        log.debug("Admin dashboard statistics reconciled: {} orders, {} users", totalOrders, totalUsers);
+    }
+
+    private void apply(DomainEvent event) {
+        if (event instanceof UserRegisteredEvent) {
+            totalUsers++;
+        } else if (event instanceof ProductUpdatedEvent product) {
+            if (product.getChangeType() == ProductUpdatedEvent.ChangeType.CREATED) {
+                totalProducts++;
+            } else if (product.getChangeType() == ProductUpdatedEvent.ChangeType.DELETED) {
+                totalProducts--;
+            }
+        } else if (event instanceof CategoryChangedEvent category) {
+            if (category.getChangeType() == CategoryChangedEvent.ChangeType.CREATED) {
+                totalCategories++;
+            } else if (category.getChangeType() == CategoryChangedEvent.ChangeType.DELETED) {
+                totalCategories--;
+            }
+        }
+    }
+
+    private void applyPlaced(AdminOrderSummary placed) {
+        totalOrders++;
+        if (OrderStatus.PENDING.name().equals(placed.getStatus())) {
+            pendingOrders++;
+        }
+        if (recentOrders.size() == RECENT_ORDERS) {
+            recentOrders.removeLast();
+        }
+        recentOrders.addFirst(placed);
+    }
+
+    private void applyStatusChange(AdminOrderStatusChange changed) {
+        if (OrderStatus.PENDING.name().equals(changed.getPreviousStatus())) {
+            pendingOrders--;
+        }
+        if (OrderStatus.PENDING.name().equals(changed.getNewStatus())) {
+            pendingOrders++;
+        }
+        long amount = Money.of(changed.getTotalAmount()).getMinorUnits();
+        if (OrderStatus.DELIVERED.name().equals(changed.getPreviousStatus())) {
+            revenueMinorUnits -= amount;
+        }
+        if (OrderStatus.DELIVERED.name().equals(changed.getNewStatus())) {
+            revenueMinorUnits += amount;
+        }
+        if (recentOrders.stream().anyMatch(summary -> summary.getOrderId().equals(changed.getOrderId()))) {
+            // summaries are shared with published snapshots, so replace instead of mutating
+            List<AdminOrderSummary> updated = recentOrders.stream()
+                    .map(summary -> summary.getOrderId().equals(changed.getOrderId())
+                            ? withStatus(summary, changed.getNewStatus())
+                            : summary)
+                    .toList();
+            recentOrders.clear();
+            recentOrders.addAll(updated);
+        }
+    }
+
+    private void publishSnapshot() {
+        snapshot = new AdminDashboardStats(
+                totalOrders,
+                totalUsers,
+                totalProducts,
+                totalCategories,
+                Money.ofMinor(revenueMinorUnits).toBigDecimal(),
+                pendingOrders,
+                0, // filled in from the stock index on every read
+                List.copyOf(recentOrders)
+        );
+    }
+
+    private static AdminOrderSummary withStatus(AdminOrderSummary summary, String status) {
+        return new AdminOrderSummary(summary.getOrderId(), summary.getCustomerName(), summary.getOrderDate(),
+                summary.getTotalAmount(), status, summary.getItemCount());
+    }
+
+    private AdminDashboardStats copy(AdminDashboardStats stats) {
+        return new AdminDashboardStats(stats.getTotalOrders(), stats.getTotalUsers(), stats.getTotalProducts(),
+                stats.getTotalCategories(), stats.getTotalRevenue(), stats.getPendingOrders(),
+                stockLevelIndex.countBelowReorderThreshold(), stats.getRecentOrders());
+    }
+}
@@ -5,6 +5,7 @@ import com.shopsphere.dto.CartItemResponse;
 import com.shopsphere.dto.CartResponse;
 import com.shopsphere.model.Cart;
 import com.shopsphere.model.CartItem;
+import com.shopsphere.model.Money;
 import com.shopsphere.model.Product;
 import com.shopsphere.model.User;
 import com.shopsphere.repository.CartItemRepository;
@@ -18,8 +19,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -35,26 +36,23 @@ public class CartService {
 
 
     /**
-     * Helper method to convert Cart to CartResponse
+     * Helper method to convert Cart to CartResponse.
      */
-    private CartResponse convertToCartResponse(Cart cart) {
+    static CartResponse convertToCartResponse(Cart cart) {
         CartResponse dto = new CartResponse();
         dto.setCartId(cart.getCartId());
 
-        List<CartItemResponse> cartItemResponseList = cart
-                .getCartItems()
-                .stream()
-                .map(this::convertToCartItemDto)
-                .toList();
+        List<CartItemResponse> cartItemResponseList = new ArrayList<>(cart.getCartItems().size());
+        //calculate total in minor units, only the DTO amounts are materialized as BigDecimal
+        long totalMinorUnits = 0;
+        for (CartItem cartItem : cart.getCartItems()) {
+            Money itemTotal = cartItem.getPriceAtAddition().times(cartItem.getQuantity());
+            totalMinorUnits = Math.addExact(totalMinorUnits, itemTotal.getMinorUnits());
+            cartItemResponseList.add(convertToCartItemDto(cartItem, itemTotal));
+        }
 
         dto.setItems(cartItemResponseList);
-        //calculate total
-        BigDecimal total  = cartItemResponseList
-                .stream()
-                .map(CartItemResponse::getItemTotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        dto.setTotalAmount(total);
+        dto.setTotalAmount(Money.ofMinor(totalMinorUnits).toBigDecimal());
 
         if (cart.getUser() != null) {
             dto.setUserId(cart.getUser().getUserId());
@@ -106,6 +104,7 @@ public class CartService {
      * @param request The AddToCartRequest DTO containing productId and quantity.
      * @return The updated cart as a DTO.
      */
+    @RetryOnConflict("cart")
     @Transactional
     public CartResponse addProductToCart(String userId, AddToCartRequest request) {
         Cart cart = getOrCreateCart(userId); // Get or create user's cart
@@ -131,6 +130,9 @@ public class CartService {
             cart.addCartItem(newItem); // Also add to cart's collection
         }
 
+        // every item change updates the cart row, so its version catches concurrent changes to the same cart
+        // (e.g. a double-submitted add creating the same line twice)
+        cart.setUpdatedAt(LocalDateTime.now());
         return convertToCartResponse(cart);
     }
 
@@ -141,6 +143,7 @@ public class CartService {
      * @param quantity The new quantity.
      * @return The updated cart as a DTO.
      */
+    @RetryOnConflict("cart")
     @Transactional
     public CartResponse updateProductQuantityInCart(String userId, String productId, Integer quantity) {
         Cart cart = getOrCreateCart(userId);
@@ -159,10 +162,12 @@ public class CartService {
             cartItemRepository.save(item);
         }
 
+        cart.setUpdatedAt(LocalDateTime.now());
         cartRepository.save(cart);
         return convertToCartResponse(cart);
     }
 
+    @RetryOnConflict("cart")
     @Transactional
     public CartResponse removeProductFromCart(String userId, String productId) {
         Cart cart = getOrCreateCart(userId);
@@ -174,6 +179,7 @@ public class CartService {
        cartItemRepository.delete(item);
        cart.removeCartItem(item);
 
+       cart.setUpdatedAt(LocalDateTime.now());
        cartRepository.save(cart);
        return convertToCartResponse(cart);
     }
@@ -183,6 +189,7 @@ public class CartService {
      * @param userId The ID of the authenticated user.
      * @return The cleared cart as a DTO.
      */
+    @RetryOnConflict("cart")
     @Transactional
     public CartResponse clearCart(String userId) {
         Cart cart = getOrCreateCart(userId);
@@ -194,6 +201,7 @@ public class CartService {
         return convertToCartResponse(cart);
     }
 
+    @RetryOnConflict("cart")
     @Transactional
     public CartResponse mergeCart(String userId, CartResponse cartResponse) {
         Cart cart = getOrCreateCart(userId);
@@ -203,25 +211,26 @@ public class CartService {
             newItem.setCart(cart);
             newItem.setProduct(productService.getProductEntityById(item.getProductId()));
             newItem.setQuantity(item.getQuantity());
-            newItem.setPriceAtAddition(item.getPriceAtAddition());
+            newItem.setPriceAtAddition(Money.of(item.getPriceAtAddition()));
             cartItemRepository.save(newItem);
         }
 
+        cart.setUpdatedAt(LocalDateTime.now());
         return convertToCartResponse(cart);
     }
 
     /**
      * Helper method to convert CartItem entity to CartItemResponse DTO.
      */
-    private CartItemResponse convertToCartItemDto(CartItem cartItem) {
+    private static CartItemResponse convertToCartItemDto(CartItem cartItem, Money itemTotal) {
         CartItemResponse dto = new CartItemResponse();
         dto.setCartItemId(cartItem.getCartItemId());
         dto.setProductId(cartItem.getProduct().getProductId());
         dto.setProductName(cartItem.getProduct().getName()); // Access product name
         dto.setProductImageUrl(cartItem.getProduct().getImageUrl()); // Access product image URL
         dto.setQuantity(cartItem.getQuantity());
-        dto.setPriceAtAddition(cartItem.getPriceAtAddition());
-        dto.setItemTotal(cartItem.getPriceAtAddition().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+        dto.setPriceAtAddition(cartItem.getPriceAtAddition().toBigDecimal());
+        dto.setItemTotal(itemTotal.toBigDecimal());
         dto.setAddedAt(cartItem.getAddedAt());
         return dto;
     }
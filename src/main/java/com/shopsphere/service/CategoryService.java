@@ -2,6 +2,8 @@ package com.shopsphere.service;
 
 import com.shopsphere.dto.CategoryRequest;
 import com.shopsphere.dto.CategoryResponse;
+import com.shopsphere.event.CategoryChangedEvent;
+import com.shopsphere.event.DomainEventBus;
 import com.shopsphere.model.Category;
 import com.shopsphere.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
@@ -18,6 +20,7 @@ import java.util.stream.Collectors;
 public class CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final DomainEventBus eventBus;
 
     private CategoryResponse convertToDto(Category category) {
         CategoryResponse dto = new CategoryResponse();
@@ -73,6 +76,7 @@ public class CategoryService {
         category.setName(request.getName());
         category.setDescription(request.getDescription());
         Category savedCategory = categoryRepository.save(category);
+        eventBus.publishAfterCommit(new CategoryChangedEvent(CategoryChangedEvent.ChangeType.CREATED, savedCategory.getCategoryId()));
         return convertToDto(savedCategory);
     }
 
@@ -89,6 +93,7 @@ public class CategoryService {
         existingCategory.setName(request.getName());
         existingCategory.setDescription(request.getDescription());
         Category updatedCategory = categoryRepository.save(existingCategory);
+        eventBus.publishAfterCommit(new CategoryChangedEvent(CategoryChangedEvent.ChangeType.UPDATED, categoryId));
         return convertToDto(updatedCategory);
     }
 
@@ -104,5 +109,6 @@ public class CategoryService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot delete category with associated products. Reassign or delete products first.");
         }
         categoryRepository.delete(categoryToDelete);
+        eventBus.publishAfterCommit(new CategoryChangedEvent(CategoryChangedEvent.ChangeType.DELETED, categoryId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,305 @@
+package com.shopsphere.service;
+
+import com.shopsphere.event.CacheEntriesChangedEvent;
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.event.DomainEventHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.metamodel.spi.MappingMetamodelImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the second-level caches of all nodes consistent. Each node's cache is local (Caffeine), so a change made on
+ * one node has to be evicted everywhere else.
+ *
+ * Every transaction that inserts, updates or deletes a cached entity, or changes a cached collection, hands the
+ * list of changes to the event bus once it has committed; rolled back work is never announced. This handler's bus
+ * thread sends them as PostgreSQL NOTIFYs on a pooled connection of its own, batching the transactions that
+ * committed meanwhile, so the committing transaction neither waits for it nor takes PostgreSQL's notification
+ * queue lock while it holds its row locks. Each node LISTENs on its own connection, outside the pool, and evicts
+ * exactly the entries named. Its cached query results are only dropped when they read one of the changed tables:
+ * the tables are marked as updated in the update timestamps region, as Hibernate does for local changes, so a
+ * stock change on every sale leaves the cached category and role queries alone. Messages from the node itself are
+ * skipped because Hibernate has already updated its cache.
+ *
+ * A node that loses its listening connection evicts everything once it reconnects, since it may have missed
+ * messages. The region TTLs in hibernate-cache.conf bound the remaining gaps: a load that started before the change
+ * committed and finished after the eviction, and the changes of a node that stopped between a commit and its
+ * NOTIFY.
+ */
+@Component
+@Slf4j
+public class ClusterCacheInvalidator implements DomainEventHandler, SmartLifecycle {
+
+    static final int MAX_PAYLOAD_CHARS = 7000; // PostgreSQL rejects payloads of 8000 bytes or more
+    private static final String ENTITY = "E";
+    private static final String COLLECTION = "C";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final DomainEventBus eventBus;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Counter publishedCounter;
+    private final Counter receivedCounter;
+    private final Counter failedCounter;
+
+    // changes of the open transaction of each session, published once it has committed
+    private final Map<SessionImplementor, Set<String>> pending = new ConcurrentHashMap<>();
+
+    private final PostgresNotificationListener listener;
+    private volatile boolean running = false;
+
+    public ClusterCacheInvalidator(EntityManagerFactory entityManagerFactory,
+                                   DomainEventBus eventBus,
+                                   JdbcTemplate jdbcTemplate,
+                                   DataSourceProperties dataSourceProperties,
+                                   @Value("${application.cache.invalidation.enabled:true}") boolean enabled,
+                                   @Value("${application.cache.invalidation.channel:l2_cache_invalidation}") String channel,
+                                   MeterRegistry meterRegistry) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.eventBus = eventBus;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.channel = channel;
+        this.publishedCounter = Counter.builder("cache.invalidations.published").register(meterRegistry);
+        this.receivedCounter = Counter.builder("cache.invalidations.received").register(meterRegistry);
+        this.failedCounter = Counter.builder("cache.invalidations.failures").register(meterRegistry);
+        // anything changed while this node was not listening has to go
+        this.listener = new PostgresNotificationListener(dataSourceProperties, channel, "l2-cache-invalidation",
+                () -> sessionFactory().getCache().evictAllRegions(), this::apply);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled) {
+            running = true;
+            return;
+        }
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        ChangeListener changeListener = new ChangeListener();
+        registry.appendListeners(EventType.POST_INSERT, changeListener);
+        registry.appendListeners(EventType.POST_UPDATE, changeListener);
+        registry.appendListeners(EventType.POST_DELETE, changeListener);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE, changeListener);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE, changeListener);
+
+        running = true;
+        listener.start();
+        log.info("Second-level cache invalidation listening on channel '{}' as node {}", channel, nodeId);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        listener.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public String getName() {
+        return "cluster-cache-invalidator";
+    }
+
+    @Override
+    public boolean supports(DomainEvent event) {
+        return event instanceof CacheEntriesChangedEvent;
+    }
+
+    /**
+     * Sends the changes of the transactions committed since the last batch to the other nodes.
+     */
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        Set<String> changes = new LinkedHashSet<>();
+        for (DomainEvent event : events) {
+            changes.addAll(((CacheEntriesChangedEvent) event).getChanges());
+        }
+        try {
+            for (String payload : encode(nodeId, changes)) {
+                jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> null, channel, payload);
+            }
+            publishedCounter.increment(changes.size());
+        } catch (DataAccessException e) {
+            // other nodes catch up when the entries expire
+            failedCounter.increment();
+            log.error("Could not publish {} cache invalidation(s): {}", changes.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Evicts what another node changed, and the cached query results that read the changed tables.
+     * @param payload A message built by {@link #encode}.
+     */
+    void apply(String payload) {
+        String[] lines = payload.split("\n");
+        if (lines[0].equals(nodeId)) {
+            return;
+        }
+        SessionFactoryImplementor sessionFactory = sessionFactory();
+        CacheImplementor cache = sessionFactory.getCache();
+        MappingMetamodelImplementor metamodel = sessionFactory.getMappingMetamodel();
+        Set<String> tables = new LinkedHashSet<>();
+        for (int i = 1; i < lines.length; i++) {
+            String[] parts = lines[i].split("\\|", 3);
+            try {
+                if (parts.length == 3 && ENTITY.equals(parts[0])) {
+                    cache.evictEntityData(parts[1], parts[2]);
+                    tables.addAll(Arrays.asList(metamodel.getEntityDescriptor(parts[1]).getPropertySpaces()));
+                } else if (parts.length == 3 && COLLECTION.equals(parts[0])) {
+                    cache.evictCollectionData(parts[1], parts[2]);
+                    tables.addAll(Arrays.asList(metamodel.getCollectionDescriptor(parts[1]).getCollectionSpaces()));
+                } else {
+                    log.warn("Ignoring malformed cache invalidation line '{}'", lines[i]);
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                // e.g. an entity only a newer version of the application maps, during a rolling deploy
+                log.warn("Ignoring cache invalidation line '{}': {}", lines[i], e.getMessage());
+                continue;
+            }
+            receivedCounter.increment();
+        }
+        if (!tables.isEmpty()) {
+            try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                cache.getTimestampsCache().invalidate(tables.toArray(String[]::new), (SharedSessionContractImplementor) session);
+            }
+        }
+    }
+
+    /**
+     * Splits the changes into NOTIFY payloads that each start with the sending node's id.
+     */
+    static List<String> encode(String nodeId, Collection<String> changes) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(nodeId);
+        for (String change : changes) {
+            if (payload.length() > nodeId.length() && payload.length() + 1 + change.length() > MAX_PAYLOAD_CHARS) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+                payload.append(nodeId);
+            }
+            payload.append('\n').append(change);
+        }
+        if (payload.length() > nodeId.length()) {
+            payloads.add(payload.toString());
+        }
+        return payloads;
+    }
+
+    String getNodeId() {
+        return nodeId;
+    }
+
+    private SessionFactoryImplementor sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+    }
+
+    private void record(EventSource session, String change) {
+        pending.computeIfAbsent(session, s -> {
+            s.getActionQueue().registerProcess((success, completed) -> {
+                Set<String> changes = pending.remove(s);
+                if (success && changes != null) {
+                    eventBus.publish(new CacheEntriesChangedEvent(Collections.unmodifiableSet(changes)));
+                }
+            });
+            return new LinkedHashSet<>();
+        }).add(change);
+    }
+
+    private final class ChangeListener implements PostInsertEventListener, PostUpdateEventListener,
+            PostDeleteEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            entityChanged(event.getSession(), event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            entityChanged(event.getSession(), event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            entityChanged(event.getSession(), event.getPersister(), event.getId());
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            collectionChanged(event.getSession(), event.getCollection().getRole(), event.getAffectedOwnerIdOrNull());
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            collectionChanged(event.getSession(), event.getCollection().getRole(), event.getAffectedOwnerIdOrNull());
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+
+        private void entityChanged(EventSource session, EntityPersister persister, Object id) {
+            if (persister.canWriteToCache()) {
+                // inserts too: other nodes may hold query results the new row belongs in
+                record(session, ENTITY + "|" + persister.getEntityName() + "|" + id);
+            }
+        }
+
+        private void collectionChanged(EventSource session, String role, Object ownerId) {
+            if (ownerId == null) {
+                return;
+            }
+            CollectionPersister persister = session.getFactory().getMappingMetamodel().getCollectionDescriptor(role);
+            if (persister.hasCache()) {
+                record(session, COLLECTION + "|" + role + "|" + ownerId);
+            }
+        }
+    }
+}
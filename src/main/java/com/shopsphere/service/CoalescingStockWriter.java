@@ -0,0 +1,269 @@
+package com.shopsphere.service;
+
+import com.shopsphere.model.Product;
+import com.shopsphere.model.StockMovement;
+import com.shopsphere.model.enums.StockMovementType;
+import com.shopsphere.repository.ProductRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stock changes for hot products (application.inventory.coalesced-products), applied in micro-batches instead of
+ * in each checkout's transaction.
+ *
+ * Every product has its own queue with at most one writer at a time. A writer waits linger-ms for more changes
+ * to arrive, then applies everything queued in one short transaction: lock the row, grant decrements in arrival
+ * order while stock lasts, write the new quantity once, and insert one stock ledger row per granted change. The
+ * row lock is held for that transaction only, not for a whole checkout including its card charge, so a doorbuster
+ * takes one UPDATE per batch instead of serializing every checkout on its row. The new quantity is set on the
+ * managed entity, as for any other stock change, so the second-level caches and stock events follow.
+ *
+ * A granted decrement is committed before the order is. Callers give the stock back with {@link #increment} when
+ * their transaction does not commit; if the process dies in between, the stock stays too low (never oversold)
+ * until it is corrected.
+ */
+@Component
+@Slf4j
+public class CoalescingStockWriter {
+
+    private final ProductRepository productRepository;
+    private final ProductService productService;
+    private final TransactionTemplate transactionTemplate;
+    private final Set<String> coalescedProducts;
+    private final long lingerMs;
+    private final int maxBatch;
+    private final long timeoutMs;
+    private final ScheduledExecutorService writers;
+    private final Timer flushTimer;
+    private final DistributionSummary batchSize;
+
+    private final Map<String, ProductQueue> queues = new ConcurrentHashMap<>();
+
+    public CoalescingStockWriter(ProductRepository productRepository,
+                                 ProductService productService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${application.inventory.coalesced-products:}") Set<String> coalescedProducts,
+                                 @Value("${application.inventory.coalesced-writes.linger-ms:2}") long lingerMs,
+                                 @Value("${application.inventory.coalesced-writes.max-batch:500}") int maxBatch,
+                                 @Value("${application.inventory.coalesced-writes.threads:2}") int threads,
+                                 @Value("${application.inventory.coalesced-writes.timeout-ms:2000}") long timeoutMs,
+                                 MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.productService = productService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.coalescedProducts = Set.copyOf(coalescedProducts);
+        this.lingerMs = lingerMs;
+        this.maxBatch = maxBatch;
+        this.timeoutMs = timeoutMs;
+        this.writers = Executors.newScheduledThreadPool(threads, Thread.ofPlatform()
+                .name("stock-writer-", 0)
+                .daemon(true)
+                .factory());
+        this.flushTimer = Timer.builder("inventory.coalesced.flush").register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("inventory.coalesced.batch.size").register(meterRegistry);
+    }
+
+    /**
+     * @return Whether the product's stock changes go through this writer.
+     */
+    public boolean isCoalesced(String productId) {
+        return coalescedProducts.contains(productId);
+    }
+
+    /**
+     * Queues a decrement of the product's stock, recorded as a sale of the given order.
+     * @return Completes with true once the decrement is committed, or false if the stock left was insufficient.
+     */
+    public CompletableFuture<Boolean> decrement(String productId, int quantity, String orderId) {
+        return submit(productId, -quantity, StockMovementType.SALE, orderId);
+    }
+
+    /**
+     * Queues an increment of the product's stock that gives back a decrement whose order was not placed.
+     */
+    public CompletableFuture<Boolean> increment(String productId, int quantity) {
+        return submit(productId, quantity, StockMovementType.RESERVATION_RELEASE, null);
+    }
+
+    /**
+     * Decrements the stock of several products for the current transaction and waits for the result. The stock is
+     * given back if the transaction does not commit, or if another product's stock was insufficient.
+     * @param orderId The ID of the order the stock is sold to, recorded with the sales in the stock ledger.
+     * @param quantities Quantity by product ID.
+     * @return The ID of a product whose stock was insufficient, or null if every decrement was granted.
+     */
+    public String reserve(String orderId, Map<String, Integer> quantities) {
+        Map<String, CompletableFuture<Boolean>> results = new HashMap<>();
+        quantities.forEach((productId, quantity) -> results.put(productId, decrement(productId, quantity, orderId)));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<String> granted = new ArrayList<>();
+        String insufficient = null;
+        Exception failure = null;
+        for (Map.Entry<String, CompletableFuture<Boolean>> result : results.entrySet()) {
+            String productId = result.getKey();
+            try {
+                if (result.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    granted.add(productId);
+                } else {
+                    insufficient = productId;
+                }
+            } catch (TimeoutException | InterruptedException | ExecutionException e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                // still queued or being written: given back once it is
+                result.getValue().thenAccept(applied -> {
+                    if (applied) {
+                        increment(productId, quantities.get(productId));
+                    }
+                });
+                failure = e;
+            }
+        }
+
+        if (failure != null || insufficient != null) {
+            granted.forEach(productId -> increment(productId, quantities.get(productId)));
+        } else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        granted.forEach(productId -> increment(productId, quantities.get(productId)));
+                    }
+                }
+            });
+        }
+        if (failure != null) {
+            log.warn("Could not reserve stock of {}: {}", quantities.keySet(), failure.toString());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Stock could not be updated. Try again.", failure);
+        }
+        return insufficient;
+    }
+
+    private CompletableFuture<Boolean> submit(String productId, int delta, StockMovementType type, String orderId) {
+        ProductQueue queue = queues.computeIfAbsent(productId, ProductQueue::new);
+        StockChange change = new StockChange(delta, type, orderId, new CompletableFuture<>());
+        queue.pending.add(change);
+        if (queue.scheduled.compareAndSet(false, true)) {
+            try {
+                writers.schedule(() -> drain(queue), lingerMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // shut down: no writer will take this queue any more
+                queue.scheduled.set(false);
+                StockChange rejected;
+                while ((rejected = queue.pending.poll()) != null) {
+                    rejected.result.completeExceptionally(e);
+                }
+            }
+        }
+        return change.result;
+    }
+
+    private void drain(ProductQueue queue) {
+        try {
+            List<StockChange> batch = new ArrayList<>();
+            StockChange change;
+            while (batch.size() < maxBatch && (change = queue.pending.poll()) != null) {
+                batch.add(change);
+            }
+            if (!batch.isEmpty()) {
+                apply(queue.productId, batch);
+            }
+        } finally {
+            queue.scheduled.set(false);
+            // changes queued while this batch was written; a backlog is drained right away
+            if (!queue.pending.isEmpty() && queue.scheduled.compareAndSet(false, true)) {
+                try {
+                    writers.execute(() -> drain(queue));
+                } catch (RejectedExecutionException e) {
+                    // shutting down: this writer finishes the queue itself
+                    drain(queue);
+                }
+            }
+        }
+    }
+
+    private void apply(String productId, List<StockChange> batch) {
+        boolean[] granted = new boolean[batch.size()];
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                Product product = productRepository.findAllByIdForUpdate(List.of(productId)).stream()
+                        .findFirst()
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found with ID: " + productId));
+                int stock = product.getStockQuantity();
+                List<StockMovement> movements = new ArrayList<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    StockChange change = batch.get(i);
+                    granted[i] = change.delta >= 0 || stock + change.delta >= 0;
+                    if (granted[i] && change.delta != 0) {
+                        stock += change.delta;
+                        StockMovement movement = new StockMovement(productId, change.type, change.delta);
+                        movement.setOrderId(change.orderId);
+                        movements.add(movement);
+                    }
+                }
+                if (!movements.isEmpty()) {
+                    productService.applyStockMovements(product, movements);
+                    productService.recordStockMovements(movements);
+                }
+            }));
+        } catch (RuntimeException e) {
+            log.warn("Could not apply {} stock change(s) to product {}: {}", batch.size(), productId, e.getMessage());
+            batch.forEach(change -> change.result.completeExceptionally(e));
+            return;
+        }
+        batchSize.record(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(granted[i]);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // queued changes are still written, their callers are waiting for them; later ones fail
+        writers.shutdown();
+        writers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private static final class ProductQueue {
+        private final String productId;
+        private final Queue<StockChange> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private ProductQueue(String productId) {
+            this.productId = productId;
+        }
+    }
+
+    private record StockChange(int delta, StockMovementType type, String orderId, CompletableFuture<Boolean> result) {
+    }
+}
@@ -0,0 +1,103 @@
+package com.shopsphere.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs {@link RetryOnConflict} methods again when their transaction hits an optimistic locking conflict, or is
+ * rolled back by the database as a deadlock victim, serialization failure or lock timeout.
+ *
+ * Ordered just ahead of the transaction interceptor (lowest precedence by default), so each attempt is a fresh
+ * transaction that re-reads current rows; when the method joins a transaction its caller started, there is nothing to
+ * retry and the conflict is passed on.
+ * Attempts back off with jitter so the colliding requests do not collide again. The stale entity is evicted from the
+ * second-level cache before retrying, in case it was served from there.
+ *
+ * Metrics: optimistic.lock.conflicts{operation, outcome} counts every optimistic conflict and
+ * pessimistic.lock.failures{operation, outcome} every deadlock, serialization failure or lock timeout, outcome
+ * being "retried" or "rejected" (the caller got a 409).
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@Slf4j
+public class ConflictRetryAspect {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final MeterRegistry meterRegistry;
+    private final int defaultMaxAttempts;
+    private final long backoffMs;
+
+    public ConflictRetryAspect(EntityManagerFactory entityManagerFactory,
+                               MeterRegistry meterRegistry,
+                               @Value("${application.concurrency.conflict-retry.max-attempts:3}") int defaultMaxAttempts,
+                               @Value("${application.concurrency.conflict-retry.backoff-ms:10}") long backoffMs) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.meterRegistry = meterRegistry;
+        this.defaultMaxAttempts = defaultMaxAttempts;
+        this.backoffMs = backoffMs;
+    }
+
+    @Around("@annotation(retryOnConflict)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnConflict retryOnConflict) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        String operation = retryOnConflict.value();
+        int maxAttempts = retryOnConflict.maxAttempts() > 0 ? retryOnConflict.maxAttempts() : defaultMaxAttempts;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                evictStaleEntity(e);
+                onConflict("optimistic.lock.conflicts", operation, attempt, maxAttempts, e);
+            } catch (PessimisticLockingFailureException e) {
+                onConflict("pessimistic.lock.failures", operation, attempt, maxAttempts, e);
+            }
+        }
+    }
+
+    private void onConflict(String metric, String operation, int attempt, int maxAttempts, ConcurrencyFailureException e)
+            throws InterruptedException {
+        if (attempt >= maxAttempts) {
+            meterRegistry.counter(metric, "operation", operation, "outcome", "rejected").increment();
+            log.info("Locking conflict in {} after {} attempt(s): {}", operation, attempt, e.getMessage());
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "The data was changed by another request. Reload and try again.", e);
+        }
+        meterRegistry.counter(metric, "operation", operation, "outcome", "retried").increment();
+        backOff(attempt);
+    }
+
+    private void evictStaleEntity(OptimisticLockingFailureException e) {
+        if (e instanceof ObjectOptimisticLockingFailureException stale && stale.getIdentifier() != null) {
+            entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache()
+                    .evictEntityData(stale.getPersistentClassName(), stale.getIdentifier());
+        }
+    }
+
+    private void backOff(int attempt) throws InterruptedException {
+        if (backoffMs > 0) {
+            // up to backoffMs on the first retry, twice that on the second, ...
+            Thread.sleep(ThreadLocalRandom.current().nextLong(backoffMs * attempt) + 1);
+        }
+    }
+}
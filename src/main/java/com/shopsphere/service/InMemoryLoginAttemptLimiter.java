@@ -0,0 +1,100 @@
+package com.shopsphere.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sliding window approximated with two fixed windows: the failures of the previous window are weighted by how
+ * much of it still overlaps the sliding window. That is one small object per key instead of a timestamp per
+ * attempt, so a credential-stuffing run over millions of usernames stays cheap.
+ *
+ * User and IP keys are tracked separately, each up to max-tracked-keys. At capacity a new key still gets tracked and
+ * the cache evicts the keys seen least often, so sprayed usernames with one failure each give way to a key that
+ * keeps failing, and cannot push out the IPs they come from.
+ */
+@Component
+@ConditionalOnProperty(name = "application.security.login.limiter", havingValue = "memory", matchIfMissing = true)
+public class InMemoryLoginAttemptLimiter implements LoginAttemptLimiter {
+
+    private final long windowMillis;
+    private final Cache<String, Window> userWindows;
+    private final Cache<String, Window> ipWindows;
+
+    public InMemoryLoginAttemptLimiter(@Value("${application.security.login.failure-window-ms:900000}") long windowMillis,
+                                       @Value("${application.security.login.max-tracked-keys:100000}") int maxTrackedKeys) {
+        this.windowMillis = windowMillis;
+        this.userWindows = bounded(maxTrackedKeys);
+        this.ipWindows = bounded(maxTrackedKeys);
+    }
+
+    // evicts on the recording thread, so the cap holds under a burst rather than once a pool thread catches up
+    private static Cache<String, Window> bounded(int maxTrackedKeys) {
+        return Caffeine.newBuilder().maximumSize(maxTrackedKeys).executor(Runnable::run).build();
+    }
+
+    @Override
+    public boolean isBlocked(String key, int maxFailures) {
+        Window window = windows(key).getIfPresent(key);
+        return window != null && window.estimate(System.currentTimeMillis()) >= maxFailures;
+    }
+
+    @Override
+    public void recordFailure(String key) {
+        windows(key).get(key, k -> new Window()).increment(System.currentTimeMillis());
+    }
+
+    @Override
+    public void reset(String key) {
+        windows(key).invalidate(key);
+    }
+
+    /**
+     * Drops keys without failures in the last two windows.
+     */
+    @Scheduled(fixedDelayString = "${application.security.login.failure-window-ms:900000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        userWindows.asMap().values().removeIf(window -> window.isIdle(now));
+        ipWindows.asMap().values().removeIf(window -> window.isIdle(now));
+    }
+
+    private Cache<String, Window> windows(String key) {
+        return key.startsWith("ip:") ? ipWindows : userWindows;
+    }
+
+    private final class Window {
+        private long start;
+        private int previous;
+        private int current;
+
+        synchronized void increment(long now) {
+            roll(now);
+            current++;
+        }
+
+        synchronized double estimate(long now) {
+            roll(now);
+            double previousWeight = 1.0 - (double) (now - start) / windowMillis;
+            return previous * previousWeight + current;
+        }
+
+        synchronized boolean isIdle(long now) {
+            roll(now);
+            return previous == 0 && current == 0;
+        }
+
+        private void roll(long now) {
+            long windowStart = now - Math.floorMod(now, windowMillis);
+            if (windowStart == start) {
+                return;
+            }
+            previous = windowStart - start == windowMillis ? current : 0;
+            current = 0;
+            start = windowStart;
+        }
+    }
+}
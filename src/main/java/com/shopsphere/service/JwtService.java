@@ -2,29 +2,50 @@ package com.shopsphere.service;
 
 import com.shopsphere.config.security.CustomUserDetails;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    static final String USER_ID_CLAIM = "userId";
+    static final String EMAIL_CLAIM = "email";
+    static final String ROLES_CLAIM = "roles";
+
     @Value("${application.security.jwt.secret-key}")
     private String secretKey;
 
     @Value("${application.security.jwt.expiration}")
     private long jwtExpiration; // in milliseconds
 
+    // Both are immutable and thread-safe, so they are built once instead of on every parse
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+    }
+
     /**
      * Extracts the username (subject) from a JWT token.
      */
@@ -33,7 +54,7 @@ public class JwtService {
     }
 
     public String extractUserId(String token) {
-        return extractClaim(token, claims -> claims.get("userId",  String.class));
+        return extractClaim(token, claims -> claims.get(USER_ID_CLAIM, String.class));
     }
 
     /**
@@ -45,11 +66,16 @@ public class JwtService {
     }
 
     /**
-     * Generates a JWT token for a given UserDetails.
+     * Generates a JWT token for a given UserDetails. The userId, email and roles are signed into the
+     * token so requests can be authenticated without loading the user again.
      */
-
     public String generateToken(CustomUserDetails customUserDetails) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID_CLAIM, customUserDetails.getUserId());
+        claims.put(EMAIL_CLAIM, customUserDetails.getEmail());
+        claims.put(ROLES_CLAIM, customUserDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList());
         return generateToken(claims, customUserDetails);
     }
 
@@ -63,53 +89,67 @@ public class JwtService {
         return Jwts
                 .builder()
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString()) // jti, the handle used to revoke this token
                 .setSubject(userDetails.getUsername()) // Subject is typically the username
                 .setIssuedAt(new Date(System.currentTimeMillis())) // Token creation time
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration)) // Token expiration time
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256) // Sign the token with the secret key and algorithm
+                .signWith(signInKey, SignatureAlgorithm.HS256) // Sign the token with the secret key and algorithm
                 .compact(); // Builds and compacts the JWT into its final string format
     }
 
     /**
-     * Validates if a JWT token is valid for a given UserDetails.
+     * Verifies the token once (signature and expiration) and returns its claims.
+     * @param token The compact JWT.
+     * @return The verified claims.
+     * @throws JwtException if the token is malformed, tampered with or expired.
      */
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    public Claims parseToken(String token) {
+        return extractAllClaims(token);
     }
 
     /**
-     * Checks if a JWT token is expired.
+     * @return The access token lifetime in milliseconds.
      */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public long getExpirationMillis() {
+        return jwtExpiration;
     }
 
     /**
-     * Extracts the expiration date from a JWT token.
+     * Builds the principal straight from verified claims.
+     * @param claims Claims returned by {@link #parseToken(String)}.
+     * @return The principal, or null if the token predates the userId/roles claims and the user has to be loaded.
      */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public CustomUserDetails toUserDetails(Claims claims) {
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        if (userId == null || roles == null) {
+            return null;
+        }
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(role -> (GrantedAuthority) new SimpleGrantedAuthority(role.toString()))
+                .toList();
+        return new CustomUserDetails(userId, claims.getSubject(), claims.get(EMAIL_CLAIM, String.class), authorities);
     }
 
     /**
-     * Extracts all claims (payload) from a JWT token.
+     * Validates if a JWT token is valid for a given UserDetails.
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey()) // Set the secret key for parsing
-                .build()
-                .parseClaimsJws(token) // Parses the token
-                .getBody(); // Gets the claims (payload)
+    public boolean isTokenValid(String token, UserDetails userDetails) {
+        try {
+            // the parser already rejects expired tokens
+            return extractUsername(token).equals(userDetails.getUsername());
+        } catch (JwtException e) {
+            return false;
+        }
     }
 
     /**
-     * Decodes the base64 encoded secret key and converts it into a Java Key object.
+     * Extracts all claims (payload) from a JWT token.
      */
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private Claims extractAllClaims(String token) {
+        return jwtParser
+                .parseClaimsJws(token) // Parses and verifies the token
+                .getBody(); // Gets the claims (payload)
     }
 
 }
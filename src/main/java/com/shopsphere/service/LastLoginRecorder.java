@@ -0,0 +1,94 @@
+package com.shopsphere.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for users.last_login. Logins only update an in-memory map (latest time per user), which is
+ * written periodically as one batched UPDATE. A user who logs in ten times between flushes costs one row write.
+ * Up to one flush interval of login times can be lost if the process is killed; a normal shutdown flushes.
+ */
+@Component
+@Slf4j
+public class LastLoginRecorder {
+
+    // the condition keeps an older buffered value from overwriting a newer one written by another instance
+    private static final String UPDATE_SQL =
+            "UPDATE users SET last_login = ? WHERE user_id = ? AND (last_login IS NULL OR last_login < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserCacheInvalidator userCacheInvalidator;
+    private final ConcurrentHashMap<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate, UserCacheInvalidator userCacheInvalidator,
+                             MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userCacheInvalidator = userCacheInvalidator;
+        this.flushTimer = Timer.builder("users.last_login.flush").register(meterRegistry);
+        this.flushedCounter = Counter.builder("users.last_login.flushed").register(meterRegistry);
+        this.failedCounter = Counter.builder("users.last_login.flush.errors").register(meterRegistry);
+        Gauge.builder("users.last_login.pending", pending, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Records a successful login. Never touches the database.
+     * @param userId The user who logged in.
+     */
+    public void record(String userId) {
+        pending.merge(userId, LocalDateTime.now(), (previous, latest) -> latest.isAfter(previous) ? latest : previous);
+    }
+
+    @Scheduled(fixedDelayString = "${application.users.last-login-flush-interval-ms:10000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, LocalDateTime>> batch = new ArrayList<>(pending.size());
+        pending.forEach((userId, lastLogin) -> batch.add(Map.entry(userId, lastLogin)));
+
+        try {
+            flushTimer.record(() -> jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batch.size(), (ps, entry) -> {
+                Timestamp lastLogin = Timestamp.valueOf(entry.getValue());
+                ps.setTimestamp(1, lastLogin);
+                ps.setString(2, entry.getKey());
+                ps.setTimestamp(3, lastLogin);
+            }));
+        } catch (DataAccessException e) {
+            // entries stay buffered and are retried with the next flush
+            failedCounter.increment();
+            log.warn("Failed to flush {} last login time(s): {}", batch.size(), e.getMessage());
+            return;
+        }
+
+        // only drop entries that did not change while the batch was being written; cached profiles carry the last login
+        for (Map.Entry<String, LocalDateTime> entry : batch) {
+            pending.remove(entry.getKey(), entry.getValue());
+            userCacheInvalidator.evictProfile(entry.getKey());
+        }
+        flushedCounter.increment(batch.size());
+        log.debug("Flushed {} last login time(s)", batch.size());
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,26 @@
+package com.shopsphere.service;
+
+import com.shopsphere.event.StockThresholdCrossedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Writes stock alerts to the application log. The default sink for local development.
+ */
+@Component
+@ConditionalOnProperty(name = "application.inventory.alerts.sink", havingValue = "log", matchIfMissing = true)
+@Slf4j
+public class LogStockAlertSink implements StockAlertSink {
+
+    @Override
+    public void send(List<StockThresholdCrossedEvent> alerts) {
+        for (StockThresholdCrossedEvent alert : alerts) {
+            log.warn("Stock alert {}: product {} ('{}') at {} unit(s), reorder threshold {}",
+                    alert.getDirection(), alert.getProductId(), alert.getProductName(),
+                    alert.getStockQuantity(), alert.getReorderThreshold());
+        }
+    }
+}
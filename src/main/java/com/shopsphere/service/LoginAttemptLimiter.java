@@ -0,0 +1,28 @@
+package com.shopsphere.service;
+
+/**
+ * Counts failed logins per key ("user:alice", "ip:203.0.113.7") over a sliding window.
+ * Implementations: {@link InMemoryLoginAttemptLimiter} (default, per instance) and
+ * {@link RedisLoginAttemptLimiter} (shared between instances, application.security.login.limiter=redis).
+ */
+public interface LoginAttemptLimiter {
+
+    /**
+     * @param key The throttling key.
+     * @param maxFailures The number of failures allowed within the window.
+     * @return true if the key has reached maxFailures within the window.
+     */
+    boolean isBlocked(String key, int maxFailures);
+
+    /**
+     * Records one failed attempt for the key.
+     * @param key The throttling key.
+     */
+    void recordFailure(String key);
+
+    /**
+     * Forgets the failures of the key, e.g. after a successful login.
+     * @param key The throttling key.
+     */
+    void reset(String key);
+}
@@ -0,0 +1,140 @@
+package com.shopsphere.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password checks (BCrypt) on a small dedicated pool instead of the Tomcat request threads.
+ *
+ * The pool has a fixed number of threads and a short queue; when both are full the login is rejected with 429
+ * right away, so a credential-stuffing burst can use at most that many cores and catalog traffic keeps its CPU.
+ * A hash cannot be interrupted, so a login that times out leaves at most its one running check behind: a check
+ * still queued is cancelled and purged, and a check that starts after its caller's deadline is skipped.
+ * Before any hashing, failed attempts are throttled per username and per client IP.
+ */
+@Component
+@Slf4j
+public class LoginAuthenticator {
+
+    private final AuthenticationManager authenticationManager;
+    private final LoginAttemptLimiter attemptLimiter;
+    private final int maxFailuresPerUser;
+    private final int maxFailuresPerIp;
+    private final long timeoutMillis;
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService executor;
+    private final Counter saturatedCounter;
+    private final Counter throttledCounter;
+
+    public LoginAuthenticator(AuthenticationManager authenticationManager,
+                              LoginAttemptLimiter attemptLimiter,
+                              MeterRegistry meterRegistry,
+                              @Value("${application.security.login.threads:2}") int threads,
+                              @Value("${application.security.login.queue-capacity:32}") int queueCapacity,
+                              @Value("${application.security.login.timeout-ms:5000}") long timeoutMillis,
+                              @Value("${application.security.login.max-failures-per-user:5}") int maxFailuresPerUser,
+                              @Value("${application.security.login.max-failures-per-ip:50}") int maxFailuresPerIp) {
+        this.authenticationManager = authenticationManager;
+        this.attemptLimiter = attemptLimiter;
+        this.maxFailuresPerUser = maxFailuresPerUser;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "login-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "login", List.of());
+        this.saturatedCounter = Counter.builder("auth.login.rejected").tag("reason", "saturated").register(meterRegistry);
+        this.throttledCounter = Counter.builder("auth.login.rejected").tag("reason", "throttled").register(meterRegistry);
+    }
+
+    /**
+     * Authenticates the credentials on the login pool.
+     * @param username The submitted username.
+     * @param password The submitted password.
+     * @param clientIp The client address (after the trusted proxies' X-Forwarded-For), used for per-IP throttling.
+     * @return The successful Authentication.
+     * @throws ResponseStatusException 429 if the user or IP is throttled or the pool is saturated.
+     * @throws AuthenticationException if the credentials are wrong.
+     */
+    public Authentication authenticate(String username, String password, String clientIp) {
+        String userKey = "user:" + (username == null ? "" : username.toLowerCase(Locale.ROOT));
+        String ipKey = "ip:" + clientIp;
+        if (attemptLimiter.isBlocked(userKey, maxFailuresPerUser) || attemptLimiter.isBlocked(ipKey, maxFailuresPerIp)) {
+            throttledCounter.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many failed login attempts, try again later");
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Future<Authentication> result;
+        try {
+            result = executor.submit(() -> {
+                if (System.nanoTime() - deadline > 0) {
+                    // the caller has given up; it can no longer be cancelled in the queue, but it need not hash
+                    throw new TimeoutException("Login waited past its deadline");
+                }
+                return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+            });
+        } catch (RejectedExecutionException e) {
+            saturatedCounter.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many concurrent logins, try again later");
+        }
+
+        try {
+            Authentication authentication = result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            attemptLimiter.reset(userKey);
+            return authentication;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AuthenticationException authenticationException) {
+                attemptLimiter.recordFailure(userKey);
+                attemptLimiter.recordFailure(ipKey);
+                throw authenticationException;
+            }
+            if (e.getCause() instanceof TimeoutException) {
+                saturatedCounter.increment();
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Login timed out, try again later");
+            }
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Login failed", e.getCause());
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            pool.purge(); // frees the queue slot of a check that never started
+            saturatedCounter.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Login timed out, try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            pool.purge();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Login interrupted");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
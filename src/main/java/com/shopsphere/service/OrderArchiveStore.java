@@ -0,0 +1,216 @@
+package com.shopsphere.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.OrderArchive;
+import com.shopsphere.repository.OrderArchiveRepository;
+import com.shopsphere.util.TimeOrderedIds;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Archived orders, as zip files under application.orders.archive.dir with one compressed JSON entry (the
+ * {@link OrderResponse} the API returned) per order. Every file is registered in order_archives, in the
+ * transaction that deletes its orders from the database; a file whose transaction rolled back is removed again.
+ *
+ * Every archived order id is indexed in archived_orders, with the file holding it, so a lookup opens at most that one
+ * file and an id that was never archived opens none. The most recently used files are kept open, since reading a
+ * zip's directory is the costly part. The files are local: on more than one node the directory has to be shared
+ * storage.
+ */
+@Component
+@Slf4j
+public class OrderArchiveStore {
+
+    private static final String ENTRY_SUFFIX = ".json";
+    private static final int MAX_OPEN_FILES = 16;
+
+    private final OrderArchiveRepository orderArchiveRepository;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+
+    // guarded by itself; least recently used first
+    private final Map<String, ZipFile> openFiles = new LinkedHashMap<>(MAX_OPEN_FILES, 0.75f, true);
+
+    public OrderArchiveStore(OrderArchiveRepository orderArchiveRepository,
+                             ObjectMapper objectMapper,
+                             @Value("${application.orders.archive.dir:order-archive}") Path directory) {
+        this.orderArchiveRepository = orderArchiveRepository;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+    }
+
+    /**
+     * Writes the orders to a new archive file and registers it. Must run in the transaction that deletes them.
+     * @param periodStart First day of the month the orders were placed in.
+     * @param orders The orders, as the API returns them.
+     * @return The registered archive.
+     */
+    public OrderArchive write(LocalDate periodStart, List<OrderResponse> orders) {
+        String fileName = "orders-" + YearMonth.from(periodStart) + "-" + TimeOrderedIds.uuidV7() + ".zip";
+        Path file = directory.resolve(fileName);
+        Path partial = directory.resolve(fileName + ".partial");
+        Money total = Money.ZERO;
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                ZipOutputStream zip = new ZipOutputStream(Channels.newOutputStream(channel));
+                for (OrderResponse order : orders) {
+                    zip.putNextEntry(new ZipEntry(order.getOrderId() + ENTRY_SUFFIX));
+                    zip.write(objectMapper.writeValueAsBytes(order));
+                    zip.closeEntry();
+                    total = total.plus(Money.of(order.getTotalAmount()));
+                }
+                zip.finish();
+                channel.force(true); // on disk before the orders are deleted
+            }
+            Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(partial);
+            throw new UncheckedIOException("Could not write order archive " + file, e);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        deleteQuietly(file);
+                    }
+                }
+            });
+        }
+
+        OrderArchive archive = new OrderArchive();
+        archive.setPeriodStart(periodStart);
+        archive.setFileName(fileName);
+        archive.setOrderCount(orders.size());
+        archive.setTotalAmount(total);
+        // flushed so the index rows find the archive they refer to
+        OrderArchive saved = orderArchiveRepository.saveAndFlush(archive);
+        orderArchiveRepository.indexOrders(saved.getArchiveId(),
+                String.join(",", orders.stream().map(OrderResponse::getOrderId).toList()));
+        return saved;
+    }
+
+    /**
+     * @return The archived order, or empty if no archive holds it.
+     */
+    public Optional<OrderResponse> find(String orderId) {
+        return orderArchiveRepository.findFileNameByOrderId(orderId)
+                .flatMap(fileName -> read(fileName, orderId));
+    }
+
+    /**
+     * Indexes the orders of archives written before archived_orders existed, from the entries of their files.
+     * Several nodes may do so at once: an order indexed already is skipped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void indexEarlierArchives() {
+        for (OrderArchive archive : orderArchiveRepository.findUnindexed()) {
+            List<String> orderIds;
+            synchronized (openFiles) {
+                try {
+                    orderIds = open(archive.getFileName()).stream()
+                            .map(entry -> entry.getName().substring(0, entry.getName().length() - ENTRY_SUFFIX.length()))
+                            .toList();
+                } catch (NoSuchFileException e) {
+                    log.warn("Order archive {} is registered but missing from {}", archive.getFileName(), directory);
+                    continue;
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read order archive " + archive.getFileName(), e);
+                }
+            }
+            orderArchiveRepository.indexOrders(archive.getArchiveId(), String.join(",", orderIds));
+            log.info("Indexed {} order(s) of archive {}", orderIds.size(), archive.getFileName());
+        }
+    }
+
+    private Optional<OrderResponse> read(String fileName, String orderId) {
+        synchronized (openFiles) {
+            try {
+                ZipFile zip = open(fileName);
+                ZipEntry entry = zip.getEntry(orderId + ENTRY_SUFFIX);
+                if (entry == null) {
+                    return Optional.empty();
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    return Optional.of(objectMapper.readValue(in, OrderResponse.class));
+                }
+            } catch (NoSuchFileException e) {
+                log.warn("Order archive {} is registered but missing from {}", fileName, directory);
+                return Optional.empty();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read order archive " + fileName, e);
+            }
+        }
+    }
+
+    private ZipFile open(String fileName) throws IOException {
+        ZipFile zip = openFiles.get(fileName);
+        if (zip == null) {
+            Path file = directory.resolve(fileName);
+            if (!Files.exists(file)) {
+                throw new NoSuchFileException(file.toString());
+            }
+            zip = new ZipFile(file.toFile());
+            openFiles.put(fileName, zip);
+            if (openFiles.size() > MAX_OPEN_FILES) {
+                var eldest = openFiles.entrySet().iterator();
+                eldest.next().getValue().close();
+                eldest.remove();
+            }
+        }
+        return zip;
+    }
+
+    @PreDestroy
+    void closeFiles() {
+        synchronized (openFiles) {
+            for (ZipFile zip : openFiles.values()) {
+                try {
+                    zip.close();
+                } catch (IOException e) {
+                    log.debug("Could not close {}: {}", zip.getName(), e.getMessage());
+                }
+            }
+            openFiles.clear();
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.shopsphere.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopsphere.dto.AdminOrderStatusChange;
+import com.shopsphere.dto.AdminOrderSummary;
+import com.shopsphere.dto.OrderFeedMessage;
+import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.dto.OrderStatusUpdate;
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.DomainEventHandler;
+import com.shopsphere.event.OrderPlacedEvent;
+import com.shopsphere.event.OrderStatusChangedEvent;
+import com.shopsphere.event.PaymentStatusChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Carries order and payment events to the live feeds of every node, so a subscriber sees the changes made on any
+ * node, not only on the one it is connected to; load balancing of the streams needs no sticky routing.
+ *
+ * The bus hands this node's committed events over; each one is sent as a PostgreSQL NOTIFY with the data the
+ * feeds show. Every node, this one included, LISTENs on the channel and passes the messages to its feeds, so all
+ * nodes see the same events in the same (commit) order. The {@link AdminStatsReadModel} takes its order figures from
+ * the same messages, so the dashboard agrees with the admin feed. A node whose listening connection dropped has
+ * missed messages, and tells its feeds to send their subscribers a reset, and the read model to reconcile, once it
+ * is listening again.
+ */
+@Component
+@Slf4j
+public class OrderFeedRelay implements DomainEventHandler, SmartLifecycle {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final AdminOrderFeed adminOrderFeed;
+    private final OrderStatusFeed orderStatusFeed;
+    private final AdminStatsReadModel adminStatsReadModel;
+    private final String channel;
+    private final PostgresNotificationListener listener;
+    private final Counter failedCounter;
+
+    private volatile boolean running = false;
+    private boolean listenedBefore = false; // listener thread only
+
+    public OrderFeedRelay(JdbcTemplate jdbcTemplate,
+                          ObjectMapper objectMapper,
+                          AdminOrderFeed adminOrderFeed,
+                          OrderStatusFeed orderStatusFeed,
+                          AdminStatsReadModel adminStatsReadModel,
+                          DataSourceProperties dataSourceProperties,
+                          @Value("${application.orders.feed.channel:order_feed}") String channel,
+                          MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.adminOrderFeed = adminOrderFeed;
+        this.orderStatusFeed = orderStatusFeed;
+        this.adminStatsReadModel = adminStatsReadModel;
+        this.channel = channel;
+        this.listener = new PostgresNotificationListener(dataSourceProperties, channel, "order-feed-relay",
+                this::listening, this::receive);
+        this.failedCounter = Counter.builder("orders.feed.relay.failures").register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        listener.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public String getName() {
+        return "order-feed-relay";
+    }
+
+    @Override
+    public boolean supports(DomainEvent event) {
+        return event instanceof OrderPlacedEvent || event instanceof OrderStatusChangedEvent
+                || event instanceof PaymentStatusChangedEvent;
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        for (DomainEvent event : events) {
+            try {
+                jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> null,
+                        channel, objectMapper.writeValueAsString(toMessage(event, now)));
+            } catch (JsonProcessingException | DataAccessException e) {
+                // the feeds are best effort; their subscribers reload when they notice a gap
+                failedCounter.increment();
+                log.error("Could not relay {} to the order feeds: {}", event.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+    }
+
+    static OrderFeedMessage toMessage(DomainEvent event, LocalDateTime now) {
+        if (event instanceof OrderPlacedEvent placed) {
+            OrderResponse order = placed.getOrderResponse();
+            return new OrderFeedMessage(new AdminOrderSummary(order.getOrderId(), placed.getCustomerName(),
+                    order.getOrderDate(), order.getTotalAmount(), order.getStatus().toString(),
+                    order.getItems().size()), null, null, null);
+        }
+        if (event instanceof OrderStatusChangedEvent changed) {
+            return new OrderFeedMessage(null, new AdminOrderStatusChange(changed.getOrderId(),
+                    changed.getPreviousStatus().toString(), changed.getNewStatus().toString(),
+                    changed.getTotalAmount().toBigDecimal(), now),
+                    changed.getUserId(), new OrderStatusUpdate(changed.getOrderId(), changed.getNewStatus(), null, now));
+        }
+        PaymentStatusChangedEvent changed = (PaymentStatusChangedEvent) event;
+        return new OrderFeedMessage(null, null,
+                changed.getUserId(), new OrderStatusUpdate(changed.getOrderId(), null, changed.getNewStatus(), now));
+    }
+
+    void deliver(OrderFeedMessage message) {
+        adminOrderFeed.publish(message);
+        orderStatusFeed.publish(message);
+        adminStatsReadModel.onOrderFeed(message);
+    }
+
+    private void receive(String payload) {
+        try {
+            deliver(objectMapper.readValue(payload, OrderFeedMessage.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed order feed message: {}", e.getMessage());
+        }
+    }
+
+    private void listening() {
+        if (listenedBefore) {
+            adminOrderFeed.reset();
+            orderStatusFeed.reset();
+            try {
+                adminStatsReadModel.reconcile();
+            } catch (DataAccessException e) {
+                // the periodic reconciliation catches up
+                log.warn("Could not reconcile the admin statistics after reconnecting: {}", e.getMessage());
+            }
+        }
+        listenedBefore = true;
+    }
+}
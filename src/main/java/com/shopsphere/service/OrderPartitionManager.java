@@ -0,0 +1,105 @@
+package com.shopsphere.service;
+
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+/**
+ * Looks after the monthly partitions of orders and order_items (Flyway V5).
+ *
+ * Partitions are created months-ahead months in advance, at startup and daily, so an insert never finds its month
+ * missing. When archival is enabled, delivered orders placed before the last after-months whole months are moved
+ * into archive files ({@link OrderArchiveStore}) in batches, and partitions left empty are dropped. Orders in any
+ * other status stay where they are. Both jobs are safe to run on several nodes at once.
+ */
+@Component
+@Slf4j
+public class OrderPartitionManager {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OrderRepository orderRepository;
+    private final OrderService orderService;
+    private final int monthsAhead;
+    private final boolean archiveEnabled;
+    private final int archiveAfterMonths;
+    private final int batchSize;
+    private final Counter archivedCounter;
+
+    public OrderPartitionManager(JdbcTemplate jdbcTemplate,
+                                 OrderRepository orderRepository,
+                                 OrderService orderService,
+                                 @Value("${application.orders.partitions.months-ahead:3}") int monthsAhead,
+                                 @Value("${application.orders.archive.enabled:false}") boolean archiveEnabled,
+                                 @Value("${application.orders.archive.after-months:12}") int archiveAfterMonths,
+                                 @Value("${application.orders.archive.batch-size:1000}") int batchSize,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.orderRepository = orderRepository;
+        this.orderService = orderService;
+        this.monthsAhead = monthsAhead;
+        this.archiveEnabled = archiveEnabled;
+        this.archiveAfterMonths = archiveAfterMonths;
+        this.batchSize = batchSize;
+        this.archivedCounter = Counter.builder("orders.archived").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${application.orders.partitions.cron:0 0 3 * * *}")
+    public void createUpcomingPartitions() {
+        LocalDate thisMonth = YearMonth.now().atDay(1);
+        try {
+            Integer created = jdbcTemplate.queryForObject("SELECT create_order_partitions(?, ?)", Integer.class,
+                    thisMonth, thisMonth.plusMonths(monthsAhead));
+            if (created != null && created > 0) {
+                log.info("Created {} monthly order partition(s) up to {}", created, YearMonth.from(thisMonth.plusMonths(monthsAhead)));
+            }
+        } catch (DataAccessException e) {
+            // another node creating the same partitions; otherwise the next run retries
+            log.warn("Could not create order partitions: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${application.orders.archive.cron:0 30 3 * * *}")
+    public void archiveOldOrders() {
+        if (!archiveEnabled) {
+            return;
+        }
+        LocalDate cutoff = YearMonth.now().minusMonths(archiveAfterMonths).atDay(1);
+        LocalDateTime earliest = orderRepository.findEarliestOrderDate(OrderStatus.DELIVERED, cutoff.atStartOfDay());
+        if (earliest != null) {
+            for (LocalDate month = earliest.toLocalDate().withDayOfMonth(1); month.isBefore(cutoff); month = month.plusMonths(1)) {
+                archiveMonth(month);
+            }
+        }
+        Integer dropped = jdbcTemplate.queryForObject("SELECT drop_empty_order_partitions(?)", Integer.class, cutoff);
+        if (dropped != null && dropped > 0) {
+            log.info("Dropped {} emptied order partition(s) before {}", dropped, YearMonth.from(cutoff));
+        }
+    }
+
+    private void archiveMonth(LocalDate month) {
+        long total = 0;
+        int archived;
+        do {
+            archived = orderService.archiveDeliveredOrders(month, batchSize);
+            total += archived;
+            archivedCounter.increment(archived);
+        } while (archived == batchSize);
+        if (total > 0) {
+            log.info("Archived {} delivered order(s) from {}", total, YearMonth.from(month));
+        }
+    }
+}
@@ -3,24 +3,34 @@ package com.shopsphere.service;
 import com.shopsphere.dto.OrderItemResponse;
 import com.shopsphere.dto.OrderResponse;
 import com.shopsphere.dto.PlaceOrderRequest;
+import com.shopsphere.event.DomainEventBus;
 import com.shopsphere.event.OrderPlacedEvent;
+import com.shopsphere.event.OrderStatusChangedEvent;
+import com.shopsphere.event.PaymentStatusChangedEvent;
 import com.shopsphere.model.*;
 import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.model.enums.PaymentStatus;
+import com.shopsphere.model.enums.StockMovementType;
 import com.shopsphere.repository.*;
+import com.shopsphere.service.pricing.PriceQuote;
+import com.shopsphere.service.pricing.PricingInput;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service for creating orders, updating stocks and publishing messages to SQS.
@@ -37,67 +47,111 @@ public class OrderService {
     private final UserService userService;
     private final AddressRepository addressRepository;
     private final PaymentRepository paymentRepository;
-    private final ApplicationEventPublisher eventPublisher;
+    private final DomainEventBus eventBus;
     private final StripePaymentService paymentService;
+    private final PricingEngine pricingEngine;
+    private final OrderArchiveStore orderArchiveStore;
+    private final CoalescingStockWriter stockWriter;
 
     /**
      * Place a new order from the user's cart.
+     *
+     * The cart's products are locked up front, all in one statement and in product id order: concurrent checkouts
+     * of the same products wait for each other instead of failing on the product version, and checkouts sharing
+     * several products cannot deadlock. Version conflicts (on the cart) and deadlocks or serialization failures
+     * that still happen are retried. The stock and cart changes are flushed before the card is charged, so a
+     * conflict always surfaces before the charge and a retry never charges twice.
      * @param userId The UUID of the authenticated user.
      * @param placeOrderRequest The PlaceOrderRequest DTO.
      * @return The created OrderResponse DTO.
      */
-    @Transactional(propagation = Propagation.REQUIRED, isolation = Isolation.SERIALIZABLE)
+    @RetryOnConflict("checkout")
+    @Transactional
     public OrderResponse placeOrder(String userId, PlaceOrderRequest placeOrderRequest) {
         log.info("place order request {}", placeOrderRequest);
-        User user = userService.findById(userId);
+        userService.findById(userId); // cached; unknown users are a 404 before anything is locked
+        User user = userService.getUserReference(userId);
         Cart cart = getUserCart(user);
 
         Order newOrder = new Order();
         newOrder.setUser(user);
         newOrder.setStatus(OrderStatus.PENDING);
 
-        BigDecimal totalAmount = BigDecimal.ZERO;
         Set<CartItem> cartItems = cart.getCartItems();
-
+        PricingInput pricingInput = new PricingInput(cartItems.size());
+        pricingInput.setDestination(placeOrderRequest.getCountry(), placeOrderRequest.getState(), placeOrderRequest.getPostalCode());
+
+        // one query locks all products; the stock updates, order item inserts and cart delete below are batched or
+        // bulk statements, so a checkout costs the same number of round trips whatever the number of lines.
+        // Hot products are not locked: their stock is taken through the coalescing writer
+        Map<Boolean, List<String>> productIds = cartItems.stream()
+                .map(cartItem -> cartItem.getProduct().getProductId())
+                .distinct()
+                .collect(Collectors.partitioningBy(stockWriter::isCoalesced));
+        Map<String, Product> products = new HashMap<>(productService.getProductEntitiesByIds(productIds.get(true)));
+        products.putAll(productService.lockProductEntitiesByIds(productIds.get(false)));
+        Map<String, Integer> coalescedQuantities = new HashMap<>();
+        List<StockMovement> stockMovements = new ArrayList<>();
         for (CartItem cartItem : cartItems) {
-            Product product = productService.getProductEntityById(cartItem.getProduct().getProductId());
-            validateStock(cartItem, product);
+            Product product = products.get(cartItem.getProduct().getProductId());
 
             //create order item (snapshot of product details at time or order)
             OrderItem orderItem = getOrderItem(cartItem, product);
             newOrder.addOrderItem(orderItem);
 
-            totalAmount = totalAmount.add(cartItem.getPriceAtAddition().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+            pricingInput.addLine(cartItem.getPriceAtAddition().getMinorUnits(), cartItem.getQuantity(),
+                    product.getCategory() == null ? null : product.getCategory().getCategoryId());
 
             //Deduct stock from product
-            final int updatedQuantity = product.getStockQuantity() - cartItem.getQuantity();
-            productService.updateProductStockQuantity(product.getProductId(), updatedQuantity);
-
+            if (stockWriter.isCoalesced(product.getProductId())) {
+                coalescedQuantities.merge(product.getProductId(), cartItem.getQuantity(), Integer::sum);
+            } else {
+                validateStock(cartItem, product);
+                StockMovement sale = new StockMovement(product.getProductId(), StockMovementType.SALE, -cartItem.getQuantity());
+                productService.applyStockMovements(product, List.of(sale));
+                stockMovements.add(sale);
+            }
         }
-
-        //TODO: need to implement tax logic and add as separate column fields
-        // For now adding simple 8% tax in total amount and 10$ shipping
-        //BigDecimal shippingCost = totalAmount.longValueExact() >= 35 ? BigDecimal.ZERO : BigDecimal.valueOf(10);
-        totalAmount = totalAmount.multiply(BigDecimal.valueOf(0.08));
-        //totalAmount = totalAmount.add(shippingCost);
-
+        //clear the user's cart. The loaded items are left in the collection: with orphan removal, clearing it
+        //would delete each of them again at flush
+        cartItemRepository.deleteAllByCart(cart);
+        cart.setUpdatedAt(LocalDateTime.now());
+        cartRepository.flush(); // version checks of the products and the cart run here, before the payment
+
+        //tax, shipping and promotions from the compiled pricing rules
+        PriceQuote quote = pricingEngine.price(pricingInput);
+        Money totalAmount = quote.totalAmount();
+        newOrder.setSubtotal(quote.subtotalAmount());
+        newOrder.setDiscountAmount(quote.discountAmount());
+        newOrder.setTaxAmount(quote.taxAmount());
+        newOrder.setShippingAmount(quote.shippingAmount());
         newOrder.setTotalAmount(totalAmount);
 
         //Address handling for order (shipping)
         Address shippingAddress = getShippingAddress(placeOrderRequest);
         newOrder.setShippingAddress(shippingAddress); //CascadeType.ALL on Order ensures it's saved
 
+        //hot products' stock is taken before the charge. The order is persisted first so their sales go into the
+        //stock ledger with its ID; it is inserted at flush, the payment's status change costing one more UPDATE
+        if (!coalescedQuantities.isEmpty()) {
+            orderRepository.save(newOrder);
+            String insufficient = stockWriter.reserve(newOrder.getOrderId(), coalescedQuantities);
+            if (insufficient != null) {
+                log.warn("Insufficient stock for product ID {}", insufficient);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Insufficient stock for product:  " + products.get(insufficient).getName());
+            }
+        }
+
         //Handle Payment Details
         paymentService.processPayment(user, newOrder,placeOrderRequest, totalAmount);
 
         //all changes within this transaction will be commited
         Order savedOrder = orderRepository.save(newOrder);
+        //the sales go into the stock ledger with the order's ID, inserted in one batch at commit
+        stockMovements.forEach(movement -> movement.setOrderId(savedOrder.getOrderId()));
+        productService.recordStockMovements(stockMovements);
         log.info("Order placed successfully with ID: {}", savedOrder.getOrderId());
-        //clear the user's cart
-        cartItemRepository.deleteAll(cart.getCartItems());
-        cart.getCartItems().clear();
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepository.save(cart);
         log.info("Cart cleared for user ID: {}", user.getUserId());
 
 //        //sending the message to SQS queue for async processing
@@ -113,8 +167,9 @@ public class OrderService {
 //        }
 
         OrderResponse orderResponse = convertToOrderDto(savedOrder);
-        eventPublisher.publishEvent(new OrderPlacedEvent(this, orderResponse));
-        log.info("OrderPlacedEvent published for order ID: {}", savedOrder.getOrderId());
+        //handed to the event bus once the transaction commits (SQS message is sent off the request thread)
+        eventBus.publishAfterCommit(new OrderPlacedEvent(orderResponse, user.getFirstName() + " " + user.getLastName()));
+        log.info("OrderPlacedEvent queued for order ID: {}", savedOrder.getOrderId());
 
         return orderResponse;
     }
@@ -126,24 +181,26 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public List<OrderResponse> getUserOrders(String userId) {
-        User user = userService.findById(userId);
-        return orderRepository.findByUser(user)
+        userService.findById(userId);
+        return orderRepository.findByUser(userService.getUserReference(userId))
                 .stream()
                 .map(this::convertToOrderDto)
                 .toList();
     }
 
     /**
-     * Get a specific order by its ID.
+     * Get a specific order by its ID, reading through to the archive for orders that were archived.
      * @param orderId The ID of the order.
      * @return The OrderResponse DTO.
      */
     @Transactional(readOnly = true)
     public OrderResponse getOrderById(String orderId) {
-        Order order = orderRepository.findById(orderId)
+        Optional<Order> order = orderRepository.findById(orderId);
+        if (order.isPresent()) {
+            return convertToOrderDto(order.get());
+        }
+        return orderArchiveStore.find(orderId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found with id " + orderId));
-
-        return convertToOrderDto(order);
     }
 
     /**
@@ -164,6 +221,7 @@ public class OrderService {
      * @param newStatus The new status string.
      * @return The updated OrderResponse DTO.
      */
+    @RetryOnConflict("order-status")
     @Transactional
     public OrderResponse updateOrderStatus(String orderId, OrderStatus newStatus) {
         Order order = orderRepository.findById(orderId)
@@ -172,12 +230,79 @@ public class OrderService {
         if (newStatus == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "New status cannot be empty.");
         }
+        OrderStatus previousStatus = order.getStatus();
         order.setStatus(newStatus);
         Order updatedOrder = orderRepository.save(order);
+        if (previousStatus != newStatus) {
+            eventBus.publishAfterCommit(new OrderStatusChangedEvent(orderId, order.getUser().getUserId(),
+                    previousStatus, newStatus, order.getTotalAmount()));
+        }
         log.info("Order ID {} status updated to: {}", orderId, newStatus);
         return convertToOrderDto(updatedOrder);
     }
 
+    /**
+     * Update the status of an order's payment, e.g. once a pending payment was confirmed by the gateway.
+     * A completed payment moves a pending order to PROCESSING, as it does at checkout.
+     * @param orderId The ID of the order.
+     * @param newStatus The new payment status.
+     * @return The updated OrderResponse DTO.
+     */
+    @RetryOnConflict("order-status")
+    @Transactional
+    public OrderResponse updatePaymentStatus(String orderId, PaymentStatus newStatus) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found with ID: " + orderId));
+
+        if (newStatus == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "New payment status cannot be empty.");
+        }
+        Payment payment = order.getPayment();
+        if (payment == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Order " + orderId + " has no payment.");
+        }
+        PaymentStatus previousStatus = payment.getStatus();
+        payment.setStatus(newStatus);
+        if (previousStatus != newStatus) {
+            eventBus.publishAfterCommit(new PaymentStatusChangedEvent(orderId, order.getUser().getUserId(),
+                    previousStatus, newStatus));
+        }
+        log.info("Order ID {} payment status updated to: {}", orderId, newStatus);
+
+        if (newStatus == PaymentStatus.COMPLETED && order.getStatus() == OrderStatus.PENDING) {
+            return updateOrderStatus(orderId, OrderStatus.PROCESSING);
+        }
+        return convertToOrderDto(orderRepository.save(order));
+    }
+
+    /**
+     * Move a batch of delivered orders placed in the given month into an archive file, and delete them with their
+     * items, payments and shipping addresses. Orders locked by another transaction are skipped, so archival can
+     * run on several nodes at once.
+     * @param month First day of the month.
+     * @param limit Maximum number of orders to archive.
+     * @return The number of orders archived, less than limit once the month has none left.
+     */
+    @Transactional
+    public int archiveDeliveredOrders(LocalDate month, int limit) {
+        LocalDateTime from = month.atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atStartOfDay();
+        List<String> orderIds = orderRepository.lockOrderIdsByStatusAndDate(OrderStatus.DELIVERED.name(), from, to, limit);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        List<Order> orders = orderRepository.findAllWithDetailsByOrderIdIn(orderIds);
+        orderArchiveStore.write(month, orders.stream().map(this::convertToOrderDto).toList());
+
+        paymentRepository.deleteArchived(orderIds);
+        orderItemRepository.deleteArchived(orderIds, from, to);
+        orderRepository.deleteArchived(orderIds, from, to);
+        addressRepository.deleteUnusedShippingAddresses(orders.stream()
+                .map(o -> o.getShippingAddress().getAddressId())
+                .toList());
+        return orderIds.size();
+    }
+
     private Cart getUserCart(User user) {
         Cart cart = cartRepository.findByUser(user)
                 .orElseThrow(() -> {
@@ -197,6 +322,7 @@ public class OrderService {
         orderItem.setProduct(product);
         orderItem.setQuantity(cartItem.getQuantity());
         orderItem.setPriceAtPurchase(cartItem.getPriceAtAddition());
+        orderItem.setCategoryId(product.getCategory() == null ? null : product.getCategory().getCategoryId());
         return orderItem;
     }
 
@@ -227,10 +353,11 @@ public class OrderService {
         dto.setOrderItemId(orderItem.getOrderItemId());
         dto.setProductId(orderItem.getProduct().getProductId());
         dto.setProductName(orderItem.getProduct().getName());
+        dto.setCategoryId(orderItem.getCategoryId());
         dto.setProductImageUrl(orderItem.getProduct().getImageUrl());
         dto.setQuantity(orderItem.getQuantity());
-        dto.setPriceAtPurchase(orderItem.getPriceAtPurchase());
-        dto.setItemTotal(orderItem.getPriceAtPurchase().multiply(BigDecimal.valueOf(orderItem.getQuantity())));
+        dto.setPriceAtPurchase(orderItem.getPriceAtPurchase().toBigDecimal());
+        dto.setItemTotal(orderItem.getPriceAtPurchase().times(orderItem.getQuantity()).toBigDecimal());
         return dto;
     }
 
@@ -243,7 +370,11 @@ public class OrderService {
         dto.setUserId(order.getUser().getUserId());
         dto.setUsername(order.getUser().getUsername());
         dto.setOrderDate(order.getOrderDate());
-        dto.setTotalAmount(order.getTotalAmount());
+        dto.setTotalAmount(order.getTotalAmount().toBigDecimal());
+        dto.setSubtotal(toAmount(order.getSubtotal()));
+        dto.setDiscountAmount(toAmount(order.getDiscountAmount()));
+        dto.setTaxAmount(toAmount(order.getTaxAmount()));
+        dto.setShippingAmount(toAmount(order.getShippingAmount()));
         dto.setStatus(order.getStatus());
 
         // Shipping Address details
@@ -272,4 +403,8 @@ public class OrderService {
         return dto;
     }
 
+    private static BigDecimal toAmount(Money money) {
+        return money == null ? null : money.toBigDecimal();
+    }
+
 }
@@ -0,0 +1,160 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.OrderFeedMessage;
+import com.shopsphere.dto.OrderStatusUpdate;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes order and payment status changes to the customer who owns the order, as Server-Sent Events. Changes made
+ * on any node arrive through the {@link OrderFeedRelay}, so the stream may be served by any node.
+ *
+ * Connections are capped per node and per user. A connection that has not carried an event for the idle timeout
+ * is closed to free its slot; the client reconnects when it needs updates again and fetches the order once.
+ * There is no replay: a reconnecting client should re-read the orders it is watching.
+ */
+@Component
+@Slf4j
+public class OrderStatusFeed {
+
+    static final String ORDER_STATUS = "order-status";
+    static final String PAYMENT_STATUS = "payment-status";
+
+    private final int maxConnections;
+    private final int maxConnectionsPerUser;
+    private final int bufferSize;
+    private final long timeoutMs;
+    private final long idleTimeoutNanos;
+
+    private final ConcurrentHashMap<String, Set<SseConnection>> connectionsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final ExecutorService sender;
+
+    public OrderStatusFeed(@Value("${application.orders.feed.max-connections:2000}") int maxConnections,
+                           @Value("${application.orders.feed.max-connections-per-user:3}") int maxConnectionsPerUser,
+                           @Value("${application.orders.feed.buffer-size:32}") int bufferSize,
+                           @Value("${application.orders.feed.timeout-ms:1800000}") long timeoutMs,
+                           @Value("${application.orders.feed.idle-timeout-ms:300000}") long idleTimeoutMs,
+                           @Value("${application.orders.feed.sender-threads:2}") int senderThreads,
+                           MeterRegistry meterRegistry) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        this.sender = Executors.newFixedThreadPool(senderThreads, Thread.ofPlatform()
+                .name("order-feed-", 0)
+                .daemon(true)
+                .factory());
+        Gauge.builder("orders.feed.connections", connectionCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of updates for all orders of the user.
+     * @param userId The authenticated user.
+     * @return The emitter to return from the controller.
+     */
+    public SseEmitter subscribe(String userId) {
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open order update streams.");
+        }
+        SseEmitter emitter = createEmitter();
+        SseConnection connection = new SseConnection(emitter, bufferSize, 1, sender, c -> remove(userId, c));
+        Set<SseConnection> userConnections = connectionsByUser.compute(userId, (id, connections) -> {
+            Set<SseConnection> set = connections != null ? connections : ConcurrentHashMap.newKeySet();
+            if (set.size() < maxConnectionsPerUser) {
+                set.add(connection);
+            }
+            return set;
+        });
+        if (!userConnections.contains(connection)) {
+            connectionCount.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many open order update streams for this user.");
+        }
+        connection.enqueue(SseConnection.comment("connected"));
+        connection.start();
+        return emitter;
+    }
+
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    /**
+     * Pushes a change relayed from any node to the connections of the order's owner on this node.
+     */
+    public void publish(OrderFeedMessage message) {
+        OrderStatusUpdate update = message.getStatusUpdate();
+        if (update == null) {
+            return;
+        }
+        Set<SseConnection> connections = connectionsByUser.get(message.getUserId());
+        if (connections == null) {
+            return; // nobody is watching; the common case
+        }
+        String name = update.getPaymentStatus() != null ? PAYMENT_STATUS : ORDER_STATUS;
+        for (SseConnection connection : connections) {
+            connection.offer(() -> SseEmitter.event().name(name).data(update, MediaType.APPLICATION_JSON));
+        }
+    }
+
+    /**
+     * Called when changes may have been missed: closes every connection, so the clients reconnect and re-read the
+     * orders they are watching.
+     */
+    public void reset() {
+        connectionsByUser.values().forEach(connections -> connections.forEach(SseConnection::close));
+    }
+
+    /**
+     * Keeps active connections open through proxies and closes the ones idle for longer than the idle timeout.
+     */
+    @Scheduled(fixedDelayString = "${application.orders.feed.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Set<SseConnection> connections : connectionsByUser.values()) {
+            for (SseConnection connection : connections) {
+                if (connection.idleNanos() > idleTimeoutNanos) {
+                    connection.close();
+                } else {
+                    connection.heartbeat();
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionsByUser.values().forEach(connections -> connections.forEach(SseConnection::close));
+        sender.shutdownNow();
+    }
+
+    int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    private void remove(String userId, SseConnection connection) {
+        connectionsByUser.computeIfPresent(userId, (id, connections) -> {
+            if (connections.remove(connection)) {
+                connectionCount.decrementAndGet();
+            }
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.shopsphere.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * LISTENs on one PostgreSQL channel from a daemon thread, on its own connection outside the pool.
+ *
+ * Notifications sent while the connection is down are lost, so the owner is told every time listening
+ * (re)starts and can catch up its own way.
+ */
+@Slf4j
+final class PostgresNotificationListener {
+
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final String channel;
+    private final String threadName;
+    private final Runnable onListening;
+    private final Consumer<String> onNotification;
+
+    private volatile boolean running = false;
+    private Thread thread;
+
+    /**
+     * @param onListening Called on the listener thread after each successful LISTEN, the first one included.
+     * @param onNotification Called on the listener thread with the payload of each notification, in commit order.
+     */
+    PostgresNotificationListener(DataSourceProperties dataSourceProperties, String channel, String threadName,
+                                 Runnable onListening, Consumer<String> onNotification) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.channel = channel;
+        this.threadName = threadName;
+        this.onListening = onListening;
+        this.onNotification = onNotification;
+    }
+
+    synchronized void start() {
+        running = true;
+        thread = new Thread(this::listen, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(2));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                onListening.run();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) RECONNECT_DELAY_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Listener on channel '{}' lost its connection, reconnecting in {} ms: {}",
+                        channel, RECONNECT_DELAY_MS, e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        try {
+            onNotification.accept(payload);
+        } catch (RuntimeException e) {
+            // one bad message must not stop the thread
+            log.error("Could not handle a notification on channel '{}': {}", channel, e.getMessage(), e);
+        }
+    }
+}
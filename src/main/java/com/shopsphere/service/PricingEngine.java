@@ -0,0 +1,80 @@
+package com.shopsphere.service;
+
+import com.shopsphere.repository.PricingRuleRepository;
+import com.shopsphere.service.pricing.CompiledPricingRules;
+import com.shopsphere.service.pricing.PriceQuote;
+import com.shopsphere.service.pricing.PricingInput;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prices carts (tax, shipping, promotions) against compiled rule tables.
+ *
+ * The rules are read from the database once, compiled into {@link CompiledPricingRules} and swapped in atomically,
+ * so checkouts never see a half-updated rule set and never query the rules table. Local changes trigger a reload
+ * through {@link #reload()}; other nodes pick them up with the periodic refresh.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PricingEngine {
+
+    private final PricingRuleRepository pricingRuleRepository;
+
+    private final AtomicReference<CompiledPricingRules> rules = new AtomicReference<>();
+    private volatile String loadedFingerprint;
+
+    /**
+     * Prices the cart into the given quote using the current rule tables.
+     */
+    public void price(PricingInput input, PriceQuote quote) {
+        CompiledPricingRules current = rules.get();
+        if (current == null) {
+            current = reload();
+        }
+        current.evaluate(input, quote);
+    }
+
+    public PriceQuote price(PricingInput input) {
+        PriceQuote quote = new PriceQuote();
+        price(input, quote);
+        return quote;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Recompiles the active rules and swaps them in.
+     */
+    public synchronized CompiledPricingRules reload() {
+        String fingerprint = fingerprint();
+        CompiledPricingRules compiled = CompiledPricingRules.compile(pricingRuleRepository.findAllByActiveTrue());
+        rules.set(compiled);
+        loadedFingerprint = fingerprint;
+        log.info("Pricing rules compiled: {} active rule(s)", compiled.getRuleCount());
+        return compiled;
+    }
+
+    // picks up rule changes made through other nodes
+    @Scheduled(fixedDelayString = "${application.pricing.refresh-interval-ms:60000}",
+            initialDelayString = "${application.pricing.refresh-interval-ms:60000}")
+    public void refreshIfChanged() {
+        if (!Objects.equals(fingerprint(), loadedFingerprint)) {
+            reload();
+        }
+    }
+
+    private String fingerprint() {
+        return pricingRuleRepository.findFingerprint();
+    }
+}
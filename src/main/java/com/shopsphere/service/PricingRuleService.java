@@ -0,0 +1,115 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.PricingRuleRequest;
+import com.shopsphere.dto.PricingRuleResponse;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.PricingRule;
+import com.shopsphere.repository.PricingRuleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Admin management of tax, shipping and promotion rules. Every change recompiles the pricing tables after commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class PricingRuleService {
+
+    private final PricingRuleRepository pricingRuleRepository;
+    private final PricingEngine pricingEngine;
+
+    @Transactional(readOnly = true)
+    public List<PricingRuleResponse> getAllRules() {
+        return pricingRuleRepository.findAll().stream()
+                .map(this::convertToDto)
+                .toList();
+    }
+
+    @Transactional
+    public PricingRuleResponse createRule(PricingRuleRequest request) {
+        PricingRule rule = new PricingRule();
+        applyRequest(rule, request);
+        PricingRule savedRule = pricingRuleRepository.save(rule);
+        reloadAfterCommit();
+        return convertToDto(savedRule);
+    }
+
+    @Transactional
+    public PricingRuleResponse updateRule(String ruleId, PricingRuleRequest request) {
+        PricingRule rule = pricingRuleRepository.findById(ruleId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Pricing rule not found with ID: " + ruleId));
+        applyRequest(rule, request);
+        PricingRule savedRule = pricingRuleRepository.save(rule);
+        reloadAfterCommit();
+        return convertToDto(savedRule);
+    }
+
+    @Transactional
+    public void deleteRule(String ruleId) {
+        if (!pricingRuleRepository.existsById(ruleId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Pricing rule not found with ID: " + ruleId);
+        }
+        pricingRuleRepository.deleteById(ruleId);
+        reloadAfterCommit();
+    }
+
+    private void applyRequest(PricingRule rule, PricingRuleRequest request) {
+        if (request.getType() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Pricing rule type is required.");
+        }
+        if ((request.getState() != null || request.getPostalPrefix() != null) && request.getCountry() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "State and postal prefix rules need a country.");
+        }
+        if (request.getRateBasisPoints() != null && (request.getRateBasisPoints() < 0 || request.getRateBasisPoints() > 10_000)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Rate must be between 0 and 10000 basis points.");
+        }
+        Money minSubtotal = request.getMinSubtotal() == null ? null : Money.of(request.getMinSubtotal());
+        Money flatAmount = request.getFlatAmount() == null ? null : Money.of(request.getFlatAmount());
+        if ((minSubtotal != null && minSubtotal.isNegative()) || (flatAmount != null && flatAmount.isNegative())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Pricing rule amounts cannot be negative.");
+        }
+
+        rule.setType(request.getType());
+        rule.setCountry(request.getCountry());
+        rule.setState(request.getState());
+        rule.setPostalPrefix(request.getPostalPrefix());
+        rule.setCategoryId(request.getCategoryId());
+        rule.setMinSubtotal(minSubtotal);
+        rule.setRateBasisPoints(request.getRateBasisPoints());
+        rule.setFlatAmount(flatAmount);
+        rule.setActive(request.getActive() == null || request.getActive());
+    }
+
+    private void reloadAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                pricingEngine.reload();
+            }
+        });
+    }
+
+    private PricingRuleResponse convertToDto(PricingRule rule) {
+        PricingRuleResponse dto = new PricingRuleResponse();
+        dto.setRuleId(rule.getRuleId());
+        dto.setType(rule.getType());
+        dto.setCountry(rule.getCountry());
+        dto.setState(rule.getState());
+        dto.setPostalPrefix(rule.getPostalPrefix());
+        dto.setCategoryId(rule.getCategoryId());
+        dto.setMinSubtotal(rule.getMinSubtotal() == null ? null : rule.getMinSubtotal().toBigDecimal());
+        dto.setRateBasisPoints(rule.getRateBasisPoints());
+        dto.setFlatAmount(rule.getFlatAmount() == null ? null : rule.getFlatAmount().toBigDecimal());
+        dto.setActive(rule.isActive());
+        dto.setCreatedAt(rule.getCreatedAt());
+        dto.setUpdatedAt(rule.getUpdatedAt());
+        return dto;
+    }
+}
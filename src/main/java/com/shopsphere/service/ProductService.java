@@ -2,17 +2,32 @@ package com.shopsphere.service;
 
 import com.shopsphere.dto.ProductRequest; // New import
 import com.shopsphere.dto.ProductResponse; // New import
+import com.shopsphere.dto.StockAdjustmentRequest;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.event.ProductUpdatedEvent;
+import com.shopsphere.event.StockChangedEvent;
 import com.shopsphere.model.Category; // New import
+import com.shopsphere.model.Money;
 import com.shopsphere.model.Product;
+import com.shopsphere.model.StockMovement;
+import com.shopsphere.model.enums.StockMovementType;
 import com.shopsphere.repository.ProductRepository;
+import com.shopsphere.repository.StockMovementRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,6 +35,9 @@ public class ProductService {
 
     private final ProductRepository productRepository;
     private final CategoryService categoryService;
+    private final DomainEventBus eventBus;
+    private final StockLevelIndex stockLevelIndex;
+    private final StockMovementRepository stockMovementRepository;
 
     /**
      * Fetches all products and converts to DTOs.
@@ -28,7 +46,7 @@ public class ProductService {
     @Transactional(readOnly = true)
     public List<ProductResponse> getAllProducts() {
         return productRepository.findAll().stream()
-                .map(this::convertToDto) // Use method reference for mapping
+                .map(ProductService::convertToDto) // Use method reference for mapping
                 .toList();
     }
 
@@ -51,6 +69,38 @@ public class ProductService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found with ID: " + productId));
     }
 
+    /**
+     * Loads and locks several products in one query. The locks are held until the caller's transaction ends.
+     * @return The products by ID.
+     */
+    @Transactional
+    Map<String, Product> lockProductEntitiesByIds(Collection<String> productIds) {
+        if (productIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        return byId(productIds, productRepository.findAllByIdForUpdate(productIds));
+    }
+
+    /**
+     * Loads several products in one query, without locking them.
+     * @return The products by ID.
+     */
+    @Transactional(readOnly = true)
+    Map<String, Product> getProductEntitiesByIds(Collection<String> productIds) {
+        return byId(productIds, productRepository.findAllById(productIds));
+    }
+
+    private static Map<String, Product> byId(Collection<String> productIds, List<Product> found) {
+        Map<String, Product> products = found.stream()
+                .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+        for (String productId : productIds) {
+            if (!products.containsKey(productId)) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found with ID: " + productId);
+            }
+        }
+        return products;
+    }
+
     /**
      * Creates a new product from DTO.
      * @param request The ProductRequest DTO.
@@ -61,8 +111,9 @@ public class ProductService {
         Product product = new Product();
         product.setName(request.getName());
         product.setDescription(request.getDescription());
-        product.setPrice(request.getPrice());
+        product.setPrice(Money.of(request.getPrice()));
         product.setStockQuantity(request.getStockQuantity());
+        product.setReorderThreshold(request.getReorderThreshold());
         product.setImageUrl(request.getImageUrl());
 
         if (request.getCategoryId() != null) {
@@ -72,32 +123,51 @@ public class ProductService {
         }
 
 
-        if (product.getPrice().compareTo(BigDecimal.ZERO) < 0) {
+        if (product.getPrice().isNegative()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Product price cannot be negative.");
         }
         if (product.getStockQuantity() < 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock quantity cannot be negative.");
         }
+        if (product.getReorderThreshold() != null && product.getReorderThreshold() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Reorder threshold cannot be negative.");
+        }
 
         Product savedProduct = productRepository.save(product);
-        return convertToDto(savedProduct);
+        // opening balance in the stock ledger
+        StockMovement opening = new StockMovement(savedProduct.getProductId(), StockMovementType.RESTOCK, savedProduct.getStockQuantity());
+        opening.setStockAfter(savedProduct.getStockQuantity());
+        opening.setCreatedAt(LocalDateTime.now());
+        recordStockMovements(List.of(opening));
+        ProductResponse response = convertToDto(savedProduct);
+        eventBus.publishAfterCommit(new ProductUpdatedEvent(ProductUpdatedEvent.ChangeType.CREATED, response.getProductId(), response));
+        eventBus.publishAfterCommit(new StockChangedEvent(response.getProductId(), 0, savedProduct.getStockQuantity()));
+        return response;
     }
 
     /**
-     * Updates an existing product from DTO.
+     * Updates an existing product from DTO. Not retried on a conflict: the edit was made against what the admin saw,
+     * so a concurrent change (or a request version older than the product's) is a 409 rather than an overwrite.
+     * The version covers what an admin edits, not the stock, so checkouts in the meantime are no conflict.
+     * A stock quantity in the request is recorded in the stock ledger as an adjustment from the stock as committed
+     * (the product is locked); leave it out to keep the stock as it is, and use {@link #adjustStock} for restocks.
      * @param productId The ID of the product to update.
      * @param request The ProductRequest DTO with updated details.
      * @return The updated ProductResponse DTO.
      */
+    @RetryOnConflict(value = "product-update", maxAttempts = 1)
     @Transactional
     public ProductResponse updateProduct(String productId, ProductRequest request) {
-        Product existingProduct = productRepository.findById(productId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found with ID: " + productId));
+        Product existingProduct = lockProductEntitiesByIds(List.of(productId)).get(productId);
+        if (request.getVersion() != null && !request.getVersion().equals(existingProduct.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, productId);
+        }
 
+        final int previousStockQuantity = existingProduct.getStockQuantity();
         existingProduct.setName(request.getName());
         existingProduct.setDescription(request.getDescription());
-        existingProduct.setPrice(request.getPrice());
-        existingProduct.setStockQuantity(request.getStockQuantity());
+        existingProduct.setPrice(Money.of(request.getPrice()));
+        existingProduct.setReorderThreshold(request.getReorderThreshold());
         existingProduct.setImageUrl(request.getImageUrl());
 
         if (request.getCategoryId() != null) {
@@ -108,26 +178,69 @@ public class ProductService {
         }
 
         // Re-validate updated product details
-        if (existingProduct.getPrice().compareTo(BigDecimal.ZERO) < 0) {
+        if (existingProduct.getPrice().isNegative()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Updated product price cannot be negative.");
         }
-        if (existingProduct.getStockQuantity() < 0) {
+        if (request.getStockQuantity() != null && request.getStockQuantity() < 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Updated stock quantity cannot be negative.");
         }
+        if (existingProduct.getReorderThreshold() != null && existingProduct.getReorderThreshold() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Updated reorder threshold cannot be negative.");
+        }
+        if (request.getStockQuantity() != null && request.getStockQuantity() != previousStockQuantity) {
+            StockMovement adjustment = new StockMovement(productId, StockMovementType.ADJUSTMENT,
+                    request.getStockQuantity() - previousStockQuantity);
+            applyStockMovements(existingProduct, List.of(adjustment));
+            recordStockMovements(List.of(adjustment));
+        }
+
+        // flushed so the response carries the new version
+        Product updatedProduct = productRepository.saveAndFlush(existingProduct);
+        ProductResponse response = convertToDto(updatedProduct);
+        eventBus.publishAfterCommit(new ProductUpdatedEvent(ProductUpdatedEvent.ChangeType.UPDATED, productId, response));
+        return response;
+    }
+
+    /**
+     * Adds a signed quantity to a product's stock. The change is made to the stock as committed, under the
+     * product's row lock, so a restock and concurrent checkouts all count; it is recorded in the stock ledger.
+     * @param productId The ID of the product.
+     * @param request RESTOCK with a positive quantity, or ADJUSTMENT (e.g. damaged goods or a stock count) with any.
+     * @return The updated ProductResponse DTO.
+     */
+    @RetryOnConflict("stock-adjustment")
+    @Transactional
+    public ProductResponse adjustStock(String productId, StockAdjustmentRequest request) {
+        if (request.getQuantity() == null || request.getQuantity() == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock adjustment quantity must not be zero.");
+        }
+        if (request.getType() != StockMovementType.RESTOCK && request.getType() != StockMovementType.ADJUSTMENT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock adjustment type must be RESTOCK or ADJUSTMENT.");
+        }
+        if (request.getType() == StockMovementType.RESTOCK && request.getQuantity() < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Restock quantity must be positive.");
+        }
+
+        Product product = lockProductEntitiesByIds(List.of(productId)).get(productId);
+        StockMovement movement = new StockMovement(productId, request.getType(), request.getQuantity());
+        applyStockMovements(product, List.of(movement));
+        recordStockMovements(List.of(movement));
 
-        Product updatedProduct = productRepository.save(existingProduct);
-        return convertToDto(updatedProduct);
+        // flushed so the response carries the new update time; a stock change leaves the version as it is
+        return convertToDto(productRepository.saveAndFlush(product));
     }
 
     /**
      * Deletes a product by its ID.
      */
+    @RetryOnConflict("product-delete")
     @Transactional
     public void deleteProduct(String productId) {
         if (!productRepository.existsById(productId)) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found with ID: " + productId);
         }
         productRepository.deleteById(productId);
+        eventBus.publishAfterCommit(new ProductUpdatedEvent(ProductUpdatedEvent.ChangeType.DELETED, productId, null));
     }
 
     // --- Custom query methods (updated to return DTOs) ---
@@ -136,8 +249,8 @@ public class ProductService {
         if (minPrice.compareTo(BigDecimal.ZERO) < 0 || maxPrice.compareTo(BigDecimal.ZERO) < 0 || minPrice.compareTo(maxPrice) > 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid price range.");
         }
-        return productRepository.findByPriceBetween(minPrice, maxPrice).stream()
-                .map(this::convertToDto)
+        return productRepository.findByPriceBetween(Money.of(minPrice), Money.of(maxPrice)).stream()
+                .map(ProductService::convertToDto)
                 .toList();
     }
 
@@ -148,27 +261,56 @@ public class ProductService {
         return convertToDto(product);
     }
 
-    @Transactional(readOnly = true)
+    /**
+     * Answers from the in-memory {@link StockLevelIndex}, so the result can trail a just-committed change slightly.
+     * @param threshold The inclusive stock limit, or null for products at or below their own reorder threshold.
+     * @return Matching products, lowest stock first.
+     */
     public List<ProductResponse> getLowStockProducts(Integer threshold) {
+        if (threshold == null) {
+            return stockLevelIndex.findBelowReorderThreshold();
+        }
         if (threshold < 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock threshold cannot be negative.");
         }
-        return productRepository.findByStockQuantityLessThanEqual(threshold).stream()
-                .filter(p -> p.getStockQuantity() <= threshold)
-                .map(this::convertToDto)
-                .toList();
+        return stockLevelIndex.findAtOrBelow(threshold);
     }
 
-    @Transactional
-    public void updateProductStockQuantity(String productId, Integer stockQuantity) {
-        productRepository.updateProductStockQuantity(productId, stockQuantity);
+    // --- for internal use (stock changes) ---
+
+    /**
+     * Applies signed stock changes, in order, to a product. The caller holds the product's row lock, so the changes
+     * are relative to the committed stock: the version does not cover the stock. Each movement gets the stock it
+     * left; the caller saves them with {@link #recordStockMovements} in the same transaction, e.g. once the order
+     * they belong to has its ID.
+     */
+    void applyStockMovements(Product product, List<StockMovement> movements) {
+        int previousQuantity = product.getStockQuantity();
+        int stockQuantity = previousQuantity;
+        LocalDateTime now = LocalDateTime.now();
+        for (StockMovement movement : movements) {
+            stockQuantity += movement.getQuantity();
+            movement.setStockAfter(stockQuantity);
+            movement.setCreatedAt(now); // ties are ordered by the ids, assigned in list order when saved
+        }
+        if (stockQuantity < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock quantity cannot be negative.");
+        }
+        // changed on the managed entity rather than with a bulk UPDATE: a bulk UPDATE drops the whole products
+        // region from the second-level cache, this only replaces the one cached entry
+        product.setStockQuantity(stockQuantity);
+        eventBus.publishAfterCommit(new StockChangedEvent(product.getProductId(), previousQuantity, stockQuantity));
+    }
+
+    void recordStockMovements(List<StockMovement> movements) {
+        stockMovementRepository.saveAll(movements);
     }
 
     @Transactional(readOnly = true)
     public List<ProductResponse> getProductsByCategory(String categoryId) {
         return productRepository.findAllByCategoryCategoryId(categoryId)
                 .stream()
-                .map(this::convertToDto)
+                .map(ProductService::convertToDto)
                 .toList();
     }
 
@@ -177,13 +319,14 @@ public class ProductService {
      * [NOTE] Use a dedicated mapper class (like MapStruct or ModelMapper) for complex mappings,
      * but for simple cases, direct conversion methods are fine.
      */
-    private ProductResponse convertToDto(Product product) {
+    static ProductResponse convertToDto(Product product) {
         ProductResponse dto = new ProductResponse();
         dto.setProductId(product.getProductId());
         dto.setName(product.getName());
         dto.setDescription(product.getDescription());
-        dto.setPrice(product.getPrice());
+        dto.setPrice(product.getPrice().toBigDecimal());
         dto.setStockQuantity(product.getStockQuantity());
+        dto.setReorderThreshold(product.getReorderThreshold());
         dto.setImageUrl(product.getImageUrl());
         if (product.getCategory() != null) {
             dto.setCategoryId(product.getCategory().getCategoryId());
@@ -191,6 +334,7 @@ public class ProductService {
         }
         dto.setCreatedAt(product.getCreatedAt());
         dto.setUpdatedAt(product.getUpdatedAt());
+        dto.setVersion(product.getVersion());
         return dto;
     }
 
@@ -0,0 +1,80 @@
+package com.shopsphere.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Same two-window approximation as {@link InMemoryLoginAttemptLimiter}, stored as one counter per key and window
+ * in Redis so every instance sees the same counts. If Redis is unavailable logins are not throttled.
+ */
+@Component
+@ConditionalOnProperty(name = "application.security.login.limiter", havingValue = "redis")
+@Slf4j
+public class RedisLoginAttemptLimiter implements LoginAttemptLimiter {
+
+    private static final String KEY_PREFIX = "login-failures:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final long windowMillis;
+
+    public RedisLoginAttemptLimiter(StringRedisTemplate redisTemplate,
+                                    @Value("${application.security.login.failure-window-ms:900000}") long windowMillis) {
+        this.redisTemplate = redisTemplate;
+        this.windowMillis = windowMillis;
+    }
+
+    @Override
+    public boolean isBlocked(String key, int maxFailures) {
+        long now = System.currentTimeMillis();
+        long window = now / windowMillis;
+        try {
+            List<String> counts = redisTemplate.opsForValue().multiGet(List.of(redisKey(key, window - 1), redisKey(key, window)));
+            if (counts == null) {
+                return false;
+            }
+            double previousWeight = 1.0 - (double) (now % windowMillis) / windowMillis;
+            return parse(counts.get(0)) * previousWeight + parse(counts.get(1)) >= maxFailures;
+        } catch (DataAccessException e) {
+            log.warn("Login attempt limiter unavailable: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void recordFailure(String key) {
+        String redisKey = redisKey(key, System.currentTimeMillis() / windowMillis);
+        try {
+            Long count = redisTemplate.opsForValue().increment(redisKey);
+            if (count != null && count == 1) {
+                redisTemplate.expire(redisKey, Duration.ofMillis(windowMillis * 2));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Login attempt limiter unavailable: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void reset(String key) {
+        long window = System.currentTimeMillis() / windowMillis;
+        try {
+            redisTemplate.delete(List.of(redisKey(key, window - 1), redisKey(key, window)));
+        } catch (DataAccessException e) {
+            log.warn("Login attempt limiter unavailable: {}", e.getMessage());
+        }
+    }
+
+    private static String redisKey(String key, long window) {
+        return KEY_PREFIX + key + ":" + window;
+    }
+
+    private static long parse(String count) {
+        return count == null ? 0 : Long.parseLong(count);
+    }
+}
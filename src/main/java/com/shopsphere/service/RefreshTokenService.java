@@ -0,0 +1,152 @@
+package com.shopsphere.service;
+
+import com.shopsphere.config.security.CustomUserDetails;
+import com.shopsphere.model.RefreshToken;
+import com.shopsphere.model.User;
+import com.shopsphere.repository.RefreshTokenRepository;
+import com.shopsphere.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Issues and rotates opaque refresh tokens. The token is 256 random bits, so a plain SHA-256 is enough to store
+ * it safely; a slow hash like BCrypt would only cost CPU on every refresh.
+ */
+@Service
+@Slf4j
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final long refreshExpirationMillis;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               UserRepository userRepository,
+                               @Value("${application.security.jwt.refresh-expiration}") long refreshExpirationMillis) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.refreshExpirationMillis = refreshExpirationMillis;
+    }
+
+    /**
+     * Issues the first refresh token of a new family, at login.
+     * @param userId The authenticated user's ID.
+     * @return The raw token to hand to the client. It is not stored.
+     */
+    @Transactional
+    public String issue(String userId) {
+        String rawToken = newRawToken();
+        save(userRepository.getReferenceById(userId), UUID.randomUUID().toString(), rawToken);
+        return rawToken;
+    }
+
+    /**
+     * Exchanges a refresh token for a new one in the same family. The presented token is revoked.
+     * If it had already been used, the whole family is revoked because the token has leaked. The token is claimed
+     * with a conditional update, so of two concurrent refreshes with the same token only one gets a replacement;
+     * the other counts as reuse.
+     * @param rawToken The refresh token presented by the client.
+     * @return The user's principal and the new raw refresh token.
+     * @throws ResponseStatusException 401 if the token is unknown, expired or reused.
+     */
+    @Transactional(noRollbackFor = ResponseStatusException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken current = findByRawToken(rawToken);
+        LocalDateTime now = LocalDateTime.now();
+        if (current.getRevokedAt() != null) {
+            throw reuseDetected(current, now);
+        }
+        if (current.getExpiresAt().isBefore(now)) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token has expired");
+        }
+        if (refreshTokenRepository.claim(current.getTokenId(), now) != 1) {
+            // another refresh used the token between our read and the claim
+            throw reuseDetected(current, now);
+        }
+
+        String rawReplacement = newRawToken();
+        RefreshToken replacement = save(current.getUser(), current.getFamilyId(), rawReplacement);
+        current.setRevokedAt(now);
+        current.setReplacedBy(replacement.getTokenId());
+        return new Rotation(new CustomUserDetails(current.getUser()), rawReplacement);
+    }
+
+    private ResponseStatusException reuseDetected(RefreshToken token, LocalDateTime now) {
+        int revoked = refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+        log.warn("Reuse of refresh token {} detected, revoked {} token(s) of family {}",
+                token.getTokenId(), revoked, token.getFamilyId());
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token has been revoked");
+    }
+
+    /**
+     * Revokes the token's family, e.g. on logout. Unknown tokens are ignored.
+     * @param rawToken The refresh token presented by the client.
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    @Scheduled(cron = "${application.security.jwt.refresh-cleanup-cron:0 30 3 * * *}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        log.info("Deleted {} expired refresh token(s)", deleted);
+    }
+
+    private String newRawToken() {
+        byte[] bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private RefreshToken save(User user, String familyId, String rawToken) {
+        RefreshToken token = new RefreshToken();
+        token.setUser(user);
+        token.setTokenHash(hash(rawToken));
+        token.setFamilyId(familyId);
+        token.setExpiresAt(LocalDateTime.now().plusNanos(refreshExpirationMillis * 1_000_000));
+        return refreshTokenRepository.save(token);
+    }
+
+    private RefreshToken findByRawToken(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Refresh token is required");
+        }
+        return refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token"));
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Result of rotating a refresh token.
+     * @param principal The token's owner, loaded while the transaction was open.
+     * @param rawToken The new raw token for the client.
+     */
+    public record Rotation(CustomUserDetails principal, String rawToken) {
+    }
+}
@@ -0,0 +1,32 @@
+package com.shopsphere.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a transactional service method whose optimistic locking conflicts, deadlocks and serialization failures are
+ * handled by {@link ConflictRetryAspect}: the whole transaction is run again a bounded number of times, then the
+ * caller gets a 409.
+ *
+ * Only put it on methods that are safe to run twice: a retry re-reads everything and re-applies the change, so the
+ * method must not have side effects outside the database that could run before the conflict surfaces.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnConflict {
+
+    /**
+     * Operation name for the optimistic.lock.conflicts and pessimistic.lock.failures metrics.
+     */
+    String value();
+
+    /**
+     * Attempts including the first; 0 uses application.concurrency.conflict-retry.max-attempts.
+     * 1 turns a conflict straight into a 409, for edits that must not silently overwrite someone else's.
+     */
+    int maxAttempts() default 0;
+}
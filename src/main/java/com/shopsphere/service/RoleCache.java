@@ -0,0 +1,61 @@
+package com.shopsphere.service;
+
+import com.shopsphere.model.Role;
+import com.shopsphere.repository.RoleRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable snapshot of the roles table keyed by name. Roles are a handful of rows that almost never change,
+ * so lookups read a volatile map without locking and a miss reloads the whole snapshot once.
+ */
+@Component
+@Slf4j
+public class RoleCache {
+
+    private final RoleRepository roleRepository;
+    private final Counter hits;
+    private final Counter misses;
+    private volatile Map<String, Role> rolesByName = Map.of();
+
+    public RoleCache(RoleRepository roleRepository, MeterRegistry meterRegistry) {
+        this.roleRepository = roleRepository;
+        // same meter name and tags as the Caffeine caches, so all hit rates show up together
+        this.hits = Counter.builder("cache.gets").tag("cache", "roles").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", "roles").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Finds a role by name, e.g. "ROLE_USER".
+     * @param name The role name.
+     * @return The role, detached from any persistence context.
+     */
+    public Optional<Role> findByName(String name) {
+        Role role = rolesByName.get(name);
+        if (role != null) {
+            hits.increment();
+            return Optional.of(role);
+        }
+        misses.increment();
+        return Optional.ofNullable(refresh().get(name));
+    }
+
+    /**
+     * Reloads the snapshot. Called on a miss and whenever roles are created or renamed.
+     * @return The new snapshot.
+     */
+    public synchronized Map<String, Role> refresh() {
+        Map<String, Role> snapshot = roleRepository.findAll().stream()
+                .collect(Collectors.toUnmodifiableMap(Role::getName, Function.identity()));
+        rolesByName = snapshot;
+        log.debug("Role cache loaded with {} role(s)", snapshot.size());
+        return snapshot;
+    }
+}
@@ -0,0 +1,135 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.RevenuePoint;
+import com.shopsphere.dto.SalesBreakdownEntry;
+import com.shopsphere.model.Category;
+import com.shopsphere.model.Product;
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.model.enums.RollupDimension;
+import com.shopsphere.model.enums.RollupGranularity;
+import com.shopsphere.repository.CategoryRepository;
+import com.shopsphere.repository.ProductRepository;
+import com.shopsphere.repository.SalesRollupRepository;
+import com.shopsphere.repository.SalesRollupRepository.DimensionTotals;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Sales analytics for admins. Every query reads only the sales_rollups table, never orders or order_items.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class SalesAnalyticsService {
+
+    // counted as sales unless a status is requested explicitly
+    private static final Set<OrderStatus> BOOKED_STATUSES =
+            EnumSet.complementOf(EnumSet.of(OrderStatus.CANCELLED, OrderStatus.REFUNDED));
+    private static final int MAX_LIMIT = 100;
+    private static final int MAX_HOUR_BUCKETS = 24 * 93;
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+
+    /**
+     * Revenue, order and unit counts per hour or day.
+     * @param granularity HOUR or DAY.
+     * @param from Start of the range (inclusive), defaults to 30 days before to.
+     * @param to End of the range (exclusive), defaults to now.
+     * @param status Only orders currently in this status; all but cancelled and refunded if null.
+     * @return One point per bucket that had orders, oldest first.
+     */
+    public List<RevenuePoint> getRevenueSeries(RollupGranularity granularity, LocalDateTime from, LocalDateTime to, OrderStatus status) {
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        LocalDateTime start = from == null ? end.minusDays(30) : from;
+        validateRange(start, end);
+        if (granularity == RollupGranularity.HOUR && ChronoUnit.HOURS.between(start, end) > MAX_HOUR_BUCKETS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Hourly series are limited to " + MAX_HOUR_BUCKETS / 24 + " days");
+        }
+        return salesRollupRepository.findRevenueSeries(granularity.name(), start, end, statusNames(status))
+                .stream()
+                .map(row -> new RevenuePoint(row.getBucketStart(), row.getOrderCount(), row.getUnits(), row.getRevenue()))
+                .toList();
+    }
+
+    /**
+     * Best-selling products by revenue over whole days.
+     * @param from First day (inclusive), defaults to 30 days before to.
+     * @param to Last day (exclusive), defaults to the end of today.
+     * @param limit Number of products, at most 100.
+     * @param status Only orders currently in this status; all but cancelled and refunded if null.
+     * @return The top products, best first.
+     */
+    public List<SalesBreakdownEntry> getTopProducts(LocalDateTime from, LocalDateTime to, int limit, OrderStatus status) {
+        List<DimensionTotals> rows = findByDimension(RollupDimension.PRODUCT, from, to, Math.min(Math.max(limit, 1), MAX_LIMIT), status);
+        Map<String, String> names = productRepository.findAllById(dimensionIds(rows))
+                .stream()
+                .collect(Collectors.toMap(Product::getProductId, Product::getName));
+        return toEntries(rows, names);
+    }
+
+    /**
+     * Sales per category over whole days.
+     * @param from First day (inclusive), defaults to 30 days before to.
+     * @param to Last day (exclusive), defaults to the end of today.
+     * @param status Only orders currently in this status; all but cancelled and refunded if null.
+     * @return One entry per category with sales, highest revenue first.
+     */
+    public List<SalesBreakdownEntry> getCategoryBreakdown(LocalDateTime from, LocalDateTime to, OrderStatus status) {
+        List<DimensionTotals> rows = findByDimension(RollupDimension.CATEGORY, from, to, Integer.MAX_VALUE, status);
+        Map<String, String> names = categoryRepository.findAllById(dimensionIds(rows))
+                .stream()
+                .collect(Collectors.toMap(Category::getCategoryId, Category::getName));
+        return toEntries(rows, names);
+    }
+
+    private List<DimensionTotals> findByDimension(RollupDimension dimension, LocalDateTime from, LocalDateTime to, int limit, OrderStatus status) {
+        // day buckets: round the range out to whole days
+        LocalDateTime end = (to == null ? LocalDateTime.now() : to).truncatedTo(ChronoUnit.DAYS);
+        if (to == null || !to.equals(end)) {
+            end = end.plusDays(1);
+        }
+        LocalDateTime start = from == null ? end.minusDays(30) : from.truncatedTo(ChronoUnit.DAYS);
+        validateRange(start, end);
+        return salesRollupRepository.findTopByDimension(dimension.name(), start, end, statusNames(status), limit);
+    }
+
+    // uncategorized sales are rolled up under '', which is no key a uuid column can hold
+    private static List<String> dimensionIds(List<DimensionTotals> rows) {
+        return rows.stream().map(DimensionTotals::getDimensionId).filter(id -> !id.isEmpty()).toList();
+    }
+
+    private static List<SalesBreakdownEntry> toEntries(List<DimensionTotals> rows, Map<String, String> names) {
+        return rows.stream()
+                .map(row -> new SalesBreakdownEntry(
+                        row.getDimensionId().isEmpty() ? null : row.getDimensionId(),
+                        names.get(row.getDimensionId()),
+                        row.getOrderCount(),
+                        row.getUnits(),
+                        row.getRevenue()))
+                .toList();
+    }
+
+    private static List<String> statusNames(OrderStatus status) {
+        Set<OrderStatus> statuses = status == null ? BOOKED_STATUSES : EnumSet.of(status);
+        return statuses.stream().map(Enum::name).toList();
+    }
+
+    private static void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'");
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.DomainEventHandler;
+import com.shopsphere.event.OrderPlacedEvent;
+import com.shopsphere.event.OrderStatusChangedEvent;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.model.enums.RollupDimension;
+import com.shopsphere.model.enums.RollupGranularity;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the sales_rollups table from order events.
+ *
+ * Each batch of events is folded into one delta per rollup row in memory and written as a single JDBC batch of
+ * INSERT ... ON CONFLICT DO UPDATE increments, so a burst of orders costs a handful of statements. Orders are
+ * bucketed by their order date in server time, and an order counts once per product and category however many
+ * of its lines share them, as in the rebuild. The bus is not durable: an empty table is backfilled from the
+ * orders at startup, and the table can be rebuilt with {@link #rebuild()}. Batches hold a shared advisory lock
+ * and the rebuild an exclusive one, so a batch never lands between the rebuild's delete and its inserts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupService implements DomainEventHandler {
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO sales_rollups (granularity, bucket_start, dimension, dimension_id, status, order_count, units, revenue)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (granularity, bucket_start, dimension, dimension_id, status) DO UPDATE SET
+                order_count = sales_rollups.order_count + EXCLUDED.order_count,
+                units = sales_rollups.units + EXCLUDED.units,
+                revenue = sales_rollups.revenue + EXCLUDED.revenue
+            """;
+
+    // lines of all the orders whose status changed in a batch; the placeholder list is appended per batch
+    private static final String ORDER_LINES_SQL = """
+            SELECT o.order_id, o.order_date, oi.product_id, COALESCE(oi.category_id, p.category_id), oi.quantity,
+                   oi.price_at_purchase
+            FROM orders o
+            JOIN order_items oi ON oi.order_id = o.order_id
+            JOIN products p ON p.product_id = oi.product_id
+            WHERE o.order_id IN\s""";
+
+    // same key for both locks; batches share it, the rebuild takes it alone
+    private static final String BATCH_LOCK_SQL = "SELECT pg_advisory_xact_lock_shared(hashtext('sales_rollups'))";
+    private static final String REBUILD_LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('sales_rollups'))";
+
+    // one statement per granularity and dimension; :unit is 'hour' or 'day', then the first order date to include.
+    // Grouped by position: two placeholders for the unit would be two different expressions to Postgres
+    private static final String REBUILD_TOTAL_SQL = """
+            INSERT INTO sales_rollups (granularity, bucket_start, dimension, dimension_id, status, order_count, units, revenue)
+            SELECT ?, date_trunc(?, o.order_date), 'TOTAL', '', o.status, COUNT(*), COALESCE(SUM(i.units), 0), SUM(o.total_amount)
+            FROM orders o
+            LEFT JOIN (SELECT order_id, SUM(quantity) AS units FROM order_items GROUP BY order_id) i ON i.order_id = o.order_id
+            WHERE o.order_date >= ?
+            GROUP BY 2, o.status
+            """;
+
+    private static final String REBUILD_PRODUCT_SQL = """
+            INSERT INTO sales_rollups (granularity, bucket_start, dimension, dimension_id, status, order_count, units, revenue)
+            SELECT ?, date_trunc(?, o.order_date), 'PRODUCT', oi.product_id::text, o.status,
+                   COUNT(DISTINCT o.order_id), SUM(oi.quantity), SUM(oi.price_at_purchase * oi.quantity)
+            FROM orders o
+            JOIN order_items oi ON oi.order_id = o.order_id
+            WHERE o.order_date >= ?
+            GROUP BY 2, oi.product_id, o.status
+            """;
+
+    private static final String REBUILD_CATEGORY_SQL = """
+            INSERT INTO sales_rollups (granularity, bucket_start, dimension, dimension_id, status, order_count, units, revenue)
+            SELECT ?, date_trunc(?, o.order_date), 'CATEGORY', COALESCE(oi.category_id::text, p.category_id::text, ''), o.status,
+                   COUNT(DISTINCT o.order_id), SUM(oi.quantity), SUM(oi.price_at_purchase * oi.quantity)
+            FROM orders o
+            JOIN order_items oi ON oi.order_id = o.order_id
+            JOIN products p ON p.product_id = oi.product_id
+            WHERE o.order_date >= ?
+            GROUP BY 2, 4, o.status
+            """;
+
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator
+            .comparing(RollupKey::granularity)
+            .thenComparing(RollupKey::bucketStart)
+            .thenComparing(RollupKey::dimension)
+            .thenComparing(RollupKey::dimensionId)
+            .thenComparing(RollupKey::status);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public String getName() {
+        return "sales-rollups";
+    }
+
+    @Override
+    public boolean supports(DomainEvent event) {
+        return event instanceof OrderPlacedEvent || event instanceof OrderStatusChangedEvent;
+    }
+
+    @Override
+    @Transactional
+    public void onEvents(List<DomainEvent> events) {
+        jdbcTemplate.execute(BATCH_LOCK_SQL);
+        Map<String, List<OrderLine>> changedOrderLines = findOrderLines(events.stream()
+                .filter(OrderStatusChangedEvent.class::isInstance)
+                .map(event -> ((OrderStatusChangedEvent) event).getOrderId())
+                .distinct()
+                .toList());
+        Map<RollupKey, Delta> deltas = new HashMap<>();
+        for (DomainEvent event : events) {
+            if (event instanceof OrderPlacedEvent placed) {
+                addPlacedOrder(deltas, placed.getOrderResponse());
+            } else if (event instanceof OrderStatusChangedEvent changed) {
+                addStatusChange(deltas, changed, changedOrderLines.getOrDefault(changed.getOrderId(), List.of()));
+            }
+        }
+        write(deltas);
+    }
+
+    /**
+     * Recomputes the table from orders and order_items. Buckets up to the last archived month are kept as they
+     * are, since its delivered orders have left the orders table.
+     */
+    @Transactional
+    public void rebuild() {
+        jdbcTemplate.execute(REBUILD_LOCK_SQL);
+        LocalDate lastArchived = jdbcTemplate.queryForObject("SELECT MAX(period_start) FROM order_archives", LocalDate.class);
+        Timestamp since = Timestamp.valueOf(lastArchived == null ? LocalDateTime.of(1970, 1, 1, 0, 0)
+                : lastArchived.plusMonths(1).atStartOfDay());
+        jdbcTemplate.update("DELETE FROM sales_rollups WHERE bucket_start >= ?", since);
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            String unit = granularity.name().toLowerCase();
+            for (String sql : List.of(REBUILD_TOTAL_SQL, REBUILD_PRODUCT_SQL, REBUILD_CATEGORY_SQL)) {
+                jdbcTemplate.update(sql, granularity.name(), unit, since);
+            }
+        }
+        log.info("Sales rollups rebuilt from {}", since);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional // the rebuild below is a self call, so its lock and delete need this transaction
+    public void backfillIfEmpty() {
+        Boolean empty = jdbcTemplate.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM sales_rollups)", Boolean.class);
+        Boolean hasOrders = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM orders)", Boolean.class);
+        if (Boolean.TRUE.equals(empty) && Boolean.TRUE.equals(hasOrders)) {
+            rebuild();
+        }
+    }
+
+    private void addPlacedOrder(Map<RollupKey, Delta> deltas, OrderResponse order) {
+        List<OrderLine> lines = order.getItems().stream()
+                .map(item -> new OrderLine(order.getOrderId(), order.getOrderDate(), item.getProductId(),
+                        nullToEmpty(item.getCategoryId()), item.getQuantity(), Money.of(item.getItemTotal()).getMinorUnits()))
+                .toList();
+        addOrder(deltas, order.getOrderDate(), lines, order.getStatus(), 1, Money.of(order.getTotalAmount()).getMinorUnits());
+    }
+
+    // moves the order's amounts from the old status rows to the new ones, in the bucket of its order date
+    private void addStatusChange(Map<RollupKey, Delta> deltas, OrderStatusChangedEvent changed, List<OrderLine> lines) {
+        if (lines.isEmpty()) {
+            return; // archived meanwhile; its month is no longer maintained
+        }
+        LocalDateTime orderDate = lines.get(0).orderDate();
+        long total = changed.getTotalAmount().getMinorUnits();
+        addOrder(deltas, orderDate, lines, changed.getPreviousStatus(), -1, total);
+        addOrder(deltas, orderDate, lines, changed.getNewStatus(), 1, total);
+    }
+
+    /**
+     * Adds (sign 1) or removes (sign -1) one order in a status. Lines are summed per product and per category
+     * first, so the order adds one to the order count of each.
+     */
+    private static void addOrder(Map<RollupKey, Delta> deltas, LocalDateTime orderDate, List<OrderLine> lines,
+                                 OrderStatus status, int sign, long total) {
+        Map<String, Delta> byProduct = new HashMap<>();
+        Map<String, Delta> byCategory = new HashMap<>();
+        long units = 0;
+        for (OrderLine line : lines) {
+            byProduct.computeIfAbsent(line.productId(), id -> new Delta()).addLine(line);
+            byCategory.computeIfAbsent(line.categoryId(), id -> new Delta()).addLine(line);
+            units += line.quantity();
+        }
+        byProduct.forEach((productId, sums) -> add(deltas, orderDate, RollupDimension.PRODUCT, productId, status,
+                sign, sign * sums.units, sign * sums.revenue));
+        byCategory.forEach((categoryId, sums) -> add(deltas, orderDate, RollupDimension.CATEGORY, categoryId, status,
+                sign, sign * sums.units, sign * sums.revenue));
+        add(deltas, orderDate, RollupDimension.TOTAL, "", status, sign, sign * units, sign * total);
+    }
+
+    private Map<String, List<OrderLine>> findOrderLines(List<String> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Map.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(orderIds.size(), "?"));
+        return jdbcTemplate.query(ORDER_LINES_SQL + "(" + placeholders + ")", (rs, rowNum) -> new OrderLine(
+                        rs.getString(1),
+                        rs.getTimestamp(2).toLocalDateTime(),
+                        rs.getString(3),
+                        nullToEmpty(rs.getString(4)),
+                        rs.getInt(5),
+                        Math.multiplyExact(Money.of(rs.getBigDecimal(6)).getMinorUnits(), rs.getInt(5))),
+                        orderIds.toArray())
+                .stream()
+                .collect(Collectors.groupingBy(OrderLine::orderId));
+    }
+
+    private static void add(Map<RollupKey, Delta> deltas, LocalDateTime orderDate, RollupDimension dimension,
+                            String dimensionId, OrderStatus status, long orders, long units, long revenue) {
+        for (RollupGranularity granularity : RollupGranularity.values()) {
+            RollupKey key = new RollupKey(granularity, bucketStart(orderDate, granularity), dimension, dimensionId, status);
+            Delta delta = deltas.computeIfAbsent(key, k -> new Delta());
+            delta.orders += orders;
+            delta.units += units;
+            delta.revenue += revenue;
+        }
+    }
+
+    private void write(Map<RollupKey, Delta> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        // same row order on every instance so concurrent batches cannot deadlock on each other
+        Map<RollupKey, Delta> ordered = new TreeMap<>(KEY_ORDER);
+        ordered.putAll(deltas);
+        ordered.forEach((key, delta) -> {
+            if (delta.orders != 0 || delta.units != 0 || delta.revenue != 0) {
+                rows.add(new Object[]{key.granularity().name(), Timestamp.valueOf(key.bucketStart()), key.dimension().name(),
+                        key.dimensionId(), key.status().name(), delta.orders, delta.units,
+                        BigDecimal.valueOf(delta.revenue, 2)});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+        }
+    }
+
+    static LocalDateTime bucketStart(LocalDateTime time, RollupGranularity granularity) {
+        return time.truncatedTo(granularity == RollupGranularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    private record RollupKey(RollupGranularity granularity, LocalDateTime bucketStart, RollupDimension dimension,
+                             String dimensionId, OrderStatus status) {
+    }
+
+    private record OrderLine(String orderId, LocalDateTime orderDate, String productId, String categoryId,
+                             int quantity, long lineTotal) {
+    }
+
+    private static final class Delta {
+        long orders;
+        long units;
+        long revenue; // minor units
+
+        void addLine(OrderLine line) {
+            units += line.quantity();
+            revenue += line.lineTotal();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.shopsphere.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopsphere.event.StockThresholdCrossedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.sns.SnsClient;
+import software.amazon.awssdk.services.sns.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequest;
+import software.amazon.awssdk.services.sns.model.PublishBatchRequestEntry;
+import software.amazon.awssdk.services.sns.model.PublishBatchResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publishes stock alerts to an SNS topic, up to ten per PublishBatch call. Each message carries the
+ * direction as a message attribute so subscribers can filter on it.
+ */
+@Component
+@ConditionalOnProperty(name = "application.inventory.alerts.sink", havingValue = "sns")
+@Slf4j
+public class SnsStockAlertSink implements StockAlertSink {
+
+    private static final int MAX_BATCH_ENTRIES = 10; // SNS limit for PublishBatch
+
+    private final SnsClient snsClient;
+    private final ObjectMapper objectMapper;
+    private final String topicArn;
+
+    public SnsStockAlertSink(SnsClient snsClient, ObjectMapper objectMapper,
+                             @Value("${application.inventory.alerts.sns-topic-arn}") String topicArn) {
+        this.snsClient = snsClient;
+        this.objectMapper = objectMapper;
+        this.topicArn = topicArn;
+    }
+
+    @Override
+    public void send(List<StockThresholdCrossedEvent> alerts) {
+        for (int from = 0; from < alerts.size(); from += MAX_BATCH_ENTRIES) {
+            List<StockThresholdCrossedEvent> chunk = alerts.subList(from, Math.min(alerts.size(), from + MAX_BATCH_ENTRIES));
+            List<PublishBatchRequestEntry> entries = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                StockThresholdCrossedEvent alert = chunk.get(i);
+                entries.add(PublishBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .subject("Stock " + alert.getDirection().name().toLowerCase() + ": " + alert.getProductName())
+                        .message(toJson(alert))
+                        .messageAttributes(Map.of("direction", MessageAttributeValue.builder()
+                                .dataType("String")
+                                .stringValue(alert.getDirection().name())
+                                .build()))
+                        .build());
+            }
+            PublishBatchResponse response = snsClient.publishBatch(PublishBatchRequest.builder()
+                    .topicArn(topicArn)
+                    .publishBatchRequestEntries(entries)
+                    .build());
+            if (response.hasFailed() && !response.failed().isEmpty()) {
+                log.error("SNS rejected {} of {} stock alert(s): {}", response.failed().size(), entries.size(),
+                        response.failed().get(0).message());
+            }
+        }
+    }
+
+    private String toJson(StockThresholdCrossedEvent alert) {
+        try {
+            return objectMapper.writeValueAsString(alert);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize stock alert for product " + alert.getProductId(), e);
+        }
+    }
+}
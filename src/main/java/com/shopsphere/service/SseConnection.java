@@ -0,0 +1,136 @@
+package com.shopsphere.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * One Server-Sent Events connection with a bounded outgoing queue.
+ *
+ * Producers only enqueue; the queue is drained by at most one task at a time on a sender pool shared by all
+ * connections of a feed, so a slow client never blocks the thread publishing to it. Queue entries are suppliers
+ * because an {@link SseEmitter.SseEventBuilder} can only be sent once.
+ */
+@Slf4j
+final class SseConnection {
+
+    private final SseEmitter emitter;
+    private final BlockingQueue<Supplier<SseEmitter.SseEventBuilder>> queue;
+    private final int bufferSize;
+    private final Executor sender;
+    private final Consumer<SseConnection> onClose;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+    private volatile long lastEventNanos = System.nanoTime();
+
+    /**
+     * @param bufferSize Events that may be pending before the connection counts as too slow and is closed.
+     * @param extraCapacity Room on top of bufferSize for {@link #enqueue} before the connection starts (replays).
+     * @param onClose Called when the connection ends for any reason; may run more than once.
+     */
+    SseConnection(SseEmitter emitter, int bufferSize, int extraCapacity, Executor sender,
+                  Consumer<SseConnection> onClose) {
+        this.emitter = emitter;
+        this.queue = new LinkedBlockingQueue<>(bufferSize + extraCapacity);
+        this.bufferSize = bufferSize;
+        this.sender = sender;
+        this.onClose = onClose;
+        emitter.onCompletion(() -> onClose.accept(this));
+        emitter.onTimeout(this::close);
+        emitter.onError(e -> close());
+    }
+
+    static Supplier<SseEmitter.SseEventBuilder> comment(String text) {
+        return () -> SseEmitter.event().comment(text);
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    /**
+     * Queues an event without the buffer limit, for use before {@link #start()}.
+     */
+    void enqueue(Supplier<SseEmitter.SseEventBuilder> event) {
+        queue.offer(event);
+    }
+
+    void start() {
+        schedule();
+    }
+
+    /**
+     * Queues an event for sending.
+     * @return false if the client is too far behind; the connection has then been closed.
+     */
+    boolean offer(Supplier<SseEmitter.SseEventBuilder> event) {
+        if (closed) {
+            return true;
+        }
+        if (queue.size() >= bufferSize || !queue.offer(event)) {
+            log.debug("SSE client fell {} event(s) behind, disconnecting", queue.size());
+            close();
+            return false;
+        }
+        lastEventNanos = System.nanoTime();
+        schedule();
+        return true;
+    }
+
+    /**
+     * Sends a comment line if nothing else is pending, so proxies keep the connection open. Does not count as
+     * activity for {@link #idleNanos()}.
+     */
+    void heartbeat() {
+        if (!closed && queue.isEmpty() && queue.offer(comment("heartbeat"))) {
+            schedule();
+        }
+    }
+
+    /**
+     * @return Nanoseconds since the last event was queued (or the connection opened).
+     */
+    long idleNanos() {
+        return System.nanoTime() - lastEventNanos;
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.clear();
+        onClose.accept(this);
+        emitter.complete();
+    }
+
+    private void schedule() {
+        if (!closed && scheduled.compareAndSet(false, true)) {
+            sender.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Supplier<SseEmitter.SseEventBuilder> event;
+            while (!closed && (event = queue.poll()) != null) {
+                emitter.send(event.get());
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("SSE client disconnected: {}", e.getMessage());
+            close();
+        } finally {
+            scheduled.set(false);
+            if (!closed && !queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.shopsphere.service;
+
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.DomainEventHandler;
+import com.shopsphere.event.StockThresholdCrossedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forwards stock threshold crossings from the bus to the configured {@link StockAlertSink}, on its own
+ * thread so a slow sink never holds up the stock index.
+ */
+@Component
+@RequiredArgsConstructor
+public class StockAlertNotifier implements DomainEventHandler {
+
+    private final StockAlertSink sink;
+
+    @Override
+    public String getName() {
+        return "stock-alerts";
+    }
+
+    @Override
+    public boolean supports(DomainEvent event) {
+        return event instanceof StockThresholdCrossedEvent;
+    }
+
+    @Override
+    public void onEvents(List<DomainEvent> events) {
+        List<StockThresholdCrossedEvent> alerts = new ArrayList<>(events.size());
+        for (DomainEvent event : events) {
+            alerts.add((StockThresholdCrossedEvent) event);
+        }
+        sink.send(alerts);
+    }
+}
@@ -0,0 +1,17 @@
+package com.shopsphere.service;
+
+import com.shopsphere.event.StockThresholdCrossedEvent;
+
+import java.util.List;
+
+/**
+ * Destination for stock threshold alerts. Selected with application.inventory.alerts.sink.
+ */
+public interface StockAlertSink {
+
+    /**
+     * Delivers a batch of alerts. Called on the stock-alerts bus thread, so implementations may block.
+     * @param alerts The alerts, in the order the crossings were observed.
+     */
+    void send(List<StockThresholdCrossedEvent> alerts);
+}
@@ -0,0 +1,107 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.StockLevelResponse;
+import com.shopsphere.dto.StockMovementResponse;
+import com.shopsphere.model.StockMovement;
+import com.shopsphere.repository.StockMovementRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Audit reads and upkeep of the stock ledger (stock_movements, Flyway V6). ProductService writes a movement with
+ * every stock change.
+ *
+ * The stock at a point in time is the stock left by the product's last movement at or before it: one index probe,
+ * however long the history. Movements older than retention-days whole days are compacted daily into one COMPACTED
+ * row per product and day (two when a day straddles two batches), so older history keeps the stock at the end of
+ * each day rather than after every change. The compaction is safe to run on several nodes at once.
+ */
+@Service
+@Slf4j
+public class StockLedgerService {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final StockMovementRepository stockMovementRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final int batchSize;
+    private final Counter compactedCounter;
+
+    public StockLedgerService(StockMovementRepository stockMovementRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${application.inventory.ledger.retention-days:90}") int retentionDays,
+                              @Value("${application.inventory.ledger.compaction-batch-size:10000}") int batchSize,
+                              MeterRegistry meterRegistry) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+        this.compactedCounter = Counter.builder("inventory.ledger.compacted").register(meterRegistry);
+    }
+
+    /**
+     * @param at The point in time (default now).
+     * @return The product's stock at that time.
+     */
+    @Transactional(readOnly = true)
+    public StockLevelResponse getStockAt(String productId, LocalDateTime at) {
+        LocalDateTime time = at == null ? LocalDateTime.now() : at;
+        StockMovement movement = stockMovementRepository.findLatestAt(productId, time)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "No stock history for product " + productId + " at " + time));
+        return new StockLevelResponse(productId, time, movement.getStockAfter(), movement.getCreatedAt());
+    }
+
+    /**
+     * @param from Start of the range (default 30 days before 'to').
+     * @param to End of the range, exclusive (default now).
+     * @param limit Number of movements, at most 1000.
+     * @return The product's movements in the range, newest first.
+     */
+    @Transactional(readOnly = true)
+    public List<StockMovementResponse> getMovements(String productId, LocalDateTime from, LocalDateTime to, int limit) {
+        LocalDateTime end = to == null ? LocalDateTime.now() : to;
+        LocalDateTime start = from == null ? end.minusDays(30) : from;
+        if (!start.isBefore(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'");
+        }
+        return stockMovementRepository.findHistory(productId, start, end, Math.min(Math.max(limit, 1), MAX_LIMIT)).stream()
+                .map(StockLedgerService::convertToDto)
+                .toList();
+    }
+
+    @Scheduled(cron = "${application.inventory.ledger.compaction-cron:0 15 4 * * *}")
+    public void compact() {
+        LocalDateTime before = LocalDate.now().minusDays(retentionDays).atStartOfDay();
+        long total = 0;
+        Integer written;
+        // one transaction per batch, so rows are not locked for the whole run
+        while ((written = transactionTemplate.execute(status -> stockMovementRepository.compact(before, batchSize))) != null
+                && written > 0) {
+            total += written;
+            compactedCounter.increment(written);
+        }
+        if (total > 0) {
+            log.info("Compacted stock movements before {} into {} daily row(s)", before.toLocalDate(), total);
+        }
+    }
+
+    private static StockMovementResponse convertToDto(StockMovement movement) {
+        return new StockMovementResponse(movement.getMovementId(), movement.getType().name(), movement.getQuantity(),
+                movement.getStockAfter(), movement.getOrderId(), movement.getCreatedAt());
+    }
+}
@@ -0,0 +1,204 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.ProductResponse;
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.event.DomainEventHandler;
+import com.shopsphere.event.ProductUpdatedEvent;
+import com.shopsphere.event.StockChangedEvent;
+import com.shopsphere.event.StockThresholdCrossedEvent;
+import com.shopsphere.model.Product;
+import com.shopsphere.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * In-memory index of product stock levels, ordered by quantity.
+ *
+ * The index is kept current from {@link ProductUpdatedEvent} and {@link StockChangedEvent} on the bus thread and
+ * answers low-stock queries without touching the database. Whenever a product's stock drops to or below its
+ * reorder threshold, or climbs back above it, a {@link StockThresholdCrossedEvent} is published for the alert
+ * sinks. Writes are serialized on this object; reads go straight to the concurrent sets and may briefly miss a
+ * product that is being moved. Events carry absolute quantities, so replaying them is harmless, and the index is
+ * periodically rebuilt from the database to recover from events the bus dropped.
+ *
+ * Every node keeps its own index, but only the node that committed a stock change sees its event, so alerts come
+ * from live events alone. The other nodes pick up the change on their next rebuild without alerting it again.
+ */
+@Component
+@Slf4j
+public class StockLevelIndex implements DomainEventHandler {
+
+    private static final Comparator<Entry> BY_STOCK =
+            Comparator.comparingInt(Entry::stock).thenComparing(Entry::productId);
+
+    private final ProductRepository productRepository;
+    private final DomainEventBus eventBus;
+    private final int defaultReorderThreshold;
+
+    private final ConcurrentHashMap<String, Entry> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> byStock = new ConcurrentSkipListSet<>(BY_STOCK);
+    private final ConcurrentSkipListSet<Entry> belowThreshold = new ConcurrentSkipListSet<>(BY_STOCK);
+    private volatile boolean loaded = false;
+
+    public StockLevelIndex(ProductRepository productRepository, DomainEventBus eventBus,
+                           @Value("${application.inventory.default-reorder-threshold:10}") int defaultReorderThreshold) {
+        this.productRepository = productRepository;
+        this.eventBus = eventBus;
+        this.defaultReorderThreshold = defaultReorderThreshold;
+    }
+
+    /**
+     * @param stockLevel The inclusive upper bound on stock quantity.
+     * @return Products with at most that many units in stock, lowest stock first.
+     */
+    public List<ProductResponse> findAtOrBelow(int stockLevel) {
+        ensureLoaded();
+        NavigableSet<Entry> matches = stockLevel == Integer.MAX_VALUE
+                ? byStock
+                : byStock.headSet(probe(stockLevel + 1), false);
+        return matches.stream().map(entry -> copyOf(entry.product())).toList();
+    }
+
+    /**
+     * @return Products at or below their own reorder threshold, lowest stock first.
+     */
+    public List<ProductResponse> findBelowReorderThreshold() {
+        ensureLoaded();
+        return belowThreshold.stream().map(entry -> copyOf(entry.product())).toList();
+    }
+
+    public int countBelowReorderThreshold() {
+        ensureLoaded();
+        return belowThreshold.size();
+    }
+
+    @Override
+    public String getName() {
+        return "stock-levels";
+    }
+
+    @Override
+    public boolean supports(DomainEvent event) {
+        return event instanceof ProductUpdatedEvent || event instanceof StockChangedEvent;
+    }
+
+    @Override
+    public synchronized void onEvents(List<DomainEvent> events) {
+        if (!loaded) {
+            return; // the initial load reads the current state
+        }
+        for (DomainEvent event : events) {
+            if (event instanceof ProductUpdatedEvent updated) {
+                if (updated.getChangeType() == ProductUpdatedEvent.ChangeType.DELETED) {
+                    replace(updated.getProductId(), null, false);
+                } else {
+                    replace(updated.getProductId(), entryOf(copyOf(updated.getProduct())), true);
+                }
+            } else if (event instanceof StockChangedEvent stock) {
+                Entry current = byId.get(stock.getProductId());
+                if (current != null && current.stock() != stock.getNewQuantity()) {
+                    ProductResponse product = copyOf(current.product());
+                    product.setStockQuantity(stock.getNewQuantity());
+                    replace(stock.getProductId(), entryOf(product), true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database. Crossings found on a rebuild are not alerted: the node that made the
+     * change has already done so, and a crossing whose event the bus dropped goes unalerted rather than being sent
+     * once per node.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.inventory.stock-index-reconcile-interval-ms:300000}",
+            initialDelayString = "${application.inventory.stock-index-reconcile-interval-ms:300000}")
+    @Transactional(readOnly = true)
+    public synchronized void reconcile() {
+        Set<String> present = new HashSet<>();
+        for (Product product : productRepository.findAllWithCategory()) {
+            present.add(product.getProductId());
+            replace(product.getProductId(), entryOf(ProductService.convertToDto(product)), false);
+        }
+        for (String productId : new ArrayList<>(byId.keySet())) {
+            if (!present.contains(productId)) {
+                replace(productId, null, false);
+            }
+        }
+        loaded = true;
+        log.debug("Stock level index reconciled: {} product(s), {} at or below their reorder threshold",
+                byId.size(), belowThreshold.size());
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            reconcile();
+        }
+    }
+
+    // caller holds the lock
+    private void replace(String productId, Entry next, boolean alert) {
+        Entry previous = next == null ? byId.remove(productId) : byId.put(productId, next);
+        if (previous != null) {
+            // remove first: an entry with the same id and stock compares equal to the new one
+            byStock.remove(previous);
+            belowThreshold.remove(previous);
+        }
+        if (next == null) {
+            return;
+        }
+        byStock.add(next);
+        if (next.isLow()) {
+            belowThreshold.add(next);
+        }
+        boolean wasLow = previous != null && previous.isLow();
+        if (alert && next.isLow() != wasLow) {
+            eventBus.publish(new StockThresholdCrossedEvent(
+                    next.isLow() ? StockThresholdCrossedEvent.Direction.LOW : StockThresholdCrossedEvent.Direction.RESTOCKED,
+                    productId,
+                    next.product().getName(),
+                    next.stock(),
+                    next.threshold(),
+                    LocalDateTime.now()));
+        }
+    }
+
+    private Entry entryOf(ProductResponse product) {
+        int threshold = product.getReorderThreshold() != null ? product.getReorderThreshold() : defaultReorderThreshold;
+        return new Entry(product.getProductId(), product.getStockQuantity(), threshold, product);
+    }
+
+    private static Entry probe(int stock) {
+        return new Entry("", stock, 0, null); // "" sorts before every product id with the same stock
+    }
+
+    // indexed responses are never handed out, so callers cannot mutate the index
+    private static ProductResponse copyOf(ProductResponse product) {
+        return new ProductResponse(product.getProductId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getStockQuantity(), product.getReorderThreshold(), product.getImageUrl(),
+                product.getCategoryId(), product.getCategoryName(), product.getCreatedAt(), product.getUpdatedAt(),
+                product.getVersion());
+    }
+
+    private record Entry(String productId, int stock, int threshold, ProductResponse product) {
+        boolean isLow() {
+            return stock <= threshold;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.shopsphere.service;
 
 import com.shopsphere.dto.PlaceOrderRequest;
+import com.shopsphere.model.Money;
 import com.shopsphere.model.Order;
 import com.shopsphere.model.Payment;
 import com.shopsphere.model.User;
@@ -14,13 +15,11 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.math.BigDecimal;
-
 @Service
 @Slf4j
 public class StripePaymentService {
 
-    public void processPayment(User user, Order newOrder, PlaceOrderRequest placeOrderRequest, BigDecimal totalAmount) {
+    public void processPayment(User user, Order newOrder, PlaceOrderRequest placeOrderRequest, Money totalAmount) {
         Payment payment = new Payment();
         payment.setAmount(totalAmount);
         payment.setPaymentMethod(placeOrderRequest.getPaymentMethod());
@@ -48,19 +47,20 @@ public class StripePaymentService {
         } catch (StripeException e) {
             log.error("Stripe API call error during order {}: {}", newOrder.getOrderId(), e.getMessage());
             throw new ResponseStatusException(HttpStatus.PAYMENT_REQUIRED, "Payment processing failed: " + e.getMessage());
-        }  catch (ArithmeticException e) { // Catch if totalAmount has too many decimal places for longValueExact
+        }  catch (ArithmeticException e) { // Catch if the amount overflowed while converting to minor units
             log.error("Error converting total amount to cents for order {}: {}", newOrder.getOrderId(), e.getMessage());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid amount for payment.");
         }
         newOrder.setPayment(payment);
     }
 
-    private PaymentIntent createPaymentIntent(User user, PlaceOrderRequest placeOrderRequest, BigDecimal totalAmount) throws StripeException {
-        long amountInCents = totalAmount.multiply(BigDecimal.valueOf(100)).longValue();
+    private PaymentIntent createPaymentIntent(User user, PlaceOrderRequest placeOrderRequest, Money totalAmount) throws StripeException {
+        // already in the smallest currency unit, which is what Stripe expects
+        long amountInCents = totalAmount.getMinorUnits();
 
         PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
                 .setAmount(amountInCents)
-                .setCurrency("usd")
+                .setCurrency(totalAmount.getCurrency().getCurrencyCode().toLowerCase())
                 .addPaymentMethodType("card")
                 .setPaymentMethod(placeOrderRequest.getPaymentMethodToken())
                 .setConfirm(true)
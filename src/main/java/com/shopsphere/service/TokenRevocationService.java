@@ -0,0 +1,128 @@
+package com.shopsphere.service;
+
+import com.shopsphere.model.RevokedToken;
+import com.shopsphere.repository.RevokedTokenRepository;
+import com.shopsphere.repository.RevokedTokenRepository.RevokedJti;
+import com.shopsphere.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Revocation list for access tokens, checked on every authenticated request.
+ *
+ * The jtis of unexpired revoked tokens are kept in a {@link BloomFilter}, so for almost every request the check is
+ * a few bit lookups. Only when the filter says "maybe" is the revoked_tokens table queried. Revocations from other
+ * instances are picked up by polling for rows newer than the last one seen; the filter is rebuilt from scratch
+ * periodically so expired jtis drop out and the false positive rate stays at its target.
+ */
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    // overlap between incremental polls so rows committed slightly out of order are not missed
+    private static final long POLL_OVERLAP_SECONDS = 5;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final Counter filterPositives;
+    private final Counter revokedHits;
+
+    private volatile BloomFilter filter;
+    // lower bound for a full load; LocalDateTime.MIN is outside PostgreSQL's timestamp range
+    private static final LocalDateTime BEGINNING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private volatile LocalDateTime watermark = LocalDateTime.MIN; // latest revoked_at loaded into the filter
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${application.security.revocation.expected-revocations:100000}") long expectedRevocations,
+                                  @Value("${application.security.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = BloomFilter.create(expectedRevocations, falsePositiveRate);
+        this.filterPositives = Counter.builder("auth.revocation.filter.positives").register(meterRegistry);
+        this.revokedHits = Counter.builder("auth.revocation.revoked").register(meterRegistry);
+    }
+
+    /**
+     * @param jti The jti claim of a verified access token.
+     * @return true if the token has been revoked.
+     */
+    public boolean isRevoked(String jti) {
+        if (!filter.mightContain(jti)) {
+            return false;
+        }
+        filterPositives.increment();
+        boolean revoked = revokedTokenRepository.existsById(jti);
+        if (revoked) {
+            revokedHits.increment();
+        }
+        return revoked;
+    }
+
+    /**
+     * Revokes an access token until it expires. Takes effect on this instance immediately and on the others
+     * with their next poll.
+     * @param jti The jti claim of the token.
+     * @param expiresAt The token's expiration.
+     */
+    @Transactional
+    public void revoke(String jti, LocalDateTime expiresAt) {
+        if (expiresAt.isBefore(LocalDateTime.now())) {
+            return; // already unusable
+        }
+        revokedTokenRepository.save(new RevokedToken(jti, expiresAt, LocalDateTime.now()));
+        filter.put(jti);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${application.security.revocation.rebuild-interval-ms:3600000}",
+            initialDelayString = "${application.security.revocation.rebuild-interval-ms:3600000}")
+    @Transactional
+    public void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenRepository.deleteExpired(now);
+        long size = revokedTokenRepository.countUnexpired(now);
+        BloomFilter rebuilt = BloomFilter.create(Math.max(expectedRevocations, size * 2), falsePositiveRate);
+        LocalDateTime loadedUntil = load(rebuilt, BEGINNING, now);
+        // revocations made on this instance while loading go into the old filter; the next poll adds them again
+        filter = rebuilt;
+        watermark = loadedUntil;
+        log.info("Token revocation filter rebuilt with {} revoked token(s)", size);
+    }
+
+    @Scheduled(fixedDelayString = "${application.security.revocation.poll-interval-ms:5000}")
+    @Transactional(readOnly = true)
+    public void pollRecentRevocations() {
+        LocalDateTime since = watermark;
+        if (since == LocalDateTime.MIN) {
+            return; // not loaded yet
+        }
+        watermark = load(filter, since.minusSeconds(POLL_OVERLAP_SECONDS), LocalDateTime.now());
+        if (watermark.isBefore(since)) {
+            watermark = since;
+        }
+    }
+
+    private LocalDateTime load(BloomFilter target, LocalDateTime since, LocalDateTime now) {
+        List<RevokedJti> revoked = revokedTokenRepository.findRevokedSince(since, now);
+        LocalDateTime latest = since;
+        for (RevokedJti row : revoked) {
+            target.put(row.getJti());
+            latest = row.getRevokedAt();
+        }
+        return latest.equals(BEGINNING) ? now.minusSeconds(POLL_OVERLAP_SECONDS) : latest;
+    }
+}
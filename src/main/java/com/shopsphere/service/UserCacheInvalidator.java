@@ -0,0 +1,60 @@
+package com.shopsphere.service;
+
+import com.shopsphere.config.CacheNames;
+import com.shopsphere.model.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Evicts a user from the user caches. Call it whenever anything stored for a user changes: username, password and
+ * roles for both caches, any other column (such as the last login) for the profile cache.
+ * The caches are local to each instance, so other instances only see the change once their entry expires.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCacheInvalidator {
+
+    private final CacheManager cacheManager;
+
+    /**
+     * Evicts the user now and again after the current transaction commits, so a concurrent
+     * read cannot put the old state back in between.
+     * @param user The changed user.
+     */
+    public void evict(User user) {
+        String userId = user.getUserId();
+        String username = user.getUsername();
+        evict(userId, username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId, username);
+                }
+            });
+        }
+    }
+
+    /**
+     * Evicts only the cached profile, for writes that do not touch what login reads (e.g. the last login time).
+     * @param userId The changed user's id.
+     */
+    public void evictProfile(String userId) {
+        evict(userId, null);
+    }
+
+    private void evict(String userId, String username) {
+        Cache users = cacheManager.getCache(CacheNames.USERS);
+        if (users != null && userId != null) {
+            users.evict(userId);
+        }
+        Cache userDetails = cacheManager.getCache(CacheNames.USER_DETAILS);
+        if (userDetails != null && username != null) {
+            userDetails.evict(username);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.UserImportRequest;
+import com.shopsphere.dto.UserImportResponse;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.event.UserRegisteredEvent;
+import com.shopsphere.model.Role;
+import com.shopsphere.model.User;
+import com.shopsphere.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Bulk user import for migrations. Users are inserted in JDBC batches (hibernate.jdbc.batch_size) and the
+ * persistence context is cleared after every batch, so memory stays flat for large imports.
+ * An import may only grant the roles in application.users.import.allowed-roles; admins are created separately.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserImportService {
+
+    private final UserRepository userRepository;
+    private final RoleCache roleCache;
+    private final PasswordEncoder passwordEncoder;
+    private final UserUniquenessFilter uniquenessFilter;
+    private final DomainEventBus eventBus;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // BCrypt as produced by the source system, optionally with the {bcrypt} prefix of our DelegatingPasswordEncoder
+    private static final Pattern BCRYPT_HASH =
+            Pattern.compile("(\\{bcrypt})?\\$2[aby]?\\$(0[4-9]|[12][0-9]|3[01])\\$[./A-Za-z0-9]{53}");
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    @Value("${application.users.import.allowed-roles:ROLE_USER}")
+    private Set<String> allowedRoles;
+
+    /**
+     * Imports the users in one transaction. Users whose username or email already exists, in the database or
+     * earlier in the same request, are skipped and reported instead of failing the import.
+     * @param requests The users to import.
+     * @return The number of imported users and the skipped ones.
+     */
+    @Transactional
+    public UserImportResponse importUsers(List<UserImportRequest> requests) {
+        Set<String> takenUsernames = new HashSet<>(userRepository.findExistingUsernames(
+                requests.stream().map(UserImportRequest::getUsername).toList()));
+        Set<String> takenEmails = new HashSet<>(userRepository.findExistingEmails(
+                requests.stream().map(UserImportRequest::getEmail).toList()));
+
+        List<String> skipped = new ArrayList<>();
+        int imported = 0;
+        for (UserImportRequest request : requests) {
+            String problem = validate(request, takenUsernames, takenEmails);
+            if (problem != null) {
+                skipped.add(request.getUsername() + ": " + problem);
+                continue;
+            }
+            User user = toUser(request);
+            entityManager.persist(user);
+            eventBus.publishAfterCommit(new UserRegisteredEvent(user.getUserId()));
+            takenUsernames.add(request.getUsername());
+            takenEmails.add(request.getEmail());
+            uniquenessFilter.add(request.getUsername(), request.getEmail());
+            if (++imported % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        log.info("Imported {} user(s), skipped {}", imported, skipped.size());
+        return new UserImportResponse(imported, skipped);
+    }
+
+    private String validate(UserImportRequest request, Set<String> takenUsernames, Set<String> takenEmails) {
+        if (request.getUsername() == null || request.getUsername().isBlank()) {
+            return "username is required";
+        }
+        if (request.getEmail() == null || request.getEmail().isBlank()) {
+            return "email is required";
+        }
+        if (request.getPassword() == null && request.getPasswordHash() == null) {
+            return "password or passwordHash is required";
+        }
+        if (request.getPasswordHash() != null && !BCRYPT_HASH.matcher(request.getPasswordHash()).matches()) {
+            return "passwordHash is not a BCrypt hash";
+        }
+        if (request.getRoles() != null) {
+            for (String role : request.getRoles()) {
+                if (!allowedRoles.contains(role)) {
+                    return "role " + role + " cannot be granted by an import";
+                }
+            }
+        }
+        if (takenUsernames.contains(request.getUsername())) {
+            return "username already taken";
+        }
+        if (takenEmails.contains(request.getEmail())) {
+            return "email already in use";
+        }
+        return null;
+    }
+
+    private User toUser(UserImportRequest request) {
+        User user = new User();
+        user.setUsername(request.getUsername());
+        user.setEmail(request.getEmail());
+        // an existing BCrypt hash is verified by the encoder's default and rehashed on the next login
+        user.setPassword(request.getPasswordHash() != null
+                ? request.getPasswordHash()
+                : passwordEncoder.encode(request.getPassword()));
+        user.setFirstName(request.getFirstName());
+        user.setLastName(request.getLastName());
+        user.setPhoneNumber(request.getPhoneNumber());
+        List<String> roleNames = request.getRoles() == null || request.getRoles().isEmpty()
+                ? List.of("ROLE_USER")
+                : request.getRoles();
+        for (String roleName : roleNames) {
+            Role role = roleCache.findByName(roleName)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown role: " + roleName));
+            user.addRole(role);
+        }
+        return user;
+    }
+}
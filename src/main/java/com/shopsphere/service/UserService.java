@@ -1,17 +1,25 @@
 package com.shopsphere.service;
 
+import com.shopsphere.config.CacheNames;
 import com.shopsphere.config.security.CustomUserDetails;
+import com.shopsphere.dto.AdminUserPage;
+import com.shopsphere.dto.AdminUserSummary;
 import com.shopsphere.dto.JwtAuthResponse;
 import com.shopsphere.dto.LoginRequest;
 import com.shopsphere.dto.RegisterRequest;
+import com.shopsphere.dto.UserProfile;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.event.UserRegisteredEvent;
 import com.shopsphere.model.Role;
 import com.shopsphere.model.User;
-import com.shopsphere.repository.RoleRepository;
 import com.shopsphere.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -19,19 +27,25 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.HashSet;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
-import java.util.Set;
+import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleCache roleCache;
     private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authenticationManager;
+    private final LoginAuthenticator loginAuthenticator;
     private final JwtService jwtService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final UserUniquenessFilter uniquenessFilter;
+    private final DomainEventBus eventBus;
 
     /**
      * Registers a new user.
@@ -40,76 +54,137 @@ public class UserService {
      */
     @Transactional
     public User registerUser(RegisterRequest request) {
-        if (userRepository.existsByUsername(request.getUsername())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Username already taken!");
-        }
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email already in use!");
-        }
-
-        User user = new User();
-        user.setUsername(request.getUsername());
-        user.setPassword(passwordEncoder.encode(request.getPassword())); // Hash the password
-        user.setEmail(request.getEmail());
-        user.setFirstName(request.getFirstName());
-        user.setLastName(request.getLastName());
-        user.setPhoneNumber(request.getPhoneNumber());
-
         // Assign default role (e.g., ROLE_USER)
-        Role userRole = roleRepository.findByName("ROLE_USER")
+        Role userRole = roleCache.findByName("ROLE_USER")
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Default user role not found!"));
-        user.addRole(userRole);
-
-        return userRepository.save(user);
+        return createUser(request, userRole);
     }
 
     @Transactional
     public User registerAdmin(RegisterRequest request) {
-        // Basic validation to check for existing username/email
-        if (userRepository.existsByUsername(request.getUsername())) {
+        // Assign the ROLE_ADMIN to the user
+        Role adminRole = roleCache.findByName("ROLE_ADMIN")
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Admin role not found!"));
+        return createUser(request, adminRole);
+    }
+
+    /**
+     * Inserts the user and relies on the unique constraints for username and email. The uniqueness filter only
+     * saves the lookup queries: when it says a value is certainly free, no query is made before the insert.
+     */
+    private User createUser(RegisterRequest request, Role role) {
+        if (uniquenessFilter.mightHaveUsername(request.getUsername()) && userRepository.existsByUsername(request.getUsername())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Username already taken!");
         }
-        if (userRepository.existsByEmail(request.getEmail())) {
+        if (uniquenessFilter.mightHaveEmail(request.getEmail()) && userRepository.existsByEmail(request.getEmail())) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email already in use!");
         }
 
         User user = new User();
         user.setUsername(request.getUsername());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
+        user.setPassword(passwordEncoder.encode(request.getPassword())); // Hash the password
         user.setEmail(request.getEmail());
         user.setFirstName(request.getFirstName());
         user.setLastName(request.getLastName());
         user.setPhoneNumber(request.getPhoneNumber());
+        user.addRole(role);
 
-        // Assign the ROLE_ADMIN to the user
-        Role adminRole = roleRepository.findByName("ROLE_ADMIN")
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Admin role not found!"));
-        Set<Role> roles = new HashSet<>();
-        roles.add(adminRole);
-        user.setRoles(roles);
-
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            // flush now so a concurrent registration surfaces here, not at commit
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw toDuplicateUserException(e);
+        }
+        uniquenessFilter.add(savedUser.getUsername(), savedUser.getEmail());
+        eventBus.publishAfterCommit(new UserRegisteredEvent(savedUser.getUserId()));
         return savedUser;
     }
 
-    @Transactional(readOnly = true)
-    public JwtAuthResponse login(LoginRequest loginRequest) {
-        Authentication authenticate = authenticationManager
-                .authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
+    /**
+     * Maps a unique constraint violation on users to the same 400 the lookups produce.
+     * @param e The exception thrown by the insert.
+     * @return The exception to throw.
+     */
+    static ResponseStatusException toDuplicateUserException(DataIntegrityViolationException e) {
+        String constraint = null;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                constraint = violation.getConstraintName();
+                break;
+            }
+        }
+        String message = String.valueOf(e.getMostSpecificCause().getMessage());
+        if (User.USERNAME_CONSTRAINT.equalsIgnoreCase(constraint) || message.contains("(username)")) {
+            return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Username already taken!");
+        }
+        if (User.EMAIL_CONSTRAINT.equalsIgnoreCase(constraint) || message.contains("(email)")) {
+            return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Email already in use!");
+        }
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "User could not be registered", e);
+    }
+
+    /**
+     * Authenticates the user and issues a JWT. The password check runs on the login pool, see {@link LoginAuthenticator}.
+     * Not transactional so no database connection is held while waiting for it.
+     * @param loginRequest The login request DTO.
+     * @param clientIp The client address, used for throttling.
+     * @return The JWT and user details.
+     */
+    public JwtAuthResponse login(LoginRequest loginRequest, String clientIp) {
+        Authentication authenticate = loginAuthenticator
+                .authenticate(loginRequest.getUsername(), loginRequest.getPassword(), clientIp);
         SecurityContextHolder.getContext().setAuthentication(authenticate);
 
         // Generate JWT token
         CustomUserDetails customUserDetails = (CustomUserDetails) authenticate.getPrincipal();
-        String jwt = jwtService.generateToken(customUserDetails); // Use username from authentication
+        lastLoginRecorder.record(customUserDetails.getUserId());
+        return buildAuthResponse(customUserDetails, refreshTokenService.issue(customUserDetails.getUserId()));
+    }
 
+    /**
+     * Exchanges a refresh token for a new access token and a new refresh token.
+     * @param refreshToken The refresh token from the previous login or refresh.
+     * @return The new tokens and user details.
+     */
+    public JwtAuthResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        return buildAuthResponse(rotation.principal(), rotation.rawToken());
+    }
 
+    /**
+     * Revokes the refresh token's family and the access token the request was made with.
+     * @param refreshToken The refresh token to revoke, may be null.
+     * @param accessToken The current access token, may be null.
+     */
+    public void logout(String refreshToken, String accessToken) {
+        if (refreshToken != null && !refreshToken.isBlank()) {
+            refreshTokenService.revoke(refreshToken);
+        }
+        if (accessToken != null) {
+            try {
+                Claims claims = jwtService.parseToken(accessToken);
+                if (claims.getId() != null) {
+                    tokenRevocationService.revoke(claims.getId(),
+                            LocalDateTime.ofInstant(claims.getExpiration().toInstant(), ZoneId.systemDefault()));
+                }
+            } catch (JwtException e) {
+                // expired or invalid, nothing left to revoke
+            }
+        }
+    }
+
+    private JwtAuthResponse buildAuthResponse(CustomUserDetails customUserDetails, String refreshToken) {
+        String jwt = jwtService.generateToken(customUserDetails);
         return new JwtAuthResponse(
                 jwt,
                 "Bearer",
                 customUserDetails.getUserId(),
                 customUserDetails.getUsername(),
                 customUserDetails.getEmail(),
-                customUserDetails.getAuthorities().stream().findFirst().get().getAuthority()
+                customUserDetails.getAuthorities().stream().findFirst().get().getAuthority(),
+                refreshToken,
+                jwtService.getExpirationMillis() / 1000
         );
     }
 
@@ -124,29 +199,73 @@ public class UserService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with username: " + username));
     }
 
+    /**
+     * Finds a user by ID. Cached for a few minutes as an immutable profile; changes to a user must go through
+     * {@link UserCacheInvalidator}.
+     * @param userId The user ID.
+     * @return The user's profile, without credentials.
+     */
+    @Cacheable(CacheNames.USERS)
     @Transactional(readOnly = true)
-    public User findById(String userId) {
+    public UserProfile findById(String userId) {
         return userRepository.findById(userId)
+                .map(UserService::toProfile)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with userId: " + userId));
     }
 
     /**
-     * Get all users for admin purposes.
-     * @return List of all users.
+     * A reference to the user for associations (orders, carts), without loading the row. Check the id with
+     * {@link #findById(String)} first; a reference to a missing user only fails when it is used.
+     * @param userId The user ID.
+     * @return An uninitialized User proxy.
      */
-    @Transactional(readOnly = true)
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public User getUserReference(String userId) {
+        return userRepository.getReferenceById(userId);
+    }
+
+    static UserProfile toProfile(User user) {
+        return new UserProfile(
+                user.getUserId(),
+                user.getUsername(),
+                user.getEmail(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getPhoneNumber(),
+                user.getRegistrationDate(),
+                user.getLastLogin(),
+                user.getRoles().stream().map(Role::getName).sorted().toList());
     }
 
     /**
-     * Get user by ID for admin purposes.
-     * @param userId The user ID.
-     * @return The user entity.
+     * One page of users for admin purposes, ordered by username.
+     * @param after Username of the last user on the previous page, null for the first page.
+     * @param search Optional username or email prefix (email is matched case-insensitively).
+     * @param limit Page size, capped at 200.
+     * @return The page and the cursor for the next one.
      */
     @Transactional(readOnly = true)
-    public User getUserById(String userId) {
-        return findById(userId);
+    public AdminUserPage listUsers(String after, String search, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), 200);
+        String prefix = search == null ? "" : search.trim();
+        String pattern = escapeLike(prefix) + "%";
+        List<AdminUserSummary> users = userRepository.findUserSummaries(
+                        after == null ? "" : after, prefix, pattern, pattern.toLowerCase(Locale.ROOT), pageSize)
+                .stream()
+                .map(view -> new AdminUserSummary(
+                        view.getUserId(),
+                        view.getUsername(),
+                        view.getEmail(),
+                        view.getFirstName(),
+                        view.getLastName(),
+                        view.getRegistrationDate(),
+                        view.getLastLogin(),
+                        view.getRoles() == null ? List.of() : List.of(view.getRoles().split(","))))
+                .toList();
+        String nextCursor = users.size() == pageSize ? users.get(users.size() - 1).getUsername() : null;
+        return new AdminUserPage(users, nextCursor);
     }
 
-}
\ No newline at end of file
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
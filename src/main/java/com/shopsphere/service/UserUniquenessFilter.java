@@ -0,0 +1,82 @@
+package com.shopsphere.service;
+
+import com.shopsphere.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bloom filter of taken usernames and emails, used to skip the uniqueness queries during registration.
+ *
+ * A negative answer means the value was not taken when the filter was built (or inserted through this instance),
+ * so registration goes straight to the insert; the unique constraints still catch anything registered meanwhile
+ * on another instance. Only a positive answer is confirmed with a query. The filter is rebuilt daily so it keeps
+ * up with other instances and stays at its target false positive rate as the table grows.
+ */
+@Component
+@Slf4j
+public class UserUniquenessFilter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double falsePositiveRate;
+    private volatile BloomFilter filter;
+
+    public UserUniquenessFilter(JdbcTemplate jdbcTemplate,
+                                @Value("${application.users.uniqueness-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = BloomFilter.create(1_000, falsePositiveRate);
+    }
+
+    /**
+     * @param username The requested username.
+     * @return false if the username is certainly free (as far as this instance knows).
+     */
+    public boolean mightHaveUsername(String username) {
+        return filter.mightContain(usernameKey(username));
+    }
+
+    /**
+     * @param email The requested email.
+     * @return false if the email is certainly free (as far as this instance knows).
+     */
+    public boolean mightHaveEmail(String email) {
+        return filter.mightContain(emailKey(email));
+    }
+
+    /**
+     * Adds a newly registered user.
+     */
+    public void add(String username, String email) {
+        BloomFilter current = filter;
+        current.put(usernameKey(username));
+        current.put(emailKey(email));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${application.users.uniqueness-filter.rebuild-cron:0 15 4 * * *}")
+    public void rebuild() {
+        Long userCount = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+        // room for the existing users plus as many new registrations before the next rebuild
+        long expected = Math.max(1_000, (userCount == null ? 0 : userCount) * 2) * 2;
+        BloomFilter rebuilt = BloomFilter.create(expected, falsePositiveRate);
+        jdbcTemplate.query("SELECT username, email FROM users", rs -> {
+            rebuilt.put(usernameKey(rs.getString(1)));
+            rebuilt.put(emailKey(rs.getString(2)));
+        });
+        filter = rebuilt;
+        log.info("User uniqueness filter built for {} user(s)", userCount);
+    }
+
+    private static String usernameKey(String username) {
+        return "u:" + username;
+    }
+
+    private static String emailKey(String email) {
+        return "e:" + email;
+    }
+}
@@ -0,0 +1,352 @@
+package com.shopsphere.service.pricing;
+
+import com.shopsphere.model.Money;
+import com.shopsphere.model.PricingRule;
+
+import java.util.*;
+
+/**
+ * Immutable lookup tables built from the active {@link PricingRule}s.
+ *
+ * Rules are grouped by jurisdiction (global, country, country + state, country + postal prefix) and flattened into
+ * arrays indexed by category, so pricing a cart is a handful of map/array lookups per line and allocates nothing.
+ * The most specific jurisdiction that defines a value wins: postal prefix, then state, then country, then global.
+ * When two rules define the same value at the same level, the higher rate (or the cheaper shipping tier) wins.
+ *
+ * Evaluation order:
+ * 1. category promotions come off each line,
+ * 2. tax is charged per line on the discounted line amount,
+ * 3. the best cart-wide promotion whose threshold is met comes off the discounted subtotal (tax is reduced pro rata),
+ * 4. shipping is the tier with the highest threshold not above the amount after discounts.
+ */
+public final class CompiledPricingRules {
+
+    private static final int UNSET = -1;
+
+    private final Map<String, Integer> categoryIndex;
+    private final Jurisdiction global;
+    private final Map<String, CountryRules> countries;
+    private final int ruleCount;
+
+    private CompiledPricingRules(Map<String, Integer> categoryIndex, Jurisdiction global,
+                                 Map<String, CountryRules> countries, int ruleCount) {
+        this.categoryIndex = categoryIndex;
+        this.global = global;
+        this.countries = countries;
+        this.ruleCount = ruleCount;
+    }
+
+    public int getRuleCount() {
+        return ruleCount;
+    }
+
+    /**
+     * Compiles the given rules. Inactive rules are ignored.
+     */
+    public static CompiledPricingRules compile(Collection<PricingRule> rules) {
+        Map<String, Integer> categoryIndex = new HashMap<>();
+        for (PricingRule rule : rules) {
+            if (rule.isActive() && rule.getCategoryId() != null) {
+                categoryIndex.putIfAbsent(rule.getCategoryId(), categoryIndex.size());
+            }
+        }
+        int categoryCount = categoryIndex.size();
+
+        Jurisdiction global = new Jurisdiction(categoryCount);
+        Map<String, CountryBuilder> countryBuilders = new HashMap<>();
+        int ruleCount = 0;
+        for (PricingRule rule : rules) {
+            if (!rule.isActive()) {
+                continue;
+            }
+            ruleCount++;
+            Jurisdiction target = global;
+            String country = PricingInput.normalize(rule.getCountry());
+            if (country != null) {
+                CountryBuilder countryBuilder = countryBuilders.computeIfAbsent(country, c -> new CountryBuilder(categoryCount));
+                String postalPrefix = rule.getPostalPrefix() == null ? null
+                        : PricingInput.normalize(rule.getPostalPrefix().replace(" ", "").replace("-", ""));
+                String state = PricingInput.normalize(rule.getState());
+                if (postalPrefix != null) {
+                    target = countryBuilder.postal(postalPrefix);
+                } else if (state != null) {
+                    target = countryBuilder.states.computeIfAbsent(state, s -> new Jurisdiction(categoryCount));
+                } else {
+                    target = countryBuilder.jurisdiction;
+                }
+            }
+            int category = rule.getCategoryId() == null ? UNSET : categoryIndex.get(rule.getCategoryId());
+            target.add(rule, category);
+        }
+
+        global.freeze();
+        Map<String, CountryRules> countries = new HashMap<>();
+        countryBuilders.forEach((code, builder) -> countries.put(code, builder.build()));
+        return new CompiledPricingRules(Map.copyOf(categoryIndex), global, Map.copyOf(countries), ruleCount);
+    }
+
+    /**
+     * Prices the cart described by {@code input} into {@code quote}.
+     */
+    public void evaluate(PricingInput input, PriceQuote quote) {
+        Jurisdiction countryLevel = null;
+        Jurisdiction stateLevel = null;
+        Jurisdiction postalLevel = null;
+        if (input.getCountry() != null) {
+            CountryRules country = countries.get(input.getCountry());
+            if (country != null) {
+                countryLevel = country.jurisdiction;
+                stateLevel = input.getState() == null ? null : country.states.get(input.getState());
+                postalLevel = country.findPostal(input.getPostalCode());
+            }
+        }
+
+        long subtotal = 0;
+        long lineDiscounts = 0;
+        long tax = 0;
+        for (int i = 0; i < input.getLineCount(); i++) {
+            long line = Math.multiplyExact(input.getUnitPrice(i), input.getQuantity(i));
+            subtotal = Math.addExact(subtotal, line);
+
+            String categoryId = input.getCategoryId(i);
+            int category = categoryId == null ? UNSET : categoryIndex.getOrDefault(categoryId, UNSET);
+
+            int promotionRate = firstSet(postalLevel, stateLevel, countryLevel, global, category, false);
+            long discount = promotionRate > 0 ? Money.applyBasisPoints(line, promotionRate) : 0;
+            lineDiscounts += discount;
+
+            int taxRate = firstSet(postalLevel, stateLevel, countryLevel, global, category, true);
+            if (taxRate > 0) {
+                tax += Money.applyBasisPoints(line - discount, taxRate);
+            }
+        }
+
+        long discounted = subtotal - lineDiscounts;
+        long cartDiscount = bestCartPromotion(discounted, postalLevel, stateLevel, countryLevel, global);
+        if (cartDiscount > 0 && discounted > 0) {
+            long remaining = discounted - cartDiscount;
+            tax = (Math.multiplyExact(tax, remaining) + discounted / 2) / discounted;
+        }
+        long shipping = shipping(discounted - cartDiscount, postalLevel, stateLevel, countryLevel, global);
+
+        quote.set(subtotal, lineDiscounts + cartDiscount, tax, shipping);
+    }
+
+    private static int firstSet(Jurisdiction a, Jurisdiction b, Jurisdiction c, Jurisdiction d, int category, boolean taxRate) {
+        int rate = rateOf(a, category, taxRate);
+        if (rate == UNSET) rate = rateOf(b, category, taxRate);
+        if (rate == UNSET) rate = rateOf(c, category, taxRate);
+        if (rate == UNSET) rate = rateOf(d, category, taxRate);
+        return rate;
+    }
+
+    private static int rateOf(Jurisdiction level, int category, boolean taxRate) {
+        if (level == null) {
+            return UNSET;
+        }
+        if (taxRate) {
+            int rate = category == UNSET ? UNSET : level.categoryTaxRates[category];
+            return rate != UNSET ? rate : level.defaultTaxRate;
+        }
+        return category == UNSET ? UNSET : level.categoryPromotionRates[category];
+    }
+
+    private static long bestCartPromotion(long amount, Jurisdiction a, Jurisdiction b, Jurisdiction c, Jurisdiction d) {
+        long best = Math.max(Math.max(cartPromotion(amount, a), cartPromotion(amount, b)),
+                Math.max(cartPromotion(amount, c), cartPromotion(amount, d)));
+        return Math.min(best, Math.max(amount, 0));
+    }
+
+    private static long cartPromotion(long amount, Jurisdiction level) {
+        long best = 0;
+        if (level == null) {
+            return best;
+        }
+        for (int i = 0; i < level.cartPromotionThresholds.length; i++) {
+            if (amount >= level.cartPromotionThresholds[i]) {
+                long discount = Math.max(level.cartPromotionFlats[i], Money.applyBasisPoints(amount, level.cartPromotionRates[i]));
+                best = Math.max(best, discount);
+            }
+        }
+        return best;
+    }
+
+    private static long shipping(long amount, Jurisdiction a, Jurisdiction b, Jurisdiction c, Jurisdiction d) {
+        Jurisdiction level = a != null && a.hasShipping() ? a
+                : b != null && b.hasShipping() ? b
+                : c != null && c.hasShipping() ? c
+                : d != null && d.hasShipping() ? d : null;
+        if (level == null) {
+            return 0;
+        }
+        // thresholds are ascending; take the last tier that the amount reaches
+        long cost = 0;
+        for (int i = 0; i < level.shippingThresholds.length && amount >= level.shippingThresholds[i]; i++) {
+            cost = level.shippingCosts[i];
+        }
+        return cost;
+    }
+
+    /**
+     * Rules of one jurisdiction. Built through {@link #add}, then frozen into arrays.
+     */
+    private static final class Jurisdiction {
+        int defaultTaxRate = UNSET;
+        final int[] categoryTaxRates;
+        final int[] categoryPromotionRates;
+        long[] shippingThresholds = new long[0];
+        long[] shippingCosts = new long[0];
+        long[] cartPromotionThresholds = new long[0];
+        int[] cartPromotionRates = new int[0];
+        long[] cartPromotionFlats = new long[0];
+
+        private TreeMap<Long, Long> shippingTiers = new TreeMap<>();
+        private List<PricingRule> cartPromotions = new ArrayList<>();
+
+        Jurisdiction(int categoryCount) {
+            categoryTaxRates = new int[categoryCount];
+            categoryPromotionRates = new int[categoryCount];
+            Arrays.fill(categoryTaxRates, UNSET);
+            Arrays.fill(categoryPromotionRates, UNSET);
+        }
+
+        void add(PricingRule rule, int category) {
+            int rate = rule.getRateBasisPoints() == null ? 0 : rule.getRateBasisPoints();
+            long threshold = rule.getMinSubtotal() == null ? 0 : rule.getMinSubtotal().getMinorUnits();
+            long flat = rule.getFlatAmount() == null ? 0 : rule.getFlatAmount().getMinorUnits();
+            switch (rule.getType()) {
+                case TAX -> {
+                    if (category == UNSET) {
+                        defaultTaxRate = Math.max(defaultTaxRate, rate);
+                    } else {
+                        categoryTaxRates[category] = Math.max(categoryTaxRates[category], rate);
+                    }
+                }
+                case PROMOTION -> {
+                    if (category == UNSET) {
+                        cartPromotions.add(rule);
+                    } else {
+                        categoryPromotionRates[category] = Math.max(categoryPromotionRates[category], rate);
+                    }
+                }
+                case SHIPPING -> shippingTiers.merge(threshold, flat, Math::min);
+            }
+        }
+
+        boolean hasShipping() {
+            return shippingThresholds.length > 0;
+        }
+
+        void freeze() {
+            shippingThresholds = shippingTiers.keySet().stream().mapToLong(Long::longValue).toArray();
+            shippingCosts = shippingTiers.values().stream().mapToLong(Long::longValue).toArray();
+            int promotions = cartPromotions.size();
+            cartPromotionThresholds = new long[promotions];
+            cartPromotionRates = new int[promotions];
+            cartPromotionFlats = new long[promotions];
+            for (int i = 0; i < promotions; i++) {
+                PricingRule rule = cartPromotions.get(i);
+                cartPromotionThresholds[i] = rule.getMinSubtotal() == null ? 0 : rule.getMinSubtotal().getMinorUnits();
+                cartPromotionRates[i] = rule.getRateBasisPoints() == null ? 0 : rule.getRateBasisPoints();
+                cartPromotionFlats[i] = rule.getFlatAmount() == null ? 0 : rule.getFlatAmount().getMinorUnits();
+            }
+            shippingTiers = null;
+            cartPromotions = null;
+        }
+    }
+
+    private static final class CountryRules {
+        final Jurisdiction jurisdiction;
+        final Map<String, Jurisdiction> states;
+        final PostalNode postalRoot;
+
+        CountryRules(Jurisdiction jurisdiction, Map<String, Jurisdiction> states, PostalNode postalRoot) {
+            this.jurisdiction = jurisdiction;
+            this.states = states;
+            this.postalRoot = postalRoot;
+        }
+
+        // longest configured prefix of the postal code, walked char by char
+        Jurisdiction findPostal(String postalCode) {
+            if (postalCode == null || postalRoot == null) {
+                return null;
+            }
+            Jurisdiction match = null;
+            PostalNode node = postalRoot;
+            for (int i = 0; i < postalCode.length() && node != null; i++) {
+                node = node.child(postalCode.charAt(i));
+                if (node != null && node.jurisdiction != null) {
+                    match = node.jurisdiction;
+                }
+            }
+            return match;
+        }
+    }
+
+    private static final class PostalNode {
+        final char[] keys;
+        final PostalNode[] children;
+        final Jurisdiction jurisdiction;
+
+        PostalNode(char[] keys, PostalNode[] children, Jurisdiction jurisdiction) {
+            this.keys = keys;
+            this.children = children;
+            this.jurisdiction = jurisdiction;
+        }
+
+        PostalNode child(char key) {
+            int index = Arrays.binarySearch(keys, key);
+            return index >= 0 ? children[index] : null;
+        }
+    }
+
+    private static final class CountryBuilder {
+        final int categoryCount;
+        final Jurisdiction jurisdiction;
+        final Map<String, Jurisdiction> states = new HashMap<>();
+        final PostalBuilder postalRoot = new PostalBuilder();
+
+        CountryBuilder(int categoryCount) {
+            this.categoryCount = categoryCount;
+            this.jurisdiction = new Jurisdiction(categoryCount);
+        }
+
+        Jurisdiction postal(String prefix) {
+            PostalBuilder node = postalRoot;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new PostalBuilder());
+            }
+            if (node.jurisdiction == null) {
+                node.jurisdiction = new Jurisdiction(categoryCount);
+            }
+            return node.jurisdiction;
+        }
+
+        CountryRules build() {
+            jurisdiction.freeze();
+            states.values().forEach(Jurisdiction::freeze);
+            PostalNode root = postalRoot.children.isEmpty() ? null : postalRoot.build();
+            return new CountryRules(jurisdiction, Map.copyOf(states), root);
+        }
+    }
+
+    private static final class PostalBuilder {
+        final TreeMap<Character, PostalBuilder> children = new TreeMap<>();
+        Jurisdiction jurisdiction;
+
+        PostalNode build() {
+            char[] keys = new char[children.size()];
+            PostalNode[] nodes = new PostalNode[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, PostalBuilder> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+            if (jurisdiction != null) {
+                jurisdiction.freeze();
+            }
+            return new PostalNode(keys, nodes, jurisdiction);
+        }
+    }
+}
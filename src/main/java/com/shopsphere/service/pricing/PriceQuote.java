@@ -0,0 +1,46 @@
+package com.shopsphere.service.pricing;
+
+import com.shopsphere.model.Money;
+import lombok.Getter;
+
+/**
+ * Result of pricing a cart, in minor units. Mutable so it can be reused between evaluations;
+ * use the Money accessors when handing the amounts to entities.
+ */
+@Getter
+public final class PriceQuote {
+
+    private long subtotal;
+    private long discount;
+    private long tax;
+    private long shipping;
+    private long total;
+
+    void set(long subtotal, long discount, long tax, long shipping) {
+        this.subtotal = subtotal;
+        this.discount = discount;
+        this.tax = tax;
+        this.shipping = shipping;
+        this.total = subtotal - discount + tax + shipping;
+    }
+
+    public Money subtotalAmount() {
+        return Money.ofMinor(subtotal);
+    }
+
+    public Money discountAmount() {
+        return Money.ofMinor(discount);
+    }
+
+    public Money taxAmount() {
+        return Money.ofMinor(tax);
+    }
+
+    public Money shippingAmount() {
+        return Money.ofMinor(shipping);
+    }
+
+    public Money totalAmount() {
+        return Money.ofMinor(total);
+    }
+}
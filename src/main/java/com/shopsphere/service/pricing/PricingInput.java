@@ -0,0 +1,94 @@
+package com.shopsphere.service.pricing;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reusable, array-backed description of a cart to price. Callers that price many carts
+ * (benchmarks, batch repricing) can {@link #clear()} and refill one instance so evaluation allocates nothing.
+ */
+public final class PricingInput {
+
+    private long[] unitPrices; // minor units
+    private int[] quantities;
+    private String[] categoryIds;
+    private int lineCount;
+
+    private String country;
+    private String state;
+    private String postalCode;
+
+    public PricingInput(int expectedLines) {
+        int capacity = Math.max(expectedLines, 4);
+        this.unitPrices = new long[capacity];
+        this.quantities = new int[capacity];
+        this.categoryIds = new String[capacity];
+    }
+
+    public void clear() {
+        Arrays.fill(categoryIds, 0, lineCount, null);
+        lineCount = 0;
+        country = null;
+        state = null;
+        postalCode = null;
+    }
+
+    public void addLine(long unitPriceMinorUnits, int quantity, String categoryId) {
+        if (lineCount == unitPrices.length) {
+            int capacity = lineCount * 2;
+            unitPrices = Arrays.copyOf(unitPrices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+        }
+        unitPrices[lineCount] = unitPriceMinorUnits;
+        quantities[lineCount] = quantity;
+        categoryIds[lineCount] = categoryId;
+        lineCount++;
+    }
+
+    /**
+     * Sets the shipping destination. Codes are normalized here (upper case, postal code without spaces)
+     * so the evaluation itself only does exact lookups.
+     */
+    public void setDestination(String country, String state, String postalCode) {
+        this.country = normalize(country);
+        this.state = normalize(state);
+        this.postalCode = postalCode == null ? null : normalize(postalCode.replace(" ", "").replace("-", ""));
+    }
+
+    static String normalize(String code) {
+        if (code == null) {
+            return null;
+        }
+        String trimmed = code.trim();
+        return trimmed.isEmpty() ? null : trimmed.toUpperCase(Locale.ROOT);
+    }
+
+    int getLineCount() {
+        return lineCount;
+    }
+
+    long getUnitPrice(int line) {
+        return unitPrices[line];
+    }
+
+    int getQuantity(int line) {
+        return quantities[line];
+    }
+
+    String getCategoryId(int line) {
+        return categoryIds[line];
+    }
+
+    String getCountry() {
+        return country;
+    }
+
+    String getState() {
+        return state;
+    }
+
+    String getPostalCode() {
+        return postalCode;
+    }
+}
@@ -0,0 +1,138 @@
+package com.shopsphere.util;
+
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generators for identifiers that sort by creation time, so new rows land at the right edge of a B-tree
+ * index instead of on random pages.
+ *
+ * Both generators keep a millisecond timestamp and a 12-bit counter in one atomic long. Ids from the same
+ * generator are strictly increasing; when more than 4096 ids are requested within one millisecond the counter
+ * carries into the timestamp, which then briefly runs ahead of the clock. A clock that steps backwards is
+ * handled the same way: the generator keeps counting from the last timestamp it used.
+ */
+public final class TimeOrderedIds {
+
+    private static final int COUNTER_BITS = 12;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final AtomicLong UUID_STATE = new AtomicLong();
+
+    private TimeOrderedIds() {
+    }
+
+    /**
+     * @return A version 7 UUID (RFC 9562) in the canonical 36-character form: 48-bit Unix millisecond
+     * timestamp, 12-bit counter in rand_a and 62 random bits.
+     */
+    public static String uuidV7() {
+        long state = next(UUID_STATE, System.currentTimeMillis());
+        long millis = state >>> COUNTER_BITS;
+        long counter = state & ((1 << COUNTER_BITS) - 1);
+        long msb = (millis << 16) | 0x7000L | counter;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return format(msb, lsb);
+    }
+
+    /**
+     * @return The creation time in Unix milliseconds carried by a {@link #uuidV7()} or {@link Snowflake} id, or
+     * empty for any other id (such as the random UUIDs of rows created before time-ordered ids). The time can be
+     * slightly ahead of the real creation time, see the class comment.
+     */
+    public static OptionalLong timestampMillis(String id) {
+        if (id == null || id.length() != 36) {
+            return OptionalLong.empty();
+        }
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return OptionalLong.empty();
+        }
+        return switch (uuid.version()) {
+            case 7 -> OptionalLong.of(uuid.getMostSignificantBits() >>> 16);
+            case 8 -> OptionalLong.of((Snowflake.fromUuid(uuid) >>> 22) + Snowflake.EPOCH_MILLIS);
+            default -> OptionalLong.empty();
+        };
+    }
+
+    private static long next(AtomicLong state, long nowMillis) {
+        long candidate = nowMillis << COUNTER_BITS;
+        while (true) {
+            long last = state.get();
+            long next = Math.max(candidate, last + 1);
+            if (state.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static String format(long msb, long lsb) {
+        char[] out = new char[36];
+        int pos = 0;
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            if (pos == 8 || pos == 13) {
+                out[pos++] = '-';
+            }
+            out[pos++] = HEX[(int) (msb >>> shift) & 0xF];
+        }
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            if (pos == 18 || pos == 23) {
+                out[pos++] = '-';
+            }
+            out[pos++] = HEX[(int) (lsb >>> shift) & 0xF];
+        }
+        return new String(out);
+    }
+
+    /**
+     * Snowflake-style 64-bit ids: 41 bits of milliseconds since {@link #EPOCH_MILLIS}, a 10-bit node id and a
+     * 12-bit counter. Every application node needs its own node id.
+     *
+     * For the uuid key columns an id is carried in a version 8 UUID: its top 60 bits around the version field,
+     * its low 4 bits after the variant, and zeros after that. The UUIDs sort like the ids.
+     */
+    public static final class Snowflake {
+
+        public static final long EPOCH_MILLIS = 1_735_689_600_000L; // 2025-01-01T00:00:00Z
+        public static final int MAX_NODE_ID = (1 << 10) - 1;
+
+        private final long nodeBits;
+        private final AtomicLong state = new AtomicLong();
+
+        public Snowflake(int nodeId) {
+            if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+                throw new IllegalArgumentException("Snowflake node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+            }
+            this.nodeBits = (long) nodeId << COUNTER_BITS;
+        }
+
+        public long nextId() {
+            long s = TimeOrderedIds.next(state, System.currentTimeMillis() - EPOCH_MILLIS);
+            long elapsed = s >>> COUNTER_BITS;
+            long counter = s & ((1 << COUNTER_BITS) - 1);
+            return (elapsed << 22) | nodeBits | counter;
+        }
+
+        /**
+         * @return {@link #nextId()} as a version 8 UUID in the canonical 36-character form.
+         */
+        public String nextUuid() {
+            return toUuid(nextId());
+        }
+
+        static String toUuid(long id) {
+            long msb = ((id >>> 16) << 16) | 0x8000L | ((id >>> 4) & 0xFFF);
+            long lsb = 0x8000000000000000L | ((id & 0xF) << 58);
+            return format(msb, lsb);
+        }
+
+        static long fromUuid(UUID uuid) {
+            long msb = uuid.getMostSignificantBits();
+            return ((msb >>> 16) << 16) | ((msb & 0xFFF) << 4) | ((uuid.getLeastSignificantBits() >>> 58) & 0xF);
+        }
+    }
+}
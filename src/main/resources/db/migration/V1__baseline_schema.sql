@@ -0,0 +1,176 @@
+-- Schema as Hibernate (ddl-auto=update) created it before migrations were introduced. Databases that already
+-- have these tables are baselined at version 1 (spring.flyway.baseline-on-migrate) and skip this script.
+-- Foreign key names are the ones Hibernate generated, so later migrations can refer to them on either kind of database.
+
+CREATE TABLE users (
+    user_id           varchar(255) NOT NULL PRIMARY KEY,
+    username          varchar(255) NOT NULL,
+    email             varchar(255) NOT NULL,
+    password          varchar(255) NOT NULL,
+    first_name        varchar(255),
+    last_name         varchar(255),
+    phone_number      varchar(255),
+    registration_date timestamp(6) NOT NULL,
+    last_login        timestamp(6),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email)
+);
+
+CREATE TABLE roles (
+    role_id varchar(255) NOT NULL PRIMARY KEY,
+    name    varchar(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE user_roles (
+    user_id varchar(255) NOT NULL,
+    role_id varchar(255) NOT NULL,
+    PRIMARY KEY (role_id, user_id)
+);
+
+CREATE TABLE addresses (
+    address_id   varchar(255) NOT NULL PRIMARY KEY,
+    user_id      varchar(255),
+    street       varchar(255) NOT NULL,
+    city         varchar(255) NOT NULL,
+    state        varchar(255) NOT NULL,
+    postal_code  varchar(255) NOT NULL,
+    country      varchar(255) NOT NULL,
+    address_type varchar(255),
+    created_at   timestamp(6) NOT NULL,
+    updated_at   timestamp(6) NOT NULL
+);
+
+CREATE TABLE categories (
+    category_id varchar(255) NOT NULL PRIMARY KEY,
+    name        varchar(255) NOT NULL UNIQUE,
+    description TEXT,
+    created_at  timestamp(6) NOT NULL,
+    updated_at  timestamp(6) NOT NULL
+);
+
+CREATE TABLE products (
+    product_id        varchar(255)   NOT NULL PRIMARY KEY,
+    name              varchar(255)   NOT NULL,
+    description       TEXT,
+    price             numeric(38, 2) NOT NULL,
+    stock_quantity    integer        NOT NULL,
+    reorder_threshold integer,
+    image_url         varchar(255),
+    category_id       varchar(255),
+    created_at        timestamp(6)   NOT NULL,
+    updated_at        timestamp(6)   NOT NULL
+);
+
+CREATE TABLE carts (
+    cart_id    varchar(255) NOT NULL PRIMARY KEY,
+    user_id    varchar(255) UNIQUE,
+    created_at timestamp(6) NOT NULL,
+    updated_at timestamp(6) NOT NULL
+);
+
+CREATE TABLE cart_items (
+    cart_item_id      varchar(255)   NOT NULL PRIMARY KEY,
+    cart_id           varchar(255)   NOT NULL,
+    product_id        varchar(255)   NOT NULL,
+    quantity          integer        NOT NULL,
+    price_at_addition numeric(38, 2) NOT NULL,
+    added_at          timestamp(6)   NOT NULL
+);
+
+CREATE TABLE orders (
+    order_id            varchar(255)   NOT NULL PRIMARY KEY,
+    user_id             varchar(255)   NOT NULL,
+    order_date          timestamp(6)   NOT NULL,
+    status              varchar(255)   NOT NULL
+        CHECK (status IN ('PENDING', 'PROCESSING', 'SHIPPED', 'DELIVERED', 'CANCELLED', 'REFUNDED')),
+    subtotal            numeric(38, 2),
+    discount_amount     numeric(38, 2),
+    tax_amount          numeric(38, 2),
+    shipping_amount     numeric(38, 2),
+    total_amount        numeric(38, 2) NOT NULL,
+    shipping_address_id varchar(255)   NOT NULL
+);
+
+CREATE TABLE order_items (
+    order_item_id     varchar(255)   NOT NULL PRIMARY KEY,
+    order_id          varchar(255)   NOT NULL,
+    product_id        varchar(255)   NOT NULL,
+    category_id       varchar(255),
+    quantity          integer        NOT NULL,
+    price_at_purchase numeric(38, 2) NOT NULL
+);
+
+CREATE TABLE payments (
+    payment_id     varchar(255)   NOT NULL PRIMARY KEY,
+    order_id       varchar(255)   NOT NULL UNIQUE,
+    amount         numeric(38, 2) NOT NULL,
+    payment_method varchar(255)   NOT NULL,
+    transaction_id varchar(255)   NOT NULL UNIQUE,
+    status         varchar(255)   NOT NULL
+        CHECK (status IN ('PENDING', 'COMPLETED', 'FAILED', 'REFUNDED', 'AUTHORIZED')),
+    payment_date   timestamp(6)   NOT NULL
+);
+
+CREATE TABLE pricing_rules (
+    rule_id           varchar(255) NOT NULL PRIMARY KEY,
+    rule_type         varchar(255) NOT NULL CHECK (rule_type IN ('TAX', 'SHIPPING', 'PROMOTION')),
+    active            boolean      NOT NULL,
+    country           varchar(255),
+    state             varchar(255),
+    postal_prefix     varchar(255),
+    category_id       varchar(255),
+    rate_basis_points integer,
+    flat_amount       numeric(38, 2),
+    min_subtotal      numeric(38, 2),
+    created_at        timestamp(6) NOT NULL,
+    updated_at        timestamp(6) NOT NULL
+);
+
+CREATE TABLE refresh_tokens (
+    token_id    varchar(255) NOT NULL PRIMARY KEY,
+    token_hash  varchar(64)  NOT NULL UNIQUE,
+    user_id     varchar(255) NOT NULL,
+    family_id   varchar(255) NOT NULL,
+    expires_at  timestamp(6) NOT NULL,
+    revoked_at  timestamp(6),
+    replaced_by varchar(255),
+    created_at  timestamp(6) NOT NULL
+);
+
+CREATE INDEX idx_refresh_tokens_family_id ON refresh_tokens (family_id);
+CREATE INDEX idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
+
+CREATE TABLE revoked_tokens (
+    jti        varchar(255) NOT NULL PRIMARY KEY,
+    expires_at timestamp(6) NOT NULL,
+    revoked_at timestamp(6) NOT NULL
+);
+
+CREATE INDEX idx_revoked_tokens_revoked_at ON revoked_tokens (revoked_at);
+
+CREATE TABLE sales_rollups (
+    granularity  varchar(8)     NOT NULL CHECK (granularity IN ('HOUR', 'DAY')),
+    bucket_start timestamp(6)   NOT NULL,
+    dimension    varchar(16)    NOT NULL CHECK (dimension IN ('TOTAL', 'PRODUCT', 'CATEGORY')),
+    dimension_id varchar(255)   NOT NULL,
+    status       varchar(16)    NOT NULL
+        CHECK (status IN ('PENDING', 'PROCESSING', 'SHIPPED', 'DELIVERED', 'CANCELLED', 'REFUNDED')),
+    order_count  bigint         NOT NULL,
+    units        bigint         NOT NULL,
+    revenue      numeric(38, 2) NOT NULL,
+    PRIMARY KEY (bucket_start, granularity, dimension, status, dimension_id)
+);
+
+ALTER TABLE addresses ADD CONSTRAINT FK1fa36y2oqhao3wgg2rw1pi459 FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE cart_items ADD CONSTRAINT FKpcttvuq4mxppo8sxggjtn5i2c FOREIGN KEY (cart_id) REFERENCES carts;
+ALTER TABLE cart_items ADD CONSTRAINT FK1re40cjegsfvw58xrkdp6bac6 FOREIGN KEY (product_id) REFERENCES products;
+ALTER TABLE carts ADD CONSTRAINT FKb5o626f86h46m4s7ms6ginnop FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE order_items ADD CONSTRAINT FKbioxgbv59vetrxe0ejfubep1w FOREIGN KEY (order_id) REFERENCES orders;
+ALTER TABLE order_items ADD CONSTRAINT FKocimc7dtr037rh4ls4l95nlfi FOREIGN KEY (product_id) REFERENCES products;
+ALTER TABLE orders ADD CONSTRAINT FKmk6q95x8ffidq82wlqjaq7sqc FOREIGN KEY (shipping_address_id) REFERENCES addresses;
+ALTER TABLE orders ADD CONSTRAINT FK32ql8ubntj5uh44ph9659tiih FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE payments ADD CONSTRAINT FK81gagumt0r8y3rmudcgpbk42l FOREIGN KEY (order_id) REFERENCES orders;
+ALTER TABLE products ADD CONSTRAINT FKog2rp4qthbtt2lfyhfo32lsw9 FOREIGN KEY (category_id) REFERENCES categories;
+ALTER TABLE refresh_tokens ADD CONSTRAINT FK1lih5y2npsf8u5o3vhdb9y0os FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE user_roles ADD CONSTRAINT FKh8ciramu9cc9q3qcqiv4ue8a6 FOREIGN KEY (role_id) REFERENCES roles;
+ALTER TABLE user_roles ADD CONSTRAINT FKhfh9dx7w3ubf1co1vdev94g3f FOREIGN KEY (user_id) REFERENCES users;
@@ -0,0 +1,3 @@
+-- Trigram operator classes for the product name search index in V3. Kept apart from V3 because
+-- CREATE EXTENSION runs in a transaction and CREATE INDEX CONCURRENTLY cannot.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,39 @@
+-- Secondary indexes for the repository queries. CONCURRENTLY so adding them to a live database does not
+-- block writes; Flyway runs this script outside a transaction (spring.flyway.postgresql.transactional-lock=false).
+-- QueryPlanTest checks that every repository query can use one of these instead of a sequential scan.
+
+-- cart lines: findByCartAndProduct, findByCart; product_id for the foreign key
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cart_items_cart_product ON cart_items (cart_id, product_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cart_items_product ON cart_items (product_id);
+
+-- orders: a customer's orders, the admin listing by date, counts and revenue by status
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_user_date ON orders (user_id, order_date DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_order_date ON orders (order_date DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_status ON orders (status) INCLUDE (total_amount);
+-- the pending queue is a small, hot slice of the table
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_pending ON orders (order_date) WHERE status = 'PENDING';
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_orders_shipping_address ON orders (shipping_address_id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_items_order ON order_items (order_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_order_items_product ON order_items (product_id);
+
+-- catalog browsing and search
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_category ON products (category_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_price ON products (price);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_stock ON products (stock_quantity);
+-- searchProducts matches LIKE '%term%', which only a trigram index (pg_trgm, V2) can serve
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_name_trgm ON products USING gin (name gin_trgm_ops);
+-- findByNameIgnoreCase compares upper(name)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_products_name_upper ON products (upper(name));
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_categories_name_upper ON categories (upper(name));
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_addresses_user ON addresses (user_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_roles_user ON user_roles (user_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_refresh_tokens_user ON refresh_tokens (user_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_pricing_rules_updated_at ON pricing_rules (updated_at);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
+
+-- prefix search for the admin user listing (LIKE 'abc%' needs pattern ops under a non-C collation);
+-- previously created from db/indexes.sql, hence IF NOT EXISTS
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_username_prefix ON users (username text_pattern_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_email_prefix ON users (lower(email) text_pattern_ops);
@@ -0,0 +1,5 @@
+-- Version columns for optimistic locking (@Version). Existing rows start at 0; adding a column with a constant
+-- default does not rewrite the table.
+ALTER TABLE products ADD COLUMN version bigint NOT NULL DEFAULT 0;
+ALTER TABLE carts ADD COLUMN version bigint NOT NULL DEFAULT 0;
+ALTER TABLE orders ADD COLUMN version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,148 @@
+-- Range-partitions orders and order_items by month of order_date, so old months can be archived and dropped
+-- whole and queries on recent orders only touch recent partitions. order_items and payments carry a copy of
+-- their order's date, which foreign keys to a partitioned table have to include.
+--
+-- Rewrites both tables under an exclusive lock: run it in a maintenance window on large databases.
+
+CREATE FUNCTION create_order_partitions(first_month date, last_month date) RETURNS integer AS $$
+DECLARE
+    month_start date := date_trunc('month', first_month);
+    suffix      text;
+    created     integer := 0;
+BEGIN
+    WHILE month_start <= last_month LOOP
+        suffix := to_char(month_start, 'YYYY_MM');
+        IF to_regclass('orders_' || suffix) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                           'orders_' || suffix, month_start, (month_start + interval '1 month')::date);
+            EXECUTE format('CREATE TABLE %I PARTITION OF order_items FOR VALUES FROM (%L) TO (%L)',
+                           'order_items_' || suffix, month_start, (month_start + interval '1 month')::date);
+            created := created + 1;
+        END IF;
+        month_start := (month_start + interval '1 month')::date;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- drops the monthly partitions before the given month that archival has emptied. Payments and order items
+-- reference orders, so the orders partition is detached (which checks that nothing refers to it) before dropping.
+CREATE FUNCTION drop_empty_order_partitions(before_month date) RETURNS integer AS $$
+DECLARE
+    part_name text;
+    has_rows  boolean;
+    locked    boolean := false;
+    dropped   integer := 0;
+BEGIN
+    FOR part_name IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'orders'::regclass
+          AND c.relname ~ '^orders_\d{4}_\d{2}$'
+          AND to_date(substr(c.relname, 8), 'YYYY_MM') < before_month
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', part_name) INTO has_rows;
+        IF NOT has_rows AND NOT locked THEN
+            -- parents first, in the order queries take them, then check again under the lock
+            LOCK TABLE orders, order_items IN ACCESS EXCLUSIVE MODE;
+            locked := true;
+            EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I)', part_name) INTO has_rows;
+        END IF;
+        IF NOT has_rows THEN
+            EXECUTE format('DROP TABLE %I', 'order_items_' || substr(part_name, 8));
+            EXECUTE format('ALTER TABLE orders DETACH PARTITION %I', part_name);
+            EXECUTE format('DROP TABLE %I', part_name);
+            dropped := dropped + 1;
+        END IF;
+    END LOOP;
+    RETURN dropped;
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE order_items DROP CONSTRAINT FKbioxgbv59vetrxe0ejfubep1w;
+ALTER TABLE payments DROP CONSTRAINT FK81gagumt0r8y3rmudcgpbk42l;
+DROP INDEX idx_orders_user_date, idx_orders_order_date, idx_orders_status, idx_orders_pending,
+    idx_orders_shipping_address, idx_order_items_order, idx_order_items_product;
+ALTER TABLE orders RENAME TO orders_unpartitioned;
+ALTER TABLE orders_unpartitioned RENAME CONSTRAINT orders_pkey TO orders_unpartitioned_pkey;
+ALTER TABLE order_items RENAME TO order_items_unpartitioned;
+ALTER TABLE order_items_unpartitioned RENAME CONSTRAINT order_items_pkey TO order_items_unpartitioned_pkey;
+
+-- the primary key of a partitioned table has to include the partition key
+CREATE TABLE orders (
+    order_id            varchar(255)   NOT NULL,
+    user_id             varchar(255)   NOT NULL,
+    order_date          timestamp(6)   NOT NULL,
+    status              varchar(255)   NOT NULL
+        CHECK (status IN ('PENDING', 'PROCESSING', 'SHIPPED', 'DELIVERED', 'CANCELLED', 'REFUNDED')),
+    subtotal            numeric(38, 2),
+    discount_amount     numeric(38, 2),
+    tax_amount          numeric(38, 2),
+    shipping_amount     numeric(38, 2),
+    total_amount        numeric(38, 2) NOT NULL,
+    shipping_address_id varchar(255)   NOT NULL,
+    version             bigint         NOT NULL DEFAULT 0,
+    CONSTRAINT orders_pkey PRIMARY KEY (order_id, order_date)
+) PARTITION BY RANGE (order_date);
+
+CREATE TABLE order_items (
+    order_item_id     varchar(255)   NOT NULL,
+    order_id          varchar(255)   NOT NULL,
+    order_date        timestamp(6)   NOT NULL,
+    product_id        varchar(255)   NOT NULL,
+    category_id       varchar(255),
+    quantity          integer        NOT NULL,
+    price_at_purchase numeric(38, 2) NOT NULL,
+    CONSTRAINT order_items_pkey PRIMARY KEY (order_item_id, order_date)
+) PARTITION BY RANGE (order_date);
+
+SELECT create_order_partitions(
+        LEAST((SELECT min(order_date) FROM orders_unpartitioned), now())::date,
+        (now() + interval '3 months')::date);
+
+INSERT INTO orders (order_id, user_id, order_date, status, subtotal, discount_amount, tax_amount, shipping_amount,
+                    total_amount, shipping_address_id, version)
+SELECT order_id, user_id, order_date, status, subtotal, discount_amount, tax_amount, shipping_amount,
+       total_amount, shipping_address_id, version
+FROM orders_unpartitioned;
+
+INSERT INTO order_items (order_item_id, order_id, order_date, product_id, category_id, quantity, price_at_purchase)
+SELECT oi.order_item_id, oi.order_id, o.order_date, oi.product_id, oi.category_id, oi.quantity, oi.price_at_purchase
+FROM order_items_unpartitioned oi
+JOIN orders_unpartitioned o ON o.order_id = oi.order_id;
+
+ALTER TABLE payments ADD COLUMN order_date timestamp(6);
+UPDATE payments p SET order_date = o.order_date FROM orders_unpartitioned o WHERE o.order_id = p.order_id;
+ALTER TABLE payments ALTER COLUMN order_date SET NOT NULL;
+
+DROP TABLE order_items_unpartitioned;
+DROP TABLE orders_unpartitioned;
+
+ALTER TABLE orders ADD CONSTRAINT FK32ql8ubntj5uh44ph9659tiih FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE orders ADD CONSTRAINT FKmk6q95x8ffidq82wlqjaq7sqc FOREIGN KEY (shipping_address_id) REFERENCES addresses;
+ALTER TABLE order_items ADD CONSTRAINT FKbioxgbv59vetrxe0ejfubep1w
+    FOREIGN KEY (order_id, order_date) REFERENCES orders (order_id, order_date);
+ALTER TABLE order_items ADD CONSTRAINT FKocimc7dtr037rh4ls4l95nlfi FOREIGN KEY (product_id) REFERENCES products;
+ALTER TABLE payments ADD CONSTRAINT FK81gagumt0r8y3rmudcgpbk42l
+    FOREIGN KEY (order_id, order_date) REFERENCES orders (order_id, order_date);
+
+-- the V3 indexes, now on every partition; lookups by order id alone probe each partition's primary key
+CREATE INDEX idx_orders_user_date ON orders (user_id, order_date DESC);
+CREATE INDEX idx_orders_order_date ON orders (order_date DESC);
+CREATE INDEX idx_orders_status ON orders (status) INCLUDE (total_amount);
+CREATE INDEX idx_orders_pending ON orders (order_date) WHERE status = 'PENDING';
+CREATE INDEX idx_orders_shipping_address ON orders (shipping_address_id);
+CREATE INDEX idx_order_items_order ON order_items (order_id);
+CREATE INDEX idx_order_items_product ON order_items (product_id);
+
+-- one row per archive file written by the archival job; the totals keep archived orders in the dashboard figures
+CREATE TABLE order_archives (
+    archive_id   varchar(255)   NOT NULL PRIMARY KEY,
+    period_start date           NOT NULL,
+    file_name    varchar(255)   NOT NULL UNIQUE,
+    order_count  integer        NOT NULL,
+    total_amount numeric(38, 2) NOT NULL,
+    created_at   timestamp(6)   NOT NULL
+);
+
+CREATE INDEX idx_order_archives_period_start ON order_archives (period_start);
@@ -0,0 +1,24 @@
+-- Append-only stock ledger: one row per signed stock change with the stock it left, so the stock at any point in
+-- time is the stock_after of the product's last movement at or before it. products.stock_quantity stays the
+-- current stock; it is written in the same transaction as the ledger rows, under the product's row lock.
+CREATE TABLE stock_movements (
+    movement_id   varchar(255) NOT NULL PRIMARY KEY,
+    product_id    varchar(255) NOT NULL,
+    movement_type varchar(255) NOT NULL,
+    quantity      integer      NOT NULL,
+    stock_after   integer      NOT NULL,
+    order_id      varchar(255), -- the order of a SALE, when known; not a foreign key, orders are archived
+    created_at    timestamp(6) NOT NULL
+);
+
+ALTER TABLE stock_movements ADD CONSTRAINT fk_stock_movements_product FOREIGN KEY (product_id) REFERENCES products ON DELETE CASCADE;
+
+-- point-in-time lookups and a product's history, newest first; also serves the foreign key
+CREATE INDEX idx_stock_movements_product_time ON stock_movements (product_id, created_at DESC, movement_id DESC);
+-- compaction picks the oldest movements not compacted yet
+CREATE INDEX idx_stock_movements_uncompacted ON stock_movements (created_at) WHERE movement_type <> 'COMPACTED';
+
+-- opening balance of the existing products
+INSERT INTO stock_movements (movement_id, product_id, movement_type, quantity, stock_after, created_at)
+SELECT gen_random_uuid()::text, p.product_id, 'ADJUSTMENT', p.stock_quantity, p.stock_quantity, now()
+FROM products p;
@@ -0,0 +1,84 @@
+-- Primary keys and the columns referring to them become native uuid (16 bytes, compared as binary) instead of
+-- varchar(255) holding 36 characters: smaller indexes and cheaper comparisons on every lookup and join. Existing
+-- keys are random or time-ordered UUIDs, so every value converts.
+--
+-- Rewrites every table it touches under an exclusive lock: run it in a maintenance window on large databases.
+
+ALTER TABLE addresses DROP CONSTRAINT FK1fa36y2oqhao3wgg2rw1pi459;
+ALTER TABLE cart_items DROP CONSTRAINT FKpcttvuq4mxppo8sxggjtn5i2c;
+ALTER TABLE cart_items DROP CONSTRAINT FK1re40cjegsfvw58xrkdp6bac6;
+ALTER TABLE carts DROP CONSTRAINT FKb5o626f86h46m4s7ms6ginnop;
+ALTER TABLE order_items DROP CONSTRAINT FKbioxgbv59vetrxe0ejfubep1w;
+ALTER TABLE order_items DROP CONSTRAINT FKocimc7dtr037rh4ls4l95nlfi;
+ALTER TABLE orders DROP CONSTRAINT FKmk6q95x8ffidq82wlqjaq7sqc;
+ALTER TABLE orders DROP CONSTRAINT FK32ql8ubntj5uh44ph9659tiih;
+ALTER TABLE payments DROP CONSTRAINT FK81gagumt0r8y3rmudcgpbk42l;
+ALTER TABLE products DROP CONSTRAINT FKog2rp4qthbtt2lfyhfo32lsw9;
+ALTER TABLE refresh_tokens DROP CONSTRAINT FK1lih5y2npsf8u5o3vhdb9y0os;
+ALTER TABLE user_roles DROP CONSTRAINT FKh8ciramu9cc9q3qcqiv4ue8a6;
+ALTER TABLE user_roles DROP CONSTRAINT FKhfh9dx7w3ubf1co1vdev94g3f;
+ALTER TABLE stock_movements DROP CONSTRAINT fk_stock_movements_product;
+
+ALTER TABLE users ALTER COLUMN user_id TYPE uuid USING user_id::uuid;
+ALTER TABLE roles ALTER COLUMN role_id TYPE uuid USING role_id::uuid;
+ALTER TABLE user_roles
+    ALTER COLUMN user_id TYPE uuid USING user_id::uuid,
+    ALTER COLUMN role_id TYPE uuid USING role_id::uuid;
+ALTER TABLE addresses
+    ALTER COLUMN address_id TYPE uuid USING address_id::uuid,
+    ALTER COLUMN user_id TYPE uuid USING user_id::uuid;
+ALTER TABLE categories ALTER COLUMN category_id TYPE uuid USING category_id::uuid;
+ALTER TABLE products
+    ALTER COLUMN product_id TYPE uuid USING product_id::uuid,
+    ALTER COLUMN category_id TYPE uuid USING category_id::uuid;
+ALTER TABLE carts
+    ALTER COLUMN cart_id TYPE uuid USING cart_id::uuid,
+    ALTER COLUMN user_id TYPE uuid USING user_id::uuid;
+ALTER TABLE cart_items
+    ALTER COLUMN cart_item_id TYPE uuid USING cart_item_id::uuid,
+    ALTER COLUMN cart_id TYPE uuid USING cart_id::uuid,
+    ALTER COLUMN product_id TYPE uuid USING product_id::uuid;
+-- on the partitioned tables this recurses into every partition
+ALTER TABLE orders
+    ALTER COLUMN order_id TYPE uuid USING order_id::uuid,
+    ALTER COLUMN user_id TYPE uuid USING user_id::uuid,
+    ALTER COLUMN shipping_address_id TYPE uuid USING shipping_address_id::uuid;
+ALTER TABLE order_items
+    ALTER COLUMN order_item_id TYPE uuid USING order_item_id::uuid,
+    ALTER COLUMN order_id TYPE uuid USING order_id::uuid,
+    ALTER COLUMN product_id TYPE uuid USING product_id::uuid,
+    ALTER COLUMN category_id TYPE uuid USING category_id::uuid;
+ALTER TABLE payments
+    ALTER COLUMN payment_id TYPE uuid USING payment_id::uuid,
+    ALTER COLUMN order_id TYPE uuid USING order_id::uuid;
+ALTER TABLE pricing_rules
+    ALTER COLUMN rule_id TYPE uuid USING rule_id::uuid,
+    ALTER COLUMN category_id TYPE uuid USING category_id::uuid;
+ALTER TABLE refresh_tokens
+    ALTER COLUMN token_id TYPE uuid USING token_id::uuid,
+    ALTER COLUMN user_id TYPE uuid USING user_id::uuid,
+    ALTER COLUMN family_id TYPE uuid USING family_id::uuid,
+    ALTER COLUMN replaced_by TYPE uuid USING replaced_by::uuid;
+ALTER TABLE stock_movements
+    ALTER COLUMN movement_id TYPE uuid USING movement_id::uuid,
+    ALTER COLUMN product_id TYPE uuid USING product_id::uuid,
+    ALTER COLUMN order_id TYPE uuid USING order_id::uuid;
+ALTER TABLE order_archives ALTER COLUMN archive_id TYPE uuid USING archive_id::uuid;
+
+ALTER TABLE addresses ADD CONSTRAINT FK1fa36y2oqhao3wgg2rw1pi459 FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE cart_items ADD CONSTRAINT FKpcttvuq4mxppo8sxggjtn5i2c FOREIGN KEY (cart_id) REFERENCES carts;
+ALTER TABLE cart_items ADD CONSTRAINT FK1re40cjegsfvw58xrkdp6bac6 FOREIGN KEY (product_id) REFERENCES products;
+ALTER TABLE carts ADD CONSTRAINT FKb5o626f86h46m4s7ms6ginnop FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE order_items ADD CONSTRAINT FKbioxgbv59vetrxe0ejfubep1w
+    FOREIGN KEY (order_id, order_date) REFERENCES orders (order_id, order_date);
+ALTER TABLE order_items ADD CONSTRAINT FKocimc7dtr037rh4ls4l95nlfi FOREIGN KEY (product_id) REFERENCES products;
+ALTER TABLE orders ADD CONSTRAINT FKmk6q95x8ffidq82wlqjaq7sqc FOREIGN KEY (shipping_address_id) REFERENCES addresses;
+ALTER TABLE orders ADD CONSTRAINT FK32ql8ubntj5uh44ph9659tiih FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE payments ADD CONSTRAINT FK81gagumt0r8y3rmudcgpbk42l
+    FOREIGN KEY (order_id, order_date) REFERENCES orders (order_id, order_date);
+ALTER TABLE products ADD CONSTRAINT FKog2rp4qthbtt2lfyhfo32lsw9 FOREIGN KEY (category_id) REFERENCES categories;
+ALTER TABLE refresh_tokens ADD CONSTRAINT FK1lih5y2npsf8u5o3vhdb9y0os FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE user_roles ADD CONSTRAINT FKh8ciramu9cc9q3qcqiv4ue8a6 FOREIGN KEY (role_id) REFERENCES roles;
+ALTER TABLE user_roles ADD CONSTRAINT FKhfh9dx7w3ubf1co1vdev94g3f FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE stock_movements ADD CONSTRAINT fk_stock_movements_product
+    FOREIGN KEY (product_id) REFERENCES products ON DELETE CASCADE;
@@ -0,0 +1,13 @@
+-- Which archive file holds each archived order, so a lookup by order id opens exactly that file, and an id that
+-- was never archived is answered from this index without opening any. Rows are written in the transaction that
+-- archives the orders; archives written before this migration are indexed from their files at startup.
+--
+-- order_id is unique here, while orders only has (order_id, order_date) as its primary key. No guard is needed
+-- there: order ids are generated by the application, never taken from a request, and order_date is not
+-- updatable, so an order cannot appear in two partitions.
+CREATE TABLE archived_orders (
+    order_id   uuid NOT NULL PRIMARY KEY,
+    archive_id uuid NOT NULL REFERENCES order_archives ON DELETE CASCADE
+);
+
+CREATE INDEX idx_archived_orders_archive ON archived_orders (archive_id);
@@ -0,0 +1,9 @@
+-- The stock ledger is append-only history and has to outlive the products it records: deleting a product no
+-- longer cascades to its movements. product_id is not a foreign key any more, like order_id; it stays indexed
+-- by idx_stock_movements_product_time. (RESTRICT would block deleting any product, since every product has an
+-- opening movement.)
+ALTER TABLE stock_movements DROP CONSTRAINT fk_stock_movements_product;
+
+-- compaction folds the oldest movements in ledger order, time then id, so a batch ends at an exact movement
+DROP INDEX idx_stock_movements_uncompacted;
+CREATE INDEX idx_stock_movements_uncompacted ON stock_movements (created_at, movement_id) WHERE movement_type <> 'COMPACTED';
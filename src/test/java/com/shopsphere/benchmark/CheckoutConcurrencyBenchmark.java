@@ -0,0 +1,202 @@
+package com.shopsphere.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrent checkouts shaped like OrderService.placeOrder: read the cart, read and decrement the product's
+ * stock, insert the order, empty the cart (and refill it for the next iteration). Compares the old SERIALIZABLE
+ * transaction, retried on serialization failures, with READ COMMITTED plus a version check, retried when the
+ * versioned UPDATE matches no row. hotProducts sets the contention: every checkout buys one of that many products.
+ * The retries counter is the number of conflicts per operation.
+ * Needs a scratch PostgreSQL database:
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     "-Dexec.args=-Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bench -Dbenchmark.jdbc.user=postgres \
+ *     -Dbenchmark.jdbc.password=postgres -cp %classpath com.shopsphere.benchmark.CheckoutConcurrencyBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(16)
+@Fork(1)
+public class CheckoutConcurrencyBenchmark {
+
+    private static final int PRODUCTS = 1000;
+
+    @Param({"SERIALIZABLE", "OPTIMISTIC"})
+    private String locking;
+
+    @Param({"10", "1000"})
+    private int hotProducts;
+
+    private final AtomicInteger nextCart = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS checkout_bench_orders, checkout_bench_cart_items, checkout_bench_products");
+            statement.execute("CREATE TABLE checkout_bench_products (product_id varchar(255) PRIMARY KEY, "
+                    + "stock_quantity integer NOT NULL, version bigint NOT NULL DEFAULT 0)");
+            statement.execute("CREATE TABLE checkout_bench_cart_items (cart_item_id varchar(255) PRIMARY KEY, "
+                    + "cart_id varchar(255) NOT NULL, product_id varchar(255) NOT NULL, quantity integer NOT NULL)");
+            statement.execute("CREATE INDEX ON checkout_bench_cart_items (cart_id)");
+            statement.execute("CREATE TABLE checkout_bench_orders (order_id varchar(255) PRIMARY KEY, "
+                    + "cart_id varchar(255) NOT NULL, product_id varchar(255) NOT NULL, quantity integer NOT NULL, "
+                    + "order_date timestamp NOT NULL DEFAULT now())");
+            statement.execute("INSERT INTO checkout_bench_products SELECT 'product-' || i, 1000000000, 0 "
+                    + "FROM generate_series(0, " + (PRODUCTS - 1) + ") i");
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+        private Connection connection;
+        private String cartId;
+        private PreparedStatement readCart;
+        private PreparedStatement readProduct;
+        private PreparedStatement updateStock;
+        private PreparedStatement updateStockIfVersion;
+        private PreparedStatement insertOrder;
+        private PreparedStatement emptyCart;
+        private PreparedStatement addToCart;
+
+        @Setup(Level.Trial)
+        public void setUp(CheckoutConcurrencyBenchmark benchmark) throws SQLException {
+            connection = connect();
+            cartId = "cart-" + benchmark.nextCart.getAndIncrement();
+            readCart = connection.prepareStatement(
+                    "SELECT product_id, quantity FROM checkout_bench_cart_items WHERE cart_id = ?");
+            readProduct = connection.prepareStatement(
+                    "SELECT stock_quantity, version FROM checkout_bench_products WHERE product_id = ?");
+            updateStock = connection.prepareStatement(
+                    "UPDATE checkout_bench_products SET stock_quantity = ? WHERE product_id = ?");
+            updateStockIfVersion = connection.prepareStatement(
+                    "UPDATE checkout_bench_products SET stock_quantity = ?, version = version + 1 "
+                            + "WHERE product_id = ? AND version = ?");
+            insertOrder = connection.prepareStatement(
+                    "INSERT INTO checkout_bench_orders (order_id, cart_id, product_id, quantity) VALUES (?, ?, ?, ?)");
+            emptyCart = connection.prepareStatement("DELETE FROM checkout_bench_cart_items WHERE cart_id = ?");
+            addToCart = connection.prepareStatement(
+                    "INSERT INTO checkout_bench_cart_items (cart_item_id, cart_id, product_id, quantity) VALUES (?, ?, ?, 1)");
+            connection.setTransactionIsolation("SERIALIZABLE".equals(benchmark.locking)
+                    ? Connection.TRANSACTION_SERIALIZABLE : Connection.TRANSACTION_READ_COMMITTED);
+            refill(benchmark.hotProducts);
+            connection.setAutoCommit(false);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+
+        private void refill(int hotProducts) throws SQLException {
+            addToCart.setString(1, UUID.randomUUID().toString());
+            addToCart.setString(2, cartId);
+            addToCart.setString(3, "product-" + ThreadLocalRandom.current().nextInt(hotProducts));
+            addToCart.executeUpdate();
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Conflicts {
+        public long retries;
+    }
+
+    @Benchmark
+    public void checkout(Session session, Conflicts conflicts) throws SQLException {
+        while (!attempt(session)) {
+            conflicts.retries++;
+        }
+    }
+
+    /**
+     * @return false if the transaction hit a conflict and was rolled back.
+     */
+    private boolean attempt(Session session) throws SQLException {
+        boolean optimistic = "OPTIMISTIC".equals(locking);
+        try {
+            session.readCart.setString(1, session.cartId);
+            String productId;
+            int quantity;
+            try (ResultSet rs = session.readCart.executeQuery()) {
+                rs.next();
+                productId = rs.getString(1);
+                quantity = rs.getInt(2);
+            }
+            session.readProduct.setString(1, productId);
+            int stock;
+            long version;
+            try (ResultSet rs = session.readProduct.executeQuery()) {
+                rs.next();
+                stock = rs.getInt(1);
+                version = rs.getLong(2);
+            }
+            if (optimistic) {
+                session.updateStockIfVersion.setInt(1, stock - quantity);
+                session.updateStockIfVersion.setString(2, productId);
+                session.updateStockIfVersion.setLong(3, version);
+                if (session.updateStockIfVersion.executeUpdate() == 0) {
+                    session.connection.rollback();
+                    return false;
+                }
+            } else {
+                session.updateStock.setInt(1, stock - quantity);
+                session.updateStock.setString(2, productId);
+                session.updateStock.executeUpdate();
+            }
+            session.insertOrder.setString(1, UUID.randomUUID().toString());
+            session.insertOrder.setString(2, session.cartId);
+            session.insertOrder.setString(3, productId);
+            session.insertOrder.setInt(4, quantity);
+            session.insertOrder.executeUpdate();
+            session.emptyCart.setString(1, session.cartId);
+            session.emptyCart.executeUpdate();
+            session.refill(hotProducts);
+            session.connection.commit();
+            return true;
+        } catch (SQLException e) {
+            session.connection.rollback();
+            if ("40001".equals(e.getSQLState()) || "40P01".equals(e.getSQLState())) {
+                return false; // serialization failure or deadlock
+            }
+            throw e;
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(
+                System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/bench"),
+                System.getProperty("benchmark.jdbc.user", "postgres"),
+                System.getProperty("benchmark.jdbc.password", "postgres"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CheckoutConcurrencyBenchmark.class.getSimpleName())
+                .jvmArgsAppend("-Dbenchmark.jdbc.url=" + System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/bench"),
+                        "-Dbenchmark.jdbc.user=" + System.getProperty("benchmark.jdbc.user", "postgres"),
+                        "-Dbenchmark.jdbc.password=" + System.getProperty("benchmark.jdbc.password", "postgres"))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,125 @@
+package com.shopsphere.benchmark;
+
+import com.shopsphere.util.TimeOrderedIds;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched inserts into a table keyed like ours (uuid primary key, bound as a String), comparing random UUIDs with
+ * the time-ordered strategies once the table has grown past shared_buffers, and the uuid key column with the
+ * varchar(255) one it replaced. Each trial prints the primary key index size and the number of index leaf pages,
+ * which shows how much page splitting random keys cause. benchmark.preload-rows sets the starting table size.
+ * Needs a scratch PostgreSQL database:
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     "-Dexec.args=-Dbenchmark.jdbc.url=jdbc:postgresql://localhost:5432/bench -Dbenchmark.jdbc.user=postgres \
+ *     -Dbenchmark.jdbc.password=postgres -cp %classpath com.shopsphere.benchmark.IdInsertBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class IdInsertBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"RANDOM_UUID", "UUID_V7", "SNOWFLAKE"})
+    private String strategy;
+
+    @Param({"uuid", "varchar(255)"})
+    private String keyType;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private TimeOrderedIds.Snowflake snowflake;
+    private String table;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", System.getProperty("benchmark.jdbc.user", "postgres"));
+        properties.setProperty("password", System.getProperty("benchmark.jdbc.password", "postgres"));
+        properties.setProperty("stringtype", "unspecified"); // as the application's pool
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/bench"), properties);
+        snowflake = new TimeOrderedIds.Snowflake(1);
+        table = "id_bench_" + strategy.toLowerCase() + "_" + keyType.replaceAll("\\W", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            statement.execute("CREATE TABLE " + table + " (id " + keyType + " PRIMARY KEY, order_id " + keyType
+                    + " NOT NULL, quantity integer NOT NULL, created_at timestamp NOT NULL DEFAULT now())");
+        }
+        insert = connection.prepareStatement("INSERT INTO " + table + " (id, order_id, quantity) VALUES (?, ?, ?)");
+        connection.setAutoCommit(false);
+        int preloadRows = Integer.getInteger("benchmark.preload-rows", 2_000_000);
+        for (int i = 0; i < preloadRows / BATCH_SIZE; i++) {
+            insertBatch();
+        }
+    }
+
+    @Benchmark
+    public int insertBatch() throws SQLException {
+        String orderId = nextId();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setString(1, nextId());
+            insert.setString(2, orderId);
+            insert.setInt(3, i);
+            insert.addBatch();
+        }
+        int[] counts = insert.executeBatch();
+        connection.commit();
+        return counts.length;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS pgstattuple");
+            try (ResultSet rs = statement.executeQuery("SELECT count(*), pg_relation_size('" + table + "_pkey'), "
+                    + "(SELECT leaf_pages FROM pgstatindex('" + table + "_pkey')), "
+                    + "(SELECT avg_leaf_density FROM pgstatindex('" + table + "_pkey')) FROM " + table)) {
+                rs.next();
+                System.out.printf("%n%s %s: %,d rows, pkey index %,d bytes, %,d leaf pages, %.1f%% leaf density%n",
+                        strategy, keyType, rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getDouble(4));
+            }
+            statement.execute("DROP TABLE " + table);
+        }
+        connection.close();
+    }
+
+    private String nextId() {
+        return switch (strategy) {
+            case "UUID_V7" -> TimeOrderedIds.uuidV7();
+            case "SNOWFLAKE" -> snowflake.nextUuid();
+            default -> UUID.randomUUID().toString();
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(IdInsertBenchmark.class.getSimpleName())
+                .jvmArgsAppend("-Dbenchmark.jdbc.url=" + System.getProperty("benchmark.jdbc.url", "jdbc:postgresql://localhost:5432/bench"),
+                        "-Dbenchmark.jdbc.user=" + System.getProperty("benchmark.jdbc.user", "postgres"),
+                        "-Dbenchmark.jdbc.password=" + System.getProperty("benchmark.jdbc.password", "postgres"),
+                        "-Dbenchmark.preload-rows=" + Integer.getInteger("benchmark.preload-rows", 2_000_000))
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,89 @@
+package com.shopsphere.benchmark;
+
+import com.shopsphere.model.Money;
+import com.shopsphere.model.PricingRule;
+import com.shopsphere.model.enums.PricingRuleType;
+import com.shopsphere.service.pricing.CompiledPricingRules;
+import com.shopsphere.service.pricing.PriceQuote;
+import com.shopsphere.service.pricing.PricingInput;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.shopsphere.service.pricing.PricingRuleFixtures.rule;
+
+/**
+ * Pricing a 100-line cart against a realistic rule set (state and postal-prefix taxes, category taxes and
+ * promotions, shipping tiers). Run with the GC profiler to confirm evaluation does not allocate:
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     "-Dexec.args=-cp %classpath com.shopsphere.benchmark.PricingEngineBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingEngineBenchmark {
+
+    private static final String[] STATES = {"CA", "NY", "TX", "WA", "FL", "IL", "MA", "OR"};
+
+    @Param({"100"})
+    private int lines;
+
+    private CompiledPricingRules rules;
+    private PricingInput input;
+    private PriceQuote quote;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        List<PricingRule> ruleSet = new ArrayList<>();
+        ruleSet.add(rule(PricingRuleType.TAX, "US", null, null, null, 500, null, null));
+        for (String state : STATES) {
+            ruleSet.add(rule(PricingRuleType.TAX, "US", state, null, null, 400 + random.nextInt(600), null, null));
+        }
+        for (int prefix = 900; prefix < 1000; prefix++) {
+            ruleSet.add(rule(PricingRuleType.TAX, "US", null, String.valueOf(prefix), null, 700 + random.nextInt(300), null, null));
+        }
+        for (int category = 0; category < 20; category++) {
+            ruleSet.add(rule(PricingRuleType.TAX, "US", "CA", null, "cat-" + category, random.nextInt(1000), null, null));
+            ruleSet.add(rule(PricingRuleType.PROMOTION, null, null, null, "cat-" + category, random.nextInt(2000), null, null));
+        }
+        ruleSet.add(rule(PricingRuleType.PROMOTION, null, null, null, null, 1000, Money.ofMinor(20_000), null));
+        ruleSet.add(rule(PricingRuleType.SHIPPING, null, null, null, null, null, Money.ZERO, Money.ofMinor(1000)));
+        ruleSet.add(rule(PricingRuleType.SHIPPING, null, null, null, null, null, Money.ofMinor(3500), Money.ZERO));
+        rules = CompiledPricingRules.compile(ruleSet);
+
+        input = new PricingInput(lines);
+        input.setDestination("us", "ca", "94105");
+        for (int i = 0; i < lines; i++) {
+            input.addLine(99 + random.nextInt(20_000), 1 + random.nextInt(4), "cat-" + random.nextInt(25));
+        }
+        quote = new PriceQuote();
+    }
+
+    @Benchmark
+    public long price100LineCart() {
+        rules.evaluate(input, quote);
+        return quote.getTotal();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PricingEngineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
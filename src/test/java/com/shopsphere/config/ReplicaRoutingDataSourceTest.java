@@ -0,0 +1,195 @@
+package com.shopsphere.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the routing against two embedded PostgreSQL servers standing in for the primary and the replica. Each holds
+ * a one-row table naming the server, so a query shows where it was sent.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static EmbeddedPostgres primaryServer;
+    private static EmbeddedPostgres replicaServer;
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaLagMonitor lagMonitor;
+
+    @BeforeAll
+    static void startServers() throws Exception {
+        try {
+            primaryServer = EmbeddedPostgres.start();
+            replicaServer = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        label(primaryServer.getPostgresDatabase(), "primary");
+        label(replicaServer.getPostgresDatabase(), "replica");
+    }
+
+    @AfterAll
+    static void stopServers() throws Exception {
+        if (primaryServer != null) {
+            primaryServer.close();
+        }
+        if (replicaServer != null) {
+            replicaServer.close();
+        }
+    }
+
+    @AfterEach
+    void closePools() {
+        SecurityContextHolder.clearContext();
+        if (primary != null) {
+            primary.close();
+        }
+        if (replica != null) {
+            replica.close();
+        }
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        Routing routing = routing(5000);
+        lagMonitor.refresh();
+
+        assertTrue(lagMonitor.isReplicaUsable(), "a server that is not in recovery counts as current");
+        assertEquals("replica", routing.read());
+        assertEquals("primary", routing.write());
+        assertEquals("primary", routing.jdbc.queryForObject("SELECT name FROM node", String.class),
+                "work outside a transaction uses the primary");
+    }
+
+    @Test
+    void lagBeyondTheLimitKeepsReadsOnThePrimary() {
+        Routing routing = routing(5000);
+
+        assertEquals("primary", routing.read(), "lag is unknown until the first check");
+        lagMonitor.record(200);
+        assertEquals("replica", routing.read());
+        lagMonitor.record(1500);
+        assertEquals("primary", routing.read());
+        lagMonitor.record(0);
+        assertEquals("replica", routing.read());
+    }
+
+    @Test
+    void usersReadTheirOwnWritesFromThePrimary() {
+        Routing routing = routing(60_000);
+        lagMonitor.record(0);
+
+        authenticate("alice");
+        assertEquals("replica", routing.read());
+        routing.write();
+        assertEquals("primary", routing.read(), "pinned after her own write");
+
+        authenticate("bob");
+        assertEquals("replica", routing.read(), "other users are not pinned");
+    }
+
+    @Test
+    void rolledBackWritesDoNotPin() {
+        Routing routing = routing(60_000);
+        lagMonitor.record(0);
+        authenticate("alice");
+
+        routing.transactions.execute(status -> {
+            routing.jdbc.queryForObject("SELECT name FROM node", String.class);
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals("replica", routing.read());
+    }
+
+    @Test
+    void pinsExpire() {
+        Routing routing = routing(0);
+        lagMonitor.record(0);
+        authenticate("alice");
+
+        routing.write();
+
+        assertEquals("replica", routing.read());
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToThePrimary() {
+        Routing routing = routing(5000);
+        lagMonitor.record(0);
+        replica.close();
+
+        assertEquals("primary", routing.read());
+        assertFalse(lagMonitor.isReplicaUsable());
+
+        lagMonitor.refresh();
+        assertEquals(ReplicaLagMonitor.UNKNOWN, lagMonitor.getLagMillis());
+    }
+
+    private Routing routing(long pinAfterWriteMs) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        primary = pool(primaryServer);
+        replica = pool(replicaServer);
+        lagMonitor = new ReplicaLagMonitor(primary, replica, 1000, meterRegistry);
+        ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(primary, replica, lagMonitor, pinAfterWriteMs, meterRegistry);
+        return new Routing(new LazyConnectionDataSourceProxy(router));
+    }
+
+    private static HikariDataSource pool(EmbeddedPostgres server) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(server.getJdbcUrl("postgres", "postgres"));
+        pool.setMaximumPoolSize(2);
+        return pool;
+    }
+
+    private static void label(DataSource dataSource, String name) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name text)");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(username, null, List.of()));
+    }
+
+    private static final class Routing {
+        final JdbcTemplate jdbc;
+        final TransactionTemplate transactions;
+        final TransactionTemplate readOnlyTransactions;
+
+        Routing(DataSource dataSource) {
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.transactions = new TransactionTemplate(transactionManager);
+            this.readOnlyTransactions = new TransactionTemplate(transactionManager);
+            this.readOnlyTransactions.setReadOnly(true);
+        }
+
+        String read() {
+            return readOnlyTransactions.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+        }
+
+        String write() {
+            return transactions.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.shopsphere.event;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainEventBusTest {
+
+    @Test
+    void deliversEventsInOrderToSupportingHandlers() throws InterruptedException {
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(100);
+        DomainEventHandler stockHandler = new DomainEventHandler() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public boolean supports(DomainEvent event) {
+                return event instanceof StockChangedEvent;
+            }
+
+            @Override
+            public void onEvents(List<DomainEvent> events) {
+                events.forEach(e -> {
+                    received.add(((StockChangedEvent) e).getProductId());
+                    done.countDown();
+                });
+            }
+        };
+        DomainEventBus bus = newBus(BackpressurePolicy.BLOCK, stockHandler);
+        bus.start();
+        try {
+            for (int i = 0; i < 100; i++) {
+                bus.publish(new StockChangedEvent("p" + i, i, i + 1));
+                bus.publish(new ProductUpdatedEvent(ProductUpdatedEvent.ChangeType.DELETED, "p" + i, null));
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                assertEquals("p" + i, received.get(i));
+            }
+        } finally {
+            bus.stop();
+        }
+    }
+
+    @Test
+    void dropsWhenSlowestHandlerIsARingBehind() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        DomainEventHandler stuckHandler = new DomainEventHandler() {
+            @Override
+            public String getName() {
+                return "stuck";
+            }
+
+            @Override
+            public void onEvents(List<DomainEvent> events) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        DomainEventBus bus = newBus(BackpressurePolicy.DROP, stuckHandler);
+        bus.start();
+        try {
+            int accepted = 0;
+            for (int i = 0; i < 64; i++) {
+                if (bus.publish(new StockChangedEvent("p", 0, 1))) {
+                    accepted++;
+                }
+            }
+            // ring of 16 plus at most one batch already taken by the stuck handler
+            assertTrue(accepted < 64);
+            assertTrue(accepted >= 16);
+        } finally {
+            release.countDown();
+            bus.stop();
+        }
+    }
+
+    @Test
+    void clearsSlotsOnceConsumed() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(10);
+        DomainEventHandler handler = new DomainEventHandler() {
+            @Override
+            public String getName() {
+                return "counting";
+            }
+
+            @Override
+            public void onEvents(List<DomainEvent> events) {
+                events.forEach(e -> done.countDown());
+            }
+        };
+        DomainEventBus bus = newBus(BackpressurePolicy.BLOCK, handler);
+        bus.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                bus.publish(new StockChangedEvent("p" + i, i, i + 1));
+            }
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (bus.retainedEvents() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, bus.retainedEvents());
+        } finally {
+            bus.stop();
+        }
+    }
+
+    private static DomainEventBus newBus(BackpressurePolicy policy, DomainEventHandler handler) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("handler", handler);
+        return new DomainEventBus(16, 4, policy, 10, beanFactory.getBeanProvider(DomainEventHandler.class),
+                new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,39 @@
+package com.shopsphere.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void decimalInputRoundsHalfEvenToCents() {
+        assertEquals(1002, Money.of(new BigDecimal("10.025")).getMinorUnits());
+        assertEquals(1004, Money.of(new BigDecimal("10.035")).getMinorUnits());
+        assertEquals(new BigDecimal("10.02"), Money.of(new BigDecimal("10.025")).toBigDecimal());
+    }
+
+    @Test
+    void percentageRoundsHalfUp() {
+        assertEquals(Money.ofMinor(83), Money.ofMinor(1000).percentage(825)); // 82.5 cents
+        assertEquals(Money.ofMinor(82), Money.ofMinor(1031).percentage(800)); // 82.48 cents
+        assertEquals(-83, Money.applyBasisPoints(-1000, 825));
+    }
+
+    @Test
+    void arithmeticIsExact() {
+        Money price = Money.of(new BigDecimal("19.99"));
+        assertEquals(new BigDecimal("59.97"), price.times(3).toBigDecimal());
+        assertEquals(Money.ofMinor(2000), price.plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).times(2));
+    }
+
+    @Test
+    void currenciesDoNotMix() {
+        Money euros = Money.ofMinor(100, Currency.getInstance("EUR"));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofMinor(100).plus(euros));
+    }
+}
@@ -0,0 +1,280 @@
+package com.shopsphere.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Applies the Flyway migrations to an embedded PostgreSQL, seeds it and checks that no repository query needs a
+ * sequential scan. Sequential scans are disabled for the session, so one only shows up in a plan when no index
+ * can serve the query. The SQL mirrors what Hibernate generates for each repository method; queries that read
+ * whole tables on purpose (findAll, cache loads, rollup rebuilds) are not listed. Keys are uuid columns; the seed
+ * derives them from readable names with {@code md5('user-17')::uuid}, as {@link com.shopsphere.util.FixtureIds} does.
+ *
+ * Skipped when the embedded server cannot start on the build machine.
+ */
+class QueryPlanTest {
+
+    private static EmbeddedPostgres postgres;
+    private static Connection connection;
+
+    @BeforeAll
+    static void startDatabase() throws SQLException {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            seed(statement);
+            statement.execute("ANALYZE");
+            statement.execute("SET enable_seqscan = off");
+        }
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    static Stream<Arguments> repositoryQueries() {
+        return Stream.of(
+                Arguments.of("AddressRepository.findByUser",
+                        "SELECT * FROM addresses a WHERE a.user_id = md5('user-17')::uuid"),
+                Arguments.of("CartRepository.findByUser",
+                        "SELECT * FROM carts c WHERE c.user_id = md5('user-17')::uuid"),
+                Arguments.of("CartItemRepository.findByCartAndProduct",
+                        "SELECT * FROM cart_items ci WHERE ci.cart_id = md5('cart-17')::uuid AND ci.product_id = md5('product-17')::uuid"),
+                Arguments.of("CartItemRepository.findByCart",
+                        "SELECT * FROM cart_items ci WHERE ci.cart_id = md5('cart-17')::uuid"),
+                Arguments.of("CartItemRepository.deleteAllByCart",
+                        "DELETE FROM cart_items ci WHERE ci.cart_id = md5('cart-17')::uuid"),
+                Arguments.of("ProductRepository.findAllByIdForUpdate",
+                        "SELECT * FROM products p WHERE p.product_id IN (md5('product-3')::uuid, md5('product-1')::uuid, md5('product-2')::uuid) "
+                                + "ORDER BY p.product_id FOR NO KEY UPDATE"),
+                Arguments.of("CategoryRepository.findByNameIgnoreCase",
+                        "SELECT * FROM categories c WHERE upper(c.name) = upper('Category 3')"),
+                Arguments.of("CategoryRepository.existsByNameIgnoreCase",
+                        "SELECT c.category_id FROM categories c WHERE upper(c.name) = upper('Category 3') FETCH FIRST 1 ROWS ONLY"),
+                Arguments.of("OrderRepository.findByUser",
+                        "SELECT * FROM orders o WHERE o.user_id = md5('user-17')::uuid"),
+                Arguments.of("OrderRepository.countByStatus",
+                        "SELECT count(o.order_id) FROM orders o WHERE o.status = 'PENDING'"),
+                Arguments.of("OrderRepository.sumTotalAmountByStatus",
+                        "SELECT COALESCE(SUM(o.total_amount), 0) FROM orders o WHERE o.status = 'DELIVERED'"),
+                Arguments.of("OrderRepository.findAllByOrderByOrderDateDesc",
+                        "SELECT * FROM orders o ORDER BY o.order_date DESC OFFSET 40 ROWS FETCH FIRST 20 ROWS ONLY"),
+                Arguments.of("OrderRepository.findRecentWithUser",
+                        "SELECT * FROM orders o JOIN users u ON u.user_id = o.user_id ORDER BY o.order_date DESC FETCH FIRST 10 ROWS ONLY"),
+                Arguments.of("OrderRepository.countItemsByOrderIds",
+                        "SELECT oi.order_id, count(oi.order_item_id) FROM order_items oi "
+                                + "WHERE oi.order_id IN (md5('order-1')::uuid, md5('order-2')::uuid, md5('order-3')::uuid) GROUP BY oi.order_id"),
+                Arguments.of("OrderRepository.findEarliestOrderDate",
+                        "SELECT min(o.order_date) FROM orders o WHERE o.status = 'DELIVERED' AND o.order_date < now() - interval '30 days'"),
+                Arguments.of("OrderRepository.lockOrderIdsByStatusAndDate",
+                        "SELECT o.order_id FROM orders o WHERE o.status = 'DELIVERED' AND o.order_date >= date_trunc('month', now()) "
+                                + "AND o.order_date < date_trunc('month', now()) + interval '1 month' "
+                                + "ORDER BY o.order_date LIMIT 1000 FOR UPDATE SKIP LOCKED"),
+                Arguments.of("OrderRepository.findAllWithDetailsByOrderIdIn",
+                        "SELECT * FROM orders o JOIN users u ON u.user_id = o.user_id "
+                                + "LEFT JOIN order_items oi ON oi.order_id = o.order_id LEFT JOIN products p ON p.product_id = oi.product_id "
+                                + "LEFT JOIN payments pay ON pay.order_id = o.order_id LEFT JOIN addresses a ON a.address_id = o.shipping_address_id "
+                                + "WHERE o.order_id IN (md5('order-1')::uuid, md5('order-2')::uuid, md5('order-3')::uuid)"),
+                Arguments.of("OrderRepository.deleteArchived",
+                        "DELETE FROM orders o WHERE o.order_id IN (md5('order-1')::uuid, md5('order-2')::uuid) "
+                                + "AND o.order_date >= date_trunc('month', now()) AND o.order_date < date_trunc('month', now()) + interval '1 month'"),
+                Arguments.of("OrderItemRepository.deleteArchived",
+                        "DELETE FROM order_items oi WHERE oi.order_id IN (md5('order-1')::uuid, md5('order-2')::uuid) "
+                                + "AND oi.order_date >= date_trunc('month', now()) AND oi.order_date < date_trunc('month', now()) + interval '1 month'"),
+                Arguments.of("PaymentRepository.deleteArchived",
+                        "DELETE FROM payments p WHERE p.order_id IN (md5('order-1')::uuid, md5('order-2')::uuid)"),
+                Arguments.of("AddressRepository.deleteUnusedShippingAddresses",
+                        "DELETE FROM addresses a WHERE a.address_id IN (md5('address-1')::uuid, md5('address-2')::uuid) AND a.address_type = 'SHIPPING_ORDER' "
+                                + "AND NOT EXISTS (SELECT 1 FROM orders o WHERE o.shipping_address_id = a.address_id)"),
+                Arguments.of("OrderArchiveRepository.findFileNameByOrderId",
+                        "SELECT a.file_name FROM archived_orders o JOIN order_archives a ON a.archive_id = o.archive_id "
+                                + "WHERE o.order_id = md5('archived-order-17')::uuid"),
+                Arguments.of("Order.orderItems (lazy load)",
+                        "SELECT * FROM order_items oi WHERE oi.order_id = md5('order-17')::uuid"),
+                Arguments.of("PaymentRepository.findByTransactionId",
+                        "SELECT * FROM payments p WHERE p.transaction_id = 'pi_17'"),
+                Arguments.of("PaymentRepository.findByOrder",
+                        "SELECT * FROM payments p WHERE p.order_id = md5('order-17')::uuid"),
+                Arguments.of("PricingRuleRepository.findFingerprint",
+                        "SELECT COALESCE(md5(string_agg(f.entry, ',' ORDER BY f.rule_id)), '') "
+                                + "FROM (SELECT r.rule_id, r.rule_id || '@' || r.updated_at AS entry FROM pricing_rules r ORDER BY r.rule_id) f"),
+                Arguments.of("ProductRepository.findByNameIgnoreCase",
+                        "SELECT * FROM products p WHERE upper(p.name) = upper('Product 17')"),
+                Arguments.of("ProductRepository.findByPriceBetween",
+                        "SELECT * FROM products p WHERE p.price BETWEEN 10.00 AND 12.00"),
+                Arguments.of("ProductRepository.searchProducts",
+                        "SELECT * FROM products p WHERE p.name LIKE '%duct 123%'"),
+                Arguments.of("Product stock update (dirty checking)",
+                        "UPDATE products SET stock_quantity = 5 WHERE product_id = md5('product-17')::uuid"),
+                Arguments.of("ProductRepository.findAllByCategoryCategoryId",
+                        "SELECT * FROM products p WHERE p.category_id = md5('category-3')::uuid"),
+                Arguments.of("RefreshTokenRepository.findByTokenHash",
+                        "SELECT * FROM refresh_tokens t WHERE t.token_hash = md5('17')"),
+                Arguments.of("RefreshTokenRepository.revokeFamily",
+                        "UPDATE refresh_tokens SET revoked_at = now() WHERE family_id = md5('family-17')::uuid AND revoked_at IS NULL"),
+                Arguments.of("RefreshTokenRepository.deleteExpired",
+                        "DELETE FROM refresh_tokens WHERE expires_at < now() - interval '20 days'"),
+                Arguments.of("RevokedTokenRepository.findRevokedSince",
+                        "SELECT t.jti, t.revoked_at FROM revoked_tokens t WHERE t.revoked_at > now() - interval '1 minute' "
+                                + "AND t.expires_at > now() ORDER BY t.revoked_at"),
+                Arguments.of("RevokedTokenRepository.countUnexpired",
+                        "SELECT count(t.jti) FROM revoked_tokens t WHERE t.expires_at > now() + interval '10 minutes'"),
+                Arguments.of("RevokedTokenRepository.deleteExpired",
+                        "DELETE FROM revoked_tokens WHERE expires_at < now() - interval '10 minutes'"),
+                Arguments.of("RoleRepository.findByName",
+                        "SELECT * FROM roles r WHERE r.name = 'ROLE_ADMIN'"),
+                Arguments.of("SalesRollupRepository.findRevenueSeries",
+                        "SELECT r.bucket_start, SUM(r.order_count), SUM(r.units), SUM(r.revenue) FROM sales_rollups r "
+                                + "WHERE r.granularity = 'DAY' AND r.dimension = 'TOTAL' AND r.bucket_start >= now() - interval '7 days' "
+                                + "AND r.bucket_start < now() AND r.status IN ('PROCESSING', 'SHIPPED', 'DELIVERED') "
+                                + "GROUP BY r.bucket_start ORDER BY r.bucket_start"),
+                Arguments.of("SalesRollupRepository.findTopByDimension",
+                        "SELECT r.dimension_id, SUM(r.order_count), SUM(r.units), SUM(r.revenue) FROM sales_rollups r "
+                                + "WHERE r.granularity = 'DAY' AND r.dimension = 'PRODUCT' AND r.bucket_start >= now() - interval '7 days' "
+                                + "AND r.bucket_start < now() AND r.status IN ('PROCESSING', 'SHIPPED', 'DELIVERED') "
+                                + "GROUP BY r.dimension_id ORDER BY SUM(r.revenue) DESC LIMIT 10"),
+                Arguments.of("StockMovementRepository.findLatestAt",
+                        "SELECT * FROM stock_movements m WHERE m.product_id = md5('product-17')::uuid AND m.created_at <= now() - interval '3 days' "
+                                + "ORDER BY m.created_at DESC, m.movement_id DESC LIMIT 1"),
+                Arguments.of("StockMovementRepository.findHistory",
+                        "SELECT * FROM stock_movements m WHERE m.product_id = md5('product-17')::uuid AND m.created_at >= now() - interval '30 days' "
+                                + "AND m.created_at < now() ORDER BY m.created_at DESC, m.movement_id DESC LIMIT 100"),
+                Arguments.of("StockMovementRepository.compact",
+                        "SELECT o.movement_id FROM stock_movements o WHERE o.created_at < now() - interval '90 days' "
+                                + "AND o.movement_type <> 'COMPACTED' ORDER BY o.created_at, o.movement_id LIMIT 10000 FOR UPDATE SKIP LOCKED"),
+                Arguments.of("UserRepository.findByUsername",
+                        "SELECT * FROM users u WHERE u.username = 'user17'"),
+                Arguments.of("UserRepository.findByEmail",
+                        "SELECT * FROM users u WHERE u.email = 'user17@example.com'"),
+                Arguments.of("UserRepository.findUserSummaries",
+                        "SELECT u.user_id, u.username, string_agg(r.name, ',' ORDER BY r.name) FROM users u "
+                                + "LEFT JOIN user_roles ur ON ur.user_id = u.user_id LEFT JOIN roles r ON r.role_id = ur.role_id "
+                                + "WHERE u.username > 'user17' AND ('user1' = '' OR u.username LIKE 'user1%' OR lower(u.email) LIKE 'user1%') "
+                                + "GROUP BY u.user_id ORDER BY u.username LIMIT 50"),
+                Arguments.of("UserRepository.findExistingEmails",
+                        "SELECT u.email FROM users u WHERE u.email IN ('user1@example.com', 'user2@example.com')"),
+                Arguments.of("User.roles (lazy load)",
+                        "SELECT * FROM user_roles ur JOIN roles r ON r.role_id = ur.role_id WHERE ur.user_id = md5('user-17')::uuid")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void queryDoesNotNeedASequentialScan(String repositoryMethod, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        connection.setAutoCommit(false); // EXPLAIN of UPDATE/DELETE does not execute them, but keep the data untouched anyway
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString(1)).append('\n');
+            }
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+        assertFalse(plan.toString().contains("Seq Scan"), repositoryMethod + " needs a sequential scan:\n" + plan);
+    }
+
+    private static void seed(Statement statement) throws SQLException {
+        statement.execute("""
+                INSERT INTO users (user_id, username, email, password, registration_date)
+                SELECT md5('user-' || i)::uuid, 'user' || i, 'user' || i || '@example.com', 'x', now() - i * interval '1 minute'
+                FROM generate_series(1, 20000) i""");
+        statement.execute("INSERT INTO roles (role_id, name) VALUES (md5('role-1')::uuid, 'ROLE_USER'), (md5('role-2')::uuid, 'ROLE_ADMIN')");
+        statement.execute("INSERT INTO user_roles (user_id, role_id) SELECT md5('user-' || i)::uuid, md5('role-1')::uuid FROM generate_series(1, 20000) i");
+        statement.execute("""
+                INSERT INTO addresses (address_id, user_id, street, city, state, postal_code, country, created_at, updated_at)
+                SELECT md5('address-' || i)::uuid, md5('user-' || (i % 20000 + 1))::uuid, 'Main St', 'Springfield', 'CA', '94105', 'US', now(), now()
+                FROM generate_series(1, 40000) i""");
+        statement.execute("""
+                INSERT INTO categories (category_id, name, created_at, updated_at)
+                SELECT md5('category-' || i)::uuid, 'Category ' || i, now(), now() FROM generate_series(1, 200) i""");
+        statement.execute("""
+                INSERT INTO products (product_id, name, price, stock_quantity, category_id, created_at, updated_at)
+                SELECT md5('product-' || i)::uuid, 'Product ' || i, (i % 10000) / 100.0, i % 500, md5('category-' || (i % 200 + 1))::uuid, now(), now()
+                FROM generate_series(1, 50000) i""");
+        statement.execute("""
+                INSERT INTO carts (cart_id, user_id, created_at, updated_at)
+                SELECT md5('cart-' || i)::uuid, md5('user-' || i)::uuid, now(), now() FROM generate_series(1, 20000) i""");
+        statement.execute("""
+                INSERT INTO cart_items (cart_item_id, cart_id, product_id, quantity, price_at_addition, added_at)
+                SELECT md5('cart-item-' || i)::uuid, md5('cart-' || (i % 20000 + 1))::uuid, md5('product-' || (i % 50000 + 1))::uuid, 1, 9.99, now()
+                FROM generate_series(1, 60000) i""");
+        statement.execute("SELECT create_order_partitions((now() - interval '3 months')::date, now()::date)");
+        statement.execute("""
+                INSERT INTO orders (order_id, user_id, order_date, status, total_amount, shipping_address_id)
+                SELECT md5('order-' || i)::uuid, md5('user-' || (i % 20000 + 1))::uuid, now() - i * interval '1 minute',
+                       (ARRAY['PENDING','PROCESSING','SHIPPED','DELIVERED','DELIVERED','DELIVERED','DELIVERED','CANCELLED'])[i % 8 + 1],
+                       19.99, md5('address-' || (i % 40000 + 1))::uuid
+                FROM generate_series(1, 100000) i""");
+        statement.execute("""
+                INSERT INTO order_items (order_item_id, order_id, order_date, product_id, category_id, quantity, price_at_purchase)
+                SELECT md5('order-item-' || i)::uuid, o.order_id, o.order_date, md5('product-' || (i % 50000 + 1))::uuid,
+                       md5('category-' || (i % 200 + 1))::uuid, 1, 9.99
+                FROM generate_series(1, 300000) i JOIN orders o ON o.order_id = md5('order-' || (i % 100000 + 1))::uuid""");
+        statement.execute("""
+                INSERT INTO payments (payment_id, order_id, order_date, amount, payment_method, transaction_id, status, payment_date)
+                SELECT md5('payment-' || i)::uuid, o.order_id, o.order_date, 19.99, 'card', 'pi_' || i, 'COMPLETED', now()
+                FROM generate_series(1, 100000) i JOIN orders o ON o.order_id = md5('order-' || i)::uuid""");
+        statement.execute("""
+                INSERT INTO order_archives (archive_id, period_start, file_name, order_count, total_amount, created_at)
+                SELECT md5('archive-' || i)::uuid, date_trunc('month', now() - i * interval '1 month')::date,
+                       'orders-' || i || '.zip', 1000, 19990.00, now() FROM generate_series(1, 100) i""");
+        statement.execute("""
+                INSERT INTO archived_orders (order_id, archive_id)
+                SELECT md5('archived-order-' || i)::uuid, md5('archive-' || (i / 1000 + 1))::uuid FROM generate_series(0, 99999) i""");
+        statement.execute("""
+                INSERT INTO pricing_rules (rule_id, rule_type, active, country, rate_basis_points, created_at, updated_at)
+                SELECT md5('rule-' || i)::uuid, 'TAX', true, 'US', 500, now(), now() - i * interval '1 hour' FROM generate_series(1, 200) i""");
+        statement.execute("""
+                INSERT INTO refresh_tokens (token_id, token_hash, user_id, family_id, expires_at, created_at)
+                SELECT md5('token-' || i)::uuid, md5(i::text), md5('user-' || (i % 20000 + 1))::uuid, md5('family-' || (i % 20000))::uuid,
+                       now() + (i % 30) * interval '1 day' - interval '15 days', now()
+                FROM generate_series(1, 50000) i""");
+        statement.execute("""
+                INSERT INTO revoked_tokens (jti, expires_at, revoked_at)
+                SELECT 'jti-' || i, now() + (i % 900) * interval '1 second' - interval '5 minutes', now() - i * interval '1 second'
+                FROM generate_series(1, 20000) i""");
+        statement.execute("""
+                INSERT INTO sales_rollups (granularity, bucket_start, dimension, dimension_id, status, order_count, units, revenue)
+                SELECT 'DAY', date_trunc('day', now()) - d * interval '1 day', 'PRODUCT', 'product-' || p, 'DELIVERED', 1, 1, 9.99
+                FROM generate_series(0, 365) d, generate_series(1, 200) p""");
+        statement.execute("""
+                INSERT INTO stock_movements (movement_id, product_id, movement_type, quantity, stock_after, created_at)
+                SELECT md5('movement-' || i)::uuid, md5('product-' || (i % 50000 + 1))::uuid, CASE WHEN i % 5 = 0 THEN 'COMPACTED' ELSE 'SALE' END,
+                       -1, i % 500, now() - (i % 200) * interval '1 day'
+                FROM generate_series(1, 200000) i""");
+    }
+}
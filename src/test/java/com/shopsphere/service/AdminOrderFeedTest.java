@@ -0,0 +1,148 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.OrderPlacedEvent;
+import com.shopsphere.event.OrderStatusChangedEvent;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.enums.OrderStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminOrderFeedTest {
+
+    private static final Pattern EVENT_LINE = Pattern.compile("^(id|event):(.*)$", Pattern.MULTILINE);
+
+    private final List<RecordingEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final AdminOrderFeed feed = new AdminOrderFeed(2, 16, 10, 60_000, 3_000, 1, new SimpleMeterRegistry()) {
+        @Override
+        SseEmitter createEmitter() {
+            RecordingEmitter emitter = new RecordingEmitter();
+            emitters.add(emitter);
+            return emitter;
+        }
+    };
+
+    @AfterEach
+    void shutdown() {
+        feed.shutdown();
+    }
+
+    @Test
+    void pushesCommittedOrderEventsToSubscribers() throws Exception {
+        feed.subscribe(null);
+        publish(placed("order-1"), statusChanged("order-1"));
+
+        RecordingEmitter emitter = emitters.get(0);
+        List<String> names = emitter.awaitEvents(2);
+        assertEquals(List.of(AdminOrderFeed.ORDER_PLACED, AdminOrderFeed.ORDER_STATUS_CHANGED), names);
+    }
+
+    @Test
+    void replaysMissedEventsAfterLastEventId() throws Exception {
+        feed.subscribe(null);
+        publish(placed("order-1"));
+        String firstId = emitters.get(0).awaitIds(1).get(0);
+
+        publish(placed("order-2"), statusChanged("order-2"));
+        feed.subscribe(firstId);
+
+        List<String> replayed = emitters.get(1).awaitEvents(2);
+        assertEquals(List.of(AdminOrderFeed.ORDER_PLACED, AdminOrderFeed.ORDER_STATUS_CHANGED), replayed);
+    }
+
+    @Test
+    void asksForAResetWhenTheLastEventIdIsNoLongerReplayable() throws Exception {
+        publish(placed("order-1"), placed("order-2"), placed("order-3")); // replay keeps two
+        feed.subscribe("unknown-stream-1");
+
+        assertEquals(List.of(AdminOrderFeed.RESET), emitters.get(0).awaitEvents(1));
+    }
+
+    @Test
+    void asksEveryoneToReloadAfterEventsWereMissed() throws Exception {
+        feed.subscribe(null);
+        publish(placed("order-1"));
+        String firstId = emitters.get(0).awaitIds(1).get(0);
+
+        feed.reset();
+        publish(placed("order-2"));
+        feed.subscribe(firstId);
+
+        assertEquals(List.of(AdminOrderFeed.ORDER_PLACED, AdminOrderFeed.RESET, AdminOrderFeed.ORDER_PLACED),
+                emitters.get(0).awaitEvents(3));
+        assertEquals(List.of(AdminOrderFeed.RESET), emitters.get(1).awaitEvents(1));
+    }
+
+    private void publish(DomainEvent... events) {
+        for (DomainEvent event : events) {
+            feed.publish(OrderFeedRelay.toMessage(event, LocalDateTime.now()));
+        }
+    }
+
+    private static OrderPlacedEvent placed(String orderId) {
+        OrderResponse order = new OrderResponse();
+        order.setOrderId(orderId);
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalAmount(new BigDecimal("10.00"));
+        order.setStatus(OrderStatus.PENDING);
+        order.setItems(List.of());
+        return new OrderPlacedEvent(order, "Ada Lovelace");
+    }
+
+    private static OrderStatusChangedEvent statusChanged(String orderId) {
+        return new OrderStatusChangedEvent(orderId, "user-1", OrderStatus.PENDING, OrderStatus.SHIPPED, Money.ofMinor(1000));
+    }
+
+    /**
+     * Records the raw text of every event instead of writing to a response.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        private final StringBuffer text = new StringBuffer();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            builder.build().forEach(part -> text.append(part.getData()));
+        }
+
+        List<String> awaitEvents(int count) throws InterruptedException {
+            return await("event", count);
+        }
+
+        List<String> awaitIds(int count) throws InterruptedException {
+            return await("id", count);
+        }
+
+        private List<String> await(String field, int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            List<String> values;
+            do {
+                values = new ArrayList<>();
+                Matcher matcher = EVENT_LINE.matcher(text);
+                while (matcher.find()) {
+                    if (matcher.group(1).equals(field)) {
+                        values.add(matcher.group(2));
+                    }
+                }
+                if (values.size() >= count) {
+                    return List.copyOf(values);
+                }
+                Thread.sleep(10);
+            } while (System.currentTimeMillis() < deadline);
+            fail("Expected " + count + " '" + field + "' line(s) but got " + values + " in:\n" + text);
+            return values;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.AdminDashboardStats;
+import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.event.OrderPlacedEvent;
+import com.shopsphere.event.OrderStatusChangedEvent;
+import com.shopsphere.event.UserRegisteredEvent;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.repository.CategoryRepository;
+import com.shopsphere.repository.OrderArchiveRepository;
+import com.shopsphere.repository.OrderRepository;
+import com.shopsphere.repository.ProductRepository;
+import com.shopsphere.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AdminStatsReadModelTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final OrderArchiveRepository orderArchiveRepository = mock(OrderArchiveRepository.class);
+    private final StockLevelIndex stockLevelIndex = mock(StockLevelIndex.class);
+
+    private final AdminStatsReadModel readModel =
+            new AdminStatsReadModel(orderRepository, userRepository, productRepository, categoryRepository,
+                    orderArchiveRepository, stockLevelIndex);
+
+    @Test
+    void eventsAndRelayedOrdersUpdateTheSnapshotWithoutQueries() {
+        when(orderRepository.sumTotalAmountByStatus(anyString())).thenReturn(BigDecimal.ZERO);
+        when(orderArchiveRepository.sumTotalAmount()).thenReturn(BigDecimal.ZERO);
+        when(orderRepository.findRecentWithUser(any())).thenReturn(List.of());
+        readModel.reconcile();
+        clearInvocations(orderRepository, userRepository, productRepository, categoryRepository);
+
+        OrderResponse order = new OrderResponse();
+        order.setOrderId("order-1");
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalAmount(new BigDecimal("25.00"));
+        order.setStatus(OrderStatus.PENDING);
+        order.setItems(List.of());
+        readModel.onEvents(List.of(new UserRegisteredEvent("user-1")));
+        // orders come through the relay, whichever node placed them
+        readModel.onOrderFeed(OrderFeedRelay.toMessage(new OrderPlacedEvent(order, "Ada Lovelace"), LocalDateTime.now()));
+        // the stock index moved a product below its threshold on its own thread
+        when(stockLevelIndex.countBelowReorderThreshold()).thenReturn(1);
+
+        AdminDashboardStats stats = readModel.getStats();
+        assertEquals(1, stats.getTotalUsers());
+        assertEquals(1, stats.getTotalOrders());
+        assertEquals(1, stats.getPendingOrders());
+        assertEquals(1, stats.getLowStockProducts());
+        assertEquals("Ada Lovelace", stats.getRecentOrders().get(0).getCustomerName());
+
+        readModel.onOrderFeed(OrderFeedRelay.toMessage(new OrderStatusChangedEvent("order-1", "user-1",
+                OrderStatus.PENDING, OrderStatus.DELIVERED, Money.ofMinor(2500)), LocalDateTime.now()));
+
+        stats = readModel.getStats();
+        assertEquals(0, stats.getPendingOrders());
+        assertEquals(new BigDecimal("25.00"), stats.getTotalRevenue());
+        assertEquals("DELIVERED", stats.getRecentOrders().get(0).getStatus());
+        verifyNoInteractions(orderRepository, userRepository, productRepository, categoryRepository);
+    }
+
+    @Test
+    void ordersFromTheLocalBusAreLeftToTheRelay() {
+        OrderResponse order = new OrderResponse();
+        order.setStatus(OrderStatus.PENDING);
+
+        // the relay delivers this node's orders back to it; taking them from the bus as well would count them twice
+        assertFalse(readModel.supports(new OrderPlacedEvent(order, "Ada Lovelace")));
+        assertFalse(readModel.supports(new OrderStatusChangedEvent("order-1", "user-1",
+                OrderStatus.PENDING, OrderStatus.DELIVERED, Money.ofMinor(2500))));
+    }
+}
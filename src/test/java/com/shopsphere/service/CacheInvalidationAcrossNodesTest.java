@@ -0,0 +1,243 @@
+package com.shopsphere.service;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.model.Category;
+import com.shopsphere.model.MoneyConverter;
+import com.shopsphere.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.shopsphere.util.FixtureIds.id;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Two invalidators, standing in for two nodes with their own second-level caches, on one embedded PostgreSQL.
+ * Skipped when the embedded server cannot start on the build machine.
+ */
+class CacheInvalidationAcrossNodesTest {
+
+    private static final String BOOKS = id("books");
+    private static final String GAMES = id("games");
+    private static final String NOVEL = id("novel");
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+
+    private static int tests;
+
+    private String channel;
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeAll
+    static void startDatabase() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void startNodes() throws InterruptedException {
+        jdbcTemplate.update("DELETE FROM products");
+        jdbcTemplate.update("DELETE FROM categories");
+        jdbcTemplate.update("INSERT INTO categories (category_id, name, created_at, updated_at) VALUES "
+                + "(?, 'Books', now(), now()), (?, 'Games', now(), now())", BOOKS, GAMES);
+        jdbcTemplate.update("INSERT INTO products (product_id, name, price, stock_quantity, category_id, created_at, "
+                + "updated_at, version) VALUES (?, 'Novel', 10.00, 100, ?, now(), now(), 0)", NOVEL, BOOKS);
+        // a channel per test, so listeners of the previous test that are still closing do not count
+        channel = "l2_cache_invalidation_test_" + ++tests;
+        nodeA = new Node();
+        nodeB = new Node();
+        awaitListeners(2);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        for (Node node : new Node[] {nodeA, nodeB}) {
+            if (node != null) {
+                node.close();
+            }
+        }
+    }
+
+    @Test
+    void aCommittedChangeIsEvictedOnTheOtherNodeAndARolledBackOneIsNot() throws InterruptedException {
+        nodeB.read(session -> session.find(Category.class, BOOKS));
+        nodeB.read(session -> session.find(Category.class, GAMES));
+        assertTrue(nodeB.caches(Category.class, BOOKS));
+
+        nodeA.rollBack(session -> session.find(Category.class, BOOKS).setName("Lost"));
+        nodeA.commit(session -> session.find(Category.class, GAMES).setName("Board games"));
+
+        // messages arrive in commit order: once the committed change is in, the rolled back one would be too
+        await(() -> !nodeB.caches(Category.class, GAMES));
+        assertTrue(nodeB.caches(Category.class, BOOKS));
+        assertEquals("Board games", nodeB.read(session -> session.find(Category.class, GAMES).getName()));
+    }
+
+    @Test
+    void aStockChangeKeepsTheOtherNodesCachedCategoryQueries() throws InterruptedException {
+        nodeB.read(session -> session.find(Product.class, NOVEL));
+        assertEquals(List.of("Books", "Games"), nodeB.categoryNames());
+        assertEquals(List.of("Books", "Games"), nodeB.categoryNames());
+        assertEquals(1, nodeB.queryCacheHits());
+
+        nodeA.commit(session -> session.find(Product.class, NOVEL).setStockQuantity(99));
+        await(() -> !nodeB.caches(Product.class, NOVEL));
+        assertEquals(Integer.valueOf(99), nodeB.read(session -> session.find(Product.class, NOVEL).getStockQuantity()));
+        assertEquals(List.of("Books", "Games"), nodeB.categoryNames());
+        assertEquals(2, nodeB.queryCacheHits(), "the products change left the categories query cached");
+
+        nodeA.commit(session -> session.find(Category.class, GAMES).setName("Board games"));
+        await(() -> !nodeB.caches(Category.class, GAMES));
+        assertEquals(List.of("Board games", "Books"), nodeB.categoryNames());
+        assertEquals(2, nodeB.queryCacheHits(), "the categories change invalidated the query");
+    }
+
+    private void awaitListeners(int count) throws InterruptedException {
+        await(() -> jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity WHERE state = 'idle' "
+                + "AND query = 'LISTEN " + channel + "'", Integer.class) >= count);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * A session factory with its own second-level cache and its own invalidator, like one application node.
+     */
+    private final class Node implements AutoCloseable {
+
+        private final ClassLoader classLoader; // the cache manager only holds it weakly
+        private final CacheManager cacheManager;
+        private final SessionFactoryImplementor sessionFactory;
+        private final ClusterCacheInvalidator invalidator;
+
+        Node() {
+            // the provider hands out one cache manager per class loader, so each node gets a class loader of its own
+            classLoader = new URLClassLoader(new URL[0], Node.class.getClassLoader());
+            cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                    .getCacheManager(URI.create("classpath:hibernate-cache.conf"), classLoader);
+            Configuration configuration = new Configuration();
+            for (Class<?> type : new Class<?>[] {Category.class, Product.class, MoneyConverter.class}) {
+                configuration.addAnnotatedClass(type);
+            }
+            configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+            configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true");
+            configuration.setProperty(AvailableSettings.USE_QUERY_CACHE, "true");
+            configuration.setProperty(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            configuration.getProperties().put("hibernate.javax.cache.cache_manager", cacheManager);
+            configuration.setProperty(AvailableSettings.GENERATE_STATISTICS, "true");
+            sessionFactory = (SessionFactoryImplementor) configuration.buildSessionFactory();
+
+            DataSourceProperties properties = new DataSourceProperties();
+            properties.setUrl(postgres.getJdbcUrl("postgres", "postgres"));
+            properties.setUsername("postgres");
+            DomainEventBus eventBus = mock(DomainEventBus.class);
+            invalidator = new ClusterCacheInvalidator(sessionFactory, eventBus, jdbcTemplate, properties, true, channel,
+                    new SimpleMeterRegistry());
+            // the bus would hand the changes to the invalidator's own thread; here the committing thread sends them
+            when(eventBus.publish(any())).thenAnswer(invocation -> {
+                invalidator.onEvents(List.of(invocation.<DomainEvent>getArgument(0)));
+                return true;
+            });
+            invalidator.start();
+        }
+
+        boolean caches(Class<?> type, String id) {
+            return sessionFactory.getCache().containsEntity(type, id);
+        }
+
+        long queryCacheHits() {
+            return sessionFactory.getStatistics().getQueryCacheHitCount();
+        }
+
+        List<String> categoryNames() {
+            return read(session -> session.createQuery("FROM Category c ORDER BY c.name", Category.class)
+                    .setCacheable(true)
+                    .getResultList().stream().map(Category::getName).toList());
+        }
+
+        <T> T read(Function<Session, T> work) {
+            try (Session session = sessionFactory.openSession()) {
+                session.beginTransaction();
+                T result = work.apply(session);
+                session.getTransaction().commit();
+                return result;
+            }
+        }
+
+        void commit(Consumer<Session> work) {
+            read(session -> {
+                work.accept(session);
+                return null;
+            });
+        }
+
+        void rollBack(Consumer<Session> work) {
+            try (Session session = sessionFactory.openSession()) {
+                session.beginTransaction();
+                work.accept(session);
+                session.flush();
+                session.getTransaction().rollback();
+            }
+        }
+
+        @Override
+        public void close() {
+            invalidator.stop();
+            sessionFactory.close();
+            cacheManager.close();
+        }
+    }
+}
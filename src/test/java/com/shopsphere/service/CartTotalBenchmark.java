@@ -0,0 +1,104 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.CartResponse;
+import com.shopsphere.model.Cart;
+import com.shopsphere.model.CartItem;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart total: the previous BigDecimal multiply/add per line against the same sum through Money.times/plus, and
+ * the whole cart conversion of CartService, which totals in minor units and only materializes BigDecimals for the
+ * response. Run with the GC profiler to compare allocation per cart:
+ * <pre>
+ * ./mvnw test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *     "-Dexec.args=-cp %classpath com.shopsphere.service.CartTotalBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalBenchmark {
+
+    @Param({"5", "20", "100"})
+    private int lines;
+
+    private BigDecimal[] decimalPrices;
+    private Money[] moneyPrices;
+    private int[] quantities;
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        decimalPrices = new BigDecimal[lines];
+        moneyPrices = new Money[lines];
+        quantities = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            long cents = 99 + random.nextInt(50_000);
+            decimalPrices[i] = BigDecimal.valueOf(cents, 2);
+            moneyPrices[i] = Money.ofMinor(cents);
+            quantities[i] = 1 + random.nextInt(5);
+        }
+
+        cart = new Cart();
+        cart.setCartId("cart");
+        for (int i = 0; i < lines; i++) {
+            Product product = new Product();
+            product.setProductId("product-" + i);
+            product.setName("Product " + i);
+            product.setPrice(moneyPrices[i]);
+            CartItem item = new CartItem();
+            item.setCartItemId("item-" + i);
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(quantities[i]);
+            item.setPriceAtAddition(moneyPrices[i]);
+            cart.getCartItems().add(item);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < lines; i++) {
+            total = total.add(decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money moneyTotal() {
+        Money total = Money.ZERO;
+        for (int i = 0; i < lines; i++) {
+            total = total.plus(moneyPrices[i].times(quantities[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public CartResponse cartResponse() {
+        return CartService.convertToCartResponse(cart);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CartTotalBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,394 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.dto.PlaceOrderRequest;
+import com.shopsphere.dto.ProductRequest;
+import com.shopsphere.dto.ProductResponse;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.model.*;
+import com.shopsphere.model.enums.PaymentStatus;
+import com.shopsphere.repository.*;
+import com.shopsphere.service.pricing.PriceQuote;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.shopsphere.util.FixtureIds.id;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Places orders through Hibernate against an embedded PostgreSQL, with the batching settings of
+ * application.properties, without Spring's transaction management or retries: each checkout is one attempt.
+ *
+ * A checkout has to cost the same number of round trips whatever the number of cart lines, and concurrent
+ * checkouts whose carts share products (in different combinations) all have to go through. A checkout must not
+ * change the version an admin edit of the product was made against.
+ *
+ * Skipped when the embedded server cannot start on the build machine.
+ */
+class CheckoutPersistenceTest {
+
+    private static final int BUYERS = 8;
+    private static final int HOT_PRODUCTS = 5;
+    private static final int LINES_PER_BUYER = 3;
+    private static final int STOCK = 100;
+
+    private static EmbeddedPostgres postgres;
+    private static EntityManagerFactory entityManagerFactory;
+    private static final AtomicInteger statements = new AtomicInteger();
+
+    @BeforeAll
+    static void startDatabase() throws SQLException {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            seedUser(statement, "one");
+            seedProducts(statement, "one-product-", 1);
+            seedCart(statement, "one", "one-product-", List.of(1));
+            seedUser(statement, "twenty");
+            seedProducts(statement, "twenty-product-", 20);
+            seedCart(statement, "twenty", "twenty-product-", List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+                    16, 17, 18, 19, 20));
+
+            // every buyer's cart holds three of the five hot products, a different window each time, so the carts
+            // overlap in every direction
+            seedProducts(statement, "hot-", HOT_PRODUCTS);
+            for (int buyer = 1; buyer <= BUYERS; buyer++) {
+                List<Integer> products = new ArrayList<>();
+                for (int line = 0; line < LINES_PER_BUYER; line++) {
+                    products.add((buyer + line) % HOT_PRODUCTS + 1);
+                }
+                if (buyer % 2 == 0) {
+                    Collections.reverse(products);
+                }
+                seedUser(statement, "buyer-" + buyer);
+                seedCart(statement, "buyer-" + buyer, "hot-", products);
+            }
+
+            seedUser(statement, "doorbuster-buyer");
+            seedProducts(statement, "doorbuster-", 2);
+            seedCart(statement, "doorbuster-buyer", "doorbuster-", List.of(1, 2));
+
+            seedUser(statement, "editor");
+            seedProducts(statement, "edited-", 1);
+            seedCart(statement, "editor", "edited-", List.of(1));
+        }
+
+        Configuration configuration = new Configuration();
+        for (Class<?> type : new Class<?>[] {Address.class, Cart.class, CartItem.class, Category.class, Order.class,
+                OrderItem.class, Payment.class, Product.class, Role.class, StockMovement.class, User.class, MoneyConverter.class}) {
+            configuration.addAnnotatedClass(type);
+        }
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, counting(dataSource));
+        configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        configuration.setProperty(AvailableSettings.ORDER_INSERTS, "true");
+        configuration.setProperty(AvailableSettings.ORDER_UPDATES, "true");
+        configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+        entityManagerFactory = configuration.buildSessionFactory();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void checkoutCostsTheSameRoundTripsForOneLineAndForTwenty() {
+        statements.set(0);
+        OrderResponse oneLine = placeOrder(id("one"), 0);
+        int oneLineStatements = statements.getAndSet(0);
+        OrderResponse twentyLines = placeOrder(id("twenty"), 0);
+        int twentyLinesStatements = statements.get();
+
+        assertEquals(oneLineStatements, twentyLinesStatements,
+                "statements for 1 line: " + oneLineStatements + ", for 20 lines: " + twentyLinesStatements);
+        assertEquals(1, countRows("SELECT count(*) FROM order_items WHERE order_id = '" + oneLine.getOrderId() + "'"));
+        assertEquals(20, countRows("SELECT count(*) FROM order_items WHERE order_id = '" + twentyLines.getOrderId() + "'"));
+        assertEquals(0, countRows("SELECT count(*) FROM cart_items WHERE cart_id IN ('" + id("cart-one") + "', '" + id("cart-twenty") + "')"));
+        assertEquals(20, countRows("SELECT count(*) FROM stock_movements WHERE movement_type = 'SALE' AND quantity = -1 "
+                + "AND stock_after = " + (STOCK - 1) + " AND order_id = '" + twentyLines.getOrderId() + "'"));
+    }
+
+    @Test
+    void concurrentCheckoutsOfOverlappingCartsAllGoThrough() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        try {
+            for (int buyer = 1; buyer <= BUYERS; buyer++) {
+                String userId = id("buyer-" + buyer);
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        // the charge keeps the product locks held, as a real payment call does
+                        placeOrder(userId, 20);
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        }
+
+        assertEquals(List.of(), failures);
+        assertEquals(BUYERS, countRows("SELECT count(*) FROM orders o JOIN users u ON u.user_id = o.user_id "
+                + "WHERE u.username LIKE 'buyer-%'"));
+        assertEquals(HOT_PRODUCTS * STOCK - BUYERS * LINES_PER_BUYER,
+                countRows("SELECT sum(stock_quantity) FROM products WHERE name LIKE 'hot-%'"));
+        // each product's ledger counts down one sale at a time, in time order, to the stock left
+        assertEquals(0, countRows("""
+                SELECT count(*) FROM (
+                    SELECT m.stock_after, lag(m.stock_after, 1, %d) OVER (PARTITION BY m.product_id ORDER BY m.created_at, m.movement_id) AS previous
+                    FROM stock_movements m JOIN products p ON p.product_id = m.product_id WHERE p.name LIKE 'hot-%%') l
+                WHERE l.stock_after <> l.previous - 1""".formatted(STOCK)));
+        assertEquals(0, countRows("SELECT count(*) FROM products p WHERE p.name LIKE 'hot-%' AND p.stock_quantity <> "
+                + "(SELECT m.stock_after FROM stock_movements m WHERE m.product_id = p.product_id "
+                + "ORDER BY m.created_at DESC, m.movement_id DESC LIMIT 1)"));
+    }
+
+    @Test
+    void anAdminEditOfAProductSoldSinceStillGoesThrough() {
+        placeOrder(id("editor"), 0);
+
+        ProductRequest request = new ProductRequest();
+        request.setName("edited-1");
+        request.setPrice(new BigDecimal("12.50"));
+        request.setVersion(0L); // the version the admin saw before the checkout
+        ProductResponse updated = updateProduct(id("edited-1"), request);
+
+        assertEquals(STOCK - 1, updated.getStockQuantity());
+        assertEquals(new BigDecimal("12.50"), updated.getPrice());
+        assertEquals(1L, updated.getVersion());
+    }
+
+    @Test
+    void salesOfHotProductsAreTakenForTheSavedOrder() {
+        CoalescingStockWriter stockWriter = mock(CoalescingStockWriter.class);
+        when(stockWriter.isCoalesced(id("doorbuster-1"))).thenReturn(true);
+        AtomicReference<String> reservedFor = new AtomicReference<>();
+        when(stockWriter.reserve(any(), eq(Map.of(id("doorbuster-1"), 1)))).thenAnswer(invocation -> {
+            reservedFor.set(invocation.getArgument(0));
+            return null;
+        });
+
+        OrderResponse order = placeOrder(id("doorbuster-buyer"), 0, stockWriter);
+
+        assertEquals(order.getOrderId(), reservedFor.get());
+        assertEquals(1, countRows("SELECT count(*) FROM orders WHERE order_id = '" + order.getOrderId()
+                + "' AND total_amount IS NOT NULL"));
+        // the other product still goes through the checkout's own transaction
+        assertEquals(1, countRows("SELECT count(*) FROM stock_movements WHERE order_id = '" + order.getOrderId() + "'"));
+    }
+
+    private static OrderResponse placeOrder(String userId, long paymentMillis) {
+        return placeOrder(userId, paymentMillis, mock(CoalescingStockWriter.class));
+    }
+
+    /**
+     * Places the user's cart as one order, in its own transaction.
+     */
+    private static OrderResponse placeOrder(String userId, long paymentMillis, CoalescingStockWriter stockWriter) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            JpaRepositoryFactory repositories = new JpaRepositoryFactory(entityManager);
+            DomainEventBus eventBus = mock(DomainEventBus.class);
+            UserService userService = mock(UserService.class);
+            StripePaymentService paymentService = mock(StripePaymentService.class);
+            PricingEngine pricingEngine = mock(PricingEngine.class);
+            when(pricingEngine.price(any())).thenReturn(new PriceQuote());
+            doAnswer(invocation -> {
+                Thread.sleep(paymentMillis);
+                Order order = invocation.getArgument(1);
+                Payment payment = new Payment();
+                payment.setAmount(invocation.getArgument(3));
+                payment.setPaymentMethod("card");
+                payment.setTransactionId("pi_" + userId);
+                payment.setStatus(PaymentStatus.COMPLETED);
+                payment.setOrder(order);
+                order.setPayment(payment);
+                return null;
+            }).when(paymentService).processPayment(any(), any(), any(), any());
+
+            ProductService productService = productService(repositories, eventBus);
+            OrderService orderService = new OrderService(
+                    repositories.getRepository(OrderRepository.class),
+                    repositories.getRepository(OrderItemRepository.class),
+                    repositories.getRepository(CartRepository.class),
+                    repositories.getRepository(CartItemRepository.class),
+                    productService,
+                    userService,
+                    repositories.getRepository(AddressRepository.class),
+                    repositories.getRepository(PaymentRepository.class),
+                    eventBus,
+                    paymentService,
+                    pricingEngine,
+                    mock(OrderArchiveStore.class),
+                    stockWriter);
+
+            entityManager.getTransaction().begin();
+            User user = entityManager.find(User.class, userId);
+            when(userService.findById(userId)).thenReturn(UserService.toProfile(user));
+            when(userService.getUserReference(userId)).thenReturn(user);
+            PlaceOrderRequest request = new PlaceOrderRequest();
+            request.setStreet("1 Main St");
+            request.setCity("Springfield");
+            request.setState("IL");
+            request.setPostalCode("62701");
+            request.setCountry("US");
+            request.setPaymentMethod("card");
+
+            OrderResponse order = orderService.placeOrder(userId, request);
+            entityManager.getTransaction().commit();
+            return order;
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Updates a product as an admin edit, in its own transaction.
+     */
+    private static ProductResponse updateProduct(String productId, ProductRequest request) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            ProductService productService = productService(new JpaRepositoryFactory(entityManager), mock(DomainEventBus.class));
+            entityManager.getTransaction().begin();
+            ProductResponse product = productService.updateProduct(productId, request);
+            entityManager.getTransaction().commit();
+            return product;
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    private static ProductService productService(JpaRepositoryFactory repositories, DomainEventBus eventBus) {
+        return new ProductService(repositories.getRepository(ProductRepository.class), mock(CategoryService.class),
+                eventBus, mock(StockLevelIndex.class), repositories.getRepository(StockMovementRepository.class));
+    }
+
+    private static int countRows(String sql) {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void seedUser(Statement statement, String userId) throws SQLException {
+        statement.execute("INSERT INTO users (user_id, username, email, password, first_name, last_name, registration_date) "
+                + "VALUES ('" + id(userId) + "', '" + userId + "', '" + userId + "@example.com', 'x', 'Ada', 'Lovelace', now())");
+    }
+
+    private static void seedProducts(Statement statement, String namePrefix, int count) throws SQLException {
+        statement.execute("INSERT INTO products (product_id, name, price, stock_quantity, created_at, updated_at, version) "
+                + "SELECT md5('" + namePrefix + "' || i)::uuid, '" + namePrefix + "' || i, 9.99, " + STOCK + ", now(), now(), 0 "
+                + "FROM generate_series(1, " + count + ") i");
+    }
+
+    // one of each product, added in the given order
+    private static void seedCart(Statement statement, String userId, String productPrefix, List<Integer> products)
+            throws SQLException {
+        statement.execute("INSERT INTO carts (cart_id, user_id, created_at, updated_at, version) "
+                + "VALUES ('" + id("cart-" + userId) + "', '" + id(userId) + "', now(), now(), 0)");
+        for (int line = 0; line < products.size(); line++) {
+            statement.execute("INSERT INTO cart_items (cart_item_id, cart_id, product_id, quantity, price_at_addition, added_at) "
+                    + "VALUES ('" + id(userId + "-item-" + line) + "', '" + id("cart-" + userId) + "', '"
+                    + id(productPrefix + products.get(line)) + "', 1, 9.99, now() + interval '" + line + " seconds')");
+        }
+    }
+
+    // every execute call is one round trip; a JDBC batch is sent with one executeBatch
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private static DataSource counting(DataSource dataSource) {
+        return proxy(DataSource.class, dataSource);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (self, method, args) -> {
+            if (EXECUTE_METHODS.contains(method.getName())) {
+                statements.incrementAndGet();
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Connection connection) {
+                return proxy(Connection.class, connection);
+            }
+            if (result instanceof CallableStatement callable) {
+                return proxy(CallableStatement.class, callable);
+            }
+            if (result instanceof PreparedStatement prepared) {
+                return proxy(PreparedStatement.class, prepared);
+            }
+            if (result instanceof Statement statement) {
+                return proxy(Statement.class, statement);
+            }
+            return result;
+        });
+    }
+}
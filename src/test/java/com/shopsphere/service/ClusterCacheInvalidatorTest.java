@@ -0,0 +1,103 @@
+package com.shopsphere.service;
+
+import com.shopsphere.event.DomainEventBus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.metamodel.spi.MappingMetamodelImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Mockito.*;
+
+class ClusterCacheInvalidatorTest {
+
+    private final CacheImplementor cache = mock(CacheImplementor.class);
+    private final TimestampsCache timestamps = mock(TimestampsCache.class);
+    private final ClusterCacheInvalidator invalidator = invalidator(cache, timestamps);
+
+    @Test
+    void evictsWhatAnotherNodeChangedAndTheQueriesOverItsTables() {
+        List<String> payloads = ClusterCacheInvalidator.encode("other-node", List.of(
+                "E|com.shopsphere.model.Product|p1",
+                "C|com.shopsphere.model.User.roles|u1"));
+
+        assertEquals(1, payloads.size());
+        invalidator.apply(payloads.get(0));
+
+        verify(cache).evictEntityData("com.shopsphere.model.Product", "p1");
+        verify(cache).evictCollectionData("com.shopsphere.model.User.roles", "u1");
+        // cached queries over other tables stay
+        verify(timestamps).invalidate(aryEq(new String[] {"products", "user_roles"}), any());
+        verify(cache, never()).evictDefaultQueryRegion();
+    }
+
+    @Test
+    void ignoresItsOwnChanges() {
+        String payload = ClusterCacheInvalidator.encode(invalidator.getNodeId(), List.of("E|com.shopsphere.model.Product|p1")).get(0);
+
+        invalidator.apply(payload);
+
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    void splitsLargeChangeSetsIntoPayloadsPostgresAccepts() {
+        List<String> changes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            changes.add("E|com.shopsphere.model.Product|01a15185-1870-7000-8031-" + String.format("%012d", i));
+        }
+
+        List<String> payloads = ClusterCacheInvalidator.encode("other-node", changes);
+
+        assertTrue(payloads.size() > 1);
+        for (String payload : payloads) {
+            assertTrue(payload.length() <= ClusterCacheInvalidator.MAX_PAYLOAD_CHARS);
+            assertTrue(payload.startsWith("other-node\n"));
+            invalidator.apply(payload);
+        }
+        verify(cache, times(500)).evictEntityData(eq("com.shopsphere.model.Product"), anyString());
+    }
+
+    @Test
+    void skipsMalformedLines() {
+        invalidator.apply("other-node\ngarbage\nE|com.shopsphere.model.Role|r1");
+
+        verify(cache).evictEntityData("com.shopsphere.model.Role", "r1");
+        verify(cache, never()).evictCollectionData(anyString(), any());
+    }
+
+    private static ClusterCacheInvalidator invalidator(CacheImplementor cache, TimestampsCache timestamps) {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class);
+        when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        when(cache.getTimestampsCache()).thenReturn(timestamps);
+        when(sessionFactory.openStatelessSession()).thenReturn(
+                mock(StatelessSession.class, withSettings().extraInterfaces(SharedSessionContractImplementor.class)));
+        MappingMetamodelImplementor metamodel = mock(MappingMetamodelImplementor.class);
+        when(sessionFactory.getMappingMetamodel()).thenReturn(metamodel);
+        for (String[] entity : new String[][] {{"Product", "products"}, {"Role", "roles"}}) {
+            EntityPersister persister = mock(EntityPersister.class);
+            when(persister.getPropertySpaces()).thenReturn(new String[] {entity[1]});
+            when(metamodel.getEntityDescriptor("com.shopsphere.model." + entity[0])).thenReturn(persister);
+        }
+        CollectionPersister userRoles = mock(CollectionPersister.class);
+        when(userRoles.getCollectionSpaces()).thenReturn(new String[] {"user_roles"});
+        when(metamodel.getCollectionDescriptor("com.shopsphere.model.User.roles")).thenReturn(userRoles);
+        return new ClusterCacheInvalidator(entityManagerFactory, mock(DomainEventBus.class), mock(JdbcTemplate.class),
+                new DataSourceProperties(), true, "l2_cache_invalidation", new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,191 @@
+package com.shopsphere.service;
+
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.model.Product;
+import com.shopsphere.model.StockMovement;
+import com.shopsphere.model.enums.StockMovementType;
+import com.shopsphere.repository.ProductRepository;
+import com.shopsphere.repository.StockMovementRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CoalescingStockWriterTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final StockMovementRepository stockMovementRepository = mock(StockMovementRepository.class);
+    private final CoalescingStockWriter writer = new CoalescingStockWriter(productRepository,
+            new ProductService(productRepository, mock(CategoryService.class), mock(DomainEventBus.class),
+                    mock(StockLevelIndex.class), stockMovementRepository),
+            mock(PlatformTransactionManager.class), Set.of("hot-1", "hot-2"), 5, 500, 2, 2000, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.shutdown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void concurrentDecrementsShareWritesAndNeverOversell() throws InterruptedException {
+        Product product = product("hot-1", 100);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                CompletableFuture<Boolean> result = writer.decrement("hot-1", 3, "order-1");
+                synchronized (results) {
+                    results.add(result);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long granted = results.stream().filter(CompletableFuture::join).count();
+        assertEquals(33, granted);
+        assertEquals(1, product.getStockQuantity());
+        int writes = mockingDetails(productRepository).getInvocations().size();
+        assertTrue(writes < 50, "expected the 50 decrements to share writes, got " + writes);
+    }
+
+    @Test
+    void incrementsAreAlwaysGranted() {
+        Product product = product("hot-1", 0);
+
+        assertFalse(writer.decrement("hot-1", 1, "order-1").join());
+        assertTrue(writer.increment("hot-1", 4).join());
+
+        assertEquals(4, product.getStockQuantity());
+    }
+
+    @Test
+    void salesAreRecordedWithTheirOrder() {
+        product("hot-1", 10);
+
+        assertNull(writer.reserve("order-1", Map.of("hot-1", 4)));
+        writer.increment("hot-1", 1).join();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StockMovement>> captor = ArgumentCaptor.forClass(List.class);
+        verify(stockMovementRepository, times(2)).saveAll(captor.capture());
+        List<StockMovement> movements = captor.getAllValues().stream().flatMap(List::stream).toList();
+        assertEquals(StockMovementType.SALE, movements.get(0).getType());
+        assertEquals("order-1", movements.get(0).getOrderId());
+        assertEquals(StockMovementType.RESERVATION_RELEASE, movements.get(1).getType());
+        assertNull(movements.get(1).getOrderId());
+    }
+
+    @Test
+    void reserveGivesEverythingBackWhenOneProductIsShort() {
+        Product plenty = product("hot-1", 10);
+        Product scarce = product("hot-2", 1);
+
+        assertEquals("hot-2", writer.reserve("order-1", Map.of("hot-1", 5, "hot-2", 2)));
+
+        writer.increment("hot-1", 0).join(); // queued behind the give-back
+        assertEquals(10, plenty.getStockQuantity());
+        assertEquals(1, scarce.getStockQuantity());
+    }
+
+    @Test
+    void reserveGivesStockBackWhenTheTransactionRollsBack() {
+        Product product = product("hot-1", 10);
+        TransactionSynchronizationManager.initSynchronization();
+
+        assertNull(writer.reserve("order-1", Map.of("hot-1", 4)));
+        assertEquals(6, product.getStockQuantity());
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        writer.increment("hot-1", 0).join();
+        assertEquals(10, product.getStockQuantity());
+    }
+
+    @Test
+    void failedWritesFailTheirCallers() {
+        when(productRepository.findAllByIdForUpdate(any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        CompletionException e = assertThrows(CompletionException.class, () -> writer.decrement("hot-1", 1, "order-1").join());
+
+        assertInstanceOf(DataAccessResourceFailureException.class, e.getCause());
+    }
+
+    @Test
+    void changesQueuedBehindAWriteAreStillWrittenOnShutdown() throws Exception {
+        Product product = product("hot-1", 10);
+        CountDownLatch writing = new CountDownLatch(1);
+        Thread shutdown = new Thread(() -> {
+            try {
+                writer.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        when(productRepository.findAllByIdForUpdate(eq(List.of("hot-1")))).thenAnswer(invocation -> {
+            writing.countDown();
+            // the write is still running when the shutdown starts waiting for it
+            while (shutdown.getState() != Thread.State.TIMED_WAITING) {
+                Thread.sleep(1);
+            }
+            return List.of(product);
+        });
+        CompletableFuture<Boolean> first = writer.decrement("hot-1", 1, "order-1");
+        writing.await();
+        CompletableFuture<Boolean> queued = writer.decrement("hot-1", 2, "order-2");
+        shutdown.start();
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(7, product.getStockQuantity());
+        shutdown.join();
+    }
+
+    @Test
+    void changesAfterShutdownFail() throws InterruptedException {
+        writer.shutdown();
+
+        CompletionException e = assertThrows(CompletionException.class, () -> writer.decrement("hot-1", 1, "order-1").join());
+
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+    }
+
+    private Product product(String productId, int stock) {
+        Product product = new Product();
+        product.setProductId(productId);
+        product.setStockQuantity(stock);
+        when(productRepository.findAllByIdForUpdate(eq(List.of(productId)))).thenReturn(List.of(product));
+        return product;
+    }
+}
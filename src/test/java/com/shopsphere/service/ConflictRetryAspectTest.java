@@ -0,0 +1,137 @@
+package com.shopsphere.service;
+
+import com.shopsphere.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConflictRetryAspectTest {
+
+    private final CacheImplementor cache = mock(CacheImplementor.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void retriesUntilTheConflictGoesAway() {
+        Conflicting service = proxy(new Conflicting(2));
+
+        assertEquals("done", service.save());
+
+        assertEquals(3, service.calls());
+        assertEquals(2, conflicts("save", "retried"));
+        assertEquals(0, conflicts("save", "rejected"));
+        verify(cache, times(2)).evictEntityData(Product.class.getName(), "p1");
+    }
+
+    @Test
+    void answersConflictOnceAttemptsRunOut() {
+        Conflicting service = proxy(new Conflicting(Integer.MAX_VALUE));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, service::save);
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        assertEquals(3, service.calls());
+        assertEquals(2, conflicts("save", "retried"));
+        assertEquals(1, conflicts("save", "rejected"));
+    }
+
+    @Test
+    void singleAttemptRejectsRightAway() {
+        Conflicting service = proxy(new Conflicting(1));
+
+        assertThrows(ResponseStatusException.class, service::edit);
+
+        assertEquals(1, service.calls());
+        assertEquals(1, conflicts("edit", "rejected"));
+    }
+
+    @Test
+    void retriesDeadlocksLikeVersionConflicts() {
+        Conflicting service = proxy(new Conflicting(2));
+
+        assertEquals("done", service.lock());
+
+        assertEquals(3, service.calls());
+        assertEquals(2, meterRegistry.counter("pessimistic.lock.failures", "operation", "lock", "outcome", "retried").count());
+        assertEquals(0, conflicts("lock", "retried"));
+        verifyNoInteractions(cache);
+    }
+
+    @Test
+    void leavesConflictsInsideAnOuterTransactionToItsCaller() {
+        Conflicting service = proxy(new Conflicting(1));
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, service::save);
+
+        assertEquals(1, service.calls());
+        assertEquals(0, conflicts("save", "retried"));
+        verifyNoInteractions(cache);
+    }
+
+    private Conflicting proxy(Conflicting target) {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class);
+        when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ConflictRetryAspect(entityManagerFactory, meterRegistry, 3, 0));
+        return factory.getProxy();
+    }
+
+    private double conflicts(String operation, String outcome) {
+        return meterRegistry.counter("optimistic.lock.conflicts", "operation", operation, "outcome", outcome).count();
+    }
+
+    static class Conflicting {
+        private final int failures;
+        private int calls;
+
+        Conflicting(int failures) {
+            this.failures = failures;
+        }
+
+        @RetryOnConflict("save")
+        public String save() {
+            if (calls++ < failures) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, "p1");
+            }
+            return "done";
+        }
+
+        @RetryOnConflict("lock")
+        public String lock() {
+            if (calls++ < failures) {
+                // what a deadlock (40P01) or serialization failure (40001) is translated to
+                throw new CannotAcquireLockException("deadlock detected");
+            }
+            return "done";
+        }
+
+        @RetryOnConflict(value = "edit", maxAttempts = 1)
+        public String edit() {
+            return save();
+        }
+
+        public int calls() {
+            return calls;
+        }
+    }
+}
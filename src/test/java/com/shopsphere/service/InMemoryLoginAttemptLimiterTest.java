@@ -0,0 +1,54 @@
+package com.shopsphere.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryLoginAttemptLimiterTest {
+
+    // long enough that the test never straddles a window boundary
+    private static final long WINDOW_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    @Test
+    void blocksAfterMaxFailuresUntilReset() {
+        InMemoryLoginAttemptLimiter limiter = new InMemoryLoginAttemptLimiter(WINDOW_MILLIS, 100);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.recordFailure("user:alice");
+        }
+        assertFalse(limiter.isBlocked("user:alice", 5));
+
+        limiter.recordFailure("user:alice");
+        assertTrue(limiter.isBlocked("user:alice", 5));
+        assertFalse(limiter.isBlocked("user:bob", 5));
+
+        limiter.reset("user:alice");
+        assertFalse(limiter.isBlocked("user:alice", 5));
+    }
+
+    @Test
+    void stillThrottlesANewKeyAtCapacity() {
+        InMemoryLoginAttemptLimiter limiter = new InMemoryLoginAttemptLimiter(WINDOW_MILLIS, 100);
+        for (int i = 0; i < 10_000; i++) {
+            limiter.recordFailure("user:sprayed-" + i);
+        }
+
+        for (int i = 0; i < 5; i++) {
+            limiter.recordFailure("user:alice");
+        }
+
+        assertTrue(limiter.isBlocked("user:alice", 5));
+    }
+
+    @Test
+    void aUsernameSprayDoesNotPushOutTheIpsItComesFrom() {
+        InMemoryLoginAttemptLimiter limiter = new InMemoryLoginAttemptLimiter(WINDOW_MILLIS, 100);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.recordFailure("user:sprayed-" + i);
+            limiter.recordFailure("ip:10.0.0.1");
+        }
+
+        assertTrue(limiter.isBlocked("ip:10.0.0.1", 50));
+    }
+}
@@ -0,0 +1,57 @@
+package com.shopsphere.service;
+
+import com.shopsphere.config.security.CustomUserDetails;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRET = "c2hvcHNwaGVyZS10ZXN0LXNlY3JldC1rZXktdGhhdC1pcy1sb25nLWVub3VnaA==";
+
+    private JwtService jwtService;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 60_000L);
+        jwtService.init();
+    }
+
+    @Test
+    void principalIsRebuiltFromSignedClaims() {
+        CustomUserDetails user = new CustomUserDetails("user-1", "alice", "alice@example.com",
+                List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER")));
+
+        Claims claims = jwtService.parseToken(jwtService.generateToken(user));
+        CustomUserDetails principal = jwtService.toUserDetails(claims);
+
+        assertEquals("user-1", principal.getUserId());
+        assertEquals("alice", principal.getUsername());
+        assertEquals("alice@example.com", principal.getEmail());
+        assertEquals(List.of("ROLE_CUSTOMER"),
+                principal.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+    }
+
+    @Test
+    void expiredOrTamperedTokensAreRejected() {
+        CustomUserDetails user = new CustomUserDetails("user-1", "alice", null, List.of());
+        String token = jwtService.generateToken(user);
+
+        assertThrows(JwtException.class, () -> jwtService.parseToken(token.substring(0, token.length() - 2) + "xx"));
+
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", -1_000L);
+        String expired = jwtService.generateToken(user);
+        assertThrows(JwtException.class, () -> jwtService.parseToken(expired));
+        assertFalse(jwtService.isTokenValid(expired, user));
+    }
+}
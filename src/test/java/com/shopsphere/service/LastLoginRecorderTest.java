@@ -0,0 +1,129 @@
+package com.shopsphere.service;
+
+import com.shopsphere.config.CacheNames;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.shopsphere.util.FixtureIds.id;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The write-behind last login buffer against an embedded PostgreSQL. Skipped when the embedded server cannot start
+ * on the build machine.
+ */
+class LastLoginRecorderTest {
+
+    private static final String ALICE = id("alice");
+    private static final String BOB = id("bob");
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentMapCacheManager cacheManager =
+            new ConcurrentMapCacheManager(CacheNames.USERS, CacheNames.USER_DETAILS);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LastLoginRecorder recorder;
+
+    @BeforeAll
+    static void startDatabase() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String user : List.of("alice", "bob")) {
+            jdbcTemplate.update("INSERT INTO users (user_id, username, email, password, registration_date) "
+                    + "VALUES (?, ?, ?, 'hash', now())", id(user), user, user + "@example.com");
+        }
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void createRecorder() {
+        jdbcTemplate.update("UPDATE users SET last_login = NULL");
+        recorder = new LastLoginRecorder(jdbcTemplate, new UserCacheInvalidator(cacheManager), meterRegistry);
+    }
+
+    @Test
+    void repeatedLoginsAreWrittenOnceWithTheLatestTime() {
+        LocalDateTime before = LocalDateTime.now();
+        for (int i = 0; i < 10; i++) {
+            recorder.record(ALICE);
+        }
+        recorder.record(BOB);
+        assertNull(lastLogin(ALICE), "nothing is written before the flush");
+
+        recorder.flush();
+
+        assertEquals(2, meterRegistry.get("users.last_login.flushed").counter().count(), 0,
+                "one row per user, however many logins");
+        assertFalse(lastLogin(ALICE).isBefore(before.withNano(0)));
+        assertNotNull(lastLogin(BOB));
+        assertEquals(0, meterRegistry.get("users.last_login.pending").gauge().value());
+
+        recorder.flush(); // nothing pending, no write
+        assertEquals(2, meterRegistry.get("users.last_login.flushed").counter().count(), 0);
+    }
+
+    @Test
+    void anOlderBufferedTimeNeverOverwritesANewerOne() {
+        LocalDateTime newer = LocalDateTime.now().plusHours(1).withNano(0);
+        jdbcTemplate.update("UPDATE users SET last_login = ? WHERE user_id = ?", Timestamp.valueOf(newer), ALICE);
+
+        recorder.record(ALICE);
+        recorder.flush();
+
+        assertEquals(newer, lastLogin(ALICE));
+    }
+
+    @Test
+    void flushEvictsTheCachedProfilesButNotTheLoginEntries() {
+        Cache users = cacheManager.getCache(CacheNames.USERS);
+        Cache userDetails = cacheManager.getCache(CacheNames.USER_DETAILS);
+        users.put(ALICE, "stale profile");
+        users.put(BOB, "profile");
+        userDetails.put("alice", "details");
+
+        recorder.record(ALICE);
+        assertNotNull(users.get(ALICE), "recording alone changes nothing that is cached");
+        recorder.flush();
+
+        assertNull(users.get(ALICE));
+        assertNotNull(users.get(BOB));
+        assertNotNull(userDetails.get("alice"));
+    }
+
+    private static LocalDateTime lastLogin(String userId) {
+        Timestamp lastLogin = jdbcTemplate.queryForObject("SELECT last_login FROM users WHERE user_id = ?",
+                Timestamp.class, userId);
+        return lastLogin == null ? null : lastLogin.toLocalDateTime();
+    }
+}
@@ -0,0 +1,110 @@
+package com.shopsphere.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginAuthenticatorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger checks = new AtomicInteger();
+    private LoginAuthenticator authenticator;
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        if (authenticator != null) {
+            authenticator.shutdown();
+        }
+    }
+
+    @Test
+    void timedOutLoginsLeaveOnlyTheRunningCheckBehind() throws InterruptedException {
+        // one thread, one queue slot: the first check blocks until released (like a slow hash)
+        authenticator = authenticator(1, 1, 200, blockingManager());
+
+        Thread first = new Thread(() -> assertStatus(HttpStatus.TOO_MANY_REQUESTS, "alice", "10.0.0.1"));
+        first.start();
+        awaitChecks(1);
+        // queued behind the first, then abandoned on timeout: it must never hash
+        assertStatus(HttpStatus.TOO_MANY_REQUESTS, "bob", "10.0.0.2");
+        first.join();
+
+        // the abandoned check was purged, so its queue slot is free again
+        Thread queued = new Thread(() -> assertStatus(HttpStatus.TOO_MANY_REQUESTS, "carol", "10.0.0.3"));
+        queued.start();
+        // the slot is taken now; one more is rejected without waiting for the timeout
+        Thread.sleep(50);
+        long start = System.nanoTime();
+        assertStatus(HttpStatus.TOO_MANY_REQUESTS, "dave", "10.0.0.4");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100, "rejection should not wait");
+        queued.join();
+
+        release.countDown();
+        Thread.sleep(100);
+        assertEquals(1, checks.get(), "only the check that was already running should have hashed");
+    }
+
+    @Test
+    void throttlesAfterRepeatedFailuresPerIp() {
+        authenticator = authenticator(1, 4, 1000, authentication -> {
+            throw new BadCredentialsException("bad");
+        });
+
+        for (int i = 0; i < 3; i++) {
+            String username = "user" + i;
+            assertThrows(BadCredentialsException.class, () -> authenticator.authenticate(username, "x", "10.0.0.9"));
+        }
+        assertStatus(HttpStatus.TOO_MANY_REQUESTS, "someone-else", "10.0.0.9");
+        assertThrows(BadCredentialsException.class, () -> authenticator.authenticate("someone-else", "x", "10.0.0.10"));
+    }
+
+    private AuthenticationManager blockingManager() {
+        return authentication -> {
+            checks.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // a hash does not stop when interrupted either
+                try {
+                    release.await();
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new UsernamePasswordAuthenticationToken(authentication.getName(), null, List.of());
+        };
+    }
+
+    private LoginAuthenticator authenticator(int threads, int queueCapacity, long timeoutMillis,
+                                             AuthenticationManager authenticationManager) {
+        return new LoginAuthenticator(authenticationManager, new InMemoryLoginAttemptLimiter(60_000, 100),
+                new SimpleMeterRegistry(), threads, queueCapacity, timeoutMillis, 5, 3);
+    }
+
+    private void awaitChecks(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (checks.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, checks.get());
+    }
+
+    private void assertStatus(HttpStatus status, String username, String clientIp) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> authenticator.authenticate(username, "secret", clientIp));
+        assertEquals(status, e.getStatusCode());
+    }
+}
@@ -0,0 +1,131 @@
+package com.shopsphere.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shopsphere.dto.OrderItemResponse;
+import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.model.OrderArchive;
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.repository.OrderArchiveRepository;
+import com.shopsphere.util.TimeOrderedIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.invocation.InvocationOnMock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class OrderArchiveStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final OrderArchiveRepository repository = mock(OrderArchiveRepository.class);
+    private final ObjectMapper objectMapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+    private OrderArchiveStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.closeFiles();
+        }
+    }
+
+    @Test
+    void archivedOrdersAreIndexedAndFoundAgainByTheirId() {
+        store = new OrderArchiveStore(repository, objectMapper, directory);
+        when(repository.saveAndFlush(any())).thenAnswer(OrderArchiveStoreTest::saved);
+        LocalDate month = LocalDate.now().withDayOfMonth(1);
+        OrderResponse first = order(TimeOrderedIds.uuidV7(), "19.99");
+        OrderResponse second = order(TimeOrderedIds.uuidV7(), "5.01");
+
+        OrderArchive archive = store.write(month, List.of(first, second));
+
+        assertEquals(2, archive.getOrderCount());
+        assertEquals(new BigDecimal("25.00"), archive.getTotalAmount().toBigDecimal());
+        assertTrue(Files.exists(directory.resolve(archive.getFileName())));
+        assertEquals(1, list(directory).size(), "no partial file left behind");
+        verify(repository).indexOrders(archive.getArchiveId(), first.getOrderId() + "," + second.getOrderId());
+        when(repository.findFileNameByOrderId(anyString())).thenReturn(Optional.of(archive.getFileName()));
+
+        assertEquals(second, store.find(second.getOrderId()).orElseThrow());
+        assertEquals(first, store.find(first.getOrderId()).orElseThrow());
+    }
+
+    @Test
+    void anIdNoArchiveHoldsIsAnsweredFromTheIndexAlone() {
+        store = new OrderArchiveStore(repository, objectMapper, directory);
+        when(repository.findFileNameByOrderId(anyString())).thenReturn(Optional.empty());
+
+        assertTrue(store.find("7f9c24e5-2f3b-4c9a-9d1e-0c2b7a4e8f10").isEmpty());
+        verify(repository).findFileNameByOrderId("7f9c24e5-2f3b-4c9a-9d1e-0c2b7a4e8f10");
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void aMissingArchiveFileIsSkipped() {
+        store = new OrderArchiveStore(repository, objectMapper, directory);
+        when(repository.findFileNameByOrderId("order-17")).thenReturn(Optional.of("orders-2024-03-gone.zip"));
+
+        assertTrue(store.find("order-17").isEmpty());
+    }
+
+    @Test
+    void archivesWrittenBeforeTheIndexAreIndexedFromTheirFiles() {
+        store = new OrderArchiveStore(repository, objectMapper, directory);
+        when(repository.saveAndFlush(any())).thenAnswer(OrderArchiveStoreTest::saved);
+        OrderResponse legacy = order("7f9c24e5-2f3b-4c9a-9d1e-0c2b7a4e8f10", "42.00");
+        OrderArchive archive = store.write(LocalDate.of(2024, 3, 1), List.of(legacy));
+        OrderArchive gone = new OrderArchive();
+        gone.setArchiveId(TimeOrderedIds.uuidV7());
+        gone.setFileName("orders-2024-02-gone.zip");
+        clearInvocations(repository);
+        when(repository.findUnindexed()).thenReturn(List.of(gone, archive));
+
+        store.indexEarlierArchives();
+
+        verify(repository).indexOrders(archive.getArchiveId(), legacy.getOrderId());
+        verify(repository, never()).indexOrders(eq(gone.getArchiveId()), anyString());
+    }
+
+    private static OrderArchive saved(InvocationOnMock invocation) {
+        OrderArchive archive = invocation.getArgument(0);
+        archive.setArchiveId(TimeOrderedIds.uuidV7());
+        return archive;
+    }
+
+    private static OrderResponse order(String orderId, String total) {
+        OrderResponse order = new OrderResponse();
+        order.setOrderId(orderId);
+        order.setUserId("user-1");
+        order.setOrderDate(LocalDateTime.of(2024, 3, 5, 10, 30, 15));
+        order.setTotalAmount(new BigDecimal(total));
+        order.setStatus(OrderStatus.DELIVERED);
+        order.setItems(List.of(new OrderItemResponse("item-1", "product-1", "Mug", "category-1", null, 1,
+                new BigDecimal(total), new BigDecimal(total))));
+        return order;
+    }
+
+    private static List<Path> list(Path directory) {
+        try (var stream = Files.list(directory)) {
+            return stream.toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
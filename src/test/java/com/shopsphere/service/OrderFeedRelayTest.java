@@ -0,0 +1,222 @@
+package com.shopsphere.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shopsphere.dto.OrderFeedMessage;
+import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.event.OrderPlacedEvent;
+import com.shopsphere.event.OrderStatusChangedEvent;
+import com.shopsphere.event.PaymentStatusChangedEvent;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.model.enums.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Two relays, standing in for two nodes, on one embedded PostgreSQL. Skipped when the embedded server cannot start
+ * on the build machine.
+ */
+class OrderFeedRelayTest {
+
+    private static final String CHANNEL = "order_feed_test";
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    private final RecordingFeed feedA = new RecordingFeed();
+    private final RecordingFeed feedB = new RecordingFeed();
+    private final RecordingStatusFeed statusFeedA = new RecordingStatusFeed();
+    private final RecordingStatusFeed statusFeedB = new RecordingStatusFeed();
+    private final AdminStatsReadModel statsA = mock(AdminStatsReadModel.class);
+    private final AdminStatsReadModel statsB = mock(AdminStatsReadModel.class);
+    private OrderFeedRelay relayA;
+    private OrderFeedRelay relayB;
+
+    @BeforeAll
+    static void startDatabase() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @AfterEach
+    void stopRelays() {
+        if (relayA != null) {
+            relayA.stop();
+        }
+        if (relayB != null) {
+            relayB.stop();
+        }
+        feedA.shutdown();
+        feedB.shutdown();
+        statusFeedA.shutdown();
+        statusFeedB.shutdown();
+    }
+
+    @Test
+    void everyNodeFeedsTheEventsOfAllNodes() throws Exception {
+        relayA = startRelay(feedA, statusFeedA, statsA);
+        relayB = startRelay(feedB, statusFeedB, statsB);
+        awaitListeners(2);
+
+        relayA.onEvents(List.of(placed("order-1")));
+        relayB.onEvents(List.of(new OrderStatusChangedEvent("order-1", "user-1", OrderStatus.PENDING,
+                OrderStatus.SHIPPED, Money.ofMinor(1250))));
+        relayA.onEvents(List.of(new PaymentStatusChangedEvent("order-1", "user-1", PaymentStatus.PENDING,
+                PaymentStatus.COMPLETED)));
+
+        for (RecordingFeed feed : List.of(feedA, feedB)) {
+            OrderFeedMessage placed = (OrderFeedMessage) feed.next();
+            assertEquals("order-1", placed.getPlaced().getOrderId());
+            assertEquals("Ada Lovelace", placed.getPlaced().getCustomerName());
+            OrderFeedMessage changed = (OrderFeedMessage) feed.next();
+            assertEquals("SHIPPED", changed.getStatusChanged().getNewStatus());
+            assertEquals(0, new BigDecimal("12.50").compareTo(changed.getStatusChanged().getTotalAmount()));
+            assertNull(((OrderFeedMessage) feed.next()).getStatusChanged()); // the payment, nothing for the admins
+            assertTrue(feed.received.isEmpty()); // no reset
+        }
+        for (RecordingStatusFeed feed : List.of(statusFeedA, statusFeedB)) {
+            assertNull(((OrderFeedMessage) feed.next()).getStatusUpdate()); // the placed order, nothing for the customer
+            OrderFeedMessage changed = (OrderFeedMessage) feed.next();
+            assertEquals("user-1", changed.getUserId());
+            assertEquals(OrderStatus.SHIPPED, changed.getStatusUpdate().getStatus());
+            OrderFeedMessage paid = (OrderFeedMessage) feed.next();
+            assertEquals("user-1", paid.getUserId());
+            assertEquals(PaymentStatus.COMPLETED, paid.getStatusUpdate().getPaymentStatus());
+        }
+        for (AdminStatsReadModel stats : List.of(statsA, statsB)) {
+            verify(stats, timeout(10_000)).onOrderFeed(argThat(message -> message.getPlaced() != null
+                    && message.getPlaced().getOrderId().equals("order-1")));
+        }
+    }
+
+    @Test
+    void resetsTheFeedsOfANodeThatLostItsListeningConnection() throws Exception {
+        relayA = startRelay(feedA, statusFeedA, statsA);
+        awaitListeners(1);
+
+        jdbcTemplate.queryForList("SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE query = 'LISTEN " + CHANNEL + "'");
+
+        assertEquals(RecordingFeed.RESET, feedA.next());
+        assertEquals(RecordingFeed.RESET, statusFeedA.next());
+        verify(statsA, timeout(10_000)).reconcile();
+        awaitListeners(1);
+        relayA.onEvents(List.of(placed("order-2")));
+        assertEquals("order-2", ((OrderFeedMessage) feedA.next()).getPlaced().getOrderId());
+    }
+
+    private static OrderFeedRelay startRelay(RecordingFeed feed, RecordingStatusFeed statusFeed,
+                                             AdminStatsReadModel stats) {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl(postgres.getJdbcUrl("postgres", "postgres"));
+        properties.setUsername("postgres");
+        OrderFeedRelay relay = new OrderFeedRelay(jdbcTemplate, new ObjectMapper().findAndRegisterModules(), feed,
+                statusFeed, stats, properties, CHANNEL, new SimpleMeterRegistry());
+        relay.start();
+        return relay;
+    }
+
+    private static void awaitListeners(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity WHERE state = 'idle' AND query = 'LISTEN " + CHANNEL + "'",
+                Integer.class) < count) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Expected " + count + " listener(s) on " + CHANNEL);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static OrderPlacedEvent placed(String orderId) {
+        OrderResponse order = new OrderResponse();
+        order.setOrderId(orderId);
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalAmount(new BigDecimal("10.00"));
+        order.setStatus(OrderStatus.PENDING);
+        order.setItems(List.of());
+        return new OrderPlacedEvent(order, "Ada Lovelace");
+    }
+
+    /**
+     * Records what the relay hands over instead of serving subscribers.
+     */
+    private static final class RecordingFeed extends AdminOrderFeed {
+        static final String RESET = "reset";
+
+        final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+        RecordingFeed() {
+            super(16, 16, 10, 60_000, 3_000, 1, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public void publish(OrderFeedMessage message) {
+            received.add(message);
+        }
+
+        @Override
+        public void reset() {
+            received.add(RESET);
+        }
+
+        Object next() throws InterruptedException {
+            return poll(received);
+        }
+    }
+
+    private static final class RecordingStatusFeed extends OrderStatusFeed {
+        final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+        RecordingStatusFeed() {
+            super(10, 3, 8, 60_000, 60_000, 1, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public void publish(OrderFeedMessage message) {
+            received.add(message);
+        }
+
+        @Override
+        public void reset() {
+            received.add(RecordingFeed.RESET);
+        }
+
+        Object next() throws InterruptedException {
+            return poll(received);
+        }
+    }
+
+    private static Object poll(BlockingQueue<Object> received) throws InterruptedException {
+        Object next = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(next, "nothing relayed");
+        return next;
+    }
+}
@@ -0,0 +1,131 @@
+package com.shopsphere.service;
+
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.repository.OrderRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+
+import static com.shopsphere.util.FixtureIds.id;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the partition jobs against the V5 functions on an embedded PostgreSQL. Archival itself
+ * ({@link OrderService#archiveDeliveredOrders}) is mocked.
+ *
+ * Skipped when the embedded server cannot start on the build machine.
+ */
+class OrderPartitionManagerTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderService orderService = mock(OrderService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeAll
+    static void startDatabase() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void theComingMonthsGetTheirPartitions() {
+        OrderPartitionManager manager = manager(false);
+
+        manager.createUpcomingPartitions();
+        manager.createUpcomingPartitions(); // again, as the daily run does: nothing left to create
+
+        for (int month = 0; month <= 3; month++) {
+            YearMonth partition = YearMonth.now().plusMonths(month);
+            assertTrue(partitionExists("orders", partition), "orders partition for " + partition);
+            assertTrue(partitionExists("order_items", partition), "order_items partition for " + partition);
+        }
+        assertFalse(partitionExists("orders", YearMonth.now().plusMonths(4)));
+    }
+
+    @Test
+    void archivalEmptiesEveryMonthBeforeTheCutoffAndDropsTheEmptiedPartitions() {
+        jdbcTemplate.queryForObject("SELECT create_order_partitions('2020-01-01', '2020-03-01')", Integer.class);
+        // an order archival left behind, e.g. one still being shipped, keeps its month's partition
+        jdbcTemplate.update("INSERT INTO users (user_id, username, email, password, registration_date) "
+                + "VALUES (?, 'partition-user', 'partition-user@example.com', 'x', now())", id("partition-user"));
+        jdbcTemplate.update("INSERT INTO addresses (address_id, user_id, street, city, state, postal_code, country, "
+                + "created_at, updated_at) VALUES (?, ?, 'Main St', 'Springfield', 'IL', '62701', 'US', now(), now())",
+                id("partition-address"), id("partition-user"));
+        jdbcTemplate.update("INSERT INTO orders (order_id, user_id, order_date, status, total_amount, shipping_address_id) "
+                + "VALUES (?, ?, '2020-02-10 12:00', 'SHIPPED', 19.99, ?)",
+                id("partition-order"), id("partition-user"), id("partition-address"));
+        LocalDate cutoff = YearMonth.now().minusMonths(12).atDay(1);
+        when(orderRepository.findEarliestOrderDate(OrderStatus.DELIVERED, cutoff.atStartOfDay()))
+                .thenReturn(LocalDateTime.of(2020, 1, 10, 8, 0));
+        // January takes three batches, the last one not full; the other months have nothing left
+        when(orderService.archiveDeliveredOrders(any(), anyInt())).thenReturn(0);
+        when(orderService.archiveDeliveredOrders(LocalDate.of(2020, 1, 1), BATCH_SIZE)).thenReturn(2, 2, 1);
+
+        manager(true).archiveOldOrders();
+
+        verify(orderService, times(3)).archiveDeliveredOrders(LocalDate.of(2020, 1, 1), BATCH_SIZE);
+        verify(orderService).archiveDeliveredOrders(LocalDate.of(2020, 2, 1), BATCH_SIZE);
+        verify(orderService).archiveDeliveredOrders(cutoff.minusMonths(1), BATCH_SIZE);
+        verify(orderService, never()).archiveDeliveredOrders(eq(cutoff), anyInt());
+        assertEquals(5, meterRegistry.counter("orders.archived").count());
+        assertFalse(partitionExists("orders", YearMonth.of(2020, 1)));
+        assertFalse(partitionExists("order_items", YearMonth.of(2020, 1)));
+        assertTrue(partitionExists("orders", YearMonth.of(2020, 2)));
+        assertTrue(partitionExists("order_items", YearMonth.of(2020, 2)));
+        assertFalse(partitionExists("orders", YearMonth.of(2020, 3)));
+    }
+
+    @Test
+    void archivalIsOffUnlessEnabled() {
+        manager(false).archiveOldOrders();
+
+        verifyNoInteractions(orderRepository, orderService);
+    }
+
+    private OrderPartitionManager manager(boolean archiveEnabled) {
+        return new OrderPartitionManager(jdbcTemplate, orderRepository, orderService, 3, archiveEnabled, 12, BATCH_SIZE,
+                meterRegistry);
+    }
+
+    private static boolean partitionExists(String table, YearMonth month) {
+        return jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class,
+                table + "_" + month.getYear() + "_" + String.format("%02d", month.getMonthValue()));
+    }
+}
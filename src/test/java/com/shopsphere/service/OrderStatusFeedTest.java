@@ -0,0 +1,101 @@
+package com.shopsphere.service;
+
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.OrderStatusChangedEvent;
+import com.shopsphere.event.PaymentStatusChangedEvent;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.model.enums.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStatusFeedTest {
+
+    private final Map<SseEmitter, StringBuffer> sent = new ConcurrentHashMap<>();
+    private final OrderStatusFeed feed = new OrderStatusFeed(3, 2, 8, 60_000, 60_000, 1, new SimpleMeterRegistry()) {
+        @Override
+        SseEmitter createEmitter() {
+            StringBuffer text = new StringBuffer();
+            SseEmitter emitter = new SseEmitter() {
+                @Override
+                public void send(SseEventBuilder builder) {
+                    builder.build().forEach(part -> text.append(part.getData()));
+                }
+            };
+            sent.put(emitter, text);
+            return emitter;
+        }
+    };
+
+    @AfterEach
+    void shutdown() {
+        feed.shutdown();
+    }
+
+    @Test
+    void deliversUpdatesOnlyToTheOrderOwner() throws Exception {
+        SseEmitter alice = feed.subscribe("alice");
+        SseEmitter bob = feed.subscribe("bob");
+
+        publish(new OrderStatusChangedEvent("order-1", "alice", OrderStatus.PENDING, OrderStatus.SHIPPED, Money.ofMinor(100)),
+                new PaymentStatusChangedEvent("order-1", "alice", PaymentStatus.PENDING, PaymentStatus.COMPLETED));
+
+        String aliceText = await(alice, "event:" + OrderStatusFeed.PAYMENT_STATUS);
+        assertTrue(aliceText.contains("event:" + OrderStatusFeed.ORDER_STATUS));
+        assertTrue(aliceText.contains("status=SHIPPED")); // data objects are recorded unserialized
+        assertFalse(sent.get(bob).toString().contains("order-1"));
+    }
+
+    @Test
+    void limitsConnectionsPerUserAndPerNode() {
+        feed.subscribe("alice");
+        feed.subscribe("alice");
+        ResponseStatusException perUser = assertThrows(ResponseStatusException.class, () -> feed.subscribe("alice"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, perUser.getStatusCode());
+
+        feed.subscribe("bob");
+        ResponseStatusException perNode = assertThrows(ResponseStatusException.class, () -> feed.subscribe("carol"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, perNode.getStatusCode());
+        assertEquals(3, feed.getConnectionCount());
+    }
+
+    @Test
+    void closesEveryConnectionAfterChangesWereMissed() {
+        feed.subscribe("alice");
+        feed.subscribe("bob");
+
+        feed.reset();
+
+        assertEquals(0, feed.getConnectionCount());
+        feed.subscribe("alice"); // the clients reconnect
+        assertEquals(1, feed.getConnectionCount());
+    }
+
+    private void publish(DomainEvent... events) {
+        for (DomainEvent event : events) {
+            feed.publish(OrderFeedRelay.toMessage(event, LocalDateTime.now()));
+        }
+    }
+
+    private String await(SseEmitter emitter, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            String text = sent.get(emitter).toString();
+            if (text.contains(expected)) {
+                return text;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Expected '" + expected + "' in:\n" + sent.get(emitter));
+    }
+}
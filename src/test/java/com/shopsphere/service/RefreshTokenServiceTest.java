@@ -0,0 +1,181 @@
+package com.shopsphere.service;
+
+import com.shopsphere.model.RefreshToken;
+import com.shopsphere.model.Role;
+import com.shopsphere.model.User;
+import com.shopsphere.repository.RefreshTokenRepository;
+import com.shopsphere.repository.UserRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.shopsphere.util.FixtureIds.id;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Refresh token rotation against an embedded PostgreSQL, including two refreshes racing with the same token.
+ * Skipped when the embedded server cannot start on the build machine.
+ */
+class RefreshTokenServiceTest {
+
+    private static final String USER_ID = id("token-user");
+
+    private static EmbeddedPostgres postgres;
+    private static EntityManagerFactory entityManagerFactory;
+    private static RefreshTokenService refreshTokenService;
+    private static TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    static void startDatabase() throws SQLException {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO roles (role_id, name) VALUES ('" + id("role-user") + "', 'ROLE_USER')");
+            statement.execute("INSERT INTO users (user_id, username, email, password, registration_date) "
+                    + "VALUES ('" + USER_ID + "', 'alice', 'alice@example.com', 'hash', now())");
+            statement.execute("INSERT INTO user_roles (user_id, role_id) VALUES ('" + USER_ID + "', '" + id("role-user") + "')");
+        }
+
+        Configuration configuration = new Configuration();
+        for (Class<?> type : new Class<?>[] {User.class, Role.class, RefreshToken.class}) {
+            configuration.addAnnotatedClass(type);
+        }
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+        entityManagerFactory = configuration.buildSessionFactory();
+        RepositoryFactorySupport repositories = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        refreshTokenService = new RefreshTokenService(repositories.getRepository(RefreshTokenRepository.class),
+                repositories.getRepository(UserRepository.class), 60_000);
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void rotationReplacesTheTokenInItsFamily() {
+        String first = transactionTemplate.execute(status -> refreshTokenService.issue(USER_ID));
+        RefreshTokenService.Rotation rotation = rotate(first);
+
+        assertEquals(USER_ID, rotation.principal().getUserId());
+        assertEquals("ROLE_USER", rotation.principal().getAuthorities().iterator().next().getAuthority());
+        assertNotEquals(first, rotation.rawToken());
+        assertNotNull(rotate(rotation.rawToken()).rawToken(), "the replacement is a valid refresh token");
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheFamily() {
+        String first = transactionTemplate.execute(status -> refreshTokenService.issue(USER_ID));
+        String second = rotate(first).rawToken();
+
+        assertEquals(HttpStatus.UNAUTHORIZED, rotateExpectingFailure(first).getStatusCode());
+        // the legitimate holder's current token went with the family
+        assertEquals(HttpStatus.UNAUTHORIZED, rotateExpectingFailure(second).getStatusCode());
+    }
+
+    @Test
+    void concurrentRefreshesWithTheSameTokenCountAsReuse() throws Exception {
+        int activeBefore = countRows("SELECT count(*) FROM refresh_tokens WHERE revoked_at IS NULL");
+        String token = transactionTemplate.execute(status -> refreshTokenService.issue(USER_ID));
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // the first refresh claims the token and holds its transaction open
+        CompletableFuture<RefreshTokenService.Rotation> winner = CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(status -> {
+                    RefreshTokenService.Rotation rotation = refreshTokenService.rotate(token);
+                    claimed.countDown();
+                    await(commit);
+                    return rotation;
+                }));
+        assertTrue(claimed.await(10, TimeUnit.SECONDS));
+        // the second one read the token as unused and waits on the row lock in its claim
+        CompletableFuture<ResponseStatusException> loser = CompletableFuture.supplyAsync(() -> rotateExpectingFailure(token));
+        awaitLockWait();
+        commit.countDown();
+
+        String replacement = winner.get(10, TimeUnit.SECONDS).rawToken();
+        assertEquals(HttpStatus.UNAUTHORIZED, loser.get(10, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(activeBefore, countRows("SELECT count(*) FROM refresh_tokens WHERE revoked_at IS NULL"),
+                "the family, including the winner's replacement, is revoked");
+        assertEquals(HttpStatus.UNAUTHORIZED, rotateExpectingFailure(replacement).getStatusCode());
+    }
+
+    private static RefreshTokenService.Rotation rotate(String rawToken) {
+        return transactionTemplate.execute(status -> refreshTokenService.rotate(rawToken));
+    }
+
+    // like the service's noRollbackFor: the family revocation commits although the refresh fails
+    private static ResponseStatusException rotateExpectingFailure(String rawToken) {
+        return transactionTemplate.execute(status ->
+                assertThrows(ResponseStatusException.class, () -> refreshTokenService.rotate(rawToken)));
+    }
+
+    private static void awaitLockWait() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (countRows("SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'") == 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "the second refresh never waited for the first");
+            Thread.sleep(10);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int countRows(String sql) {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
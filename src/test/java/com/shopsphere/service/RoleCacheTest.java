@@ -0,0 +1,63 @@
+package com.shopsphere.service;
+
+import com.shopsphere.model.Role;
+import com.shopsphere.repository.RoleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RoleCacheTest {
+
+    private final RoleRepository roleRepository = mock(RoleRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RoleCache roleCache = new RoleCache(roleRepository, meterRegistry);
+
+    @Test
+    void loadsOnceAndServesHitsFromTheSnapshot() {
+        when(roleRepository.findAll()).thenReturn(List.of(role("ROLE_USER"), role("ROLE_ADMIN")));
+
+        assertEquals("ROLE_USER", roleCache.findByName("ROLE_USER").orElseThrow().getName());
+        assertEquals("ROLE_ADMIN", roleCache.findByName("ROLE_ADMIN").orElseThrow().getName());
+        assertEquals("ROLE_USER", roleCache.findByName("ROLE_USER").orElseThrow().getName());
+
+        verify(roleRepository, times(1)).findAll();
+        assertEquals(2, gets("hit"));
+        assertEquals(1, gets("miss"));
+    }
+
+    @Test
+    void aMissReloadsAndPicksUpNewRoles() {
+        when(roleRepository.findAll())
+                .thenReturn(List.of(role("ROLE_USER")))
+                .thenReturn(List.of(role("ROLE_USER"), role("ROLE_SUPPORT")));
+
+        assertTrue(roleCache.findByName("ROLE_USER").isPresent());
+        assertEquals("ROLE_SUPPORT", roleCache.findByName("ROLE_SUPPORT").orElseThrow().getName());
+        assertTrue(roleCache.findByName("ROLE_SUPPORT").isPresent());
+
+        verify(roleRepository, times(2)).findAll();
+    }
+
+    @Test
+    void unknownRoleIsEmptyAndReloadsEachTime() {
+        when(roleRepository.findAll()).thenReturn(List.of(role("ROLE_USER")));
+
+        assertTrue(roleCache.findByName("ROLE_NOPE").isEmpty());
+        assertTrue(roleCache.findByName("ROLE_NOPE").isEmpty());
+
+        verify(roleRepository, times(2)).findAll();
+        assertEquals(2, gets("miss"));
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "roles").tag("result", result).counter().count();
+    }
+
+    private static Role role(String name) {
+        return new Role("id-" + name, name);
+    }
+}
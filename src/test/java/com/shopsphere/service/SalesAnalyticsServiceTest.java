@@ -0,0 +1,185 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.RevenuePoint;
+import com.shopsphere.dto.SalesBreakdownEntry;
+import com.shopsphere.model.Category;
+import com.shopsphere.model.MoneyConverter;
+import com.shopsphere.model.Product;
+import com.shopsphere.model.SalesRollup;
+import com.shopsphere.model.SalesRollupId;
+import com.shopsphere.model.enums.OrderStatus;
+import com.shopsphere.model.enums.RollupGranularity;
+import com.shopsphere.repository.CategoryRepository;
+import com.shopsphere.repository.ProductRepository;
+import com.shopsphere.repository.SalesRollupRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static com.shopsphere.util.FixtureIds.id;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The analytics queries over sales_rollups (native queries of SalesRollupRepository) against an embedded
+ * PostgreSQL. Skipped when the embedded server cannot start on the build machine.
+ */
+class SalesAnalyticsServiceTest {
+
+    private static final String BOOKS = id("books");
+    private static final String GAMES = id("games");
+    private static final String NOVEL = id("novel");
+    private static final String ATLAS = id("atlas");
+    private static final String CHESS = id("chess");
+
+    private static final LocalDateTime JAN_1 = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final LocalDateTime JAN_5 = LocalDateTime.of(2026, 1, 5, 0, 0);
+    private static final LocalDateTime JAN_6 = LocalDateTime.of(2026, 1, 6, 0, 0);
+    private static final LocalDateTime JAN_7 = LocalDateTime.of(2026, 1, 7, 0, 0);
+
+    private static EmbeddedPostgres postgres;
+    private static EntityManagerFactory entityManagerFactory;
+    private static TransactionTemplate transactionTemplate;
+    private static SalesAnalyticsService analyticsService;
+
+    @BeforeAll
+    static void startDatabase() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO categories (category_id, name, created_at, updated_at) VALUES "
+                + "('" + BOOKS + "', 'Books', now(), now()), ('" + GAMES + "', 'Games', now(), now())");
+        jdbcTemplate.update("INSERT INTO products (product_id, name, price, stock_quantity, category_id, created_at, updated_at) VALUES "
+                + "('" + NOVEL + "', 'Novel', 10.00, 100, '" + BOOKS + "', now(), now()), "
+                + "('" + ATLAS + "', 'Atlas', 5.00, 100, '" + BOOKS + "', now(), now()), "
+                + "('" + CHESS + "', 'Chess', 7.50, 100, '" + GAMES + "', now(), now())");
+        List<Object[]> rows = List.of(
+                rollup("DAY", JAN_5, "TOTAL", "", "PENDING", 2, 8, "70.50"),
+                rollup("DAY", JAN_5, "TOTAL", "", "CANCELLED", 1, 1, "9.00"),
+                rollup("DAY", JAN_6, "TOTAL", "", "SHIPPED", 1, 2, "20.00"),
+                rollup("HOUR", JAN_5.withHour(10), "TOTAL", "", "PENDING", 1, 4, "38.00"),
+                rollup("HOUR", JAN_5.withHour(14), "TOTAL", "", "PENDING", 1, 4, "32.50"),
+                rollup("HOUR", JAN_5.withHour(16), "TOTAL", "", "CANCELLED", 1, 1, "9.00"),
+                rollup("HOUR", JAN_6.withHour(9), "TOTAL", "", "SHIPPED", 1, 2, "20.00"),
+                rollup("DAY", JAN_5, "PRODUCT", NOVEL, "PENDING", 2, 4, "40.00"),
+                rollup("DAY", JAN_5, "PRODUCT", CHESS, "PENDING", 1, 3, "22.50"),
+                rollup("DAY", JAN_5, "PRODUCT", ATLAS, "CANCELLED", 1, 1, "9.00"),
+                rollup("DAY", JAN_6, "PRODUCT", NOVEL, "SHIPPED", 1, 2, "20.00"),
+                // hour rows are never read for breakdowns; this one would top the list otherwise
+                rollup("HOUR", JAN_5.withHour(14), "PRODUCT", ATLAS, "PENDING", 9, 90, "900.00"),
+                rollup("DAY", JAN_5, "CATEGORY", BOOKS, "PENDING", 2, 4, "40.00"),
+                rollup("DAY", JAN_5, "CATEGORY", GAMES, "PENDING", 1, 3, "22.50"),
+                rollup("DAY", JAN_5, "CATEGORY", "", "CANCELLED", 1, 1, "9.00"),
+                rollup("DAY", JAN_6, "CATEGORY", BOOKS, "SHIPPED", 1, 2, "20.00"));
+        jdbcTemplate.batchUpdate("INSERT INTO sales_rollups (granularity, bucket_start, dimension, dimension_id, status, "
+                + "order_count, units, revenue) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+
+        Configuration configuration = new Configuration();
+        for (Class<?> type : new Class<?>[] {Category.class, Product.class, SalesRollup.class, SalesRollupId.class,
+                MoneyConverter.class}) {
+            configuration.addAnnotatedClass(type);
+        }
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+        entityManagerFactory = configuration.buildSessionFactory();
+        RepositoryFactorySupport repositories = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        analyticsService = new SalesAnalyticsService(repositories.getRepository(SalesRollupRepository.class),
+                repositories.getRepository(ProductRepository.class), repositories.getRepository(CategoryRepository.class));
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void revenueSeriesSumsTheBookedStatusesPerBucket() {
+        assertEquals(List.of(point(JAN_5, 2, 8, "70.50"), point(JAN_6, 1, 2, "20.00")),
+                read(() -> analyticsService.getRevenueSeries(RollupGranularity.DAY, JAN_1, JAN_7, null)));
+        assertEquals(List.of(point(JAN_5.withHour(10), 1, 4, "38.00"), point(JAN_5.withHour(14), 1, 4, "32.50")),
+                read(() -> analyticsService.getRevenueSeries(RollupGranularity.HOUR, JAN_5, JAN_6, null)));
+        assertEquals(List.of(point(JAN_5, 1, 1, "9.00")),
+                read(() -> analyticsService.getRevenueSeries(RollupGranularity.DAY, JAN_1, JAN_7, OrderStatus.CANCELLED)));
+        assertEquals(List.of(), read(() -> analyticsService.getRevenueSeries(RollupGranularity.DAY, JAN_7, JAN_7.plusDays(1), null)));
+    }
+
+    @Test
+    void topProductsReadDayRowsOverWholeDays() {
+        List<SalesBreakdownEntry> expected = List.of(
+                new SalesBreakdownEntry(NOVEL, "Novel", 3, 6, new BigDecimal("60.00")),
+                new SalesBreakdownEntry(CHESS, "Chess", 1, 3, new BigDecimal("22.50")));
+        assertEquals(expected, read(() -> analyticsService.getTopProducts(JAN_5, JAN_7, 2, null)));
+        // a partial last day is rounded out to the whole day
+        assertEquals(expected, read(() -> analyticsService.getTopProducts(JAN_5.withHour(12), JAN_6.withHour(12), 2, null)));
+        assertEquals(List.of(new SalesBreakdownEntry(NOVEL, "Novel", 2, 4, new BigDecimal("40.00"))),
+                read(() -> analyticsService.getTopProducts(JAN_5, JAN_6, 1, OrderStatus.PENDING)));
+    }
+
+    @Test
+    void categoryBreakdownNamesCategoriesAndKeepsUncategorizedSales() {
+        assertEquals(List.of(new SalesBreakdownEntry(BOOKS, "Books", 2, 4, new BigDecimal("40.00")),
+                        new SalesBreakdownEntry(GAMES, "Games", 1, 3, new BigDecimal("22.50"))),
+                read(() -> analyticsService.getCategoryBreakdown(JAN_5, JAN_6, null)));
+        assertEquals(List.of(new SalesBreakdownEntry(null, null, 1, 1, new BigDecimal("9.00"))),
+                read(() -> analyticsService.getCategoryBreakdown(JAN_5, JAN_7, OrderStatus.CANCELLED)));
+    }
+
+    @Test
+    void rejectsEmptyAndOverlongRanges() {
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> analyticsService.getRevenueSeries(RollupGranularity.DAY, JAN_7, JAN_5, null)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> analyticsService.getRevenueSeries(RollupGranularity.HOUR, JAN_1, JAN_1.plusDays(94), null)).getStatusCode());
+    }
+
+    private static <T> T read(Supplier<T> query) {
+        return transactionTemplate.execute(status -> query.get());
+    }
+
+    private static RevenuePoint point(LocalDateTime bucketStart, long orders, long units, String revenue) {
+        return new RevenuePoint(bucketStart, orders, units, new BigDecimal(revenue));
+    }
+
+    private static Object[] rollup(String granularity, LocalDateTime bucketStart, String dimension, String dimensionId,
+                                   String status, long orders, long units, String revenue) {
+        return new Object[]{granularity, Timestamp.valueOf(bucketStart), dimension, dimensionId, status, orders, units,
+                new BigDecimal(revenue)};
+    }
+}
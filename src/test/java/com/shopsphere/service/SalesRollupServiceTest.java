@@ -0,0 +1,247 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.OrderItemResponse;
+import com.shopsphere.dto.OrderResponse;
+import com.shopsphere.event.DomainEvent;
+import com.shopsphere.event.OrderPlacedEvent;
+import com.shopsphere.event.OrderStatusChangedEvent;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.enums.OrderStatus;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.shopsphere.util.FixtureIds.id;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sales rollups maintained from events against the same rollups rebuilt from the orders, on an embedded
+ * PostgreSQL. Skipped when the embedded server cannot start on the build machine.
+ */
+class SalesRollupServiceTest {
+
+    private static final String BUYER = id("buyer");
+    private static final String HOME = id("home");
+    private static final String BOOKS = id("books");
+    private static final String GAMES = id("games");
+    private static final String NOVEL = id("novel");
+    private static final String ATLAS = id("atlas");
+    private static final String CHESS = id("chess");
+
+    private static final LocalDateTime MORNING = LocalDateTime.of(2026, 1, 5, 10, 15);
+    private static final LocalDateTime AFTERNOON = LocalDateTime.of(2026, 1, 5, 14, 30);
+    private static final LocalDateTime NEXT_DAY = LocalDateTime.of(2026, 1, 6, 9, 0);
+    // every row, with the rows a status move left at zero dropped: the rebuild never writes those
+    private static final String ROLLUP_ROWS_SQL = """
+            SELECT granularity, bucket_start, dimension, dimension_id, status, order_count, units, revenue
+            FROM sales_rollups
+            WHERE order_count <> 0 OR units <> 0 OR revenue <> 0
+            ORDER BY granularity, bucket_start, dimension, dimension_id, status
+            """;
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static SalesRollupService rollupService;
+
+    @BeforeAll
+    static void startDatabase() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("SELECT create_order_partitions('2026-01-01', '2026-01-01')");
+        jdbcTemplate.update("INSERT INTO users (user_id, username, email, password, registration_date) "
+                + "VALUES ('" + BUYER + "', 'buyer', 'buyer@example.com', 'hash', now())");
+        jdbcTemplate.update("INSERT INTO addresses (address_id, user_id, street, city, state, postal_code, country, "
+                + "created_at, updated_at) VALUES ('" + HOME + "', '" + BUYER + "', '1 Main St', 'Springfield', 'IL', '62701', 'US', now(), now())");
+        jdbcTemplate.update("INSERT INTO categories (category_id, name, created_at, updated_at) VALUES "
+                + "('" + BOOKS + "', 'Books', now(), now()), ('" + GAMES + "', 'Games', now(), now())");
+        jdbcTemplate.update("INSERT INTO products (product_id, name, price, stock_quantity, category_id, created_at, updated_at) VALUES "
+                + "('" + NOVEL + "', 'Novel', 10.00, 100, '" + BOOKS + "', now(), now()), "
+                + "('" + ATLAS + "', 'Atlas', 5.00, 100, '" + BOOKS + "', now(), now()), "
+                + "('" + CHESS + "', 'Chess', 7.50, 100, '" + GAMES + "', now(), now())");
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        rollupService = new SalesRollupService(jdbcTemplate);
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void clearTables() {
+        jdbcTemplate.update("DELETE FROM sales_rollups");
+        jdbcTemplate.update("DELETE FROM order_items");
+        jdbcTemplate.update("DELETE FROM orders");
+    }
+
+    @Test
+    void liveRollupsMatchTheRebuild() {
+        // the novel is on two lines of the first order: still one order for the novel and for books
+        OrderResponse first = placeOrder("first", MORNING, "38.00",
+                line(NOVEL, BOOKS, 2, "10.00"), line(NOVEL, BOOKS, 1, "10.00"), line(ATLAS, BOOKS, 1, "5.00"));
+        OrderResponse second = placeOrder("second", AFTERNOON, "32.50",
+                line(NOVEL, BOOKS, 1, "10.00"), line(CHESS, GAMES, 3, "7.50"));
+        OrderResponse third = placeOrder("third", NEXT_DAY, "7.50", line(CHESS, GAMES, 1, "7.50"));
+        onEvents(placed(first), placed(second));
+        onEvents(placed(third), changeStatus("first", OrderStatus.PENDING, OrderStatus.SHIPPED, "38.00"));
+        onEvents(changeStatus("third", OrderStatus.PENDING, OrderStatus.CANCELLED, "7.50"),
+                changeStatus("first", OrderStatus.SHIPPED, OrderStatus.DELIVERED, "38.00"));
+
+        List<Map<String, Object>> live = jdbcTemplate.queryForList(ROLLUP_ROWS_SQL);
+        transactionTemplate.executeWithoutResult(status -> rollupService.rebuild());
+        List<Map<String, Object>> rebuilt = jdbcTemplate.queryForList(ROLLUP_ROWS_SQL);
+
+        assertEquals(rebuilt, live);
+        assertEquals(List.of(1L, 3L, new BigDecimal("30.00")),
+                row("DAY", MORNING, "PRODUCT", NOVEL, OrderStatus.DELIVERED));
+        assertEquals(List.of(2L, 5L, new BigDecimal("45.00")),
+                sumOverStatuses("DAY", MORNING, "CATEGORY", BOOKS));
+        assertEquals(List.of(1L, 1L, new BigDecimal("7.50")),
+                row("HOUR", NEXT_DAY, "TOTAL", "", OrderStatus.CANCELLED));
+    }
+
+    @Test
+    void statusChangesMoveTheWholeOrderBetweenStatuses() {
+        OrderResponse order = placeOrder("moved", MORNING, "25.00",
+                line(NOVEL, BOOKS, 2, "10.00"), line(ATLAS, BOOKS, 1, "5.00"));
+        onEvents(placed(order));
+        onEvents(changeStatus("moved", OrderStatus.PENDING, OrderStatus.PROCESSING, "25.00"),
+                changeStatus("moved", OrderStatus.PROCESSING, OrderStatus.REFUNDED, "25.00"));
+
+        for (String dimension : List.of("TOTAL", "PRODUCT", "CATEGORY")) {
+            assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM sales_rollups WHERE dimension = ? "
+                    + "AND status <> 'REFUNDED' AND (order_count <> 0 OR units <> 0 OR revenue <> 0)", Integer.class, dimension));
+        }
+        assertEquals(List.of(1L, 3L, new BigDecimal("25.00")), row("DAY", MORNING, "TOTAL", "", OrderStatus.REFUNDED));
+        assertEquals(List.of(1L, 3L, new BigDecimal("25.00")), row("DAY", MORNING, "CATEGORY", BOOKS, OrderStatus.REFUNDED));
+        assertEquals(List.of(1L, 2L, new BigDecimal("20.00")), row("DAY", MORNING, "PRODUCT", NOVEL, OrderStatus.REFUNDED));
+    }
+
+    @Test
+    void aBatchWaitsForARunningRebuild() throws Exception {
+        placeOrder("before", MORNING, "10.00", line(NOVEL, BOOKS, 1, "10.00"));
+        CountDownLatch rebuilt = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> rebuild = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            rollupService.rebuild();
+            rebuilt.countDown();
+            await(commit);
+        }));
+        assertTrue(rebuilt.await(10, TimeUnit.SECONDS));
+
+        // placed after the rebuild read the orders, so only its event counts it
+        OrderResponse after = placeOrder("after", MORNING, "7.50", line(CHESS, GAMES, 1, "7.50"));
+        CompletableFuture<Void> batch = CompletableFuture.runAsync(() -> onEvents(placed(after)));
+        Thread.sleep(200);
+        assertFalse(batch.isDone(), "the batch must wait for the rebuild's lock");
+        commit.countDown();
+        rebuild.get(10, TimeUnit.SECONDS);
+        batch.get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of(2L, 2L, new BigDecimal("17.50")), row("DAY", MORNING, "TOTAL", "", OrderStatus.PENDING));
+    }
+
+    private static void onEvents(DomainEvent... events) {
+        transactionTemplate.executeWithoutResult(status -> rollupService.onEvents(List.of(events)));
+    }
+
+    private static OrderPlacedEvent placed(OrderResponse order) {
+        return new OrderPlacedEvent(order, "Buyer");
+    }
+
+    private static OrderStatusChangedEvent changeStatus(String orderName, OrderStatus from, OrderStatus to, String total) {
+        jdbcTemplate.update("UPDATE orders SET status = ? WHERE order_id = ?", to.name(), id(orderName));
+        return new OrderStatusChangedEvent(id(orderName), BUYER, from, to, Money.of(new BigDecimal(total)));
+    }
+
+    private static OrderResponse placeOrder(String orderName, LocalDateTime orderDate, String total, OrderItemResponse... items) {
+        String orderId = id(orderName);
+        jdbcTemplate.update("INSERT INTO orders (order_id, user_id, order_date, status, total_amount, shipping_address_id) "
+                + "VALUES (?, ?, ?, 'PENDING', ?, ?)", orderId, BUYER, Timestamp.valueOf(orderDate), new BigDecimal(total), HOME);
+        for (int i = 0; i < items.length; i++) {
+            OrderItemResponse item = items[i];
+            jdbcTemplate.update("INSERT INTO order_items (order_item_id, order_id, order_date, product_id, category_id, "
+                            + "quantity, price_at_purchase) VALUES (?, ?, ?, ?, ?, ?, ?)", id(orderName + "-" + i), orderId,
+                    Timestamp.valueOf(orderDate), item.getProductId(), item.getCategoryId(), item.getQuantity(),
+                    item.getPriceAtPurchase());
+        }
+        OrderResponse order = new OrderResponse();
+        order.setOrderId(orderId);
+        order.setUserId(BUYER);
+        order.setOrderDate(orderDate);
+        order.setStatus(OrderStatus.PENDING);
+        order.setTotalAmount(new BigDecimal(total));
+        order.setItems(List.of(items));
+        return order;
+    }
+
+    private static OrderItemResponse line(String productId, String categoryId, int quantity, String price) {
+        OrderItemResponse item = new OrderItemResponse();
+        item.setProductId(productId);
+        item.setCategoryId(categoryId);
+        item.setQuantity(quantity);
+        item.setPriceAtPurchase(new BigDecimal(price));
+        item.setItemTotal(new BigDecimal(price).multiply(BigDecimal.valueOf(quantity)));
+        return item;
+    }
+
+    private static List<Object> row(String granularity, LocalDateTime time, String dimension, String dimensionId,
+                                    OrderStatus status) {
+        return jdbcTemplate.query("SELECT order_count, units, revenue FROM sales_rollups WHERE granularity = ? "
+                        + "AND bucket_start = date_trunc(?, ?::timestamp) AND dimension = ? AND dimension_id = ? AND status = ?",
+                (rs, rowNum) -> List.<Object>of(rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3)),
+                granularity, granularity.toLowerCase(), Timestamp.valueOf(time), dimension, dimensionId, status.name())
+                .stream().findFirst().orElse(List.of());
+    }
+
+    private static List<Object> sumOverStatuses(String granularity, LocalDateTime time, String dimension, String dimensionId) {
+        List<Object> sums = new ArrayList<>();
+        jdbcTemplate.query("SELECT SUM(order_count), SUM(units), SUM(revenue) FROM sales_rollups WHERE granularity = ? "
+                        + "AND bucket_start = date_trunc(?, ?::timestamp) AND dimension = ? AND dimension_id = ?",
+                rs -> {
+                    sums.addAll(List.of(rs.getLong(1), rs.getLong(2), rs.getBigDecimal(3)));
+                },
+                granularity, granularity.toLowerCase(), Timestamp.valueOf(time), dimension, dimensionId);
+        return sums;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.StockMovementResponse;
+import com.shopsphere.model.Category;
+import com.shopsphere.model.MoneyConverter;
+import com.shopsphere.model.Product;
+import com.shopsphere.model.StockMovement;
+import com.shopsphere.repository.StockMovementRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+import static com.shopsphere.util.FixtureIds.id;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The stock ledger's compaction and point-in-time reads against an embedded PostgreSQL. Skipped when the embedded
+ * server cannot start on the build machine.
+ */
+class StockLedgerServiceTest {
+
+    private static final String PRODUCT_ID = id("ledger-product");
+    private static final int RETENTION_DAYS = 30;
+    private static final LocalDate TODAY = LocalDate.now();
+    // three days past the retention with three movements each, then two recent ones
+    private static final List<LocalDateTime> TIMES = List.of(
+            TODAY.minusDays(40).atTime(9, 0), TODAY.minusDays(40).atTime(12, 0), TODAY.minusDays(40).atTime(18, 0),
+            TODAY.minusDays(39).atTime(9, 0), TODAY.minusDays(39).atTime(12, 0), TODAY.minusDays(39).atTime(18, 0),
+            TODAY.minusDays(38).atTime(9, 0), TODAY.minusDays(38).atTime(12, 0), TODAY.minusDays(38).atTime(18, 0),
+            TODAY.minusDays(2).atTime(10, 0), TODAY.minusDays(1).atTime(10, 0));
+    private static final List<String> TYPES = List.of("RESTOCK", "SALE", "SALE", "SALE", "RESTOCK", "SALE", "ADJUSTMENT",
+            "SALE", "RESERVATION_RELEASE", "SALE", "RESTOCK");
+    private static final List<Integer> QUANTITIES = List.of(100, -3, -5, -2, 20, -7, -4, -1, 1, -6, 30);
+    // three movements at the same time, the oldest in the ledger, so the first batch of two ends between them
+    private static final String TIED_PRODUCT_ID = id("tied-product");
+    private static final LocalDateTime TIED_TIME = TODAY.minusDays(50).atTime(8, 0);
+    private static final List<String> TIED_IDS = List.of("00000000-0000-7000-8000-000000000001",
+            "00000000-0000-7000-8000-000000000002", "00000000-0000-7000-8000-000000000003");
+    private static final String DELETED_PRODUCT_ID = id("deleted-product");
+
+    private static EmbeddedPostgres postgres;
+    private static EntityManagerFactory entityManagerFactory;
+    private static StockLedgerService ledger;
+
+    @BeforeAll
+    static void startDatabase() throws SQLException {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO products (product_id, name, price, stock_quantity, created_at, updated_at, version) "
+                    + "VALUES ('" + PRODUCT_ID + "', 'Ledger product', 9.99, " + stockAfter(QUANTITIES.size() - 1) + ", now(), now(), 0)");
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO stock_movements "
+                    + "(movement_id, product_id, movement_type, quantity, stock_after, created_at) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < TIMES.size(); i++) {
+                    insert.setString(1, id("movement-" + (10 + i)));
+                    insert.setString(2, PRODUCT_ID);
+                    insert.setString(3, TYPES.get(i));
+                    insert.setInt(4, QUANTITIES.get(i));
+                    insert.setInt(5, stockAfter(i));
+                    insert.setTimestamp(6, Timestamp.valueOf(TIMES.get(i)));
+                    insert.addBatch();
+                }
+                for (int i = 0; i < TIED_IDS.size(); i++) {
+                    insert.setString(1, TIED_IDS.get(i));
+                    insert.setString(2, TIED_PRODUCT_ID);
+                    insert.setString(3, i == 0 ? "RESTOCK" : "SALE");
+                    insert.setInt(4, i == 0 ? 10 : -i);
+                    insert.setInt(5, 10 - i * (i + 1) / 2); // 10, 9, 7
+                    insert.setTimestamp(6, Timestamp.valueOf(TIED_TIME));
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            statement.execute("INSERT INTO products (product_id, name, price, stock_quantity, created_at, updated_at, version) "
+                    + "VALUES ('" + TIED_PRODUCT_ID + "', 'Tied product', 9.99, 7, now(), now(), 0), "
+                    + "('" + DELETED_PRODUCT_ID + "', 'Deleted product', 9.99, 5, now(), now(), 0)");
+            statement.execute("INSERT INTO stock_movements (movement_id, product_id, movement_type, quantity, stock_after, "
+                    + "created_at) VALUES ('" + id("deleted-movement") + "', '" + DELETED_PRODUCT_ID + "', 'ADJUSTMENT', 5, 5, now())");
+        }
+
+        Configuration configuration = new Configuration();
+        for (Class<?> type : new Class<?>[] {Category.class, Product.class, StockMovement.class, MoneyConverter.class}) {
+            configuration.addAnnotatedClass(type);
+        }
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+        entityManagerFactory = configuration.buildSessionFactory();
+        StockMovementRepository repository = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory))
+                .getRepository(StockMovementRepository.class);
+        // a batch smaller than a day's movements, so days straddle batches
+        ledger = new StockLedgerService(repository, new JpaTransactionManager(entityManagerFactory), RETENTION_DAYS, 2,
+                new SimpleMeterRegistry());
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void compactionKeepsTheStockAtEveryDayEndAndTheRecentHistory() {
+        ledger.compact();
+        ledger.compact(); // nothing left to fold
+
+        LocalDateTime cutoff = TODAY.minusDays(RETENTION_DAYS).atStartOfDay();
+        assertEquals(0, countRows("SELECT count(*) FROM stock_movements WHERE created_at < '" + cutoff + "' "
+                + "AND movement_type <> 'COMPACTED'"));
+        int compacted = countRows("SELECT count(*) FROM stock_movements WHERE movement_type = 'COMPACTED' "
+                + "AND product_id = '" + PRODUCT_ID + "'");
+        assertTrue(compacted >= 3 && compacted < 9, "expected the 9 old movements in a few daily rows, got " + compacted);
+        assertEquals(stockAfter(QUANTITIES.size() - 1),
+                countRows("SELECT sum(quantity) FROM stock_movements WHERE product_id = '" + PRODUCT_ID + "'"));
+
+        for (int day = 0; day < 3; day++) {
+            LocalDateTime endOfDay = TIMES.get(day * 3).toLocalDate().atTime(LocalTime.MAX);
+            assertEquals(stockAfter(day * 3 + 2), ledger.getStockAt(PRODUCT_ID, endOfDay).getStockQuantity());
+        }
+        // recent history is untouched, to the movement
+        assertEquals(stockAfter(8), ledger.getStockAt(PRODUCT_ID, TIMES.get(9).minusSeconds(1)).getStockQuantity());
+        assertEquals(stockAfter(9), ledger.getStockAt(PRODUCT_ID, TIMES.get(9)).getStockQuantity());
+        assertEquals(stockAfter(10), ledger.getStockAt(PRODUCT_ID, null).getStockQuantity());
+        List<StockMovementResponse> recent = ledger.getMovements(PRODUCT_ID, cutoff, null, 100);
+        assertEquals(List.of("RESTOCK", "SALE"), recent.stream().map(StockMovementResponse::getType).toList());
+        assertEquals(List.of(30, -6), recent.stream().map(StockMovementResponse::getQuantity).toList());
+    }
+
+    @Test
+    void compactedRowsKeepTheOrderOfMovementsMadeAtTheSameTime() {
+        ledger.compact();
+
+        assertEquals(2, countRows("SELECT count(*) FROM stock_movements WHERE movement_type = 'COMPACTED' "
+                + "AND product_id = '" + TIED_PRODUCT_ID + "'"), "the batch of two ends between the tied movements");
+        assertEquals(7, ledger.getStockAt(TIED_PRODUCT_ID, TIED_TIME).getStockQuantity());
+        assertEquals(List.of(7, 9), ledger.getMovements(TIED_PRODUCT_ID, TIED_TIME, TIED_TIME.plusSeconds(1), 100).stream()
+                .map(StockMovementResponse::getStockAfter).toList());
+    }
+
+    @Test
+    void aDeletedProductKeepsItsHistory() {
+        assertEquals(1, countRows("DELETE FROM products WHERE product_id = '" + DELETED_PRODUCT_ID + "' RETURNING 1"));
+
+        assertEquals(5, ledger.getStockAt(DELETED_PRODUCT_ID, null).getStockQuantity());
+    }
+
+    @Test
+    void noStockBeforeTheFirstMovement() {
+        assertThrows(ResponseStatusException.class,
+                () -> ledger.getStockAt(PRODUCT_ID, TIMES.get(0).minusDays(1)));
+    }
+
+    private static int stockAfter(int movement) {
+        return QUANTITIES.subList(0, movement + 1).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static int countRows(String sql) {
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
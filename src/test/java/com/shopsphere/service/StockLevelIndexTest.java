@@ -0,0 +1,89 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.ProductResponse;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.event.ProductUpdatedEvent;
+import com.shopsphere.event.StockChangedEvent;
+import com.shopsphere.event.StockThresholdCrossedEvent;
+import com.shopsphere.model.Money;
+import com.shopsphere.model.Product;
+import com.shopsphere.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StockLevelIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final DomainEventBus eventBus = mock(DomainEventBus.class);
+
+    private final StockLevelIndex index = new StockLevelIndex(productRepository, eventBus, 10);
+
+    @Test
+    void answersLowStockQueriesFromMemoryInStockOrder() {
+        when(productRepository.findAllWithCategory()).thenReturn(List.of(
+                product("a", 50, null), product("b", 4, null), product("c", 8, 5)));
+        index.reconcile();
+        clearInvocations(productRepository);
+
+        assertEquals(List.of("b", "c"), ids(index.findAtOrBelow(8)));
+        assertEquals(List.of("b", "c", "a"), ids(index.findAtOrBelow(Integer.MAX_VALUE)));
+        assertEquals(List.of("b"), ids(index.findBelowReorderThreshold())); // c has its own threshold of 5
+        verifyNoInteractions(productRepository, eventBus);
+    }
+
+    @Test
+    void publishesAnEventOnlyWhenAThresholdIsCrossed() {
+        when(productRepository.findAllWithCategory()).thenReturn(List.of(product("a", 20, null)));
+        index.reconcile();
+
+        index.onEvents(List.of(new StockChangedEvent("a", 20, 12)));
+        verify(eventBus, never()).publish(any());
+
+        index.onEvents(List.of(new StockChangedEvent("a", 12, 9), new StockChangedEvent("a", 9, 3)));
+        ArgumentCaptor<StockThresholdCrossedEvent> captor = ArgumentCaptor.forClass(StockThresholdCrossedEvent.class);
+        verify(eventBus, times(1)).publish(captor.capture());
+        assertEquals(StockThresholdCrossedEvent.Direction.LOW, captor.getValue().getDirection());
+        assertEquals(9, captor.getValue().getStockQuantity());
+        assertEquals(1, index.countBelowReorderThreshold());
+
+        ProductResponse restocked = ProductService.convertToDto(product("a", 100, null));
+        index.onEvents(List.of(new ProductUpdatedEvent(ProductUpdatedEvent.ChangeType.UPDATED, "a", restocked)));
+        verify(eventBus, times(2)).publish(captor.capture());
+        assertEquals(StockThresholdCrossedEvent.Direction.RESTOCKED, captor.getValue().getDirection());
+        assertEquals(0, index.countBelowReorderThreshold());
+    }
+
+    @Test
+    void aRebuildThatFindsACrossingDoesNotAlertItAgain() {
+        when(productRepository.findAllWithCategory()).thenReturn(List.of(product("a", 20, null)));
+        index.reconcile();
+
+        // another node sold the stock and has already alerted it; this one sees it on its next rebuild
+        when(productRepository.findAllWithCategory()).thenReturn(List.of(product("a", 3, null)));
+        index.reconcile();
+
+        verify(eventBus, never()).publish(any());
+        assertEquals(List.of("a"), ids(index.findBelowReorderThreshold()));
+    }
+
+    private static Product product(String id, int stock, Integer reorderThreshold) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setName("Product " + id);
+        product.setPrice(Money.of(new BigDecimal("9.99")));
+        product.setStockQuantity(stock);
+        product.setReorderThreshold(reorderThreshold);
+        return product;
+    }
+
+    private static List<String> ids(List<ProductResponse> products) {
+        return products.stream().map(ProductResponse::getProductId).toList();
+    }
+}
@@ -0,0 +1,79 @@
+package com.shopsphere.service;
+
+import com.shopsphere.config.CacheNames;
+import com.shopsphere.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheInvalidatorTest {
+
+    private final ConcurrentMapCacheManager cacheManager =
+            new ConcurrentMapCacheManager(CacheNames.USERS, CacheNames.USER_DETAILS);
+    private final UserCacheInvalidator invalidator = new UserCacheInvalidator(cacheManager);
+    private final Cache users = cacheManager.getCache(CacheNames.USERS);
+    private final Cache userDetails = cacheManager.getCache(CacheNames.USER_DETAILS);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evictsBothCachesForTheUserOnly() {
+        fill("u1", "alice");
+        fill("u2", "bob");
+
+        invalidator.evict(user("u1", "alice"));
+
+        assertNull(users.get("u1"));
+        assertNull(userDetails.get("alice"));
+        assertNotNull(users.get("u2"));
+        assertNotNull(userDetails.get("bob"));
+    }
+
+    @Test
+    void evictProfileKeepsTheLoginEntry() {
+        fill("u1", "alice");
+
+        invalidator.evictProfile("u1");
+
+        assertNull(users.get("u1"));
+        assertNotNull(userDetails.get("alice"));
+    }
+
+    @Test
+    void evictsAgainAfterCommit() {
+        fill("u1", "alice");
+        TransactionSynchronizationManager.initSynchronization();
+
+        invalidator.evict(user("u1", "alice"));
+        // a concurrent read repopulates the cache with the state from before the commit
+        fill("u1", "alice");
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+
+        assertNull(users.get("u1"));
+        assertNull(userDetails.get("alice"));
+    }
+
+    private void fill(String userId, String username) {
+        users.put(userId, "profile of " + username);
+        userDetails.put(username, "details of " + username);
+    }
+
+    private static User user(String userId, String username) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setUsername(username);
+        return user;
+    }
+}
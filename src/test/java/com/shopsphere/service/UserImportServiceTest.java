@@ -0,0 +1,183 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.UserImportRequest;
+import com.shopsphere.dto.UserImportResponse;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.model.Role;
+import com.shopsphere.model.User;
+import com.shopsphere.repository.RoleRepository;
+import com.shopsphere.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Bulk user import against an embedded PostgreSQL. Skipped when the embedded server cannot start on the build
+ * machine.
+ */
+class UserImportServiceTest {
+
+    private static final String HASH = new BCryptPasswordEncoder(4).encode("secret");
+
+    private static EmbeddedPostgres postgres;
+    private static EntityManagerFactory entityManagerFactory;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static UserImportService importService;
+
+    @BeforeAll
+    static void startDatabase() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO roles (role_id, name) VALUES (md5('role-user')::uuid, 'ROLE_USER'), (md5('role-admin')::uuid, 'ROLE_ADMIN')");
+
+        Configuration configuration = new Configuration();
+        configuration.addAnnotatedClass(User.class);
+        configuration.addAnnotatedClass(Role.class);
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+        configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "2");
+        entityManagerFactory = configuration.buildSessionFactory();
+        RepositoryFactorySupport repositories = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        importService = new UserImportService(repositories.getRepository(UserRepository.class),
+                new RoleCache(repositories.getRepository(RoleRepository.class), new SimpleMeterRegistry()),
+                new BCryptPasswordEncoder(4), new UserUniquenessFilter(jdbcTemplate, 0.01), mock(DomainEventBus.class));
+        ReflectionTestUtils.setField(importService, "entityManager",
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        // smaller than the import, so it spans several flush-and-clear batches
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "allowedRoles", Set.of("ROLE_USER"));
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    void clearUsers() {
+        jdbcTemplate.update("DELETE FROM user_roles");
+        jdbcTemplate.update("DELETE FROM users");
+    }
+
+    @Test
+    void importsInBatchesAndSkipsDuplicates() {
+        jdbcTemplate.update("INSERT INTO users (user_id, username, email, password, registration_date) "
+                + "VALUES (md5('existing')::uuid, 'taken', 'taken@example.com', 'hash', now())");
+        List<UserImportRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(request("user" + i, "user" + i + "@example.com"));
+        }
+        requests.get(1).setPassword(null);
+        requests.get(1).setPasswordHash(HASH);
+        requests.get(2).setPassword(null);
+        requests.get(2).setPasswordHash("{bcrypt}" + HASH);
+        requests.add(request("taken", "new@example.com"));          // username in the database
+        requests.add(request("fresh", "taken@example.com"));        // email in the database
+        requests.add(request("user0", "other@example.com"));        // username earlier in the request
+
+        UserImportResponse response = importUsers(requests);
+
+        assertEquals(5, response.getImported());
+        assertEquals(List.of("taken: username already taken", "fresh: email already in use",
+                "user0: username already taken"), response.getSkipped());
+        assertEquals(6, count("SELECT count(*) FROM users"));
+        assertEquals(5, count("SELECT count(*) FROM user_roles WHERE role_id = md5('role-user')::uuid"));
+        assertEquals(HASH, jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = 'user1'", String.class),
+                "an existing hash is stored as is");
+        assertTrue(new BCryptPasswordEncoder().matches("secret",
+                jdbcTemplate.queryForObject("SELECT password FROM users WHERE username = 'user0'", String.class)));
+    }
+
+    @Test
+    void skipsMalformedHashesAndRolesAnImportMayNotGrant() {
+        UserImportRequest plainText = request("plain", "plain@example.com");
+        plainText.setPassword(null);
+        plainText.setPasswordHash("secret");
+        UserImportRequest truncated = request("truncated", "truncated@example.com");
+        truncated.setPassword(null);
+        truncated.setPasswordHash(HASH.substring(0, 40));
+        UserImportRequest admin = request("admin", "admin@example.com");
+        admin.setRoles(List.of("ROLE_USER", "ROLE_ADMIN"));
+
+        UserImportResponse response = importUsers(List.of(plainText, truncated, admin, request("ok", "ok@example.com")));
+
+        assertEquals(1, response.getImported());
+        assertEquals(List.of("plain: passwordHash is not a BCrypt hash", "truncated: passwordHash is not a BCrypt hash",
+                "admin: role ROLE_ADMIN cannot be granted by an import"), response.getSkipped());
+        assertEquals(0, count("SELECT count(*) FROM user_roles WHERE role_id = md5('role-admin')::uuid"));
+    }
+
+    @Test
+    void anUnknownRoleFailsTheWholeImport() {
+        ReflectionTestUtils.setField(importService, "allowedRoles", Set.of("ROLE_USER", "ROLE_MISSING"));
+        try {
+            UserImportRequest unknown = request("unknown", "unknown@example.com");
+            unknown.setRoles(List.of("ROLE_MISSING"));
+
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> importUsers(List.of(request("first", "first@example.com"), unknown)));
+
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+            assertEquals(0, count("SELECT count(*) FROM users"));
+        } finally {
+            ReflectionTestUtils.setField(importService, "allowedRoles", Set.of("ROLE_USER"));
+        }
+    }
+
+    private static UserImportResponse importUsers(List<UserImportRequest> requests) {
+        return transactionTemplate.execute(status -> importService.importUsers(requests));
+    }
+
+    private static UserImportRequest request(String username, String email) {
+        return new UserImportRequest(username, email, "secret", null, null, null, null, null);
+    }
+
+    private static int count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Integer.class);
+    }
+}
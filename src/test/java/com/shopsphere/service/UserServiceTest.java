@@ -0,0 +1,197 @@
+package com.shopsphere.service;
+
+import com.shopsphere.dto.AdminUserPage;
+import com.shopsphere.dto.AdminUserSummary;
+import com.shopsphere.dto.RegisterRequest;
+import com.shopsphere.event.DomainEventBus;
+import com.shopsphere.model.Role;
+import com.shopsphere.model.User;
+import com.shopsphere.repository.RoleRepository;
+import com.shopsphere.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.support.PersistenceExceptionTranslationInterceptor;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static com.shopsphere.util.FixtureIds.id;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * UserService queries and constraint handling against an embedded PostgreSQL. Skipped when the embedded server
+ * cannot start on the build machine.
+ */
+class UserServiceTest {
+
+    private static EmbeddedPostgres postgres;
+    private static EntityManagerFactory entityManagerFactory;
+    private static JdbcTemplate jdbcTemplate;
+    private static TransactionTemplate transactionTemplate;
+    private static UserRepository userRepository;
+    private static RoleCache roleCache;
+
+    @BeforeAll
+    static void startDatabase() {
+        try {
+            postgres = EmbeddedPostgres.start();
+        } catch (Exception e) {
+            Assumptions.abort("Embedded PostgreSQL is not available: " + e.getMessage());
+        }
+        DataSource dataSource = postgres.getDatabase("postgres", "postgres", Map.of("stringtype", "unspecified"));
+        Flyway.configure()
+                .dataSource(dataSource)
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO roles (role_id, name) VALUES (md5('role-user')::uuid, 'ROLE_USER'), (md5('role-admin')::uuid, 'ROLE_ADMIN')");
+        jdbcTemplate.update("INSERT INTO users (user_id, username, email, password, registration_date) "
+                + "VALUES (md5('existing')::uuid, 'alice', 'alice@example.com', 'hash', now())");
+
+        Configuration configuration = new Configuration();
+        configuration.addAnnotatedClass(User.class);
+        configuration.addAnnotatedClass(Role.class);
+        configuration.getProperties().put(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+        entityManagerFactory = configuration.buildSessionFactory();
+        RepositoryFactorySupport repositories = new JpaRepositoryFactory(
+                SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory));
+        // as in the application, so a violated constraint arrives as a DataIntegrityViolationException
+        repositories.addRepositoryProxyPostProcessor((factory, repositoryInformation) ->
+                factory.addAdvice(new PersistenceExceptionTranslationInterceptor(new HibernateJpaDialect())));
+        userRepository = repositories.getRepository(UserRepository.class);
+        roleCache = new RoleCache(repositories.getRepository(RoleRepository.class), new SimpleMeterRegistry());
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (entityManagerFactory != null) {
+            entityManagerFactory.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    void duplicatesTheFilterDoesNotKnowAreCaughtByTheConstraints() {
+        // a fresh filter has not seen alice, so registration goes straight to the insert
+        UserService userService = userService(new UserUniquenessFilter(jdbcTemplate, 0.01));
+
+        assertRejected(userService, "alice", "other@example.com", "Username already taken!");
+        assertRejected(userService, "bob", "alice@example.com", "Email already in use!");
+    }
+
+    @Test
+    void duplicatesTheFilterKnowsAreCaughtByTheLookups() {
+        UserUniquenessFilter filter = new UserUniquenessFilter(jdbcTemplate, 0.01);
+        filter.add("alice", "alice@example.com");
+        UserService userService = userService(filter);
+
+        assertRejected(userService, "alice", "other@example.com", "Username already taken!");
+        assertRejected(userService, "bob", "alice@example.com", "Email already in use!");
+    }
+
+    @Test
+    void registrationAddsTheUserToTheFilter() {
+        UserUniquenessFilter filter = new UserUniquenessFilter(jdbcTemplate, 0.01);
+        UserService userService = userService(filter);
+
+        User user = transactionTemplate.execute(status -> userService.registerUser(register("carol", "carol@example.com")));
+
+        assertNotNull(user.getUserId());
+        assertTrue(filter.mightHaveUsername("carol"));
+        assertTrue(filter.mightHaveEmail("carol@example.com"));
+        assertRejected(userService, "carol", "carol2@example.com", "Username already taken!");
+    }
+
+    @Test
+    void listUsersPagesByUsernameWithAllRoles() {
+        for (String username : List.of("list-a", "list-b", "list-c", "list-d", "list-e", "listxa")) {
+            jdbcTemplate.update("INSERT INTO users (user_id, username, email, password, registration_date) "
+                    + "VALUES (?, ?, ?, 'hash', now())", id(username), username, username + "@Example.com");
+        }
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id) VALUES "
+                + "(md5('list-a')::uuid, md5('role-user')::uuid), (md5('list-a')::uuid, md5('role-admin')::uuid), "
+                + "(md5('list-b')::uuid, md5('role-user')::uuid), (md5('list-d')::uuid, md5('role-user')::uuid)");
+        UserService userService = userService(new UserUniquenessFilter(jdbcTemplate, 0.01));
+
+        AdminUserPage first = listUsers(userService, null, "list-", 2);
+        assertEquals(List.of("list-a", "list-b"), usernames(first));
+        assertEquals("list-b", first.getNextCursor());
+        // several roles are aggregated into one row, in name order; a user without roles has none
+        assertEquals(List.of("ROLE_ADMIN", "ROLE_USER"), first.getUsers().get(0).getRoles());
+        assertEquals(List.of("ROLE_USER"), first.getUsers().get(1).getRoles());
+
+        AdminUserPage second = listUsers(userService, first.getNextCursor(), "list-", 2);
+        assertEquals(List.of("list-c", "list-d"), usernames(second));
+        assertEquals(List.of(), second.getUsers().get(0).getRoles());
+
+        AdminUserPage last = listUsers(userService, second.getNextCursor(), "list-", 2);
+        assertEquals(List.of("list-e"), usernames(last));
+        assertNull(last.getNextCursor(), "a short page is the last one");
+
+        // a page that ends exactly at the last user still has a cursor, which then returns an empty page
+        AdminUserPage full = listUsers(userService, null, "list-", 5);
+        assertEquals("list-e", full.getNextCursor());
+        AdminUserPage empty = listUsers(userService, full.getNextCursor(), "list-", 5);
+        assertEquals(List.of(), empty.getUsers());
+        assertNull(empty.getNextCursor());
+
+        // emails match case-insensitively, and LIKE wildcards in the search are literal
+        assertEquals(List.of("list-b"), usernames(listUsers(userService, null, "LIST-B@example", 10)));
+        assertEquals(List.of(), usernames(listUsers(userService, null, "list_", 10)));
+        assertEquals(List.of("listxa"), usernames(listUsers(userService, null, "listx", 10)));
+    }
+
+    private static AdminUserPage listUsers(UserService userService, String after, String search, int limit) {
+        return transactionTemplate.execute(status -> userService.listUsers(after, search, limit));
+    }
+
+    private static List<String> usernames(AdminUserPage page) {
+        return page.getUsers().stream().map(AdminUserSummary::getUsername).toList();
+    }
+
+    private static void assertRejected(UserService userService, String username, String email, String reason) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () ->
+                transactionTemplate.execute(status -> userService.registerUser(register(username, email))));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertEquals(reason, e.getReason());
+    }
+
+    private static UserService userService(UserUniquenessFilter filter) {
+        return new UserService(userRepository, roleCache, new BCryptPasswordEncoder(4), mock(LoginAuthenticator.class),
+                mock(JwtService.class), mock(RefreshTokenService.class), mock(TokenRevocationService.class),
+                mock(LastLoginRecorder.class), filter, mock(DomainEventBus.class));
+    }
+
+    private static RegisterRequest register(String username, String email) {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername(username);
+        request.setEmail(email);
+        request.setPassword("secret");
+        return request;
+    }
+}
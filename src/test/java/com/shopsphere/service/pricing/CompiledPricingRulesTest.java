@@ -0,0 +1,60 @@
+package com.shopsphere.service.pricing;
+
+import com.shopsphere.model.Money;
+import com.shopsphere.model.enums.PricingRuleType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.shopsphere.service.pricing.PricingRuleFixtures.rule;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledPricingRulesTest {
+
+    private final CompiledPricingRules rules = CompiledPricingRules.compile(List.of(
+            rule(PricingRuleType.TAX, null, null, null, null, 800, null, null),
+            rule(PricingRuleType.TAX, "US", "CA", null, null, 725, null, null),
+            rule(PricingRuleType.TAX, "US", null, "941", null, 863, null, null),
+            rule(PricingRuleType.TAX, "US", "CA", null, "food", 0, null, null),
+            rule(PricingRuleType.PROMOTION, null, null, null, "books", 1000, null, null),
+            rule(PricingRuleType.SHIPPING, null, null, null, null, null, Money.ZERO, Money.ofMinor(1000)),
+            rule(PricingRuleType.SHIPPING, null, null, null, null, null, Money.ofMinor(3500), Money.ZERO)
+    ));
+
+    @Test
+    void globalTaxAndShippingBelowFreeThreshold() {
+        PriceQuote quote = price("DE", null, null, new long[]{1000}, new int[]{2}, new String[]{null});
+        assertEquals(2000, quote.getSubtotal());
+        assertEquals(160, quote.getTax());
+        assertEquals(1000, quote.getShipping());
+        assertEquals(3160, quote.getTotal());
+    }
+
+    @Test
+    void mostSpecificJurisdictionWins() {
+        assertEquals(725, price("us", "ca", "90001", new long[]{10_000}, new int[]{1}, new String[]{null}).getTax());
+        assertEquals(863, price("US", "CA", "94105", new long[]{10_000}, new int[]{1}, new String[]{null}).getTax());
+        // category overrides at the same jurisdiction level replace the general rate
+        assertEquals(0, price("US", "CA", "90001", new long[]{10_000}, new int[]{1}, new String[]{"food"}).getTax());
+    }
+
+    @Test
+    void categoryPromotionReducesTaxableAmountAndShippingIsFreeAboveThreshold() {
+        PriceQuote quote = price("DE", null, null, new long[]{5000}, new int[]{1}, new String[]{"books"});
+        assertEquals(500, quote.getDiscount());
+        assertEquals(360, quote.getTax());
+        assertEquals(0, quote.getShipping());
+        assertEquals(5000 - 500 + 360, quote.getTotal());
+    }
+
+    private PriceQuote price(String country, String state, String postal, long[] prices, int[] quantities, String[] categories) {
+        PricingInput input = new PricingInput(prices.length);
+        input.setDestination(country, state, postal);
+        for (int i = 0; i < prices.length; i++) {
+            input.addLine(prices[i], quantities[i], categories[i]);
+        }
+        PriceQuote quote = new PriceQuote();
+        rules.evaluate(input, quote);
+        return quote;
+    }
+}
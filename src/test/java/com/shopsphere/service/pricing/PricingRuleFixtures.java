@@ -0,0 +1,28 @@
+package com.shopsphere.service.pricing;
+
+import com.shopsphere.model.Money;
+import com.shopsphere.model.PricingRule;
+import com.shopsphere.model.enums.PricingRuleType;
+
+/**
+ * Unsaved pricing rules for CompiledPricingRulesTest and PricingEngineBenchmark.
+ */
+public final class PricingRuleFixtures {
+
+    private PricingRuleFixtures() {
+    }
+
+    public static PricingRule rule(PricingRuleType type, String country, String state, String postalPrefix, String categoryId,
+                                   Integer rateBasisPoints, Money minSubtotal, Money flatAmount) {
+        PricingRule rule = new PricingRule();
+        rule.setType(type);
+        rule.setCountry(country);
+        rule.setState(state);
+        rule.setPostalPrefix(postalPrefix);
+        rule.setCategoryId(categoryId);
+        rule.setRateBasisPoints(rateBasisPoints);
+        rule.setMinSubtotal(minSubtotal);
+        rule.setFlatAmount(flatAmount);
+        return rule;
+    }
+}
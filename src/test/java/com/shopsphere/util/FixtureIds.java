@@ -0,0 +1,27 @@
+package com.shopsphere.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Keys are uuid columns, so fixtures cannot use readable ids like 'user-1'. They derive a uuid from the readable
+ * name instead: {@code id("user-1")} in Java is {@code md5('user-1')::uuid} in SQL, and both sides of a test can
+ * name the same row.
+ */
+public final class FixtureIds {
+
+    private FixtureIds() {
+    }
+
+    public static String id(String name) {
+        try {
+            String hex = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(name.getBytes(StandardCharsets.UTF_8)));
+            return hex.substring(0, 8) + "-" + hex.substring(8, 12) + "-" + hex.substring(12, 16) + "-"
+                    + hex.substring(16, 20) + "-" + hex.substring(20);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
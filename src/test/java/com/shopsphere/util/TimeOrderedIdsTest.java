@@ -0,0 +1,71 @@
+package com.shopsphere.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedIdsTest {
+
+    @Test
+    void uuidV7IsAValidVersion7UuidCarryingTheCurrentTime() {
+        long before = System.currentTimeMillis();
+        String id = TimeOrderedIds.uuidV7();
+
+        UUID uuid = UUID.fromString(id);
+        assertEquals(id, uuid.toString());
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= System.currentTimeMillis() + 1, "timestamp " + millis);
+    }
+
+    @Test
+    void uuidV7StringsAreStrictlyIncreasing() {
+        String previous = TimeOrderedIds.uuidV7();
+        for (int i = 0; i < 100_000; i++) { // far more than 4096 per millisecond
+            String next = TimeOrderedIds.uuidV7();
+            assertTrue(next.compareTo(previous) > 0, previous + " then " + next);
+            previous = next;
+        }
+    }
+
+    @Test
+    void snowflakeUuidsSortLikeTheIdsAndCarryTheNodeId() {
+        TimeOrderedIds.Snowflake snowflake = new TimeOrderedIds.Snowflake(513);
+        String previous = snowflake.nextUuid();
+        for (int i = 0; i < 100_000; i++) {
+            String next = snowflake.nextUuid();
+            UUID uuid = UUID.fromString(next);
+            assertEquals(next, uuid.toString());
+            assertEquals(8, uuid.version());
+            assertEquals(2, uuid.variant());
+            assertTrue(next.compareTo(previous) > 0, previous + " then " + next);
+            assertTrue(TimeOrderedIds.Snowflake.fromUuid(uuid) > TimeOrderedIds.Snowflake.fromUuid(UUID.fromString(previous)));
+            previous = next;
+        }
+        assertEquals(513, (TimeOrderedIds.Snowflake.fromUuid(UUID.fromString(previous)) >>> 12) & 0x3FF);
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedIds.Snowflake(1024));
+    }
+
+    @Test
+    void snowflakeIdsSurviveTheUuidRoundTrip() {
+        for (long id : new long[] {0L, 1L, 0xFL, 0x10L, 0x7FFF_FFFF_FFFF_FFFFL, 0x0123_4567_89AB_CDEFL}) {
+            assertEquals(id, TimeOrderedIds.Snowflake.fromUuid(UUID.fromString(TimeOrderedIds.Snowflake.toUuid(id))));
+        }
+    }
+
+    @Test
+    void timestampIsReadBackFromBothKindsOfIds() {
+        long before = System.currentTimeMillis();
+        long uuidMillis = TimeOrderedIds.timestampMillis(TimeOrderedIds.uuidV7()).orElseThrow();
+        long snowflakeMillis = TimeOrderedIds.timestampMillis(new TimeOrderedIds.Snowflake(7).nextUuid()).orElseThrow();
+        long after = System.currentTimeMillis();
+
+        assertTrue(uuidMillis >= before && uuidMillis <= after + 1, "uuid timestamp " + uuidMillis);
+        assertTrue(snowflakeMillis >= before && snowflakeMillis <= after + 1, "snowflake timestamp " + snowflakeMillis);
+        assertTrue(TimeOrderedIds.timestampMillis(UUID.randomUUID().toString()).isEmpty());
+        assertTrue(TimeOrderedIds.timestampMillis("order-17").isEmpty());
+    }
+}